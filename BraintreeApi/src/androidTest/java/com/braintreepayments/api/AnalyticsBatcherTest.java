@@ -0,0 +1,104 @@
+package com.braintreepayments.api;
+
+import android.test.AndroidTestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AnalyticsBatcherTest extends AndroidTestCase {
+
+    private ScheduledExecutorService mScheduler;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mScheduler = new ScheduledThreadPoolExecutor(1);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mScheduler.shutdownNow();
+        super.tearDown();
+    }
+
+    public void testDrainGroupsConsecutiveEventsByIntegrationType() {
+        AnalyticsBatcher batcher = new AnalyticsBatcher(mScheduler, 10, 60000, noopListener());
+        batcher.add("first", "custom");
+        batcher.add("second", "custom");
+        batcher.add("third", "dropin");
+
+        List<AnalyticsBatcher.Batch> batches = batcher.drain();
+
+        assertEquals(2, batches.size());
+        assertEquals("custom", batches.get(0).getIntegrationType());
+        assertEquals(Arrays.asList("first", "second"), batches.get(0).getEvents());
+        assertEquals("dropin", batches.get(1).getIntegrationType());
+        assertEquals(Collections.singletonList("third"), batches.get(1).getEvents());
+        assertEquals(0, batcher.getPendingCount());
+        assertTrue(batcher.drain().isEmpty());
+    }
+
+    public void testFlushIsDueWhenTheBatchIsFull() {
+        final AtomicInteger flushCount = new AtomicInteger(0);
+        AnalyticsBatcher batcher = new AnalyticsBatcher(mScheduler, 3, 60000,
+                new AnalyticsBatcher.FlushListener() {
+                    @Override
+                    public void onFlushDue() {
+                        flushCount.incrementAndGet();
+                    }
+                });
+
+        batcher.add("first", "custom");
+        batcher.add("second", "custom");
+        assertEquals(0, flushCount.get());
+
+        batcher.add("third", "custom");
+        assertEquals(1, flushCount.get());
+    }
+
+    public void testFlushIsDueAfterTheFlushInterval() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        AnalyticsBatcher batcher = new AnalyticsBatcher(mScheduler, 10, 50,
+                new AnalyticsBatcher.FlushListener() {
+                    @Override
+                    public void onFlushDue() {
+                        latch.countDown();
+                    }
+                });
+
+        batcher.add("event", "custom");
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    public void testDrainCancelsTheScheduledFlush() throws InterruptedException {
+        final AtomicInteger flushCount = new AtomicInteger(0);
+        AnalyticsBatcher batcher = new AnalyticsBatcher(mScheduler, 10, 50,
+                new AnalyticsBatcher.FlushListener() {
+                    @Override
+                    public void onFlushDue() {
+                        flushCount.incrementAndGet();
+                    }
+                });
+
+        batcher.add("event", "custom");
+        batcher.drain();
+        Thread.sleep(150);
+
+        assertEquals(0, flushCount.get());
+    }
+
+    /* helpers */
+    private AnalyticsBatcher.FlushListener noopListener() {
+        return new AnalyticsBatcher.FlushListener() {
+            @Override
+            public void onFlushDue() {}
+        };
+    }
+}
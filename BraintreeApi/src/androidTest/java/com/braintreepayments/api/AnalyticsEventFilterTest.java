@@ -0,0 +1,69 @@
+package com.braintreepayments.api;
+
+import android.test.AndroidTestCase;
+
+import com.braintreepayments.api.models.AnalyticsConfiguration;
+import com.braintreepayments.api.models.Configuration;
+
+import java.util.Random;
+
+public class AnalyticsEventFilterTest extends AndroidTestCase {
+
+    public void testDropsIdenticalEventsInsideTheDeduplicationWindow() {
+        AnalyticsEventFilter filter = new AnalyticsEventFilter();
+
+        assertTrue(filter.accept("card.form.appeared", "custom", null));
+        assertFalse(filter.accept("card.form.appeared", "custom", null));
+        assertTrue(filter.accept("card.form.appeared", "dropin", null));
+        assertTrue(filter.accept("card.form.submitted", "custom", null));
+    }
+
+    public void testAcceptsIdenticalEventsWhenDeduplicationIsDisabled() {
+        AnalyticsEventFilter filter = new AnalyticsEventFilter();
+        AnalyticsConfiguration configuration =
+                configuration("\"deduplicationWindowMillis\": 0");
+
+        assertTrue(filter.accept("card.form.appeared", "custom", configuration));
+        assertTrue(filter.accept("card.form.appeared", "custom", configuration));
+    }
+
+    public void testSamplesEventsByKind() {
+        AnalyticsEventFilter filter = new AnalyticsEventFilter(new Random() {
+            @Override
+            public double nextDouble() {
+                return 0.5;
+            }
+        });
+        AnalyticsConfiguration configuration = configuration("\"sampleRate\": 0.75," +
+                "\"sampleRates\": {\"form.appeared\": 0.25}");
+
+        assertFalse(filter.accept("card.form.appeared", "custom", configuration));
+        assertTrue(filter.accept("card.form.submitted", "custom", configuration));
+    }
+
+    public void testLimitsBurstsOfEvents() {
+        AnalyticsEventFilter filter = new AnalyticsEventFilter();
+        AnalyticsConfiguration configuration =
+                configuration("\"maxEventsPerMinute\": 1, \"maxEventBurst\": 3");
+
+        assertTrue(filter.accept("first", "custom", configuration));
+        assertTrue(filter.accept("second", "custom", configuration));
+        assertTrue(filter.accept("third", "custom", configuration));
+        assertFalse(filter.accept("fourth", "custom", configuration));
+    }
+
+    public void testDoesNotLimitEventsWhenRateLimitIsDisabled() {
+        AnalyticsEventFilter filter = new AnalyticsEventFilter();
+        AnalyticsConfiguration configuration =
+                configuration("\"maxEventsPerMinute\": 0, \"maxEventBurst\": 1");
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(filter.accept("event" + i, "custom", configuration));
+        }
+    }
+
+    private static AnalyticsConfiguration configuration(String fields) {
+        return Configuration.fromJson("{\"analytics\": {\"url\": \"analytics_url\", " + fields +
+                "}}").getAnalytics();
+    }
+}
@@ -0,0 +1,99 @@
+package com.braintreepayments.api;
+
+import android.test.AndroidTestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class AnalyticsEventLogTest extends AndroidTestCase {
+
+    private File mFile;
+    private AnalyticsEventLog mEventLog;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mFile = new File(getContext().getFilesDir(), "analytics-event-log-test.log");
+        mEventLog = new AnalyticsEventLog(mFile);
+        mEventLog.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mEventLog.clear();
+        super.tearDown();
+    }
+
+    public void testIsEmptyBeforeAnythingIsAppended() {
+        assertTrue(mEventLog.isEmpty());
+        assertTrue(mEventLog.peek(10).isEmpty());
+    }
+
+    public void testPeekReturnsEventsOldestFirstAcrossInstances() {
+        mEventLog.append(Arrays.asList("first", "second"), "custom");
+        mEventLog.append(Collections.singletonList("third"), "dropin");
+
+        List<AnalyticsEventLog.Entry> entries = new AnalyticsEventLog(mFile).peek(10);
+
+        assertEquals(3, entries.size());
+        assertEquals("first", entries.get(0).getKind());
+        assertEquals("custom", entries.get(0).getIntegrationType());
+        assertEquals("second", entries.get(1).getKind());
+        assertEquals("third", entries.get(2).getKind());
+        assertEquals("dropin", entries.get(2).getIntegrationType());
+        assertTrue(entries.get(0).getTimestamp() > 0);
+    }
+
+    public void testPeekDoesNotRemoveEvents() {
+        mEventLog.append(Arrays.asList("first", "second"), "custom");
+
+        assertEquals(1, mEventLog.peek(1).size());
+        assertEquals(2, mEventLog.peek(10).size());
+    }
+
+    public void testRemoveDropsTheOldestEvents() {
+        mEventLog.append(Arrays.asList("first", "second", "third"), "custom");
+
+        mEventLog.remove(2);
+
+        List<AnalyticsEventLog.Entry> entries = mEventLog.peek(10);
+        assertEquals(1, entries.size());
+        assertEquals("third", entries.get(0).getKind());
+
+        mEventLog.remove(5);
+        assertTrue(mEventLog.isEmpty());
+    }
+
+    public void testSkipsPartiallyWrittenLines() throws IOException {
+        mEventLog.append(Collections.singletonList("first"), "custom");
+        FileOutputStream outputStream = new FileOutputStream(mFile, true);
+        outputStream.write("{\"kind\":\"trunc".getBytes("UTF-8"));
+        outputStream.close();
+        mEventLog.append(Collections.singletonList("second"), "custom");
+
+        List<AnalyticsEventLog.Entry> entries = mEventLog.peek(10);
+
+        assertEquals(1, entries.size());
+        assertEquals("first", entries.get(0).getKind());
+    }
+
+    public void testDropsTheOldestEventsWhenFull() {
+        char[] name = new char[1000];
+        Arrays.fill(name, 'a');
+        String longEvent = new String(name);
+
+        for (int i = 0; i < 200; i++) {
+            mEventLog.append(Collections.singletonList(longEvent + i), "custom");
+        }
+
+        assertTrue(mFile.length() <= AnalyticsEventLog.MAX_SIZE_BYTES);
+        assertTrue(mEventLog.isFillingUp());
+        assertFalse((longEvent + 0).equals(mEventLog.peek(1).get(0).getKind()));
+        List<AnalyticsEventLog.Entry> entries = mEventLog.peek(200);
+        assertEquals(longEvent + 199, entries.get(entries.size() - 1).getKind());
+    }
+}
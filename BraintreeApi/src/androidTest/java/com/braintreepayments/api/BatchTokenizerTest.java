@@ -0,0 +1,178 @@
+package com.braintreepayments.api;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+
+import com.braintreepayments.api.TokenizationResult.ProgressListener;
+import com.braintreepayments.api.exceptions.BraintreeException;
+import com.braintreepayments.api.exceptions.ErrorWithResponse;
+import com.braintreepayments.api.exceptions.RequestCancelledException;
+import com.braintreepayments.api.internal.BraintreeExecutors;
+import com.braintreepayments.api.internal.CancellationToken;
+import com.braintreepayments.api.models.CardBuilder;
+import com.braintreepayments.api.models.PaymentMethod;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchTokenizerTest extends AndroidTestCase {
+
+    private BraintreeApi mBraintreeApi;
+    private List<CardBuilder> mBuilders;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        System.setProperty("dexmaker.dexcache", getContext().getCacheDir().getPath());
+        mBraintreeApi = mock(BraintreeApi.class);
+        mBuilders = new ArrayList<CardBuilder>();
+        for (int i = 0; i < 10; i++) {
+            mBuilders.add(new CardBuilder().cardNumber(Integer.toString(i)));
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        BraintreeExecutors.setExecutor(null);
+        CancellationToken.setCurrent(null);
+        super.tearDown();
+    }
+
+    public void testReturnsResultsInTheOrderOfTheBuilders()
+            throws ErrorWithResponse, BraintreeException {
+        when(mBraintreeApi.tokenize(any(PaymentMethod.Builder.class))).thenAnswer(
+                new Answer<String>() {
+                    @Override
+                    public String answer(InvocationOnMock invocation) throws Throwable {
+                        CardBuilder builder = (CardBuilder) invocation.getArguments()[0];
+                        int index = mBuilders.indexOf(builder);
+                        SystemClock.sleep((10 - index) * 2);
+                        if (index == 3) {
+                            throw new ErrorWithResponse(422, "{}");
+                        }
+                        return "nonce-" + index;
+                    }
+                });
+
+        List<TokenizationResult> results =
+                new BatchTokenizer(mBraintreeApi, mBuilders, null).run(3);
+
+        assertEquals(10, results.size());
+        for (int i = 0; i < 10; i++) {
+            TokenizationResult result = results.get(i);
+            assertEquals(i, result.getIndex());
+            assertSame(mBuilders.get(i), result.getPaymentMethodBuilder());
+            if (i == 3) {
+                assertFalse(result.isSuccess());
+                assertEquals(422, result.getErrorWithResponse().getStatusCode());
+            } else {
+                assertTrue(result.isSuccess());
+                assertEquals("nonce-" + i, result.getNonce());
+            }
+        }
+    }
+
+    public void testLimitsRequestsInFlight() throws ErrorWithResponse, BraintreeException {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        when(mBraintreeApi.tokenize(any(PaymentMethod.Builder.class))).thenAnswer(
+                new Answer<String>() {
+                    @Override
+                    public String answer(InvocationOnMock invocation) throws Throwable {
+                        int now = inFlight.incrementAndGet();
+                        synchronized (maxInFlight) {
+                            maxInFlight.set(Math.max(maxInFlight.get(), now));
+                        }
+                        SystemClock.sleep(10);
+                        inFlight.decrementAndGet();
+                        return "nonce";
+                    }
+                });
+
+        new BatchTokenizer(mBraintreeApi, mBuilders, null).run(2);
+
+        assertTrue(maxInFlight.get() <= 2);
+        verify(mBraintreeApi, times(10)).tokenize(any(PaymentMethod.Builder.class));
+    }
+
+    public void testReportsProgressForEveryItem() throws ErrorWithResponse, BraintreeException {
+        when(mBraintreeApi.tokenize(any(PaymentMethod.Builder.class))).thenReturn("nonce");
+        final List<Integer> progress = Collections.synchronizedList(new ArrayList<Integer>());
+
+        new BatchTokenizer(mBraintreeApi, mBuilders, new ProgressListener() {
+            @Override
+            public void onTokenizationProgress(TokenizationResult result, int completed,
+                    int total) {
+                assertEquals(10, total);
+                progress.add(completed);
+            }
+        }).run(3);
+
+        assertEquals(10, progress.size());
+        assertTrue(progress.contains(10));
+    }
+
+    public void testRunsHelpersOnTheGivenExecutor()
+            throws ErrorWithResponse, BraintreeException {
+        when(mBraintreeApi.tokenize(any(PaymentMethod.Builder.class))).thenReturn("nonce");
+        final AtomicInteger helperCount = new AtomicInteger();
+        Executor helperExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                helperCount.incrementAndGet();
+                new Thread(command).start();
+            }
+        };
+
+        List<TokenizationResult> results =
+                new BatchTokenizer(mBraintreeApi, mBuilders, null, helperExecutor).run(3);
+
+        assertEquals(2, helperCount.get());
+        assertEquals(10, results.size());
+    }
+
+    public void testCompletesOnTheCallingThreadWhenThePoolIsUnavailable()
+            throws ErrorWithResponse, BraintreeException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        BraintreeExecutors.setExecutor(executor);
+        when(mBraintreeApi.tokenize(any(PaymentMethod.Builder.class))).thenReturn("nonce");
+
+        List<TokenizationResult> results =
+                new BatchTokenizer(mBraintreeApi, mBuilders, null).run(3);
+
+        for (TokenizationResult result : results) {
+            assertEquals("nonce", result.getNonce());
+        }
+    }
+
+    public void testFailsRemainingItemsWhenCancelled()
+            throws ErrorWithResponse, BraintreeException {
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+        CancellationToken.setCurrent(cancellationToken);
+
+        List<TokenizationResult> results =
+                new BatchTokenizer(mBraintreeApi, mBuilders, null).run(3);
+
+        for (TokenizationResult result : results) {
+            assertTrue(result.getException() instanceof RequestCancelledException);
+        }
+        verify(mBraintreeApi, never()).tokenize(any(PaymentMethod.Builder.class));
+    }
+}
@@ -10,8 +10,13 @@ import android.test.AndroidTestCase;
 import com.braintreepayments.api.exceptions.BraintreeException;
 import com.braintreepayments.api.exceptions.ConfigurationException;
 import com.braintreepayments.api.exceptions.ErrorWithResponse;
+import com.braintreepayments.api.exceptions.UnexpectedException;
 import com.braintreepayments.api.internal.HttpRequest;
 import com.braintreepayments.api.internal.HttpResponse;
+import com.braintreepayments.api.internal.RequestBody;
+import com.braintreepayments.api.internal.TaskScheduler;
+import com.braintreepayments.api.internal.TaskScheduler.Lane;
+import com.braintreepayments.api.models.AnalyticsRequest;
 import com.braintreepayments.api.models.AnalyticsConfiguration;
 import com.braintreepayments.api.models.AndroidPayConfiguration;
 import com.braintreepayments.api.models.Card;
@@ -26,13 +31,16 @@ import com.paypal.android.sdk.payments.PayPalFuturePaymentActivity;
 import org.json.JSONException;
 import org.mockito.ArgumentCaptor;
 
+import java.io.File;
 import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.braintreepayments.testutils.Assertions.assertIsANonce;
 import static com.braintreepayments.testutils.CardNumber.VISA;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
-import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.matches;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -108,8 +116,10 @@ public class BraintreeApiTest extends AndroidTestCase {
 
         braintreeApi.sendAnalyticsEvent("very.important.analytics-payload", "TEST");
 
-        verify(httpRequest, times(1)).post(matches("analytics_url"),
-                contains("very.important.analytics-payload"));
+        ArgumentCaptor<RequestBody> bodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+        verify(httpRequest, times(1)).post(matches("analytics_url"), bodyCaptor.capture());
+        assertTrue(((AnalyticsRequest) bodyCaptor.getValue()).toJson()
+                .contains("very.important.analytics-payload"));
     }
 
     public void testSendAnalyticsEventNoopsIfDisabled() throws BraintreeException,
@@ -122,7 +132,64 @@ public class BraintreeApiTest extends AndroidTestCase {
 
         braintreeApi.sendAnalyticsEvent("event", "TEST");
 
-        verify(httpRequest, never()).post(anyString(), anyString());
+        verify(httpRequest, never()).post(anyString(), any(RequestBody.class));
+    }
+
+    public void testSendAnalyticsEventKeepsEventsThatCouldNotBeSent()
+            throws BraintreeException, ErrorWithResponse {
+        HttpRequest httpRequest = mock(HttpRequest.class);
+        when(httpRequest.post(anyString(), any(RequestBody.class)))
+                .thenThrow(new UnexpectedException("offline"));
+        AnalyticsConfiguration analyticsConfiguration = mock(AnalyticsConfiguration.class);
+        when(analyticsConfiguration.getUrl()).thenReturn("analytics_url");
+        Configuration configuration = mock(Configuration.class);
+        when(configuration.isAnalyticsEnabled()).thenReturn(true);
+        when(configuration.getAnalytics()).thenReturn(analyticsConfiguration);
+        BraintreeApi braintreeApi = new BraintreeApi(mContext, mock(ClientToken.class),
+                configuration, httpRequest);
+        AnalyticsEventLog eventLog = new AnalyticsEventLog(
+                new File(mContext.getFilesDir(), "braintree-api-test-analytics.log"));
+        eventLog.clear();
+        braintreeApi.setAnalyticsEventLog(eventLog);
+
+        try {
+            braintreeApi.sendAnalyticsEvent("event", "TEST");
+
+            List<AnalyticsEventLog.Entry> entries = eventLog.peek(10);
+            assertEquals(1, entries.size());
+            assertEquals("event", entries.get(0).getKind());
+            assertEquals("TEST", entries.get(0).getIntegrationType());
+        } finally {
+            eventLog.clear();
+        }
+    }
+
+    public void testUploadQueuedAnalyticsEventsYieldsToInteractiveWork()
+            throws BraintreeException, ErrorWithResponse {
+        HttpRequest httpRequest = mock(HttpRequest.class);
+        AnalyticsConfiguration analyticsConfiguration = mock(AnalyticsConfiguration.class);
+        when(analyticsConfiguration.getUrl()).thenReturn("analytics_url");
+        Configuration configuration = mock(Configuration.class);
+        when(configuration.isAnalyticsEnabled()).thenReturn(true);
+        when(configuration.getAnalytics()).thenReturn(analyticsConfiguration);
+        BraintreeApi braintreeApi = new BraintreeApi(mContext, mock(ClientToken.class),
+                configuration, httpRequest);
+        AnalyticsEventLog eventLog = new AnalyticsEventLog(
+                new File(mContext.getFilesDir(), "braintree-api-test-analytics.log"));
+        eventLog.clear();
+        braintreeApi.setAnalyticsEventLog(eventLog);
+        TaskScheduler taskScheduler = mock(TaskScheduler.class);
+        when(taskScheduler.getPendingCount(Lane.INTERACTIVE)).thenReturn(1);
+
+        try {
+            braintreeApi.queueAnalyticsEvents(Collections.singletonList("event"), "TEST");
+
+            assertFalse(braintreeApi.uploadQueuedAnalyticsEvents(taskScheduler));
+            verify(httpRequest, never()).post(anyString(), any(RequestBody.class));
+            assertEquals(1, eventLog.peek(10).size());
+        } finally {
+            eventLog.clear();
+        }
     }
 
     public void testAnalyticsEventsAreSentToServer() throws ErrorWithResponse, BraintreeException {
@@ -134,10 +201,10 @@ public class BraintreeApiTest extends AndroidTestCase {
         Configuration configuration = Configuration.fromJson(clientTokenString);
         HttpRequest request = new HttpRequest(clientToken.getAuthorizationFingerprint()) {
             @Override
-            public HttpResponse post (String url, String params)
+            public HttpResponse post(String url, RequestBody body)
                     throws BraintreeException, ErrorWithResponse {
                 requestCount.incrementAndGet();
-                HttpResponse response = super.post(url, params);
+                HttpResponse response = super.post(url, body);
                 responseCode.set(response.getResponseCode());
                 return response;
             }
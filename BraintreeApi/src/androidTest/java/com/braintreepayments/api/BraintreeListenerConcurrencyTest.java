@@ -0,0 +1,173 @@
+package com.braintreepayments.api;
+
+import android.test.AndroidTestCase;
+
+import com.braintreepayments.api.Braintree.ListenerCallback;
+import com.braintreepayments.api.Braintree.PaymentMethodNonceListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Stress tests for the listener registry and the locked callback queue. Each iteration races
+ * posting threads against threads that lock and unlock listeners and checks that, once listeners
+ * are unlocked for good, every callback has been executed once or counted as dropped.
+ */
+public class BraintreeListenerConcurrencyTest extends AndroidTestCase {
+
+    private static final int ITERATIONS = 200;
+    private static final int POSTING_THREADS = 3;
+    private static final int CALLBACKS_PER_THREAD = 50;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        System.setProperty("dexmaker.dexcache", getContext().getCacheDir().getPath());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Braintree.reset();
+        super.tearDown();
+    }
+
+    public void testEveryCallbackIsExecutedOnceOrCountedAsDroppedAcrossLockAndUnlock()
+            throws Exception {
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            final Braintree braintree = new Braintree("key-" + iteration, mock(BraintreeApi.class));
+            final int callbackCount = POSTING_THREADS * CALLBACKS_PER_THREAD;
+            final AtomicIntegerArray executions = new AtomicIntegerArray(callbackCount);
+            final CyclicBarrier start = new CyclicBarrier(POSTING_THREADS + 1);
+            final CountDownLatch done = new CountDownLatch(POSTING_THREADS + 1);
+            final List<Throwable> failures = new ArrayList<Throwable>();
+
+            braintree.lockListeners();
+            for (int t = 0; t < POSTING_THREADS; t++) {
+                final int thread = t;
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                            for (int i = 0; i < CALLBACKS_PER_THREAD; i++) {
+                                braintree.postOrQueueCallback(
+                                        new CountingCallback(executions,
+                                                thread * CALLBACKS_PER_THREAD + i));
+                            }
+                        } catch (Throwable e) {
+                            synchronized (failures) {
+                                failures.add(e);
+                            }
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }).start();
+            }
+
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 20; i++) {
+                            braintree.unlockListeners();
+                            braintree.lockListeners();
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+
+            done.await();
+            braintree.unlockListeners();
+
+            assertTrue(failures.toString(), failures.isEmpty());
+            int executed = 0;
+            for (int i = 0; i < callbackCount; i++) {
+                assertTrue("Callback " + i + " in iteration " + iteration,
+                        executions.get(i) <= 1);
+                executed += executions.get(i);
+            }
+            assertEquals(callbackCount,
+                    executed + braintree.getDroppedListenerCallbackCount());
+        }
+    }
+
+    public void testListenersCanBeAddedAndRemovedWhileEventsAreDispatched()
+            throws Exception {
+        final Braintree braintree = new Braintree("key", mock(BraintreeApi.class));
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(2);
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < 1000; i++) {
+                        PaymentMethodNonceListener listener = new PaymentMethodNonceListener() {
+                            @Override
+                            public void onPaymentMethodNonce(String paymentMethodNonce) {}
+                        };
+                        braintree.addListener(listener);
+                        braintree.removeListener(listener);
+                    }
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            }
+        }).start();
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < 1000; i++) {
+                        braintree.postUnrecoverableErrorToListeners(new Exception());
+                    }
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            }
+        }).start();
+
+        done.await();
+        assertEquals(0, failures.get());
+    }
+
+    private static class CountingCallback implements ListenerCallback {
+
+        private final AtomicIntegerArray mExecutions;
+        private final int mIndex;
+
+        CountingCallback(AtomicIntegerArray executions, int index) {
+            mExecutions = executions;
+            mIndex = index;
+        }
+
+        @Override
+        public void execute() {
+            mExecutions.incrementAndGet(mIndex);
+        }
+
+        @Override
+        public boolean hasListeners() {
+            return true;
+        }
+    }
+}
@@ -8,18 +8,25 @@ import android.os.SystemClock;
 import android.test.AndroidTestCase;
 
 import com.braintreepayments.api.Braintree.BraintreeSetupFinishedListener;
+import com.braintreepayments.api.Braintree.CoalescingListenerCallback;
+import com.braintreepayments.api.Braintree.ConfigurationChangedListener;
+import com.braintreepayments.api.Braintree.DroppableListenerCallback;
 import com.braintreepayments.api.Braintree.ErrorListener;
 import com.braintreepayments.api.Braintree.ListenerCallback;
 import com.braintreepayments.api.Braintree.PaymentMethodCreatedListener;
 import com.braintreepayments.api.Braintree.PaymentMethodNonceListener;
 import com.braintreepayments.api.Braintree.PaymentMethodsUpdatedListener;
+import com.braintreepayments.api.Braintree.SetupMode;
 import com.braintreepayments.api.exceptions.AppSwitchNotAvailableException;
 import com.braintreepayments.api.exceptions.AuthenticationException;
 import com.braintreepayments.api.exceptions.BraintreeException;
 import com.braintreepayments.api.exceptions.ConfigurationException;
 import com.braintreepayments.api.exceptions.ErrorWithResponse;
+import com.braintreepayments.api.exceptions.UnexpectedException;
+import com.braintreepayments.api.internal.TaskScheduler;
 import com.braintreepayments.api.models.Card;
 import com.braintreepayments.api.models.CardBuilder;
+import com.braintreepayments.api.models.Configuration;
 import com.braintreepayments.api.models.PaymentMethod;
 import com.braintreepayments.api.models.ThreeDSecureAuthenticationResponse;
 import com.braintreepayments.api.threedsecure.ThreeDSecureWebViewActivity;
@@ -33,11 +40,20 @@ import com.paypal.android.sdk.payments.PayPalProfileSharingActivity;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -50,12 +66,15 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -124,6 +143,59 @@ public class BraintreeTest extends AndroidTestCase {
         assertTrue(wasCalled.get());
     }
 
+    public void testStaleWhileRevalidateSetupFinishesWithCachedConfiguration()
+            throws ExecutionException, InterruptedException, ErrorWithResponse,
+            BraintreeException {
+        final AtomicBoolean setupFinished = new AtomicBoolean(false);
+        final AtomicBoolean configurationChanged = new AtomicBoolean(false);
+        final Configuration configuration = mock(Configuration.class);
+        String clientToken = new TestClientTokenBuilder().build();
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        when(braintreeApi.isSetup()).thenReturn(false, true);
+        when(braintreeApi.setupFromCache()).thenReturn(true);
+        when(braintreeApi.revalidateConfiguration()).thenReturn(true);
+        when(braintreeApi.getCurrentConfiguration()).thenReturn(configuration);
+        Braintree braintree = new Braintree(clientToken, braintreeApi);
+        braintree.addListener(new ConfigurationChangedListener() {
+            @Override
+            public void onConfigurationChanged(Configuration changedConfiguration) {
+                assertSame(configuration, changedConfiguration);
+                configurationChanged.set(true);
+            }
+        });
+
+        Braintree.setupHelper(mContext, clientToken, SetupMode.STALE_WHILE_REVALIDATE,
+                new BraintreeSetupFinishedListener() {
+                    @Override
+                    public void onBraintreeSetupFinished(boolean setupSuccessful,
+                            Braintree braintree, String errorMessage, Exception exception) {
+                        assertTrue(setupSuccessful);
+                        setupFinished.set(true);
+                    }
+                }).get();
+
+        waitForMainThreadToFinish();
+        assertTrue(setupFinished.get());
+        assertTrue(configurationChanged.get());
+        verify(braintreeApi, never()).setup();
+    }
+
+    public void testStaleWhileRevalidateSetupFetchesConfigurationWhenNothingIsCached()
+            throws ExecutionException, InterruptedException, ErrorWithResponse,
+            BraintreeException {
+        String clientToken = new TestClientTokenBuilder().build();
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        when(braintreeApi.isSetup()).thenReturn(false, true);
+        when(braintreeApi.setupFromCache()).thenReturn(false);
+        new Braintree(clientToken, braintreeApi);
+
+        Braintree.setupHelper(mContext, clientToken, SetupMode.STALE_WHILE_REVALIDATE,
+                mock(BraintreeSetupFinishedListener.class)).get();
+
+        verify(braintreeApi).setup();
+        verify(braintreeApi, never()).revalidateConfiguration();
+    }
+
     public void testSetupReturnsAnErrorForNonJsonClientToken()
             throws InterruptedException, ExecutionException {
         final AtomicBoolean wasCalled = new AtomicBoolean(false);
@@ -305,7 +377,7 @@ public class BraintreeTest extends AndroidTestCase {
         Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
         braintree.startPayWithPayPal(null, 1);
         SystemClock.sleep(50);
-        verify(braintreeApi).sendAnalyticsEvent("custom.android.add-paypal.start", "custom");
+        verifyAnalyticsEventSent(braintree, braintreeApi, "custom.android.add-paypal.start", "custom");
     }
 
     public void testFinishPayWithPayPalDoesNothingOnNullBuilder() throws ConfigurationException {
@@ -356,7 +428,7 @@ public class BraintreeTest extends AndroidTestCase {
         Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
         braintree.startPayWithVenmo(null, 1);
         SystemClock.sleep(50);
-        verify(braintreeApi).sendAnalyticsEvent("custom.android.add-venmo.start", "custom");
+        verifyAnalyticsEventSent(braintree, braintreeApi, "custom.android.add-venmo.start", "custom");
     }
 
     public void testStartPayWithVenmoSendsAnalyticsEventForDropin() {
@@ -366,7 +438,7 @@ public class BraintreeTest extends AndroidTestCase {
         braintree.setIntegrationDropin();
         braintree.startPayWithVenmo(null, 1);
         SystemClock.sleep(50);
-        verify(braintreeApi).sendAnalyticsEvent("dropin.android.add-venmo.start", "dropin");
+        verifyAnalyticsEventSent(braintree, braintreeApi, "dropin.android.add-venmo.start", "dropin");
     }
 
     public void testStartPayWithVenmoSendsAnalyticsEventWhenUnavailable()
@@ -378,7 +450,7 @@ public class BraintreeTest extends AndroidTestCase {
         Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
         braintree.startPayWithVenmo(null, 1);
         SystemClock.sleep(50);
-        verify(braintreeApi).sendAnalyticsEvent("custom.android.add-venmo.unavailable", "custom");
+        verifyAnalyticsEventSent(braintree, braintreeApi, "custom.android.add-venmo.unavailable", "custom");
     }
 
     public void testFinishPayWithVenmoPostsNonceAndPaymentMethodOnSuccess()
@@ -433,7 +505,7 @@ public class BraintreeTest extends AndroidTestCase {
 
         braintree.finishPayWithVenmo(Activity.RESULT_OK, new Intent());
         SystemClock.sleep(50);
-        verify(braintreeApi).sendAnalyticsEvent("custom.android.venmo-app.success", "custom");
+        verifyAnalyticsEventSent(braintree, braintreeApi, "custom.android.venmo-app.success", "custom");
     }
 
     public void testFinishPayWithVenmoSendsAnalyticsEventOnFailure() {
@@ -442,7 +514,7 @@ public class BraintreeTest extends AndroidTestCase {
 
         braintree.finishPayWithVenmo(Activity.RESULT_OK, new Intent());
         SystemClock.sleep(50);
-        verify(braintreeApi).sendAnalyticsEvent("custom.android.venmo-app.fail", "custom");
+        verifyAnalyticsEventSent(braintree, braintreeApi, "custom.android.venmo-app.fail", "custom");
     }
 
     public void testFinishPayWithVenmoDoesNothingOnNullBuilder() throws ConfigurationException {
@@ -924,14 +996,414 @@ public class BraintreeTest extends AndroidTestCase {
         assertTrue(secondListener.wasCalled());
     }
 
+    public void testKeepsOnlyTheLatestPaymentMethodsWhileListenersAreLocked()
+            throws ErrorWithResponse, BraintreeException, ExecutionException,
+            InterruptedException {
+        final List<PaymentMethod> first = Collections.<PaymentMethod>singletonList(new Card());
+        final List<PaymentMethod> latest = Collections.<PaymentMethod>singletonList(new Card());
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        when(braintreeApi.getPaymentMethods()).thenReturn(first).thenReturn(latest);
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+        final AtomicInteger callCount = new AtomicInteger(0);
+        braintree.addListener(new SimpleListener() {
+            @Override
+            public void onPaymentMethodsUpdated(List<PaymentMethod> paymentMethods) {
+                assertEquals(latest, paymentMethods);
+                callCount.incrementAndGet();
+            }
+        });
+
+        braintree.lockListeners();
+        braintree.getPaymentMethodsHelper().get();
+        braintree.getPaymentMethodsHelper().get();
+        braintree.unlockListeners();
+        waitForMainThreadToFinish();
+
+        assertEquals(1, callCount.get());
+    }
+
+    public void testHasCachedCardsUntilTheCacheIsInvalidated()
+            throws ErrorWithResponse, BraintreeException, ExecutionException,
+            InterruptedException {
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        when(braintreeApi.getPaymentMethods())
+                .thenReturn(Collections.<PaymentMethod>singletonList(new Card()));
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+        assertFalse(braintree.hasCachedCards());
+
+        braintree.getPaymentMethodsHelper().get();
+
+        assertTrue(braintree.hasCachedCards());
+        assertNull(braintree.refreshPaymentMethodsIfStale());
+
+        braintree.invalidateCachedPaymentMethods();
+
+        assertFalse(braintree.hasCachedCards());
+        assertEquals(1, braintree.getCachedPaymentMethods().size());
+    }
+
+    public void testPersistsOnlyTheFetchedPaymentMethods()
+            throws ErrorWithResponse, BraintreeException, ExecutionException,
+            InterruptedException {
+        List<PaymentMethod> paymentMethods = Collections.<PaymentMethod>singletonList(new Card());
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        when(braintreeApi.getPaymentMethods()).thenReturn(paymentMethods);
+        when(braintreeApi.create(any(CardBuilder.class))).thenReturn(new Card());
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+
+        braintree.getPaymentMethodsHelper().get();
+        braintree.createHelper(new CardBuilder()).get();
+
+        verify(braintreeApi, timeout(1000)).persistPaymentMethods(paymentMethods);
+        SystemClock.sleep(50);
+        verify(braintreeApi, times(1)).persistPaymentMethods(any(List.class));
+    }
+
+    public void testNotifiesListenersWhenTheCachedPaymentMethodsChange()
+            throws ErrorWithResponse, BraintreeException, ExecutionException,
+            InterruptedException {
+        final Card card = new Card();
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        when(braintreeApi.getPaymentMethods())
+                .thenReturn(Collections.<PaymentMethod>singletonList(card));
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+        final AtomicInteger callCount = new AtomicInteger(0);
+        braintree.addListener(new Braintree.CachedPaymentMethodsChangedListener() {
+            @Override
+            public void onCachedPaymentMethodsChanged(List<PaymentMethod> paymentMethods,
+                    long version) {
+                assertEquals(Collections.<PaymentMethod>singletonList(card), paymentMethods);
+                assertEquals(1, version);
+                callCount.incrementAndGet();
+            }
+        });
+
+        braintree.getPaymentMethodsHelper().get();
+        waitForMainThreadToFinish();
+
+        assertEquals(1, callCount.get());
+        assertEquals(1, braintree.getCachedPaymentMethodsVersion());
+    }
+
+    public void testDropsTheOldestCallbacksWhenTooManyAreQueued() {
+        final AtomicInteger callCount = new AtomicInteger(0);
+        ListenerCallback callback = new DroppableListenerCallback() {
+            @Override
+            public void execute() {
+                callCount.incrementAndGet();
+            }
+
+            @Override
+            public boolean hasListeners() {
+                return true;
+            }
+        };
+
+        mBraintree.lockListeners();
+        for (int i = 0; i < Braintree.MAX_QUEUED_LISTENER_CALLBACKS + 5; i++) {
+            mBraintree.postOrQueueCallback(callback);
+        }
+        mBraintree.unlockListeners();
+
+        assertEquals(Braintree.MAX_QUEUED_LISTENER_CALLBACKS, callCount.get());
+        assertEquals(5, mBraintree.getDroppedListenerCallbackCount());
+    }
+
+    public void testNeverDropsTheLatestCoalescedCallbackWhenTooManyAreQueued() {
+        final AtomicInteger stateCount = new AtomicInteger(0);
+        ListenerCallback state = new CoalescingListenerCallback() {
+            @Override
+            public void execute() {
+                stateCount.incrementAndGet();
+            }
+
+            @Override
+            public boolean hasListeners() {
+                return true;
+            }
+        };
+        ListenerCallback progress = new DroppableListenerCallback() {
+            @Override
+            public void execute() {}
+
+            @Override
+            public boolean hasListeners() {
+                return true;
+            }
+        };
+
+        mBraintree.lockListeners();
+        mBraintree.postOrQueueCallback(state);
+        mBraintree.postOrQueueCallback(state);
+        for (int i = 0; i < Braintree.MAX_QUEUED_LISTENER_CALLBACKS * 2; i++) {
+            mBraintree.postOrQueueCallback(progress);
+        }
+        mBraintree.unlockListeners();
+
+        assertEquals(1, stateCount.get());
+    }
+
+    public void testNeverDropsResultCallbacksWhenTooManyAreQueued() {
+        final AtomicInteger progressCount = new AtomicInteger(0);
+        final AtomicInteger resultCount = new AtomicInteger(0);
+        ListenerCallback progress = new DroppableListenerCallback() {
+            @Override
+            public void execute() {
+                progressCount.incrementAndGet();
+            }
+
+            @Override
+            public boolean hasListeners() {
+                return true;
+            }
+        };
+        ListenerCallback result = new ListenerCallback() {
+            @Override
+            public void execute() {
+                resultCount.incrementAndGet();
+            }
+
+            @Override
+            public boolean hasListeners() {
+                return true;
+            }
+        };
+
+        mBraintree.lockListeners();
+        mBraintree.postOrQueueCallback(result);
+        for (int i = 0; i < Braintree.MAX_QUEUED_LISTENER_CALLBACKS; i++) {
+            mBraintree.postOrQueueCallback(progress);
+        }
+        for (int i = 0; i < Braintree.MAX_QUEUED_LISTENER_CALLBACKS; i++) {
+            mBraintree.postOrQueueCallback(result);
+        }
+        mBraintree.unlockListeners();
+
+        assertEquals(Braintree.MAX_QUEUED_LISTENER_CALLBACKS + 1, resultCount.get());
+        assertEquals(0, progressCount.get());
+        assertEquals(Braintree.MAX_QUEUED_LISTENER_CALLBACKS,
+                mBraintree.getDroppedListenerCallbackCount());
+    }
+
+    public void testGetPersistedPaymentMethodsNeverReadsFromDisk() {
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        Card card = new Card();
+        when(braintreeApi.getPersistedPaymentMethods())
+                .thenReturn(Collections.<PaymentMethod>singletonList(card));
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+
+        assertEquals(0, braintree.getPersistedPaymentMethods().size());
+        verify(braintreeApi, never()).getPersistedPaymentMethods();
+    }
+
     public void testProxiesSendAnalyticsEventToBraintreeApi()
             throws ExecutionException, InterruptedException {
         BraintreeApi braintreeApi = mock(BraintreeApi.class);
         Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
 
+        braintree.sendAnalyticsEventHelper("event", "TEST");
+        verify(braintreeApi, never()).queueAnalyticsEvents(any(List.class), anyString());
+        braintree.flushAnalyticsEvents().get();
+        verify(braintreeApi, times(1)).queueAnalyticsEvents(Collections.singletonList("event"),
+                "TEST");
+    }
+
+    public void testSendsBufferedAnalyticsEventsInOneBatch()
+            throws ExecutionException, InterruptedException {
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+
+        braintree.sendAnalyticsEventHelper("first", "TEST");
+        braintree.sendAnalyticsEventHelper("second", "TEST");
+        braintree.sendAnalyticsEventHelper("third", "dropin");
+        braintree.flushAnalyticsEvents().get();
+
+        verify(braintreeApi).queueAnalyticsEvents(Arrays.asList("first", "second"), "TEST");
+        verify(braintreeApi).queueAnalyticsEvents(Collections.singletonList("third"), "dropin");
         verify(braintreeApi, never()).sendAnalyticsEvent(anyString(), anyString());
-        braintree.sendAnalyticsEventHelper("event", "TEST").get();
-        verify(braintreeApi, times(1)).sendAnalyticsEvent("event", "TEST");
+    }
+
+    public void testOnPauseSendsBufferedAnalyticsEvents() throws InterruptedException {
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        final CountDownLatch latch = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                latch.countDown();
+                return null;
+            }
+        }).when(braintreeApi).queueAnalyticsEvents(Collections.singletonList("event"), "TEST");
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+
+        braintree.sendAnalyticsEventHelper("event", "TEST");
+        braintree.onPause(null);
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    public void testDropsRepeatedAnalyticsEvents()
+            throws ExecutionException, InterruptedException {
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+
+        braintree.sendAnalyticsEventHelper("appeared", "TEST");
+        braintree.sendAnalyticsEventHelper("appeared", "TEST");
+        braintree.sendAnalyticsEventHelper("appeared", "dropin");
+        braintree.flushAnalyticsEvents().get();
+
+        verify(braintreeApi).queueAnalyticsEvents(Collections.singletonList("appeared"), "TEST");
+        verify(braintreeApi).queueAnalyticsEvents(Collections.singletonList("appeared"),
+                "dropin");
+    }
+
+    public void testReportsTokenizeTimingsAsHistogramEvents()
+            throws ErrorWithResponse, BraintreeException, ExecutionException,
+            InterruptedException {
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        when(braintreeApi.tokenize(any(CardBuilder.class))).thenReturn("nonce");
+        when(braintreeApi.getNetworkType()).thenReturn("WIFI");
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+
+        braintree.tokenizeHelper(new CardBuilder()).get();
+        braintree.tokenizeHelper(new CardBuilder()).get();
+        braintree.flushAnalyticsEvents().get();
+
+        ArgumentCaptor<List> eventsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(braintreeApi).queueAnalyticsEvents(eventsCaptor.capture(), eq("custom"));
+        List<String> events = eventsCaptor.getValue();
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).startsWith("custom.android.perf.tokenize.success.wifi."));
+        assertTrue(events.get(0).endsWith(".x2"));
+    }
+
+    public void testFlushUploadsQueuedAnalyticsEvents()
+            throws ExecutionException, InterruptedException {
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+
+        braintree.sendAnalyticsEventHelper("event", "TEST");
+        braintree.flushAnalyticsEvents().get();
+
+        InOrder inOrder = inOrder(braintreeApi);
+        inOrder.verify(braintreeApi).queueAnalyticsEvents(Collections.singletonList("event"),
+                "TEST");
+        inOrder.verify(braintreeApi).uploadQueuedAnalyticsEvents(any(TaskScheduler.class));
+        verify(braintreeApi, never()).sendAnalyticsEvents(any(List.class), anyString());
+    }
+
+    public void testTokenizeAllPostsOrderedResultsToListeners()
+            throws ErrorWithResponse, BraintreeException, ExecutionException,
+            InterruptedException {
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        when(braintreeApi.tokenizeAll(any(List.class), anyInt(),
+                any(TokenizationResult.ProgressListener.class), any(Executor.class)))
+                .thenCallRealMethod();
+        when(braintreeApi.tokenize(any(CardBuilder.class))).thenReturn("nonce");
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+        final List<CardBuilder> builders = Arrays.asList(new CardBuilder(), new CardBuilder());
+        final AtomicInteger progressCount = new AtomicInteger(0);
+        final AtomicBoolean finished = new AtomicBoolean(false);
+        braintree.addListener(new Braintree.TokenizeAllListener() {
+            @Override
+            public void onTokenizationProgress(TokenizationResult result, int completed,
+                    int total) {
+                assertEquals(2, total);
+                progressCount.incrementAndGet();
+            }
+
+            @Override
+            public void onTokenizeAllFinished(List<TokenizationResult> results) {
+                assertEquals(2, results.size());
+                assertSame(builders.get(0), results.get(0).getPaymentMethodBuilder());
+                assertSame(builders.get(1), results.get(1).getPaymentMethodBuilder());
+                assertEquals("nonce", results.get(1).getNonce());
+                finished.set(true);
+            }
+        });
+
+        braintree.tokenizeAllHelper(builders).get();
+
+        waitForMainThreadToFinish();
+        assertEquals(2, progressCount.get());
+        assertTrue(finished.get());
+    }
+
+    public void testReportsTokenizeAllWithFailedItemsAsFailure()
+            throws ErrorWithResponse, BraintreeException, ExecutionException,
+            InterruptedException {
+        CardBuilder cardBuilder = new CardBuilder();
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        when(braintreeApi.tokenizeAll(any(List.class), anyInt(),
+                any(TokenizationResult.ProgressListener.class), any(Executor.class)))
+                .thenReturn(Arrays.asList(TokenizationResult.success(0, cardBuilder, "nonce"),
+                        TokenizationResult.failure(1, cardBuilder,
+                                new UnexpectedException("failed"))));
+        when(braintreeApi.getNetworkType()).thenReturn("WIFI");
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+
+        braintree.tokenizeAllHelper(Arrays.asList(cardBuilder, cardBuilder)).get();
+        braintree.flushAnalyticsEvents().get();
+
+        ArgumentCaptor<List> eventsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(braintreeApi).queueAnalyticsEvents(eventsCaptor.capture(), eq("custom"));
+        List<String> events = eventsCaptor.getValue();
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).startsWith("custom.android.perf.tokenize-all.failure.wifi."));
+    }
+
+    public void testTokenizeIsNotDelayedByTokenizeAll()
+            throws ErrorWithResponse, BraintreeException, InterruptedException,
+            ExecutionException, TimeoutException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        doAnswer(new Answer<List<TokenizationResult>>() {
+            @Override
+            public List<TokenizationResult> answer(InvocationOnMock invocation)
+                    throws Throwable {
+                latch.await();
+                return Collections.emptyList();
+            }
+        }).when(braintreeApi).tokenizeAll(any(List.class), anyInt(),
+                any(TokenizationResult.ProgressListener.class), any(Executor.class));
+        when(braintreeApi.tokenize(any(CardBuilder.class))).thenReturn("nonce");
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+
+        try {
+            braintree.tokenizeAllHelper(Arrays.asList(new CardBuilder(), new CardBuilder()));
+            braintree.tokenizeHelper(new CardBuilder()).get(1, TimeUnit.SECONDS);
+
+            verify(braintreeApi).tokenize(any(CardBuilder.class));
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    public void testTokenizeIsNotDelayedByPendingAnalyticsEvents()
+            throws ErrorWithResponse, BraintreeException, InterruptedException,
+            ExecutionException, TimeoutException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                latch.await();
+                return null;
+            }
+        }).when(braintreeApi).queueAnalyticsEvents(any(List.class), anyString());
+        when(braintreeApi.tokenize(any(CardBuilder.class))).thenReturn("nonce");
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+
+        try {
+            for (int i = 0; i < 5; i++) {
+                braintree.sendAnalyticsEventHelper("event" + i, "TEST");
+                braintree.flushAnalyticsEvents();
+            }
+            braintree.tokenizeHelper(new CardBuilder()).get(1, TimeUnit.SECONDS);
+
+            verify(braintreeApi).tokenize(any(CardBuilder.class));
+        } finally {
+            latch.countDown();
+        }
     }
 
     public void testOnActivityResultHandlesPayPalResults() {
@@ -1042,6 +1514,53 @@ public class BraintreeTest extends AndroidTestCase {
         verify(braintreeApi).disconnectGoogleApiClient();
     }
 
+    public void testOnPauseCancelsBackgroundRequestsWhenEnabled()
+            throws ErrorWithResponse, BraintreeException, InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        BraintreeApi braintreeApi = mock(BraintreeApi.class);
+        when(braintreeApi.getPaymentMethods()).thenAnswer(new Answer<List<PaymentMethod>>() {
+            @Override
+            public List<PaymentMethod> answer(InvocationOnMock invocation) throws Throwable {
+                started.countDown();
+                latch.await();
+                return Collections.emptyList();
+            }
+        });
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, braintreeApi);
+        braintree.setCancelBackgroundRequestsOnPause(true);
+        final AtomicBoolean wasCalled = new AtomicBoolean(false);
+        braintree.addListener(new SimpleListener() {
+            @Override
+            public void onPaymentMethodsUpdated(List<PaymentMethod> paymentMethods) {
+                wasCalled.set(true);
+            }
+        });
+
+        RequestHandle running = braintree.getPaymentMethods();
+        RequestHandle queued = braintree.getPaymentMethods();
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        braintree.onPause(null);
+        latch.countDown();
+
+        assertTrue(running.isCancelled());
+        assertTrue(queued.isCancelled());
+        SystemClock.sleep(50);
+        waitForMainThreadToFinish();
+        assertFalse(wasCalled.get());
+        verify(braintreeApi, times(1)).getPaymentMethods();
+    }
+
+    public void testOnPauseDoesNotCancelRequestsByDefault()
+            throws ErrorWithResponse, BraintreeException {
+        Braintree braintree = new Braintree(TEST_CLIENT_TOKEN_KEY, mock(BraintreeApi.class));
+
+        RequestHandle requestHandle = braintree.getPaymentMethods();
+        braintree.onPause(null);
+
+        assertFalse(requestHandle.isCancelled());
+    }
+
     public void testOnSaveInstanceStateAddsClientTokenAndConfigurationToBundle() {
         BraintreeApi braintreeApi = mock(BraintreeApi.class);
         when(braintreeApi.getConfigurationString()).thenReturn("configuration-string");
@@ -1089,6 +1608,17 @@ public class BraintreeTest extends AndroidTestCase {
                 .expirationYear("17")).get();
     }
 
+    private void verifyAnalyticsEventSent(Braintree braintree, BraintreeApi braintreeApi,
+            String event, String integrationType) {
+        try {
+            braintree.flushAnalyticsEvents().get();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        verify(braintreeApi).queueAnalyticsEvents(Collections.singletonList(event),
+                integrationType);
+    }
+
     /**
      * Simple listener that allows implementers to only override the methods they need.
      */
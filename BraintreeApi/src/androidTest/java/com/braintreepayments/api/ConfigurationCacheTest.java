@@ -0,0 +1,226 @@
+package com.braintreepayments.api;
+
+import android.test.AndroidTestCase;
+
+import com.braintreepayments.api.exceptions.BraintreeException;
+import com.braintreepayments.api.exceptions.ErrorWithResponse;
+import com.braintreepayments.api.exceptions.ServerException;
+import com.braintreepayments.api.internal.HttpRequest;
+import com.braintreepayments.api.internal.HttpResponse;
+import com.braintreepayments.api.models.ClientToken;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.braintreepayments.testutils.FixturesHelper.stringFromFixture;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConfigurationCacheTest extends AndroidTestCase {
+
+    private static final String CONFIG_URL = "https://example.com/merchants/id/configuration";
+
+    private ConfigurationCache mConfigurationCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mConfigurationCache = new ConfigurationCache(
+                new File(getContext().getCacheDir(), "configuration-cache-test"));
+        mConfigurationCache.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mConfigurationCache.clear();
+        super.tearDown();
+    }
+
+    public void testReturnsNullWhenNothingIsCached() {
+        assertNull(mConfigurationCache.get(CONFIG_URL));
+    }
+
+    public void testStoresEntriesByConfigUrl() throws ServerException {
+        mConfigurationCache.put(ConfigurationCache.Entry.fromResponse(CONFIG_URL,
+                response(200, "\"abc\"", "max-age=60")));
+
+        ConfigurationCache.Entry entry = mConfigurationCache.get(CONFIG_URL);
+
+        assertNotNull(entry);
+        assertEquals("client_api_url", entry.getConfiguration().getClientApiUrl());
+        assertNull(mConfigurationCache.get(CONFIG_URL + "/other"));
+    }
+
+    public void testKeysDependOnTheClientTokenButNotOnTheCustomer() {
+        String key = ConfigurationCache.key(CONFIG_URL,
+                "abc|created_at=1&merchant_id=id&merchant_account_id=a&customer_id=1");
+
+        assertEquals(key, ConfigurationCache.key(CONFIG_URL,
+                "def|customer_id=2&merchant_account_id=a&merchant_id=id&created_at=2"));
+        assertFalse(key.equals(ConfigurationCache.key(CONFIG_URL,
+                "abc|created_at=1&merchant_id=id&merchant_account_id=b&customer_id=1")));
+        assertFalse(key.contains("merchant_account_id"));
+    }
+
+    public void testEntriesAreFreshForMaxAge() {
+        assertTrue(ConfigurationCache.Entry.fromResponse(CONFIG_URL,
+                response(200, null, "private, max-age=60")).isFresh());
+        assertFalse(ConfigurationCache.Entry.fromResponse(CONFIG_URL,
+                response(200, null, "max-age=0")).isFresh());
+        assertFalse(ConfigurationCache.Entry.fromResponse(CONFIG_URL,
+                response(200, null, "no-cache, max-age=60")).isFresh());
+        assertFalse(ConfigurationCache.Entry.fromResponse(CONFIG_URL,
+                response(200, null, null)).isFresh());
+    }
+
+    public void testDoesNotStoreNoStoreResponses() {
+        mConfigurationCache.put(ConfigurationCache.Entry.fromResponse(CONFIG_URL,
+                response(200, "\"abc\"", "no-store")));
+
+        assertNull(mConfigurationCache.get(CONFIG_URL));
+    }
+
+    public void testSendsValidatorsOfTheCachedResponse() {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put("ETag", "\"abc\"");
+        headers.put("Last-Modified", "Wed, 21 Oct 2015 07:28:00 GMT");
+        ConfigurationCache.Entry entry = ConfigurationCache.Entry.fromResponse(CONFIG_URL,
+                new HttpResponse(200, configurationBytes(), headers));
+
+        Map<String, String> validators = entry.getValidators();
+
+        assertEquals("\"abc\"", validators.get("If-None-Match"));
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", validators.get("If-Modified-Since"));
+    }
+
+    public void testSetupUsesFreshCachedConfigurationWithoutARequest()
+            throws ErrorWithResponse, BraintreeException {
+        mConfigurationCache.put(ConfigurationCache.Entry.fromResponse(configUrl(),
+                response(200, "\"abc\"", "max-age=60")));
+        HttpRequest httpRequest = mock(HttpRequest.class);
+        BraintreeApi braintreeApi = braintreeApi(httpRequest);
+
+        braintreeApi.setup();
+
+        assertTrue(braintreeApi.isSetup());
+        verify(httpRequest, never()).get(anyString(), any(Map.class));
+        verify(httpRequest).setBaseUrl("client_api_url");
+    }
+
+    public void testSetupRevalidatesStaleCachedConfiguration()
+            throws ErrorWithResponse, BraintreeException {
+        mConfigurationCache.put(ConfigurationCache.Entry.fromResponse(configUrl(),
+                response(200, "\"abc\"", "max-age=0")));
+        HttpRequest httpRequest = mock(HttpRequest.class);
+        when(httpRequest.get(anyString(), any(Map.class)))
+                .thenReturn(new HttpResponse(304, new byte[0],
+                        Collections.<String, String>emptyMap()));
+        BraintreeApi braintreeApi = braintreeApi(httpRequest);
+
+        braintreeApi.setup();
+
+        Map<String, String> validators = new HashMap<String, String>();
+        validators.put("If-None-Match", "\"abc\"");
+        verify(httpRequest).get(configUrl(), validators);
+        verify(httpRequest).setBaseUrl("client_api_url");
+    }
+
+    public void testSetupStoresDownloadedConfiguration()
+            throws ErrorWithResponse, BraintreeException {
+        HttpRequest httpRequest = mock(HttpRequest.class);
+        when(httpRequest.get(eq(configUrl()), any(Map.class)))
+                .thenReturn(response(200, "\"abc\"", null));
+
+        braintreeApi(httpRequest).setup();
+
+        assertNotNull(mConfigurationCache.get(configUrl()));
+    }
+
+    public void testSetupFromCacheUsesStaleConfigurationWithoutARequest()
+            throws ErrorWithResponse, BraintreeException {
+        mConfigurationCache.put(ConfigurationCache.Entry.fromResponse(configUrl(),
+                response(200, "\"abc\"", "max-age=0")));
+        HttpRequest httpRequest = mock(HttpRequest.class);
+        BraintreeApi braintreeApi = braintreeApi(httpRequest);
+
+        assertTrue(braintreeApi.setupFromCache());
+
+        assertTrue(braintreeApi.isSetup());
+        verify(httpRequest, never()).get(anyString(), any(Map.class));
+    }
+
+    public void testSetupFromCacheIgnoresEntriesOfOtherMerchantAccounts() {
+        mConfigurationCache.put(ConfigurationCache.Entry.fromResponse(
+                ConfigurationCache.key(configUrl(), "abc|merchant_account_id=a"),
+                response(200, "\"abc\"", "max-age=60")));
+        ClientToken clientToken = mock(ClientToken.class);
+        when(clientToken.getConfigUrl()).thenReturn(CONFIG_URL);
+        when(clientToken.getAuthorizationFingerprint()).thenReturn("abc|merchant_account_id=b");
+        BraintreeApi braintreeApi = new BraintreeApi(getContext(), clientToken, null,
+                mock(HttpRequest.class));
+        braintreeApi.setConfigurationCache(mConfigurationCache);
+
+        assertFalse(braintreeApi.setupFromCache());
+    }
+
+    public void testSetupFromCacheReturnsFalseWhenNothingIsCached() {
+        BraintreeApi braintreeApi = braintreeApi(mock(HttpRequest.class));
+
+        assertFalse(braintreeApi.setupFromCache());
+        assertFalse(braintreeApi.isSetup());
+    }
+
+    public void testRevalidationReportsUnchangedConfiguration()
+            throws ErrorWithResponse, BraintreeException {
+        mConfigurationCache.put(ConfigurationCache.Entry.fromResponse(configUrl(),
+                response(200, "\"abc\"", "max-age=0")));
+        HttpRequest httpRequest = mock(HttpRequest.class);
+        when(httpRequest.get(anyString(), any(Map.class)))
+                .thenReturn(response(200, "\"def\"", null));
+        BraintreeApi braintreeApi = braintreeApi(httpRequest);
+        braintreeApi.setupFromCache();
+
+        assertFalse(braintreeApi.revalidateConfiguration());
+    }
+
+    /* helpers */
+    private BraintreeApi braintreeApi(HttpRequest httpRequest) {
+        ClientToken clientToken = mock(ClientToken.class);
+        when(clientToken.getConfigUrl()).thenReturn(CONFIG_URL);
+        BraintreeApi braintreeApi = new BraintreeApi(getContext(), clientToken, null, httpRequest);
+        braintreeApi.setConfigurationCache(mConfigurationCache);
+        return braintreeApi;
+    }
+
+    private String configUrl() {
+        return CONFIG_URL + "?configVersion=3";
+    }
+
+    private HttpResponse response(int responseCode, String etag, String cacheControl) {
+        Map<String, String> headers = new HashMap<String, String>();
+        if (etag != null) {
+            headers.put("ETag", etag);
+        }
+        if (cacheControl != null) {
+            headers.put("Cache-Control", cacheControl);
+        }
+        return new HttpResponse(responseCode, configurationBytes(), headers);
+    }
+
+    private byte[] configurationBytes() {
+        try {
+            return stringFromFixture(getContext(), "configuration_with_client_api_url.json")
+                    .getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
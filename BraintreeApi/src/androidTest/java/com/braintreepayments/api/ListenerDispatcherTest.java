@@ -0,0 +1,78 @@
+package com.braintreepayments.api;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class ListenerDispatcherTest extends AndroidTestCase {
+
+    private List<Runnable> mMessages;
+    private ListenerDispatcher mDispatcher;
+    private List<String> mDelivered;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mMessages = new ArrayList<Runnable>();
+        mDispatcher = new ListenerDispatcher(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mMessages.add(command);
+            }
+        });
+        mDelivered = new ArrayList<String>();
+    }
+
+    public void testDeliversABurstOfEventsInOneMessage() {
+        mDispatcher.dispatch(record("a"));
+        mDispatcher.dispatch(record("b"));
+        mDispatcher.dispatch(record("c"));
+
+        runPostedMessages(1);
+
+        assertEquals(Arrays.asList("a", "b", "c"), mDelivered);
+    }
+
+    public void testSchedulesANewMessageAfterDelivery() {
+        mDispatcher.dispatch(record("a"));
+        runPostedMessages(1);
+
+        mDispatcher.dispatch(record("b"));
+        runPostedMessages(1);
+        assertEquals(Arrays.asList("a", "b"), mDelivered);
+    }
+
+    public void testKeepsOnlyTheLatestEventForACoalescingKey() {
+        Object listener = new Object();
+        mDispatcher.dispatch(new ListenerDispatcher.Key("type", listener), record("first"));
+        mDispatcher.dispatch(record("other"));
+        mDispatcher.dispatch(new ListenerDispatcher.Key("type", listener), record("latest"));
+        mDispatcher.dispatch(new ListenerDispatcher.Key("type", new Object()), record("second"));
+
+        runPostedMessages(1);
+
+        assertEquals(Arrays.asList("other", "latest", "second"), mDelivered);
+    }
+
+    /* helpers */
+    private Runnable record(final String event) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                mDelivered.add(event);
+            }
+        };
+    }
+
+    private void runPostedMessages(int expectedMessages) {
+        assertEquals(expectedMessages, mMessages.size());
+        List<Runnable> messages = new ArrayList<Runnable>(mMessages);
+        mMessages.clear();
+        for (Runnable message : messages) {
+            message.run();
+        }
+    }
+}
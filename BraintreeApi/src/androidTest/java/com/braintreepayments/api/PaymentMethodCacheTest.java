@@ -0,0 +1,120 @@
+package com.braintreepayments.api;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+
+import com.braintreepayments.api.models.Card;
+import com.braintreepayments.api.models.PaymentMethod;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class PaymentMethodCacheTest extends AndroidTestCase {
+
+    private PaymentMethodCache mCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mCache = new PaymentMethodCache();
+    }
+
+    public void testIsEmptyAndStaleBeforeAFetch() {
+        assertEquals(0, mCache.getSnapshot().getVersion());
+        assertTrue(mCache.getSnapshot().getPaymentMethods().isEmpty());
+        assertFalse(mCache.isFresh());
+    }
+
+    public void testReplaceIsFreshAndIncrementsTheVersion() {
+        List<PaymentMethod> fetched = Arrays.<PaymentMethod>asList(new Card(), new Card());
+
+        PaymentMethodCache.Snapshot snapshot = mCache.replace(fetched, mCache.beginFetch());
+
+        assertEquals(1, snapshot.getVersion());
+        assertEquals(fetched, snapshot.getPaymentMethods());
+        assertTrue(mCache.isFresh());
+    }
+
+    public void testSnapshotsDoNotChangeWhenTheCacheChanges() {
+        mCache.replace(Collections.<PaymentMethod>singletonList(new Card()), mCache.beginFetch());
+        List<PaymentMethod> paymentMethods = mCache.getSnapshot().getPaymentMethods();
+
+        mCache.add(new Card());
+
+        assertEquals(1, paymentMethods.size());
+        assertEquals(2, mCache.getSnapshot().getPaymentMethods().size());
+        assertEquals(2, mCache.getSnapshot().getVersion());
+    }
+
+    public void testSnapshotsCannotBeModified() {
+        mCache.add(new Card());
+
+        try {
+            mCache.getSnapshot().getPaymentMethods().add(new Card());
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException ignored) {}
+    }
+
+    public void testAddWithoutAFetchIsNotFresh() {
+        Card card = new Card();
+
+        mCache.add(card);
+
+        assertEquals(card, mCache.getSnapshot().getPaymentMethods().get(0));
+        assertFalse(mCache.isFresh());
+    }
+
+    public void testKeepsPaymentMethodsAddedWhileAFetchIsInFlight() {
+        Card fetchedCard = new Card();
+        Card addedCard = new Card();
+        long fetchVersion = mCache.beginFetch();
+
+        mCache.add(addedCard);
+        PaymentMethodCache.Snapshot snapshot = mCache.replace(
+                Collections.<PaymentMethod>singletonList(fetchedCard), fetchVersion);
+
+        assertEquals(Arrays.<PaymentMethod>asList(addedCard, fetchedCard),
+                snapshot.getPaymentMethods());
+    }
+
+    public void testDropsPaymentMethodsAddedBeforeTheFetchBegan() {
+        Card fetchedCard = new Card();
+        mCache.add(new Card());
+
+        PaymentMethodCache.Snapshot snapshot = mCache.replace(
+                Collections.<PaymentMethod>singletonList(fetchedCard), mCache.beginFetch());
+
+        assertEquals(Collections.<PaymentMethod>singletonList(fetchedCard),
+                snapshot.getPaymentMethods());
+    }
+
+    public void testIgnoresFetchesThatBeganBeforeTheCurrentSnapshotWasFetched() {
+        long olderFetchVersion = mCache.beginFetch();
+        mCache.add(new Card());
+        mCache.replace(Collections.<PaymentMethod>emptyList(), mCache.beginFetch());
+        long version = mCache.getSnapshot().getVersion();
+
+        assertNull(mCache.replace(Collections.<PaymentMethod>emptyList(), olderFetchVersion));
+        assertEquals(version, mCache.getSnapshot().getVersion());
+    }
+
+    public void testInvalidateKeepsTheListButMakesItStale() {
+        mCache.replace(Collections.<PaymentMethod>singletonList(new Card()), mCache.beginFetch());
+
+        mCache.invalidate();
+
+        assertFalse(mCache.isFresh());
+        assertEquals(1, mCache.getSnapshot().getPaymentMethods().size());
+    }
+
+    public void testIsNotFreshAfterTheTtl() {
+        mCache.setTtl(50);
+        mCache.replace(Collections.<PaymentMethod>emptyList(), mCache.beginFetch());
+        assertTrue(mCache.isFresh());
+
+        SystemClock.sleep(100);
+
+        assertFalse(mCache.isFresh());
+    }
+}
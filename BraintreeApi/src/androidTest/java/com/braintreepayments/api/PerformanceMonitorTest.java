@@ -0,0 +1,84 @@
+package com.braintreepayments.api;
+
+import android.test.AndroidTestCase;
+
+import com.braintreepayments.api.PerformanceMonitor.Outcome;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class PerformanceMonitorTest extends AndroidTestCase {
+
+    private PerformanceMonitor mPerformanceMonitor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPerformanceMonitor = new PerformanceMonitor(new PerformanceMonitor.NetworkTypeSource() {
+            @Override
+            public String getNetworkType() {
+                return "WIFI";
+            }
+        });
+    }
+
+    public void testBucketsDurations() {
+        assertEquals("0-100ms", PerformanceMonitor.bucketFor(0));
+        assertEquals("100-250ms", PerformanceMonitor.bucketFor(100));
+        assertEquals("2500-5000ms", PerformanceMonitor.bucketFor(4999));
+        assertEquals("10000ms+", PerformanceMonitor.bucketFor(60000));
+    }
+
+    public void testCountsFinishedSpansPerOperationOutcomeAndNetworkType() {
+        mPerformanceMonitor.start("tokenize").finish(true);
+        mPerformanceMonitor.start("tokenize").finish(true);
+        mPerformanceMonitor.start("tokenize").finish(false);
+
+        List<String> events = mPerformanceMonitor.drain();
+
+        assertEquals(Arrays.asList("perf.tokenize.success.wifi.0-100ms.x2",
+                "perf.tokenize.failure.wifi.0-100ms.x1"), events);
+    }
+
+    public void testRecordsASpanOnlyOnce() {
+        PerformanceMonitor.Span span = mPerformanceMonitor.start("setup");
+        span.finish(true);
+        span.finish(false);
+
+        assertEquals(Arrays.asList("perf.setup.success.wifi.0-100ms.x1"),
+                mPerformanceMonitor.drain());
+    }
+
+    public void testDrainRemovesRecordedTimings() {
+        mPerformanceMonitor.start("setup").finish(true);
+
+        mPerformanceMonitor.drain();
+
+        assertTrue(mPerformanceMonitor.drain().isEmpty());
+    }
+
+    public void testTimesAppSwitchesUntilTheyFinish() {
+        mPerformanceMonitor.startAppSwitch("paypal");
+        mPerformanceMonitor.finishAppSwitch("paypal", Outcome.CANCELED);
+        mPerformanceMonitor.finishAppSwitch("paypal", Outcome.SUCCESS);
+        mPerformanceMonitor.finishAppSwitch("venmo", Outcome.SUCCESS);
+
+        assertEquals(Arrays.asList("perf.app-switch.paypal.canceled.wifi.0-100ms.x1"),
+                mPerformanceMonitor.drain());
+    }
+
+    public void testUsesUnknownWhenTheNetworkTypeIsNotKnown() {
+        PerformanceMonitor performanceMonitor =
+                new PerformanceMonitor(new PerformanceMonitor.NetworkTypeSource() {
+                    @Override
+                    public String getNetworkType() {
+                        return null;
+                    }
+                });
+
+        performanceMonitor.start("tokenize").finish(true);
+
+        assertEquals(Arrays.asList("perf.tokenize.success.unknown.0-100ms.x1"),
+                performanceMonitor.drain());
+    }
+}
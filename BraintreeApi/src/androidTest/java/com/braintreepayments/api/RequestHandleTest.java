@@ -0,0 +1,112 @@
+package com.braintreepayments.api;
+
+import android.test.AndroidTestCase;
+
+import com.braintreepayments.api.RequestHandle.CompletionListener;
+import com.braintreepayments.api.internal.CancellationToken;
+import com.braintreepayments.api.internal.SerialExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class RequestHandleTest extends AndroidTestCase {
+
+    private SerialExecutor mExecutor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mExecutor = new SerialExecutor();
+    }
+
+    public void testNotifiesCompletionListenersWhenTheRequestFinishes()
+            throws ExecutionException, InterruptedException {
+        RequestHandle requestHandle = submit(new Runnable() {
+            @Override
+            public void run() {}
+        });
+        final CountDownLatch latch = new CountDownLatch(1);
+        requestHandle.addCompletionListener(new CompletionListener() {
+            @Override
+            public void onComplete(RequestHandle handle) {
+                assertFalse(handle.isCancelled());
+                latch.countDown();
+            }
+        });
+
+        requestHandle.get();
+
+        assertTrue(requestHandle.isDone());
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    public void testCancelledQueuedRequestsDoNotRun() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocked.await();
+                } catch (InterruptedException ignored) {}
+            }
+        });
+        final AtomicBoolean ran = new AtomicBoolean(false);
+        RequestHandle requestHandle = submit(new Runnable() {
+            @Override
+            public void run() {
+                ran.set(true);
+            }
+        });
+        final CountDownLatch completed = new CountDownLatch(1);
+        requestHandle.addCompletionListener(new CompletionListener() {
+            @Override
+            public void onComplete(RequestHandle handle) {
+                assertTrue(handle.isCancelled());
+                completed.countDown();
+            }
+        });
+
+        assertTrue(requestHandle.cancel());
+        blocked.countDown();
+        mExecutor.shutdown();
+        mExecutor.awaitTermination(1, TimeUnit.SECONDS);
+
+        assertFalse(ran.get());
+        assertTrue(requestHandle.isDone());
+        assertTrue(completed.await(1, TimeUnit.SECONDS));
+    }
+
+    public void testInstallsTheCancellationTokenWhileRunning()
+            throws ExecutionException, InterruptedException {
+        final AtomicBoolean hadToken = new AtomicBoolean(false);
+        submit(new Runnable() {
+            @Override
+            public void run() {
+                hadToken.set(CancellationToken.current() != null);
+            }
+        }).get();
+
+        assertTrue(hadToken.get());
+    }
+
+    public void testCannotCancelACompletedRequest()
+            throws ExecutionException, InterruptedException {
+        RequestHandle requestHandle = submit(new Runnable() {
+            @Override
+            public void run() {}
+        });
+        requestHandle.get();
+
+        assertFalse(requestHandle.cancel());
+        assertFalse(requestHandle.isCancelled());
+    }
+
+    /* helpers */
+    private RequestHandle submit(Runnable runnable) {
+        RequestHandle requestHandle = new RequestHandle();
+        requestHandle.setFuture(mExecutor.submit(requestHandle.wrap(runnable)));
+        return requestHandle;
+    }
+}
@@ -8,14 +8,18 @@ import com.braintreepayments.api.exceptions.BraintreeException;
 import com.braintreepayments.api.exceptions.ErrorWithResponse;
 import com.braintreepayments.api.exceptions.UnexpectedException;
 import com.braintreepayments.api.internal.HttpRequest;
+import com.braintreepayments.api.internal.RequestBody;
+import com.braintreepayments.api.internal.ResponseParser;
 import com.braintreepayments.api.models.ClientToken;
 import com.braintreepayments.api.models.Configuration;
 import com.braintreepayments.testutils.FixturesHelper;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
 import static com.braintreepayments.api.internal.HttpRequestTestUtils.requestWithExpectedResponse;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -36,6 +40,16 @@ public class TestUtils {
         HttpRequest mockRequest = mock(HttpRequest.class);
         when(mockRequest.get(anyString())).thenThrow(new UnexpectedException("Mocked HTTP request"));
         when(mockRequest.post(anyString(), anyString())).thenThrow(new UnexpectedException("Mocked HTTP request"));
+        when(mockRequest.get(anyString(), any(Map.class))).thenThrow(
+                new UnexpectedException("Mocked HTTP request"));
+        when(mockRequest.get(anyString(), any(ResponseParser.class))).thenThrow(
+                new UnexpectedException("Mocked HTTP request"));
+        when(mockRequest.post(anyString(), anyString(), any(ResponseParser.class))).thenThrow(
+                new UnexpectedException("Mocked HTTP request"));
+        when(mockRequest.post(anyString(), any(RequestBody.class))).thenThrow(
+                new UnexpectedException("Mocked HTTP request"));
+        when(mockRequest.post(anyString(), any(RequestBody.class), any(ResponseParser.class)))
+                .thenThrow(new UnexpectedException("Mocked HTTP request"));
 
         return new BraintreeApi(context, mock(ClientToken.class), mock(Configuration.class), mockRequest);
     }
@@ -0,0 +1,132 @@
+package com.braintreepayments.api;
+
+import android.test.AndroidTestCase;
+
+import com.braintreepayments.api.exceptions.ServerException;
+import com.braintreepayments.api.models.Card;
+import com.braintreepayments.api.models.ClientToken;
+import com.braintreepayments.api.models.PayPalAccount;
+import com.braintreepayments.api.models.PaymentMethod;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class VaultCacheTest extends AndroidTestCase {
+
+    private static final String CUSTOMER_KEY =
+            "https://example.com/merchants/id/configuration#customer";
+    private static final String PAYMENT_METHODS_RESPONSE = "{\"paymentMethods\":[" +
+            "{\"type\":\"CreditCard\",\"nonce\":\"card-nonce\",\"description\":\"ending in 11\"," +
+            "\"details\":{\"cardType\":\"Visa\",\"lastTwo\":\"11\"}}," +
+            "{\"type\":\"PayPalAccount\",\"nonce\":\"paypal-nonce\",\"description\":\"PayPal\"," +
+            "\"details\":{\"email\":\"jane@example.com\"}}]}";
+
+    private File mDirectory;
+    private File mKeyFile;
+    private VaultCache mVaultCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDirectory = new File(getContext().getCacheDir(), "vault-cache-test");
+        mKeyFile = new File(getContext().getCacheDir(), "vault-cache-test.key");
+        mVaultCache = new VaultCache(mDirectory, mKeyFile);
+        mVaultCache.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mVaultCache.clear();
+        super.tearDown();
+    }
+
+    public void testReturnsAnEmptyListWhenNothingIsCached() {
+        assertTrue(mVaultCache.get(CUSTOMER_KEY).isEmpty());
+    }
+
+    public void testStoresDisplayFieldsWithoutNonces() throws ServerException {
+        mVaultCache.put(CUSTOMER_KEY, PaymentMethod.parsePaymentMethods(PAYMENT_METHODS_RESPONSE));
+
+        List<PaymentMethod> paymentMethods =
+                new VaultCache(mDirectory, mKeyFile).get(CUSTOMER_KEY);
+
+        assertEquals(2, paymentMethods.size());
+        Card card = (Card) paymentMethods.get(0);
+        assertEquals("Visa", card.getTypeLabel());
+        assertEquals("11", card.getLastTwo());
+        assertEquals("ending in 11", card.getDescription());
+        assertNull(card.getNonce());
+        PayPalAccount payPalAccount = (PayPalAccount) paymentMethods.get(1);
+        assertEquals("jane@example.com", payPalAccount.getEmail());
+        assertNull(payPalAccount.getNonce());
+    }
+
+    public void testStoresEntriesPerCustomer() throws ServerException {
+        mVaultCache.put(CUSTOMER_KEY, PaymentMethod.parsePaymentMethods(PAYMENT_METHODS_RESPONSE));
+
+        assertTrue(mVaultCache.get(CUSTOMER_KEY + "-other").isEmpty());
+    }
+
+    public void testDoesNotStoreThePlaintext() throws ServerException, IOException {
+        mVaultCache.put(CUSTOMER_KEY, PaymentMethod.parsePaymentMethods(PAYMENT_METHODS_RESPONSE));
+
+        File[] files = mDirectory.listFiles();
+        assertEquals(1, files.length);
+        String contents = new String(readFile(files[0]), "ISO-8859-1");
+        assertFalse(contents.contains("jane@example.com"));
+        assertFalse(contents.contains("customer"));
+    }
+
+    public void testDiscardsEntriesThatWereModified() throws ServerException, IOException {
+        mVaultCache.put(CUSTOMER_KEY, PaymentMethod.parsePaymentMethods(PAYMENT_METHODS_RESPONSE));
+        File file = mDirectory.listFiles()[0];
+        byte[] data = readFile(file);
+        data[data.length / 2] ^= 1;
+        FileOutputStream outputStream = new FileOutputStream(file);
+        outputStream.write(data);
+        outputStream.close();
+
+        assertTrue(new VaultCache(mDirectory, mKeyFile).get(CUSTOMER_KEY).isEmpty());
+        assertFalse(file.exists());
+    }
+
+    public void testEntriesCanNotBeReadWithAnotherKey() throws ServerException {
+        mVaultCache.put(CUSTOMER_KEY, PaymentMethod.parsePaymentMethods(PAYMENT_METHODS_RESPONSE));
+        mKeyFile.delete();
+
+        assertTrue(new VaultCache(mDirectory, mKeyFile).get(CUSTOMER_KEY).isEmpty());
+    }
+
+    public void testCustomerKeyIsReadFromTheAuthorizationFingerprint() {
+        assertEquals("https://example.com/configuration#42", VaultCache.customerKey(clientToken(
+                "abc|created_at=2015-01-01&customer_id=42&merchant_id=merchant")));
+        assertNull(VaultCache.customerKey(clientToken(
+                "abc|created_at=2015-01-01&merchant_id=merchant")));
+        assertNull(VaultCache.customerKey(clientToken("authorization_fingerprint")));
+    }
+
+    /* helpers */
+    private ClientToken clientToken(String authorizationFingerprint) {
+        ClientToken clientToken = mock(ClientToken.class);
+        when(clientToken.getConfigUrl()).thenReturn("https://example.com/configuration");
+        when(clientToken.getAuthorizationFingerprint()).thenReturn(authorizationFingerprint);
+        return clientToken;
+    }
+
+    private byte[] readFile(File file) throws IOException {
+        FileInputStream inputStream = new FileInputStream(file);
+        byte[] data = new byte[(int) file.length()];
+        int offset = 0;
+        while (offset < data.length) {
+            offset += inputStream.read(data, offset, data.length - offset);
+        }
+        inputStream.close();
+        return data;
+    }
+}
@@ -0,0 +1,162 @@
+package com.braintreepayments.api.internal;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class BoundedExecutorTest extends AndroidTestCase {
+
+    public void testRunsAtMostMaxConcurrencyTasksAtATime()
+            throws ExecutionException, InterruptedException {
+        BoundedExecutor executor = new BoundedExecutor(2);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    int now = running.incrementAndGet();
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(maxRunning.get(), now));
+                    }
+                    SystemClock.sleep(10);
+                    running.decrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertEquals(2, maxRunning.get());
+    }
+
+    public void testStartsTasksInSubmissionOrder()
+            throws ExecutionException, InterruptedException {
+        BoundedExecutor executor = new BoundedExecutor(3);
+        final List<Integer> started = Collections.synchronizedList(new ArrayList<Integer>());
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < 20; i++) {
+            final int task = i;
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    started.add(task);
+                    SystemClock.sleep(5);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        // A task may only be overtaken by the tasks that were running when it was started
+        for (int i = 0; i < started.size(); i++) {
+            assertTrue(Math.abs(started.get(i) - i) < 3);
+        }
+    }
+
+    public void testCountsQueuedAndRunningTasks() throws InterruptedException {
+        BoundedExecutor executor = new BoundedExecutor(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Runnable blocked = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException ignored) {}
+            }
+        };
+
+        executor.execute(blocked);
+        executor.execute(blocked);
+        assertEquals(2, executor.getPendingCount());
+
+        latch.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(0, executor.getPendingCount());
+    }
+
+    public void testFailsQueuedTasksWhenTheTargetExecutorRejectsThem()
+            throws InterruptedException, TimeoutException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger accepted = new AtomicInteger();
+        final AtomicReference<Throwable> rejected = new AtomicReference<Throwable>();
+        BoundedExecutor executor = new BoundedExecutor(1) {
+            @Override
+            protected Executor getTargetExecutor() {
+                return new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        if (accepted.incrementAndGet() > 1) {
+                            throw new RejectedExecutionException("full");
+                        }
+                        new Thread(command).start();
+                    }
+                };
+            }
+        };
+        Future<?> running = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException ignored) {}
+            }
+        });
+        Future<?> queued = executor.submit(new RejectionRecordingTask(rejected));
+
+        latch.countDown();
+
+        try {
+            queued.get(1, TimeUnit.SECONDS);
+            fail("No exception was thrown");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertTrue(rejected.get() instanceof RejectedExecutionException);
+        assertTrue(running.isDone());
+        assertEquals(0, executor.getPendingCount());
+    }
+
+    public void testRejectsAMaxConcurrencyBelowOne() {
+        try {
+            new BoundedExecutor(0);
+            fail("No exception was thrown");
+        } catch (IllegalArgumentException ignored) {}
+    }
+
+    private static class RejectionRecordingTask
+            implements Runnable, BoundedExecutor.RejectionListener {
+
+        private final AtomicReference<Throwable> mRejection;
+
+        RejectionRecordingTask(AtomicReference<Throwable> rejection) {
+            mRejection = rejection;
+        }
+
+        @Override
+        public void run() {}
+
+        @Override
+        public void onRejected(RejectedExecutionException e) {
+            mRejection.set(e);
+        }
+    }
+}
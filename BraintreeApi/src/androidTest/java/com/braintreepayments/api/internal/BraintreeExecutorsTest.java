@@ -0,0 +1,68 @@
+package com.braintreepayments.api.internal;
+
+import android.test.AndroidTestCase;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class BraintreeExecutorsTest extends AndroidTestCase {
+
+    @Override
+    protected void tearDown() throws Exception {
+        BraintreeExecutors.setExecutor(null);
+        BraintreeExecutors.setScheduler(null);
+        super.tearDown();
+    }
+
+    public void testReturnsTheSameExecutorForEveryCall() {
+        assertSame(BraintreeExecutors.getExecutor(), BraintreeExecutors.getExecutor());
+        assertSame(BraintreeExecutors.getScheduler(), BraintreeExecutors.getScheduler());
+    }
+
+    public void testExecutorIsBoundedAndReapsIdleThreads() {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) BraintreeExecutors.getExecutor();
+
+        assertEquals(BraintreeExecutors.MAX_THREADS, executor.getMaximumPoolSize());
+        assertTrue(executor.allowsCoreThreadTimeOut());
+        assertEquals(BraintreeExecutors.KEEP_ALIVE_SECONDS,
+                executor.getKeepAliveTime(TimeUnit.SECONDS));
+    }
+
+    public void testRunsWorkOnNamedThreads() throws ExecutionException, InterruptedException {
+        String workerName = BraintreeExecutors.getExecutor().submit(new ThreadName()).get();
+        String schedulerName = BraintreeExecutors.getScheduler()
+                .schedule(new ThreadName(), 1, TimeUnit.MILLISECONDS).get();
+
+        assertTrue(workerName.startsWith("braintree-worker-"));
+        assertTrue(schedulerName.startsWith("braintree-scheduler-"));
+    }
+
+    public void testUsesInjectedExecutors() throws ExecutionException, InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            BraintreeExecutors.setExecutor(executor);
+            BraintreeExecutors.setScheduler(scheduler);
+
+            assertSame(executor, BraintreeExecutors.getExecutor());
+            assertSame(scheduler, BraintreeExecutors.getScheduler());
+            assertFalse(BraintreeExecutors.getExecutor().submit(new ThreadName()).get()
+                    .startsWith("braintree-"));
+        } finally {
+            executor.shutdown();
+            scheduler.shutdown();
+        }
+    }
+
+    private static class ThreadName implements Callable<String> {
+        @Override
+        public String call() {
+            return Thread.currentThread().getName();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.braintreepayments.api.internal;
+
+import android.test.AndroidTestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+public class ByteArrayPoolTest extends AndroidTestCase {
+
+    public void testReadsBodiesOfTheExpectedLength() throws IOException {
+        byte[] body = bytes(100);
+
+        byte[] read = ByteArrayPool.readFully(new ByteArrayInputStream(body), body.length);
+
+        assertTrue(Arrays.equals(body, read));
+    }
+
+    public void testReadsBodiesOfUnknownLength() throws IOException {
+        byte[] body = bytes(3 * ByteArrayPool.DEFAULT_BUFFER_SIZE + 7);
+
+        byte[] read = ByteArrayPool.readFully(new ByteArrayInputStream(body), -1);
+
+        assertTrue(Arrays.equals(body, read));
+    }
+
+    public void testReadsBodiesLongerThanTheExpectedLength() throws IOException {
+        byte[] body = bytes(2048);
+
+        byte[] read = ByteArrayPool.readFully(new ByteArrayInputStream(body), 10);
+
+        assertTrue(Arrays.equals(body, read));
+    }
+
+    public void testReadsBodiesDeliveredInSmallChunks() throws IOException {
+        byte[] body = bytes(1000);
+
+        byte[] read = ByteArrayPool.readFully(new OneByteAtATimeInputStream(body), body.length);
+
+        assertTrue(Arrays.equals(body, read));
+    }
+
+    public void testReadsEmptyBodies() throws IOException {
+        assertEquals(0, ByteArrayPool.readFully(new ByteArrayInputStream(new byte[0]), 0).length);
+        assertEquals(0, ByteArrayPool.readFully(new ByteArrayInputStream(new byte[0]), -1).length);
+    }
+
+    public void testReturnedArraysAreNotSharedBetweenReads() throws IOException {
+        byte[] first = ByteArrayPool.readFully(new ByteArrayInputStream(bytes(10)), 10);
+        byte[] second = ByteArrayPool.readFully(new ByteArrayInputStream(new byte[10]), 10);
+
+        assertNotSame(first, second);
+        assertTrue(Arrays.equals(bytes(10), first));
+    }
+
+    /* helpers */
+    private byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+
+    private static class OneByteAtATimeInputStream extends FilterInputStream {
+
+        OneByteAtATimeInputStream(byte[] bytes) {
+            super(new ByteArrayInputStream(bytes));
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            return super.read(buffer, offset, Math.min(1, count));
+        }
+    }
+}
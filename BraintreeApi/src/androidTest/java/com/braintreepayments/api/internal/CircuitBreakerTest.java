@@ -0,0 +1,63 @@
+package com.braintreepayments.api.internal;
+
+import android.os.SystemClock;
+
+import junit.framework.TestCase;
+
+public class CircuitBreakerTest extends TestCase {
+
+    public void testOpensAfterConsecutiveUnavailableResponses() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(2, 60000);
+
+        circuitBreaker.recordUnavailable();
+        assertTrue(circuitBreaker.allowRequest());
+
+        circuitBreaker.recordUnavailable();
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    public void testSuccessResetsTheFailureCount() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(2, 60000);
+
+        circuitBreaker.recordUnavailable();
+        circuitBreaker.recordSuccess();
+        circuitBreaker.recordUnavailable();
+
+        assertTrue(circuitBreaker.allowRequest());
+    }
+
+    public void testAllowsASingleTrialRequestAfterTheOpenDuration() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 50);
+        circuitBreaker.recordUnavailable();
+
+        SystemClock.sleep(100);
+
+        assertTrue(circuitBreaker.allowRequest());
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    public void testReopensWhenTheTrialRequestFails() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(3, 50);
+        circuitBreaker.recordUnavailable();
+        circuitBreaker.recordUnavailable();
+        circuitBreaker.recordUnavailable();
+        SystemClock.sleep(100);
+        assertTrue(circuitBreaker.allowRequest());
+
+        circuitBreaker.recordUnavailable();
+
+        assertFalse(circuitBreaker.allowRequest());
+    }
+
+    public void testClosesWhenTheTrialRequestSucceeds() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 50);
+        circuitBreaker.recordUnavailable();
+        SystemClock.sleep(100);
+        assertTrue(circuitBreaker.allowRequest());
+
+        circuitBreaker.recordSuccess();
+
+        assertFalse(circuitBreaker.isOpen());
+        assertTrue(circuitBreaker.allowRequest());
+    }
+}
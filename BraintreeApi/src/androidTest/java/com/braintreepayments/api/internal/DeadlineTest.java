@@ -0,0 +1,77 @@
+package com.braintreepayments.api.internal;
+
+import android.test.AndroidTestCase;
+
+import com.braintreepayments.api.exceptions.DeadlineExceededException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class DeadlineTest extends AndroidTestCase {
+
+    @Override
+    protected void tearDown() throws Exception {
+        Deadline.setCurrent(null);
+        super.tearDown();
+    }
+
+    public void testIsNotExpiredBeforeTheTimeout() throws DeadlineExceededException {
+        Deadline deadline = Deadline.after(10000);
+
+        assertFalse(deadline.isExpired());
+        assertTrue(deadline.getRemainingMillis() > 0);
+        deadline.check();
+    }
+
+    public void testCheckThrowsWhenExpired() {
+        Deadline deadline = Deadline.after(0);
+
+        assertTrue(deadline.isExpired());
+        try {
+            deadline.check();
+            fail("No exception was thrown");
+        } catch (DeadlineExceededException e) {
+            assertEquals(Deadline.DEADLINE_EXCEEDED_MESSAGE, e.getMessage());
+        }
+    }
+
+    public void testClampsTimeoutsToTheTimeRemaining() {
+        Deadline deadline = Deadline.after(1000);
+
+        assertTrue(deadline.clampTimeout(30000) <= 1000);
+        assertEquals(10, deadline.clampTimeout(10));
+        assertTrue(deadline.clampTimeout(0) <= 1000);
+        assertTrue(deadline.clampTimeout(0) > 0);
+    }
+
+    public void testCurrentIsScopedToTheThread() throws InterruptedException {
+        Deadline deadline = Deadline.after(1000);
+        Deadline.setCurrent(deadline);
+
+        final Deadline[] otherThreadDeadline = new Deadline[] { deadline };
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                otherThreadDeadline[0] = Deadline.current();
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertSame(deadline, Deadline.current());
+        assertNull(otherThreadDeadline[0]);
+    }
+
+    public void testRunsScheduledTasksWhenTheDeadlinePasses() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        Deadline.after(50).schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        });
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,154 @@
+package com.braintreepayments.api.internal;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+
+import com.braintreepayments.api.exceptions.BraintreeException;
+import com.braintreepayments.api.exceptions.ErrorWithResponse;
+import com.braintreepayments.api.exceptions.ServerException;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HedgingHttpTransportTest extends AndroidTestCase {
+
+    private HttpTransport mTransport;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        System.setProperty("dexmaker.dexcache", getContext().getCacheDir().getPath());
+        mTransport = mock(HttpTransport.class);
+        HedgingHttpTransport.resetCounters();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        BraintreeExecutors.setHedgeExecutor(null);
+        super.tearDown();
+    }
+
+    public void testReturnsTheHedgeResponseWhenTheFirstRequestStalls()
+            throws ErrorWithResponse, BraintreeException {
+        final HttpResponse stalledResponse = new HttpResponse(200, "stalled");
+        final HttpResponse hedgeResponse = new HttpResponse(200, "hedge");
+        final AtomicInteger calls = new AtomicInteger();
+        when(mTransport.get(anyString())).thenAnswer(new Answer<HttpResponse>() {
+            @Override
+            public HttpResponse answer(InvocationOnMock invocation) {
+                if (calls.incrementAndGet() == 1) {
+                    SystemClock.sleep(5000);
+                    return stalledResponse;
+                }
+                return hedgeResponse;
+            }
+        });
+        HedgingHttpTransport hedgingTransport = new HedgingHttpTransport(mTransport, 0.95, 1);
+
+        long start = SystemClock.elapsedRealtime();
+        HttpResponse response = hedgingTransport.get("/");
+
+        assertSame(hedgeResponse, response);
+        assertTrue(SystemClock.elapsedRealtime() - start < 5000);
+        assertEquals(1, HedgingHttpTransport.getHedgeCount());
+        assertEquals(1, HedgingHttpTransport.getHedgeWinCount());
+    }
+
+    public void testDoesNotHedgeFastRequests() throws ErrorWithResponse, BraintreeException {
+        when(mTransport.get(anyString())).thenReturn(new HttpResponse(200, "{}"));
+        HedgingHttpTransport hedgingTransport = new HedgingHttpTransport(mTransport);
+
+        hedgingTransport.get("/");
+
+        verify(mTransport, times(1)).get("/");
+        assertEquals(0, HedgingHttpTransport.getHedgeCount());
+    }
+
+    public void testThrowsTheFailureWhenEveryAttemptFails()
+            throws ErrorWithResponse, BraintreeException {
+        when(mTransport.get(anyString())).thenThrow(new ServerException("failed"));
+        HedgingHttpTransport hedgingTransport = new HedgingHttpTransport(mTransport);
+
+        try {
+            hedgingTransport.get("/");
+            fail("No exception was thrown");
+        } catch (ServerException e) {
+            assertEquals("failed", e.getMessage());
+        }
+    }
+
+    public void testNeverHedgesPostRequests() throws ErrorWithResponse, BraintreeException {
+        when(mTransport.post(anyString(), anyString())).thenAnswer(new Answer<HttpResponse>() {
+            @Override
+            public HttpResponse answer(InvocationOnMock invocation) {
+                SystemClock.sleep(1500);
+                return new HttpResponse(201, "{}");
+            }
+        });
+        HedgingHttpTransport hedgingTransport = new HedgingHttpTransport(mTransport, 0.95, 1);
+
+        hedgingTransport.post("/", "{}");
+
+        verify(mTransport, times(1)).post("/", "{}");
+        assertEquals(0, HedgingHttpTransport.getHedgeCount());
+    }
+
+    public void testCapsTheNumberOfHedges() throws ErrorWithResponse, BraintreeException {
+        when(mTransport.get(anyString())).thenAnswer(new Answer<HttpResponse>() {
+            @Override
+            public HttpResponse answer(InvocationOnMock invocation) {
+                SystemClock.sleep(1200);
+                return new HttpResponse(200, "{}");
+            }
+        });
+        HedgingHttpTransport hedgingTransport = new HedgingHttpTransport(mTransport, 0.95, 0.1);
+
+        hedgingTransport.get("/");
+        hedgingTransport.get("/");
+
+        assertEquals(1, HedgingHttpTransport.getHedgeCount());
+    }
+
+    public void testMakesTheRequestOnTheCallingThreadWhenTheHedgePoolIsFull()
+            throws ErrorWithResponse, BraintreeException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        BraintreeExecutors.setHedgeExecutor(executor);
+        final Thread callingThread = Thread.currentThread();
+        final HttpResponse httpResponse = new HttpResponse(200, "{}");
+        when(mTransport.get(anyString())).thenAnswer(new Answer<HttpResponse>() {
+            @Override
+            public HttpResponse answer(InvocationOnMock invocation) {
+                assertSame(callingThread, Thread.currentThread());
+                return httpResponse;
+            }
+        });
+        HedgingHttpTransport hedgingTransport = new HedgingHttpTransport(mTransport, 0.95, 1);
+
+        assertSame(httpResponse, hedgingTransport.get("/"));
+        verify(mTransport, times(1)).get("/");
+        assertEquals(0, HedgingHttpTransport.getHedgeCount());
+    }
+
+    public void testLatencyTrackerReportsPercentiles() {
+        LatencyTracker latencyTracker = new LatencyTracker(100, 10);
+        assertEquals(42, latencyTracker.getPercentile(0.95, 42));
+
+        for (int i = 1; i <= 100; i++) {
+            latencyTracker.record(i);
+        }
+
+        assertEquals(95, latencyTracker.getPercentile(0.95, 42));
+        assertEquals(50, latencyTracker.getPercentile(0.5, 42));
+    }
+}
@@ -0,0 +1,103 @@
+package com.braintreepayments.api.internal;
+
+import android.test.AndroidTestCase;
+
+import com.braintreepayments.api.TestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+
+import static com.braintreepayments.api.internal.HttpRequestTestUtils.streamFromString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HttpConnectionPoolTest extends AndroidTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        TestUtils.setUp(getContext());
+        HttpConnectionPool.resetCounters();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        HttpConnectionPool.disable();
+        super.tearDown();
+    }
+
+    public void testIsDisabledByDefault() {
+        assertFalse(HttpConnectionPool.isEnabled());
+    }
+
+    public void testDisableRestoresTheSystemProperties() {
+        String previousKeepAlive = System.getProperty("http.keepAlive");
+        System.setProperty("http.maxConnections", "2");
+        System.clearProperty("http.keepAliveDuration");
+
+        try {
+            HttpConnectionPool.enable(7, 1000);
+            HttpConnectionPool.enable(8, 2000);
+            assertEquals("8", System.getProperty("http.maxConnections"));
+            assertEquals("2000", System.getProperty("http.keepAliveDuration"));
+
+            HttpConnectionPool.disable();
+
+            assertEquals(previousKeepAlive, System.getProperty("http.keepAlive"));
+            assertEquals("2", System.getProperty("http.maxConnections"));
+            assertNull(System.getProperty("http.keepAliveDuration"));
+        } finally {
+            System.clearProperty("http.maxConnections");
+        }
+    }
+
+    public void testReturnsTheSameSocketFactoryForEveryRequest() {
+        assertSame(HttpConnectionPool.getSocketFactory(), HttpConnectionPool.getSocketFactory());
+    }
+
+    public void testDisconnectsWhenPoolingIsDisabled() {
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+
+        HttpConnectionPool.release(connection);
+
+        verify(connection).disconnect();
+    }
+
+    public void testDrainsErrorStreamInsteadOfDisconnectingWhenPoolingIsEnabled()
+            throws IOException {
+        HttpConnectionPool.enable();
+        InputStream errorStream = streamFromString("error body");
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(connection.getErrorStream()).thenReturn(errorStream);
+
+        HttpConnectionPool.release(connection);
+
+        verify(connection, never()).disconnect();
+        assertEquals(-1, errorStream.read());
+    }
+
+    public void testCountsReusedConnections() {
+        HttpConnectionPool.onRequest();
+        HttpConnectionPool.onRequest();
+
+        assertEquals(2, HttpConnectionPool.getRequestCount());
+        assertEquals(0, HttpConnectionPool.getNewConnectionCount());
+        assertEquals(2, HttpConnectionPool.getReusedConnectionCount());
+    }
+
+    public void testReusesConnectionsToTheSameHost() throws Exception {
+        HttpConnectionPool.enable();
+        HttpRequest httpRequest = new HttpRequest("");
+        httpRequest.setBaseUrl("https://api.sandbox.braintreegateway.com");
+
+        httpRequest.get("/wellness");
+        httpRequest.get("/wellness");
+
+        assertEquals(2, HttpConnectionPool.getRequestCount());
+        assertEquals(1, HttpConnectionPool.getNewConnectionCount());
+        assertEquals(1, HttpConnectionPool.getReusedConnectionCount());
+    }
+}
@@ -6,24 +6,40 @@ import com.braintreepayments.api.BuildConfig;
 import com.braintreepayments.api.exceptions.AuthenticationException;
 import com.braintreepayments.api.exceptions.AuthorizationException;
 import com.braintreepayments.api.exceptions.BraintreeException;
+import com.braintreepayments.api.exceptions.DeadlineExceededException;
 import com.braintreepayments.api.exceptions.DownForMaintenanceException;
 import com.braintreepayments.api.exceptions.ErrorWithResponse;
+import com.braintreepayments.api.exceptions.RequestCancelledException;
 import com.braintreepayments.api.exceptions.ServerException;
 import com.braintreepayments.api.exceptions.UnexpectedException;
 import com.braintreepayments.api.exceptions.UpgradeRequiredException;
 import com.braintreepayments.testutils.EnvironmentHelper;
+import com.google.gson.stream.JsonReader;
 
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static com.braintreepayments.api.internal.HttpRequestTestUtils.streamFromString;
 import static com.braintreepayments.testutils.FixturesHelper.stringFromFixture;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class HttpRequestTest extends AndroidTestCase {
@@ -59,6 +75,106 @@ public class HttpRequestTest extends AndroidTestCase {
         assertEquals("application/json", connection.getRequestProperty("Content-Type"));
     }
 
+    public void testSendsHeadersSetOnTheTransport() throws IOException {
+        HttpRequest httpRequest = new HttpRequest("");
+        httpRequest.setHeader("X-Test", "value");
+
+        HttpURLConnection connection = httpRequest.init("http://example.com/");
+
+        assertEquals("value", connection.getRequestProperty("X-Test"));
+    }
+
+    public void testRemovesHeadersSetToNull() throws IOException {
+        HttpRequest httpRequest = new HttpRequest("");
+        httpRequest.setHeader("X-Test", "value");
+        httpRequest.setHeader("X-Test", null);
+
+        HttpURLConnection connection = httpRequest.init("http://example.com/");
+
+        assertNull(connection.getRequestProperty("X-Test"));
+    }
+
+    public void testSetsTimeouts() throws IOException {
+        HttpRequest httpRequest = new HttpRequest("");
+        httpRequest.setConnectTimeout(1000);
+        httpRequest.setReadTimeout(2000);
+
+        HttpURLConnection connection = httpRequest.init("http://example.com/");
+
+        assertEquals(1000, connection.getConnectTimeout());
+        assertEquals(2000, connection.getReadTimeout());
+    }
+
+    public void testUsesDefaultTimeouts() throws IOException {
+        HttpRequest httpRequest = new HttpRequest("");
+
+        HttpURLConnection connection = httpRequest.init("http://example.com/");
+
+        assertEquals(HttpRequest.DEFAULT_CONNECT_TIMEOUT_MILLIS, connection.getConnectTimeout());
+        assertEquals(HttpRequest.DEFAULT_READ_TIMEOUT_MILLIS, connection.getReadTimeout());
+    }
+
+    public void testThrowsDeadlineExceededWithoutConnectingWhenTheDeadlineHasPassed()
+            throws IOException, ErrorWithResponse {
+        HttpRequest httpRequest = spy(new HttpRequest(""));
+        Deadline.setCurrent(Deadline.after(0));
+
+        try {
+            httpRequest.get("http://example.com/");
+            fail("No exception was thrown");
+        } catch (DeadlineExceededException e) {
+            assertEquals(Deadline.DEADLINE_EXCEEDED_MESSAGE, e.getMessage());
+        } finally {
+            Deadline.setCurrent(null);
+        }
+
+        verify(httpRequest, never()).init(anyString());
+    }
+
+    public void testThrowsRequestCancelledWithoutSendingWhenCancelled()
+            throws IOException, ErrorWithResponse {
+        HttpURLConnection connection = connectionWritingTo(new ByteArrayOutputStream());
+        HttpRequest httpRequest = spy(new HttpRequest(""));
+        doReturn(connection).when(httpRequest).init(anyString());
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+        CancellationToken.setCurrent(cancellationToken);
+
+        try {
+            httpRequest.get("http://example.com/");
+            fail("No exception was thrown");
+        } catch (RequestCancelledException e) {
+            assertEquals(CancellationToken.CANCELLED_MESSAGE, e.getMessage());
+        } finally {
+            CancellationToken.setCurrent(null);
+        }
+
+        verify(connection, never()).getResponseCode();
+    }
+
+    public void testShortensTimeoutsToTheTimeRemainingUntilTheDeadline()
+            throws IOException, ErrorWithResponse {
+        HttpURLConnection connection = connectionWritingTo(new ByteArrayOutputStream());
+        when(connection.getConnectTimeout()).thenReturn(HttpRequest.DEFAULT_CONNECT_TIMEOUT_MILLIS);
+        when(connection.getReadTimeout()).thenReturn(HttpRequest.DEFAULT_READ_TIMEOUT_MILLIS);
+        HttpRequest httpRequest = spy(new HttpRequest(""));
+        doReturn(connection).when(httpRequest).init(anyString());
+        Deadline.setCurrent(Deadline.after(5000));
+
+        try {
+            httpRequest.get("/");
+        } finally {
+            Deadline.setCurrent(null);
+        }
+
+        ArgumentCaptor<Integer> connectTimeout = ArgumentCaptor.forClass(Integer.class);
+        ArgumentCaptor<Integer> readTimeout = ArgumentCaptor.forClass(Integer.class);
+        verify(connection).setConnectTimeout(connectTimeout.capture());
+        verify(connection).setReadTimeout(readTimeout.capture());
+        assertTrue(connectTimeout.getValue() <= 5000);
+        assertTrue(readTimeout.getValue() <= 5000);
+    }
+
     public void testThrowsErrorWhenBaseUrlIsNotSet() {
         HttpRequest httpRequest = new HttpRequest(null);
 
@@ -193,7 +309,209 @@ public class HttpRequestTest extends AndroidTestCase {
         }
     }
 
+    public void testParsesResponseBodyWithResponseParser()
+            throws IOException, ErrorWithResponse {
+        HttpRequest httpRequest =
+                HttpRequestTestUtils.requestWithExpectedResponse(200, "{\"key\":\"value\"}");
+
+        String value = httpRequest.get("/", new ResponseParser<String>() {
+            @Override
+            public String parse(JsonReader reader) throws IOException {
+                reader.beginObject();
+                reader.nextName();
+                String value = reader.nextString();
+                reader.endObject();
+                return value;
+            }
+        });
+
+        assertEquals("value", value);
+    }
+
+    public void testThrowsServerExceptionWhenResponseParsingFails()
+            throws IOException, ErrorWithResponse {
+        HttpRequest httpRequest =
+                HttpRequestTestUtils.requestWithExpectedResponse(200, "not json");
+
+        try {
+            httpRequest.post("/", "{}", new ResponseParser<Object>() {
+                @Override
+                public Object parse(JsonReader reader) throws IOException {
+                    reader.beginObject();
+                    return null;
+                }
+            });
+            fail("No exception was thrown");
+        } catch (ServerException e) {
+            assertEquals("Parsing server response failed", e.getMessage());
+        }
+    }
+
+    public void testDoesNotRequestGzipByDefault() throws IOException {
+        HttpRequest httpRequest = new HttpRequest("");
+
+        HttpURLConnection connection = httpRequest.init("http://example.com/");
+
+        assertNull(connection.getRequestProperty("Accept-Encoding"));
+    }
+
+    public void testRequestsGzipWhenEnabled() throws IOException {
+        HttpRequest httpRequest = new HttpRequest("");
+        httpRequest.setGzipEnabled(true);
+
+        HttpURLConnection connection = httpRequest.init("http://example.com/");
+
+        assertEquals("gzip", connection.getRequestProperty("Accept-Encoding"));
+    }
+
+    public void testDecodesGzipResponses() throws IOException, ErrorWithResponse {
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(connection.getResponseCode()).thenReturn(200);
+        when(connection.getContentEncoding()).thenReturn("gzip");
+        when(connection.getInputStream()).thenReturn(
+                new ByteArrayInputStream(gzip("{\"key\":\"value\"}".getBytes("UTF-8"))));
+        HttpRequest httpRequest = spy(new HttpRequest(""));
+        doReturn(connection).when(httpRequest).init(anyString());
+
+        assertEquals("{\"key\":\"value\"}", httpRequest.get("/").getResponseBody());
+    }
+
+    public void testWritesRequestBodiesAsUtf8() throws IOException, ErrorWithResponse {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpURLConnection connection = connectionWritingTo(out);
+        HttpRequest httpRequest = spy(new HttpRequest(""));
+        doReturn(connection).when(httpRequest).init(anyString());
+
+        httpRequest.post("/", "{\"name\":\"J\u00fcrgen \u2603\"}");
+
+        assertTrue(new String(out.toByteArray(), "UTF-8").contains("J\u00fcrgen \u2603"));
+    }
+
+    public void testCompressesRequestBodiesAboveTheThreshold()
+            throws IOException, ErrorWithResponse {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpURLConnection connection = connectionWritingTo(out);
+        HttpRequest httpRequest = spy(new HttpRequest(""));
+        doReturn(connection).when(httpRequest).init(anyString());
+        httpRequest.setRequestCompressionThreshold(10);
+
+        httpRequest.post("/", "{\"key\":\"a value long enough to compress\"}");
+
+        verify(connection).setRequestProperty("Content-Encoding", "gzip");
+        String body = readString(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertTrue(body.contains("a value long enough to compress"));
+    }
+
+    public void testDoesNotCompressRequestBodiesBelowTheThreshold()
+            throws IOException, ErrorWithResponse {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpURLConnection connection = connectionWritingTo(out);
+        HttpRequest httpRequest = spy(new HttpRequest(""));
+        doReturn(connection).when(httpRequest).init(anyString());
+        httpRequest.setRequestCompressionThreshold(1024);
+
+        httpRequest.post("/", "{\"key\":\"value\"}");
+
+        verify(connection, never()).setRequestProperty("Content-Encoding", "gzip");
+        assertTrue(new String(out.toByteArray(), "UTF-8").contains("\"key\":\"value\""));
+    }
+
+    public void testSizesTheResponseBufferFromContentLength()
+            throws IOException, ErrorWithResponse {
+        String body = "{\"key\":\"value\"}";
+        HttpURLConnection connection = connectionWritingTo(new ByteArrayOutputStream());
+        when(connection.getInputStream()).thenReturn(streamFromString(body));
+        when(connection.getContentLength()).thenReturn(body.length());
+        HttpRequest httpRequest = spy(new HttpRequest(""));
+        doReturn(connection).when(httpRequest).init(anyString());
+
+        HttpResponse response = httpRequest.get("/");
+
+        assertEquals(body.length(), response.getResponseBodyBytes().length);
+        assertEquals(body, response.getResponseBody());
+        assertEquals(body, readString(response.getResponseBodyStream()));
+    }
+
+    public void testReadsGzipResponsesLongerThanTheirContentLength()
+            throws IOException, ErrorWithResponse {
+        String body = "{\"key\":\"value value value value value value value value value\"}";
+        byte[] compressed = gzip(body.getBytes("UTF-8"));
+        HttpURLConnection connection = connectionWritingTo(new ByteArrayOutputStream());
+        when(connection.getInputStream()).thenReturn(new ByteArrayInputStream(compressed));
+        when(connection.getContentEncoding()).thenReturn("gzip");
+        when(connection.getContentLength()).thenReturn(compressed.length);
+        HttpRequest httpRequest = spy(new HttpRequest(""));
+        doReturn(connection).when(httpRequest).init(anyString());
+        httpRequest.setGzipEnabled(true);
+
+        assertEquals(body, httpRequest.get("/").getResponseBody());
+    }
+
+    public void testConditionalGetSendsHeadersAndReturnsNotModifiedResponses()
+            throws IOException, ErrorWithResponse {
+        HttpURLConnection connection = connectionWritingTo(new ByteArrayOutputStream());
+        when(connection.getResponseCode()).thenReturn(304);
+        when(connection.getInputStream()).thenReturn(streamFromString(""));
+        Map<String, List<String>> headerFields = new HashMap<String, List<String>>();
+        headerFields.put(null, Collections.singletonList("HTTP/1.1 304 Not Modified"));
+        headerFields.put("ETag", Collections.singletonList("\"abc\""));
+        when(connection.getHeaderFields()).thenReturn(headerFields);
+        HttpRequest httpRequest = spy(new HttpRequest(""));
+        doReturn(connection).when(httpRequest).init(anyString());
+
+        HttpResponse response = httpRequest.get("/",
+                Collections.singletonMap("If-None-Match", "\"abc\""));
+
+        verify(connection).setRequestProperty("If-None-Match", "\"abc\"");
+        assertEquals(304, response.getResponseCode());
+        assertEquals("\"abc\"", response.getHeader("etag"));
+    }
+
+    public void testNotModifiedIsUnexpectedForUnconditionalRequests()
+            throws IOException, ErrorWithResponse {
+        HttpURLConnection connection = connectionWritingTo(new ByteArrayOutputStream());
+        when(connection.getResponseCode()).thenReturn(304);
+        HttpRequest httpRequest = spy(new HttpRequest(""));
+        doReturn(connection).when(httpRequest).init(anyString());
+
+        try {
+            httpRequest.get("/");
+            fail("No exception was thrown");
+        } catch (UnexpectedException ignored) {}
+
+        try {
+            httpRequest.post("/", "{}");
+            fail("No exception was thrown");
+        } catch (UnexpectedException ignored) {}
+    }
+
     /* helpers */
+    private HttpURLConnection connectionWritingTo(OutputStream out) throws IOException {
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(connection.getResponseCode()).thenReturn(200);
+        when(connection.getOutputStream()).thenReturn(out);
+        when(connection.getInputStream()).thenReturn(streamFromString("{}"));
+
+        return connection;
+    }
+
+    private byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gzipOut = new GZIPOutputStream(out);
+        gzipOut.write(data);
+        gzipOut.close();
+        return out.toByteArray();
+    }
+
+    private String readString(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int count; (count = in.read(buffer)) != -1; ) {
+            out.write(buffer, 0, count);
+        }
+        return new String(out.toByteArray(), "UTF-8");
+    }
+
     private void assertExceptionIsThrown(HttpURLConnection httpURLConnection,
             Class<? extends Exception> exceptionType, String exceptionMessage) throws IOException {
         when(httpURLConnection.getOutputStream()).thenReturn(mock(OutputStream.class));
@@ -0,0 +1,42 @@
+package com.braintreepayments.api.internal;
+
+import android.test.AndroidTestCase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+public class HttpResponseTest extends AndroidTestCase {
+
+    public void testDecodesBytesToAString() throws IOException {
+        HttpResponse response = new HttpResponse(200, "{\"k\":\"é\"}".getBytes("UTF-8"));
+
+        assertEquals("{\"k\":\"é\"}", response.getResponseBody());
+    }
+
+    public void testEncodesAStringToBytes() throws IOException {
+        HttpResponse response = new HttpResponse(200, "{\"k\":\"é\"}");
+
+        assertTrue(Arrays.equals("{\"k\":\"é\"}".getBytes("UTF-8"),
+                response.getResponseBodyBytes()));
+    }
+
+    public void testReturnsAStreamOverTheBody() throws IOException {
+        HttpResponse response = new HttpResponse(200, new byte[] { 1, 2, 3 });
+
+        InputStream in = response.getResponseBodyStream();
+
+        assertEquals(1, in.read());
+        assertEquals(2, in.read());
+        assertEquals(3, in.read());
+        assertEquals(-1, in.read());
+    }
+
+    public void testReturnsNullWhenThereIsNoBody() {
+        HttpResponse response = new HttpResponse(204, (String) null);
+
+        assertNull(response.getResponseBody());
+        assertNull(response.getResponseBodyBytes());
+        assertNull(response.getResponseBodyStream());
+    }
+}
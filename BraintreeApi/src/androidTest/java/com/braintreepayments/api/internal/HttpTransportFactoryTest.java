@@ -0,0 +1,39 @@
+package com.braintreepayments.api.internal;
+
+import android.test.AndroidTestCase;
+
+import com.braintreepayments.api.exceptions.BraintreeException;
+import com.braintreepayments.api.exceptions.ErrorWithResponse;
+
+public class HttpTransportFactoryTest extends AndroidTestCase {
+
+    @Override
+    protected void tearDown() throws Exception {
+        HttpTransportFactory.setHttp2Enabled(false);
+        super.tearDown();
+    }
+
+    public void testCreatesHttpRequestByDefault() {
+        HttpTransport transport = HttpTransportFactory.create("");
+
+        assertEquals(HttpRequest.class, transport.getClass());
+    }
+
+    public void testCreatesOkHttpRequestWhenHttp2IsEnabled() {
+        assertTrue(HttpTransportFactory.isHttp2Available());
+        HttpTransportFactory.setHttp2Enabled(true);
+
+        HttpTransport transport = HttpTransportFactory.create("");
+
+        assertEquals(OkHttpRequest.class, transport.getClass());
+    }
+
+    public void testOkHttpRequestSslCertificateSuccessfulInSandbox()
+            throws BraintreeException, ErrorWithResponse {
+        HttpTransportFactory.setHttp2Enabled(true);
+        HttpTransport transport = HttpTransportFactory.create("");
+        transport.setBaseUrl("https://api.sandbox.braintreegateway.com");
+
+        assertEquals(200, transport.get("/wellness").getResponseCode());
+    }
+}
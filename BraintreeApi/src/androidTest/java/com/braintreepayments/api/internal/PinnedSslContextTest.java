@@ -0,0 +1,59 @@
+package com.braintreepayments.api.internal;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+
+import javax.net.ssl.SSLSocketFactory;
+
+public class PinnedSslContextTest extends AndroidTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        PinnedSslContext.reset();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        PinnedSslContext.setSessionCacheSize(PinnedSslContext.DEFAULT_SESSION_CACHE_SIZE);
+        PinnedSslContext.setSessionTimeout(PinnedSslContext.DEFAULT_SESSION_TIMEOUT_SECONDS);
+        super.tearDown();
+    }
+
+    public void testReturnsTheSameSocketFactoryForEveryRequest() {
+        SSLSocketFactory first = PinnedSslContext.getSocketFactory();
+        SSLSocketFactory second = PinnedSslContext.getSocketFactory();
+
+        assertNotNull(first);
+        assertSame(first, second);
+    }
+
+    public void testResetRebuildsTheSocketFactory() {
+        SSLSocketFactory first = PinnedSslContext.getSocketFactory();
+        PinnedSslContext.reset();
+
+        assertNotSame(first, PinnedSslContext.getSocketFactory());
+    }
+
+    public void testWarmUpBuildsTheContextInTheBackground() {
+        PinnedSslContext.warmUp();
+
+        SSLSocketFactory socketFactory = null;
+        long end = SystemClock.uptimeMillis() + 5000;
+        while (socketFactory == null && SystemClock.uptimeMillis() < end) {
+            socketFactory = PinnedSslContext.getSocketFactory();
+        }
+
+        assertNotNull(socketFactory);
+        assertSame(socketFactory, PinnedSslContext.getSocketFactory());
+    }
+
+    public void testSessionSettingsCanBeChangedAfterTheContextIsBuilt() {
+        PinnedSslContext.getSocketFactory();
+
+        PinnedSslContext.setSessionCacheSize(2);
+        PinnedSslContext.setSessionTimeout(30);
+
+        assertNotNull(PinnedSslContext.getSocketFactory());
+    }
+}
@@ -0,0 +1,219 @@
+package com.braintreepayments.api.internal;
+
+import android.test.AndroidTestCase;
+
+import com.braintreepayments.api.exceptions.AuthenticationException;
+import com.braintreepayments.api.exceptions.BraintreeException;
+import com.braintreepayments.api.exceptions.DownForMaintenanceException;
+import com.braintreepayments.api.exceptions.ErrorWithResponse;
+import com.braintreepayments.api.exceptions.RequestCancelledException;
+import com.braintreepayments.api.exceptions.ServerException;
+import com.braintreepayments.api.exceptions.UnexpectedException;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RetryingHttpTransportTest extends AndroidTestCase {
+
+    private HttpTransport mTransport;
+    private CircuitBreaker mCircuitBreaker;
+    private RetryingHttpTransport mRetryingTransport;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        System.setProperty("dexmaker.dexcache", getContext().getCacheDir().getPath());
+        mTransport = mock(HttpTransport.class);
+        mCircuitBreaker = new CircuitBreaker(2, 60000);
+        mRetryingTransport = new RetryingHttpTransport(mTransport, new RetryPolicy(3, 1, 1, false),
+                mCircuitBreaker);
+    }
+
+    public void testRetriesGetRequestsUntilTheySucceed()
+            throws ErrorWithResponse, BraintreeException {
+        HttpResponse response = new HttpResponse(200, "{}");
+        when(mTransport.get(anyString()))
+                .thenThrow(new UnexpectedException("timeout"))
+                .thenThrow(new ServerException())
+                .thenReturn(response);
+
+        assertSame(response, mRetryingTransport.get("/"));
+        verify(mTransport, times(3)).get("/");
+    }
+
+    public void testStopsRetryingAfterMaxAttempts() throws ErrorWithResponse, BraintreeException {
+        when(mTransport.get(anyString())).thenThrow(new UnexpectedException("timeout"));
+
+        try {
+            mRetryingTransport.get("/");
+            fail("No exception was thrown");
+        } catch (UnexpectedException e) {
+            verify(mTransport, times(3)).get("/");
+        }
+    }
+
+    public void testDoesNotRetryCancelledRequests() throws ErrorWithResponse, BraintreeException {
+        when(mTransport.get(anyString())).thenThrow(new RequestCancelledException());
+
+        try {
+            mRetryingTransport.get("/");
+            fail("No exception was thrown");
+        } catch (RequestCancelledException e) {
+            verify(mTransport, times(1)).get("/");
+        }
+    }
+
+    public void testDoesNotStartRequestsWhenCancelled()
+            throws ErrorWithResponse, BraintreeException {
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+        CancellationToken.setCurrent(cancellationToken);
+
+        try {
+            mRetryingTransport.get("/");
+            fail("No exception was thrown");
+        } catch (RequestCancelledException e) {
+            verify(mTransport, never()).get(anyString());
+        } finally {
+            CancellationToken.setCurrent(null);
+        }
+    }
+
+    public void testDoesNotRetryPostRequestsByDefault()
+            throws ErrorWithResponse, BraintreeException {
+        when(mTransport.post(anyString(), anyString())).thenThrow(new ServerException());
+
+        try {
+            mRetryingTransport.post("/", "{}");
+            fail("No exception was thrown");
+        } catch (ServerException e) {
+            verify(mTransport, times(1)).post("/", "{}");
+        }
+    }
+
+    public void testRetriesPostRequestsWhenEnabled() throws ErrorWithResponse, BraintreeException {
+        mRetryingTransport.setRetryPolicy(new RetryPolicy(2, 1, 1, true));
+        when(mTransport.post(anyString(), anyString())).thenThrow(new ServerException());
+
+        try {
+            mRetryingTransport.post("/", "{}");
+            fail("No exception was thrown");
+        } catch (ServerException e) {
+            verify(mTransport, times(2)).post("/", "{}");
+        }
+    }
+
+    public void testDoesNotRetryAuthenticationErrors()
+            throws ErrorWithResponse, BraintreeException {
+        when(mTransport.get(anyString())).thenThrow(new AuthenticationException());
+
+        try {
+            mRetryingTransport.get("/");
+            fail("No exception was thrown");
+        } catch (AuthenticationException e) {
+            verify(mTransport, times(1)).get("/");
+        }
+    }
+
+    public void testFailsFastWhileTheGatewayIsUnavailable()
+            throws ErrorWithResponse, BraintreeException {
+        when(mTransport.get(anyString())).thenThrow(new DownForMaintenanceException());
+
+        try {
+            mRetryingTransport.get("/");
+            fail("No exception was thrown");
+        } catch (DownForMaintenanceException e) {
+            assertEquals(RetryingHttpTransport.CIRCUIT_OPEN_MESSAGE, e.getMessage());
+        }
+        verify(mTransport, times(2)).get("/");
+        assertTrue(mCircuitBreaker.isOpen());
+
+        try {
+            mRetryingTransport.post("/", "{}");
+            fail("No exception was thrown");
+        } catch (DownForMaintenanceException e) {
+            verify(mTransport, never()).post(anyString(), anyString());
+        }
+    }
+
+    public void testCancelledTrialRequestAllowsAnotherTrial()
+            throws ErrorWithResponse, BraintreeException {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 0);
+        RetryingHttpTransport retryingTransport = new RetryingHttpTransport(mTransport,
+                RetryPolicy.NO_RETRIES, circuitBreaker);
+        HttpResponse response = new HttpResponse(200, "{}");
+        when(mTransport.get(anyString()))
+                .thenThrow(new RequestCancelledException())
+                .thenReturn(response);
+        circuitBreaker.recordUnavailable();
+        assertTrue(circuitBreaker.isOpen());
+
+        try {
+            retryingTransport.get("/");
+            fail("No exception was thrown");
+        } catch (RequestCancelledException ignored) {
+        }
+
+        assertSame(response, retryingTransport.get("/"));
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    public void testTrialRequestThatThrowsARuntimeExceptionAllowsAnotherTrial()
+            throws ErrorWithResponse, BraintreeException {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, 0);
+        RetryingHttpTransport retryingTransport = new RetryingHttpTransport(mTransport,
+                RetryPolicy.NO_RETRIES, circuitBreaker);
+        HttpResponse response = new HttpResponse(200, "{}");
+        when(mTransport.get(anyString()))
+                .thenThrow(new IllegalStateException())
+                .thenReturn(response);
+        circuitBreaker.recordUnavailable();
+
+        try {
+            retryingTransport.get("/");
+            fail("No exception was thrown");
+        } catch (IllegalStateException ignored) {
+        }
+
+        assertSame(response, retryingTransport.get("/"));
+        assertFalse(circuitBreaker.isOpen());
+    }
+
+    public void testUnavailableHostDoesNotFailRequestsToOtherHosts()
+            throws ErrorWithResponse, BraintreeException {
+        RetryingHttpTransport retryingTransport =
+                new RetryingHttpTransport(mTransport, RetryPolicy.NO_RETRIES);
+        retryingTransport.setBaseUrl("https://gateway.retrying-transport-test.example/");
+        CircuitBreaker.forHost("analytics.retrying-transport-test.example").reset();
+        CircuitBreaker.forHost("gateway.retrying-transport-test.example").reset();
+        String analyticsUrl = "https://analytics.retrying-transport-test.example/events";
+        HttpResponse response = new HttpResponse(200, "{}");
+        when(mTransport.post(analyticsUrl, "{}")).thenThrow(new DownForMaintenanceException());
+        when(mTransport.post("/tokens", "{}")).thenReturn(response);
+
+        for (int i = 0; i < CircuitBreaker.DEFAULT_FAILURE_THRESHOLD; i++) {
+            try {
+                retryingTransport.post(analyticsUrl, "{}");
+                fail("No exception was thrown");
+            } catch (DownForMaintenanceException ignored) {
+            }
+        }
+
+        assertTrue(CircuitBreaker.forHost("analytics.retrying-transport-test.example").isOpen());
+        assertSame(response, retryingTransport.post("/tokens", "{}"));
+    }
+
+    public void testBackoffIsBoundedByTheMaximumBackoff() {
+        RetryPolicy retryPolicy = new RetryPolicy(10, 100, 400, false);
+
+        for (int attempt = 1; attempt < 10; attempt++) {
+            long backoff = retryPolicy.getBackoffMillis(attempt);
+            assertTrue(backoff >= 0);
+            assertTrue(backoff <= 400);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.braintreepayments.api.internal;
+
+import android.test.AndroidTestCase;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class RingBufferTest extends AndroidTestCase {
+
+    public void testDropsTheOldestItemWhenFull() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(3);
+
+        assertNull(ringBuffer.add(1));
+        assertNull(ringBuffer.add(2));
+        assertNull(ringBuffer.add(3));
+        assertEquals(Integer.valueOf(1), ringBuffer.add(4));
+        assertEquals(Integer.valueOf(2), ringBuffer.add(5));
+
+        assertEquals(3, ringBuffer.size());
+        assertEquals(2, ringBuffer.getOverflowCount());
+        assertEquals(Arrays.asList(3, 4, 5), ringBuffer.removeMatching(all()));
+    }
+
+    public void testRemovesMatchingItemsInOrderAndKeepsTheRest() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(4);
+        for (int i = 1; i <= 6; i++) {
+            ringBuffer.add(i);
+        }
+
+        List<Integer> even = ringBuffer.removeMatching(new RingBuffer.Matcher<Integer>() {
+            @Override
+            public boolean matches(Integer item) {
+                return item % 2 == 0;
+            }
+        });
+
+        assertEquals(Arrays.asList(4, 6), even);
+        assertEquals(2, ringBuffer.size());
+
+        ringBuffer.add(7);
+        ringBuffer.add(8);
+        ringBuffer.add(9);
+        assertEquals(Arrays.asList(5, 7, 8, 9), ringBuffer.removeMatching(all()));
+        assertEquals(0, ringBuffer.size());
+    }
+
+    public void testDropsOnlyDroppableItemsWhenFull() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(3);
+        RingBuffer.Matcher<Integer> even = new RingBuffer.Matcher<Integer>() {
+            @Override
+            public boolean matches(Integer item) {
+                return item % 2 == 0;
+            }
+        };
+
+        assertNull(ringBuffer.add(1, even));
+        assertNull(ringBuffer.add(2, even));
+        assertNull(ringBuffer.add(3, even));
+        assertEquals(Integer.valueOf(2), ringBuffer.add(5, even));
+
+        assertEquals(3, ringBuffer.size());
+        assertEquals(1, ringBuffer.getOverflowCount());
+        assertEquals(Arrays.asList(1, 3, 5), ringBuffer.removeMatching(all()));
+    }
+
+    public void testGrowsPastItsCapacityWhenNoItemIsDroppable() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<Integer>(2);
+        RingBuffer.Matcher<Integer> none = new RingBuffer.Matcher<Integer>() {
+            @Override
+            public boolean matches(Integer item) {
+                return false;
+            }
+        };
+
+        for (int i = 1; i <= 5; i++) {
+            assertNull(ringBuffer.add(i, none));
+        }
+
+        assertEquals(5, ringBuffer.size());
+        assertEquals(2, ringBuffer.getCapacity());
+        assertEquals(0, ringBuffer.getOverflowCount());
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), ringBuffer.removeMatching(all()));
+    }
+
+    public void testRejectsACapacityBelowOne() {
+        try {
+            new RingBuffer<Integer>(0);
+            fail("No exception was thrown");
+        } catch (IllegalArgumentException ignored) {}
+    }
+
+    private static RingBuffer.Matcher<Integer> all() {
+        return new RingBuffer.Matcher<Integer>() {
+            @Override
+            public boolean matches(Integer item) {
+                return true;
+            }
+        };
+    }
+}
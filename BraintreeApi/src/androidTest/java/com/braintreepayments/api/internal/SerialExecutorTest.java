@@ -0,0 +1,74 @@
+package com.braintreepayments.api.internal;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SerialExecutorTest extends AndroidTestCase {
+
+    public void testRunsTasksInSubmissionOrder() throws ExecutionException, InterruptedException {
+        SerialExecutor executor = new SerialExecutor();
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+
+        Future<?> last = null;
+        for (int i = 0; i < 20; i++) {
+            final int task = i;
+            last = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    SystemClock.sleep(task % 3);
+                    order.add(task);
+                }
+            });
+        }
+        last.get();
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, order.get(i).intValue());
+        }
+    }
+
+    public void testRunsOneTaskAtATime() throws ExecutionException, InterruptedException {
+        SerialExecutor executor = new SerialExecutor();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        Future<?> last = null;
+        for (int i = 0; i < 10; i++) {
+            last = executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    maxRunning.set(Math.max(maxRunning.get(), running.incrementAndGet()));
+                    SystemClock.sleep(5);
+                    running.decrementAndGet();
+                }
+            });
+        }
+        last.get();
+
+        assertEquals(1, maxRunning.get());
+    }
+
+    public void testRejectsTasksAfterShutdown() throws InterruptedException {
+        SerialExecutor executor = new SerialExecutor();
+        executor.shutdown();
+
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {}
+            });
+            fail("No exception was thrown");
+        } catch (RejectedExecutionException ignored) {}
+
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+}
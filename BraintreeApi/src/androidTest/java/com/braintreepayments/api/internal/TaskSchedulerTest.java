@@ -0,0 +1,85 @@
+package com.braintreepayments.api.internal;
+
+import android.test.AndroidTestCase;
+
+import com.braintreepayments.api.internal.TaskScheduler.Lane;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class TaskSchedulerTest extends AndroidTestCase {
+
+    public void testInteractiveWorkIsNotDelayedByOtherLanes()
+            throws InterruptedException, ExecutionException, TimeoutException {
+        TaskScheduler scheduler = new TaskScheduler();
+        CountDownLatch latch = new CountDownLatch(1);
+        for (int i = 0; i < 5; i++) {
+            scheduler.submit(Lane.TELEMETRY, new Blocked(latch));
+            scheduler.submit(Lane.BACKGROUND, new Blocked(latch));
+        }
+
+        try {
+            scheduler.submit(Lane.INTERACTIVE, new Runnable() {
+                @Override
+                public void run() {}
+            }).get(1, TimeUnit.SECONDS);
+
+            assertEquals(5, scheduler.getPendingCount(Lane.TELEMETRY));
+            assertEquals(5, scheduler.getPendingCount(Lane.BACKGROUND));
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    public void testInteractiveWorkStartsWhileTheSharedPoolIsSaturated()
+            throws InterruptedException, ExecutionException, TimeoutException {
+        CountDownLatch latch = new CountDownLatch(1);
+        for (int i = 0; i < BraintreeExecutors.MAX_THREADS; i++) {
+            new TaskScheduler().submit(Lane.TELEMETRY, new Blocked(latch));
+            BraintreeExecutors.getExecutor().execute(new Blocked(latch));
+        }
+
+        try {
+            final String[] threadName = new String[1];
+            new TaskScheduler().submit(Lane.INTERACTIVE, new Runnable() {
+                @Override
+                public void run() {
+                    threadName[0] = Thread.currentThread().getName();
+                }
+            }).get(1, TimeUnit.SECONDS);
+
+            assertTrue(threadName[0].startsWith("braintree-interactive-"));
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    public void testSharedLanesDoNotExceedTheSharedPool() {
+        int total = 0;
+        for (Lane lane : Lane.values()) {
+            if (lane != Lane.INTERACTIVE) {
+                total += lane.getMaxConcurrency();
+            }
+        }
+
+        assertTrue(total <= BraintreeExecutors.MAX_THREADS);
+    }
+
+    private static class Blocked implements Runnable {
+
+        private final CountDownLatch mLatch;
+
+        Blocked(CountDownLatch latch) {
+            mLatch = latch;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mLatch.await();
+            } catch (InterruptedException ignored) {}
+        }
+    }
+}
@@ -30,4 +30,32 @@ public class AnalyticsConfigurationTest extends AndroidTestCase {
         assertEquals("", configuration.getAnalytics().getUrl());
         assertFalse(configuration.isAnalyticsEnabled());
     }
+
+    public void testUsesDefaultLimitsWhenNoneAreConfigured() {
+        Configuration configuration = getConfigurationFromFixture(getContext(),
+                "configuration_with_analytics.json");
+        AnalyticsConfiguration analytics = configuration.getAnalytics();
+
+        assertEquals(1d, analytics.getSampleRate("custom.android.card.form.appeared"));
+        assertEquals(AnalyticsConfiguration.DEFAULT_MAX_EVENTS_PER_MINUTE,
+                analytics.getMaxEventsPerMinute());
+        assertEquals(AnalyticsConfiguration.DEFAULT_MAX_EVENT_BURST, analytics.getMaxEventBurst());
+        assertEquals(AnalyticsConfiguration.DEFAULT_DEDUPLICATION_WINDOW_MILLIS,
+                analytics.getDeduplicationWindowMillis());
+    }
+
+    public void testParsesSamplingAndRateLimits() {
+        AnalyticsConfiguration analytics = Configuration.fromJson("{\"analytics\": {" +
+                "\"url\": \"analytics_url\", \"sampleRate\": 0.5, " +
+                "\"sampleRates\": {\"appeared\": 0.1, \"card.form.appeared\": 0.2}, " +
+                "\"maxEventsPerMinute\": 10, \"maxEventBurst\": 5, " +
+                "\"deduplicationWindowMillis\": 500}}").getAnalytics();
+
+        assertEquals(0.2, analytics.getSampleRate("custom.android.card.form.appeared"));
+        assertEquals(0.1, analytics.getSampleRate("custom.android.paypal.appeared"));
+        assertEquals(0.5, analytics.getSampleRate("custom.android.card.form.submitted"));
+        assertEquals(10, analytics.getMaxEventsPerMinute());
+        assertEquals(5, analytics.getMaxEventBurst());
+        assertEquals(500, analytics.getDeduplicationWindowMillis());
+    }
 }
@@ -8,6 +8,8 @@ import com.braintreepayments.api.BuildConfig;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.Arrays;
+
 public class AnalyticsRequestTest extends AndroidTestCase {
 
     public void testToJsonSerializesEventCorrectly() throws JSONException {
@@ -18,6 +20,18 @@ public class AnalyticsRequestTest extends AndroidTestCase {
         assertEquals("analytics_event", json.getJSONArray("analytics").getJSONObject(0).getString("kind"));
     }
 
+    public void testToJsonSerializesEveryEventOfABatchWithOneMetaBlock() throws JSONException {
+        AnalyticsRequest analyticsRequest = new AnalyticsRequest(getContext(),
+                Arrays.asList("first", "second"), "TEST");
+
+        JSONObject json = new JSONObject(analyticsRequest.toJson());
+
+        assertEquals(2, json.getJSONArray("analytics").length());
+        assertEquals("first", json.getJSONArray("analytics").getJSONObject(0).getString("kind"));
+        assertEquals("second", json.getJSONArray("analytics").getJSONObject(1).getString("kind"));
+        assertEquals("TEST", json.getJSONObject("_meta").getString("integrationType"));
+    }
+
     public void testSendsCorrectMetaData() throws JSONException {
         AnalyticsRequest analyticsRequest = new AnalyticsRequest(getContext(), "event", "TEST");
 
@@ -30,4 +44,19 @@ public class AnalyticsRequestTest extends AndroidTestCase {
         assertEquals("TEST", json.getString("integrationType"));
     }
 
+    public void testReusesDeviceMetadataAcrossRequests() throws JSONException {
+        JSONObject first = new JSONObject(new AnalyticsRequest(getContext(), "first", "TEST")
+                .toJson()).getJSONObject("_meta");
+        JSONObject second = new JSONObject(new AnalyticsRequest(getContext(), "second", "dropin")
+                .toJson()).getJSONObject("_meta");
+
+        assertEquals(getContext().getPackageName(), second.getString("merchantAppId"));
+        assertEquals(first.getString("deviceAppGeneratedPersistentUuid"),
+                second.getString("deviceAppGeneratedPersistentUuid"));
+        assertEquals(first.getString("deviceRooted"), second.getString("deviceRooted"));
+        assertEquals(AnalyticsRequest.getNetworkType(getContext()),
+                second.getString("deviceNetworkType"));
+        assertEquals("dropin", second.getString("integrationType"));
+    }
+
 }
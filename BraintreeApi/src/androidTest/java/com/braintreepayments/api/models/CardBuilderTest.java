@@ -2,12 +2,17 @@ package com.braintreepayments.api.models;
 
 import com.braintreepayments.api.VenmoAppSwitch;
 import com.braintreepayments.api.models.PaymentMethod.Builder;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 
 import junit.framework.TestCase;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.StringWriter;
+
 import static com.braintreepayments.testutils.CardNumber.VISA;
 
 public class CardBuilderTest extends TestCase {
@@ -50,6 +55,26 @@ public class CardBuilderTest extends TestCase {
         assertEquals("form", jsonMetadata.getString("source"));
     }
 
+    public void testWritesTheSameFieldsAsToJsonString() throws IOException, JSONException {
+        CardBuilder cardBuilder = new CardBuilder().cardNumber(VISA)
+                .expirationDate("01/15")
+                .postalCode("12345");
+
+        StringWriter out = new StringWriter();
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        cardBuilder.writeFields(new Gson(), writer);
+        writer.endObject();
+        writer.close();
+
+        JSONObject json = new JSONObject(out.toString());
+        JSONObject expected = new JSONObject(cardBuilder.toJsonString());
+        assertEquals(expected.getJSONObject(CREDIT_CARD_KEY).toString(),
+                json.getJSONObject(CREDIT_CARD_KEY).toString());
+        assertEquals(expected.getJSONObject(Builder.METADATA_KEY).toString(),
+                json.getJSONObject(Builder.METADATA_KEY).toString());
+    }
+
     public void testBuildsWithAnExpirationDateCorrectly() throws JSONException {
         CardBuilder cardBuilder = new CardBuilder().cardNumber(VISA)
                 .cvv("123")
@@ -23,4 +23,13 @@ public class PaymentMethodTest extends AndroidTestCase {
         assertEquals("Android Pay", paymentMethods.get(0).getDescription());
         assertEquals("11", ((AndroidPayCard) paymentMethods.get(0)).getLastTwo());
     }
+
+    public void testParsePaymentMethodsThrowsServerExceptionWhenPaymentMethodsAreMissing() {
+        try {
+            PaymentMethod.parsePaymentMethods("{\"creditCards\":[]}");
+            fail("No exception was thrown");
+        } catch (ServerException e) {
+            assertEquals("Parsing server response failed", e.getMessage());
+        }
+    }
 }
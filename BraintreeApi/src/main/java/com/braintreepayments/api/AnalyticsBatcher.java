@@ -0,0 +1,147 @@
+package com.braintreepayments.api;
+
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers analytics events so they can be sent several at a time.
+ *
+ * A flush is due when {@link #DEFAULT_MAX_BATCH_SIZE} events are buffered or
+ * {@link #DEFAULT_FLUSH_INTERVAL_MILLIS} after the first buffered event, whichever comes first.
+ * The {@link FlushListener} is notified and drains the buffer with {@link #drain()}.
+ */
+class AnalyticsBatcher {
+
+    static final int DEFAULT_MAX_BATCH_SIZE = 20;
+    static final long DEFAULT_FLUSH_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    interface FlushListener {
+        /**
+         * Called when buffered events should be sent. Called on the thread that added the event
+         * that filled the buffer or on the scheduler thread, it must not block.
+         */
+        void onFlushDue();
+    }
+
+    private final ScheduledExecutorService mScheduler;
+    private final int mMaxBatchSize;
+    private final long mFlushIntervalMillis;
+    private final FlushListener mFlushListener;
+
+    private final List<Event> mEvents = new ArrayList<Event>();
+    private ScheduledFuture<?> mScheduledFlush;
+
+    AnalyticsBatcher(ScheduledExecutorService scheduler, FlushListener flushListener) {
+        this(scheduler, DEFAULT_MAX_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS, flushListener);
+    }
+
+    AnalyticsBatcher(ScheduledExecutorService scheduler, int maxBatchSize,
+            long flushIntervalMillis, FlushListener flushListener) {
+        mScheduler = scheduler;
+        mMaxBatchSize = Math.max(1, maxBatchSize);
+        mFlushIntervalMillis = flushIntervalMillis;
+        mFlushListener = flushListener;
+    }
+
+    /**
+     * Buffers an event.
+     */
+    void add(String event, String integrationType) {
+        boolean flushDue;
+        synchronized (this) {
+            mEvents.add(new Event(event, integrationType));
+            flushDue = mEvents.size() >= mMaxBatchSize;
+            if (!flushDue && mScheduledFlush == null) {
+                mScheduledFlush = mScheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (AnalyticsBatcher.this) {
+                            mScheduledFlush = null;
+                        }
+                        mFlushListener.onFlushDue();
+                    }
+                }, mFlushIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (flushDue) {
+            mFlushListener.onFlushDue();
+        }
+    }
+
+    /**
+     * Removes all buffered events.
+     *
+     * @return The buffered events in the order they were added, grouped into {@link Batch}es of
+     *         consecutive events with the same integration type.
+     */
+    synchronized List<Batch> drain() {
+        if (mScheduledFlush != null) {
+            mScheduledFlush.cancel(false);
+            mScheduledFlush = null;
+        }
+
+        if (mEvents.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Batch> batches = new ArrayList<Batch>();
+        Batch batch = null;
+        for (Event event : mEvents) {
+            if (batch == null ||
+                    !TextUtils.equals(batch.mIntegrationType, event.mIntegrationType)) {
+                batch = new Batch(event.mIntegrationType);
+                batches.add(batch);
+            }
+            batch.mEvents.add(event.mName);
+        }
+        mEvents.clear();
+
+        return batches;
+    }
+
+    /**
+     * @return The number of buffered events.
+     */
+    synchronized int getPendingCount() {
+        return mEvents.size();
+    }
+
+    /**
+     * Events that are sent in one request, with one {@code _meta} block.
+     */
+    static class Batch {
+
+        private final String mIntegrationType;
+        private final List<String> mEvents = new ArrayList<String>();
+
+        private Batch(String integrationType) {
+            mIntegrationType = integrationType;
+        }
+
+        String getIntegrationType() {
+            return mIntegrationType;
+        }
+
+        List<String> getEvents() {
+            return Collections.unmodifiableList(mEvents);
+        }
+    }
+
+    private static class Event {
+
+        private final String mName;
+        private final String mIntegrationType;
+
+        Event(String name, String integrationType) {
+            mName = name;
+            mIntegrationType = integrationType;
+        }
+    }
+}
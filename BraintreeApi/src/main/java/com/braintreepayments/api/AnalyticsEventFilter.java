@@ -0,0 +1,108 @@
+package com.braintreepayments.api;
+
+import android.os.SystemClock;
+
+import com.braintreepayments.api.models.AnalyticsConfiguration;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Decides which analytics events are sent, to keep flows that repeat (rotation, moving back and
+ * forth between views) from producing bursts of events. An event is dropped if
+ * <ul>
+ *     <li>it repeats an identical event from less than the deduplication window ago,</li>
+ *     <li>it is not in the sample for its kind, or</li>
+ *     <li>the token bucket that limits the number of events per minute is empty.</li>
+ * </ul>
+ * The limits are read from {@link AnalyticsConfiguration}, so they can be tuned by the server.
+ */
+class AnalyticsEventFilter {
+
+    private static final AnalyticsConfiguration DEFAULT_CONFIGURATION =
+            new AnalyticsConfiguration();
+    private static final int MAX_TRACKED_EVENTS = 64;
+
+    private final Random mRandom;
+    private final Map<String, Long> mLastSeen = new HashMap<String, Long>();
+
+    private double mTokens = -1;
+    private long mLastRefill;
+
+    AnalyticsEventFilter() {
+        this(new Random());
+    }
+
+    AnalyticsEventFilter(Random random) {
+        mRandom = random;
+    }
+
+    /**
+     * @param kind The kind of the event.
+     * @param integrationType The integration type the event occurred in.
+     * @param configuration The analytics configuration, or {@code null} to use the defaults.
+     * @return {@code true} if the event should be sent.
+     */
+    synchronized boolean accept(String kind, String integrationType,
+            AnalyticsConfiguration configuration) {
+        if (configuration == null) {
+            configuration = DEFAULT_CONFIGURATION;
+        }
+        long now = SystemClock.elapsedRealtime();
+
+        long window = configuration.getDeduplicationWindowMillis();
+        String key = integrationType + ":" + kind;
+        Long lastSeen = mLastSeen.get(key);
+        if (window > 0 && lastSeen != null && now - lastSeen < window) {
+            return false;
+        }
+        mLastSeen.put(key, now);
+        if (mLastSeen.size() > MAX_TRACKED_EVENTS) {
+            forgetEventsOlderThan(now - window);
+        }
+
+        double sampleRate = configuration.getSampleRate(kind);
+        if (sampleRate < 1 && mRandom.nextDouble() >= sampleRate) {
+            return false;
+        }
+
+        return takeToken(configuration, now);
+    }
+
+    private boolean takeToken(AnalyticsConfiguration configuration, long now) {
+        int eventsPerMinute = configuration.getMaxEventsPerMinute();
+        if (eventsPerMinute == 0) {
+            return true;
+        }
+
+        int capacity = configuration.getMaxEventBurst();
+        if (mTokens < 0) {
+            mTokens = capacity;
+        } else {
+            mTokens += (now - mLastRefill) * eventsPerMinute / 60000d;
+        }
+        mTokens = Math.min(mTokens, capacity);
+        mLastRefill = now;
+
+        if (mTokens < 1) {
+            return false;
+        }
+        mTokens--;
+        return true;
+    }
+
+    private void forgetEventsOlderThan(long time) {
+        Iterator<Long> iterator = mLastSeen.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() <= time) {
+                iterator.remove();
+            }
+        }
+
+        if (mLastSeen.size() > MAX_TRACKED_EVENTS) {
+            mLastSeen.clear();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.braintreepayments.api;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Append-only log of analytics events waiting to be sent. The log is kept on disk, so events
+ * survive process death and failed requests.
+ *
+ * Each event is one line of JSON. When the log grows beyond {@link #MAX_SIZE_BYTES} the oldest
+ * events are dropped.
+ */
+class AnalyticsEventLog {
+
+    static final long MAX_SIZE_BYTES = 128 * 1024;
+
+    private static final String FILE_NAME = "braintree-analytics.log";
+    private static final String UTF_8 = "UTF-8";
+    private static final Gson GSON = new Gson();
+    private static final Object LOCK = new Object();
+
+    private final File mFile;
+
+    AnalyticsEventLog(Context context) {
+        this(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    AnalyticsEventLog(File file) {
+        mFile = file;
+    }
+
+    /**
+     * Appends events to the end of the log.
+     *
+     * @param events The names of the events, in the order they occurred.
+     * @param integrationType The integration type the events occurred in.
+     */
+    void append(List<String> events, String integrationType) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        StringBuilder lines = new StringBuilder();
+        long timestamp = System.currentTimeMillis();
+        for (String event : events) {
+            lines.append(GSON.toJson(new Entry(event, integrationType, timestamp))).append('\n');
+        }
+
+        synchronized (LOCK) {
+            File directory = mFile.getParentFile();
+            if (directory != null && !directory.exists() && !directory.mkdirs()) {
+                return;
+            }
+
+            Writer writer = null;
+            try {
+                writer = new OutputStreamWriter(new FileOutputStream(mFile, true), UTF_8);
+                writer.write(lines.toString());
+            } catch (IOException ignored) {
+                // analytics are best effort
+            } finally {
+                closeQuietly(writer);
+            }
+
+            if (mFile.length() > MAX_SIZE_BYTES) {
+                trim();
+            }
+        }
+    }
+
+    /**
+     * @param maxCount The maximum number of entries to return.
+     * @return The oldest entries of the log, oldest first. They stay in the log until they are
+     *         removed with {@link #remove(int)}.
+     */
+    List<Entry> peek(int maxCount) {
+        synchronized (LOCK) {
+            List<Entry> entries = new ArrayList<Entry>();
+            for (String line : readLines()) {
+                if (entries.size() >= maxCount) {
+                    break;
+                }
+                entries.add(parse(line));
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Removes the oldest {@code count} entries from the log.
+     */
+    void remove(int count) {
+        synchronized (LOCK) {
+            List<String> lines = readLines();
+            rewrite(lines.subList(Math.min(count, lines.size()), lines.size()));
+        }
+    }
+
+    /**
+     * @return {@code true} if there are no events in the log.
+     */
+    boolean isEmpty() {
+        synchronized (LOCK) {
+            return !mFile.exists() || mFile.length() == 0;
+        }
+    }
+
+    /**
+     * @return {@code true} if the log is more than half of {@link #MAX_SIZE_BYTES}.
+     */
+    boolean isFillingUp() {
+        synchronized (LOCK) {
+            return mFile.length() > MAX_SIZE_BYTES / 2;
+        }
+    }
+
+    /**
+     * Removes all events.
+     */
+    void clear() {
+        synchronized (LOCK) {
+            mFile.delete();
+        }
+    }
+
+    /**
+     * Drops the oldest events until the log is at most three quarters of
+     * {@link #MAX_SIZE_BYTES}, so a full log is not rewritten on every append.
+     */
+    private void trim() {
+        List<String> lines = readLines();
+        long size = mFile.length();
+        int start = 0;
+        while (start < lines.size() && size > MAX_SIZE_BYTES * 3 / 4) {
+            size -= lines.get(start).length() + 1;
+            start++;
+        }
+        rewrite(lines.subList(start, lines.size()));
+    }
+
+    private List<String> readLines() {
+        if (!mFile.exists()) {
+            return Collections.emptyList();
+        }
+
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(mFile), UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // skips lines that were only partially written when the process died
+                if (parse(line) != null) {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException ignored) {
+            // return what could be read
+        } finally {
+            closeQuietly(reader);
+        }
+        return lines;
+    }
+
+    private void rewrite(List<String> lines) {
+        if (lines.isEmpty()) {
+            mFile.delete();
+            return;
+        }
+
+        File temporaryFile = new File(mFile.getPath() + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(temporaryFile), UTF_8);
+            for (String line : lines) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            writer.close();
+            writer = null;
+
+            if (!temporaryFile.renameTo(mFile)) {
+                temporaryFile.delete();
+            }
+        } catch (IOException e) {
+            temporaryFile.delete();
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+    private static Entry parse(String line) {
+        try {
+            Entry entry = GSON.fromJson(line, Entry.class);
+            return (entry == null || TextUtils.isEmpty(entry.mKind)) ? null : entry;
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * An event in the log.
+     */
+    static class Entry {
+
+        @SerializedName("kind") private String mKind;
+        @SerializedName("integrationType") private String mIntegrationType;
+        @SerializedName("timestamp") private long mTimestamp;
+
+        private Entry(String kind, String integrationType, long timestamp) {
+            mKind = kind;
+            mIntegrationType = integrationType;
+            mTimestamp = timestamp;
+        }
+
+        String getKind() {
+            return mKind;
+        }
+
+        String getIntegrationType() {
+            return mIntegrationType;
+        }
+
+        /**
+         * @return When the event was logged, in milliseconds since the epoch.
+         */
+        long getTimestamp() {
+            return mTimestamp;
+        }
+    }
+}
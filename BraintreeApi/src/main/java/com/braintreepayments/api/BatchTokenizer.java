@@ -0,0 +1,169 @@
+package com.braintreepayments.api;
+
+import com.braintreepayments.api.TokenizationResult.ProgressListener;
+import com.braintreepayments.api.exceptions.BraintreeException;
+import com.braintreepayments.api.exceptions.ErrorWithResponse;
+import com.braintreepayments.api.exceptions.RequestCancelledException;
+import com.braintreepayments.api.internal.BraintreeExecutors;
+import com.braintreepayments.api.internal.CancellationToken;
+import com.braintreepayments.api.internal.Deadline;
+import com.braintreepayments.api.models.PaymentMethod;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tokenizes a list of {@link PaymentMethod.Builder}s with up to a fixed number of requests in
+ * flight.
+ *
+ * The calling thread tokenizes items itself and up to {@code maxParallelism - 1} helper tasks,
+ * run on the given executor or {@link BraintreeExecutors#getExecutor()}, help it. Items are started in list order. The caller
+ * never waits for a helper that has not started, so the batch completes even when the shared
+ * pool is busy. All requests go through the same {@link BraintreeApi}, so they share its
+ * connection pool and TLS context.
+ */
+class BatchTokenizer {
+
+    private final BraintreeApi mBraintreeApi;
+    private final List<? extends PaymentMethod.Builder> mBuilders;
+    private final ProgressListener mProgressListener;
+    private final Executor mHelperExecutor;
+    private final TokenizationResult[] mResults;
+    private final AtomicInteger mNextIndex = new AtomicInteger();
+    private final CancellationToken mCancellationToken = CancellationToken.current();
+    private final Deadline mDeadline = Deadline.current();
+    private final List<CancellationToken> mHelperTokens = new ArrayList<CancellationToken>();
+    private int mCompleted;
+    private boolean mCancelled;
+
+    BatchTokenizer(BraintreeApi braintreeApi, List<? extends PaymentMethod.Builder> builders,
+            ProgressListener progressListener) {
+        this(braintreeApi, builders, progressListener, null);
+    }
+
+    /**
+     * @param helperExecutor The {@link Executor} helper tasks run on, {@code null} to use
+     *        {@link BraintreeExecutors#getExecutor()}.
+     */
+    BatchTokenizer(BraintreeApi braintreeApi, List<? extends PaymentMethod.Builder> builders,
+            ProgressListener progressListener, Executor helperExecutor) {
+        mBraintreeApi = braintreeApi;
+        mBuilders = builders;
+        mProgressListener = progressListener;
+        mHelperExecutor = helperExecutor;
+        mResults = new TokenizationResult[builders.size()];
+    }
+
+    /**
+     * Tokenizes every item.
+     *
+     * @return One result per item, in the order of the builders.
+     */
+    List<TokenizationResult> run(int maxParallelism) {
+        int helpers = Math.min(maxParallelism, mBuilders.size()) - 1;
+        Executor helperExecutor = (mHelperExecutor == null) ?
+                BraintreeExecutors.getExecutor() : mHelperExecutor;
+        for (int i = 0; i < helpers; i++) {
+            final CancellationToken helperToken = new CancellationToken();
+            synchronized (this) {
+                mHelperTokens.add(helperToken);
+            }
+
+            try {
+                helperExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        CancellationToken.setCurrent(helperToken);
+                        Deadline.setCurrent(mDeadline);
+                        try {
+                            tokenizeRemaining();
+                        } finally {
+                            CancellationToken.setCurrent(null);
+                            Deadline.setCurrent(null);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+
+        tokenizeRemaining();
+        awaitCompletion();
+
+        return Collections.unmodifiableList(Arrays.asList(mResults));
+    }
+
+    private void tokenizeRemaining() {
+        int index;
+        while ((index = mNextIndex.getAndIncrement()) < mBuilders.size()) {
+            PaymentMethod.Builder builder = mBuilders.get(index);
+            TokenizationResult result;
+            if (isCancelled()) {
+                result = TokenizationResult.failure(index, builder,
+                        new RequestCancelledException(CancellationToken.CANCELLED_MESSAGE));
+            } else {
+                try {
+                    result = TokenizationResult.success(index, builder,
+                            mBraintreeApi.tokenize(builder));
+                } catch (ErrorWithResponse e) {
+                    result = TokenizationResult.failure(index, builder, e);
+                } catch (BraintreeException e) {
+                    result = TokenizationResult.failure(index, builder, e);
+                } catch (RuntimeException e) {
+                    result = TokenizationResult.failure(index, builder, e);
+                }
+            }
+
+            complete(result);
+        }
+    }
+
+    private void complete(TokenizationResult result) {
+        int completed;
+        synchronized (this) {
+            mResults[result.getIndex()] = result;
+            completed = ++mCompleted;
+            notifyAll();
+        }
+
+        if (mProgressListener != null) {
+            mProgressListener.onTokenizationProgress(result, completed, mResults.length);
+        }
+    }
+
+    private synchronized boolean isCancelled() {
+        return mCancelled || (mCancellationToken != null && mCancellationToken.isCancelled());
+    }
+
+    /**
+     * Waits for the items taken by helpers. If the calling thread is interrupted the helpers'
+     * requests are aborted and the remaining items fail with a
+     * {@link RequestCancelledException}.
+     */
+    private synchronized void awaitCompletion() {
+        boolean interrupted = false;
+        while (mCompleted < mResults.length) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+                if (!mCancelled) {
+                    mCancelled = true;
+                    for (CancellationToken helperToken : mHelperTokens) {
+                        helperToken.cancel();
+                    }
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -17,10 +17,20 @@ import com.braintreepayments.api.exceptions.ConfigurationException;
 import com.braintreepayments.api.exceptions.ErrorWithResponse;
 import com.braintreepayments.api.exceptions.InvalidArgumentException;
 import com.braintreepayments.api.exceptions.UnexpectedException;
+import com.braintreepayments.api.internal.BoundedExecutor;
+import com.braintreepayments.api.internal.BraintreeExecutors;
+import com.braintreepayments.api.internal.CancellationToken;
+import com.braintreepayments.api.internal.Deadline;
+import com.braintreepayments.api.internal.PinnedSslContext;
+import com.braintreepayments.api.internal.RingBuffer;
+import com.braintreepayments.api.internal.RetryPolicy;
+import com.braintreepayments.api.internal.TaskScheduler;
+import com.braintreepayments.api.internal.TaskScheduler.Lane;
 import com.braintreepayments.api.models.AndroidPayCard;
 import com.braintreepayments.api.models.CardBuilder;
 import com.braintreepayments.api.models.ClientToken;
 import com.braintreepayments.api.models.CoinbaseAccount;
+import com.braintreepayments.api.models.Configuration;
 import com.braintreepayments.api.models.PayPalAccountBuilder;
 import com.braintreepayments.api.models.PaymentMethod;
 import com.braintreepayments.api.models.ThreeDSecureAuthenticationResponse;
@@ -37,15 +47,15 @@ import org.json.JSONException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 public class Braintree {
 
@@ -55,6 +65,13 @@ public class Braintree {
     protected static final Map<String, Braintree> sInstances = new HashMap<String, Braintree>();
     protected static final String INTEGRATION_DROPIN = "dropin";
 
+    /**
+     * The number of callbacks kept while listeners are locked or absent. When more are posted
+     * the oldest progress callbacks are dropped, see {@link #getDroppedListenerCallbackCount()}.
+     * Result, state and error callbacks are never dropped.
+     */
+    public static final int MAX_QUEUED_LISTENER_CALLBACKS = 64;
+
     /**
      * Base interface for all event listeners. Only concrete classes that implement this interface
      * (either directly or indirectly) can be registered with
@@ -116,25 +133,127 @@ public class Braintree {
         void onRecoverableError(ErrorWithResponse error);
     }
 
-    private final ExecutorService mExecutorService;
-    private final BraintreeApi mBraintreeApi;
-    private String mIntegrationType;
-    private String mClientTokenKey;
+    /**
+     * Receives the results of
+     * {@link Braintree#tokenizeAll(java.util.List)}. onTokenizationProgress is called as each
+     * item completes, onTokenizeAllFinished is called once with the results of all items in the
+     * order of the builders.
+     */
+    public static interface TokenizeAllListener extends Listener {
+        void onTokenizationProgress(TokenizationResult result, int completed, int total);
+        void onTokenizeAllFinished(List<TokenizationResult> results);
+    }
 
     /**
-     * {@link Handler} to deliver events to listeners; events are always delivered on the main thread.
+     * onCachedPaymentMethodsChanged will be called with the new contents of the payment method
+     * cache when it changes, either because {@link Braintree#getPaymentMethods()} completed or
+     * because a payment method was created. Use
+     * {@link Braintree#getCachedPaymentMethods()} to read the cache without waiting for a change.
      */
-    private final Handler mListenerHandler = new Handler(Looper.getMainLooper());
+    public static interface CachedPaymentMethodsChangedListener extends Listener {
+        void onCachedPaymentMethodsChanged(List<PaymentMethod> paymentMethods, long version);
+    }
 
-    private final List<ListenerCallback> mCallbackQueue = new LinkedList<ListenerCallback>();
-    private boolean mListenersLocked = false;
+    /**
+     * onConfigurationChanged will be called when setup with
+     * {@link com.braintreepayments.api.Braintree.SetupMode#STALE_WHILE_REVALIDATE} finished with a
+     * cached configuration and the configuration fetched afterwards changed which payment methods
+     * are available or where requests are sent.
+     */
+    public static interface ConfigurationChangedListener extends Listener {
+        void onConfigurationChanged(Configuration configuration);
+    }
 
-    private final Set<PaymentMethodsUpdatedListener> mUpdatedListeners = new HashSet<PaymentMethodsUpdatedListener>();
-    private final Set<PaymentMethodCreatedListener> mCreatedListeners = new HashSet<PaymentMethodCreatedListener>();
-    private final Set<PaymentMethodNonceListener> mNonceListeners = new HashSet<PaymentMethodNonceListener>();
-    private final Set<ErrorListener> mErrorListeners = new HashSet<ErrorListener>();
+    /**
+     * How {@link #setup(android.content.Context, String, com.braintreepayments.api.Braintree.SetupMode, com.braintreepayments.api.Braintree.BraintreeSetupFinishedListener)}
+     * obtains configuration.
+     */
+    public static enum SetupMode {
+        /**
+         * Setup finishes once the current configuration has been fetched or revalidated.
+         */
+        DEFAULT,
 
-    private List<PaymentMethod> mCachedPaymentMethods;
+        /**
+         * Setup finishes immediately with the last configuration fetched on this device, if there
+         * is one, and the configuration is revalidated in the background. If it changed in a way
+         * that matters, {@link ConfigurationChangedListener}s are notified.
+         */
+        STALE_WHILE_REVALIDATE
+    }
+
+    /**
+     * Operations that can be given a deadline with
+     * {@link #setOperationTimeout(com.braintreepayments.api.Braintree.Operation, long)}.
+     */
+    public static enum Operation {
+        CREATE,
+        TOKENIZE,
+        TOKENIZE_ALL,
+        GET_PAYMENT_METHODS,
+        THREE_D_SECURE_VERIFICATION
+    }
+
+    private final TaskScheduler mTaskScheduler;
+    private final AnalyticsBatcher mAnalyticsBatcher = new AnalyticsBatcher(
+            BraintreeExecutors.getScheduler(), new AnalyticsBatcher.FlushListener() {
+                @Override
+                public void onFlushDue() {
+                    flushAnalyticsEvents();
+                }
+            });
+    private final AnalyticsEventFilter mAnalyticsEventFilter = new AnalyticsEventFilter();
+    private final PerformanceMonitor mPerformanceMonitor = new PerformanceMonitor(
+            new PerformanceMonitor.NetworkTypeSource() {
+                @Override
+                public String getNetworkType() {
+                    return mBraintreeApi.getNetworkType();
+                }
+            });
+    private final BraintreeApi mBraintreeApi;
+    private volatile String mIntegrationType;
+    private String mClientTokenKey;
+
+    /**
+     * Delivers events to listeners; events are always delivered on the main thread, batched into
+     * one message.
+     */
+    private final ListenerDispatcher mListenerDispatcher =
+            new ListenerDispatcher(new Handler(Looper.getMainLooper()));
+
+    /**
+     * Callbacks posted while listeners were locked or absent. Listener sets are copy-on-write
+     * and the queue has its own lock, so registering listeners and posting events never contend
+     * for the {@link Braintree} monitor.
+     */
+    private final RingBuffer<ListenerCallback> mCallbackQueue =
+            new RingBuffer<ListenerCallback>(MAX_QUEUED_LISTENER_CALLBACKS);
+    private volatile boolean mListenersLocked = false;
+
+    private final Set<PaymentMethodsUpdatedListener> mUpdatedListeners =
+            new CopyOnWriteArraySet<PaymentMethodsUpdatedListener>();
+    private final Set<PaymentMethodCreatedListener> mCreatedListeners =
+            new CopyOnWriteArraySet<PaymentMethodCreatedListener>();
+    private final Set<PaymentMethodNonceListener> mNonceListeners =
+            new CopyOnWriteArraySet<PaymentMethodNonceListener>();
+    private final Set<ErrorListener> mErrorListeners = new CopyOnWriteArraySet<ErrorListener>();
+    private final Set<ConfigurationChangedListener> mConfigurationChangedListeners =
+            new CopyOnWriteArraySet<ConfigurationChangedListener>();
+    private final Set<TokenizeAllListener> mTokenizeAllListeners =
+            new CopyOnWriteArraySet<TokenizeAllListener>();
+
+    private final Set<CachedPaymentMethodsChangedListener> mCacheChangedListeners =
+            new CopyOnWriteArraySet<CachedPaymentMethodsChangedListener>();
+
+    private final PaymentMethodCache mPaymentMethodCache = new PaymentMethodCache();
+    private volatile List<PaymentMethod> mPersistedPaymentMethods;
+    private final Object mPersistedPaymentMethodsLock = new Object();
+
+    private final Map<Operation, Long> mOperationTimeouts =
+            new EnumMap<Operation, Long>(Operation.class);
+
+    private final List<RequestHandle> mBackgroundRequests = new ArrayList<RequestHandle>();
+    private volatile boolean mCancelBackgroundRequestsOnPause = false;
 
     /**
      * @deprecated Use the asynchronous
@@ -171,7 +290,21 @@ public class Braintree {
      * @param listener The listener to notify when setup is complete, or fails.
      */
     public static void setup(Context context, String clientToken, BraintreeSetupFinishedListener listener) {
-        setupHelper(context, clientToken, listener);
+        setupHelper(context, clientToken, SetupMode.DEFAULT, listener);
+    }
+
+    /**
+     * Called to begin the setup of {@link Braintree} using the given {@link SetupMode}.
+     *
+     * @param context
+     * @param clientToken The client token obtained from a Braintree server SDK.
+     * @param setupMode How configuration is obtained, see {@link SetupMode}.
+     * @param listener The listener to notify when setup is complete, or fails.
+     * @see #setup(android.content.Context, String, com.braintreepayments.api.Braintree.BraintreeSetupFinishedListener)
+     */
+    public static void setup(Context context, String clientToken, SetupMode setupMode,
+            BraintreeSetupFinishedListener listener) {
+        setupHelper(context, clientToken, setupMode, listener);
     }
 
     /**
@@ -180,12 +313,19 @@ public class Braintree {
      * to make execution synchronous in testing.
      */
     protected static Future<?> setupHelper(final Context context, final String clientToken, final BraintreeSetupFinishedListener listener) {
-        return Executors.newSingleThreadExecutor().submit(new Runnable() {
+        return setupHelper(context, clientToken, SetupMode.DEFAULT, listener);
+    }
+
+    protected static Future<?> setupHelper(final Context context, final String clientToken,
+            final SetupMode setupMode, final BraintreeSetupFinishedListener listener) {
+        return BraintreeExecutors.getExecutor().submit(new Runnable() {
             @Override
             public void run() {
                 Braintree braintree = null;
+                PerformanceMonitor.Span setupSpan = null;
                 Exception exception = null;
                 String errorMessage = null;
+                boolean revalidate = false;
                 try {
                     if (sInstances.containsKey(clientToken)) {
                         braintree = sInstances.get(clientToken);
@@ -193,14 +333,36 @@ public class Braintree {
                         braintree = new Braintree(context, clientToken);
                     }
 
+                    setupSpan = braintree.mPerformanceMonitor.start("setup");
                     if (!braintree.isSetup()) {
-                        braintree.setup();
+                        revalidate = (setupMode == SetupMode.STALE_WHILE_REVALIDATE &&
+                                braintree.setupFromCache());
+                        if (!revalidate) {
+                            braintree.setup();
+                        }
+                    } else {
+                        // No configuration request will be made, build the TLS context ahead
+                        // of the first tokenize instead
+                        PinnedSslContext.warmUp();
                     }
+                    setupSpan.finish(true);
+
+                    // sends analytics events left on disk by earlier sessions
+                    braintree.flushAnalyticsEvents();
                 } catch (Exception e) {
+                    if (setupSpan != null) {
+                        setupSpan.finish(false);
+                    }
                     exception = e;
                     errorMessage = e.getMessage();
                 }
 
+                if (braintree != null && braintree.isSetup()) {
+                    // read before the listener is posted so the stored payment methods are in
+                    // memory when it runs and never have to be read on the main thread
+                    braintree.loadPersistedPaymentMethods();
+                }
+
                 final Braintree finalBraintree = braintree;
                 final String finalErrorMessage = errorMessage;
                 final Exception finalException = exception;
@@ -215,13 +377,17 @@ public class Braintree {
                         }
                     }
                 });
+
+                if (revalidate) {
+                    braintree.revalidateConfiguration();
+                }
             }
         });
     }
 
     protected Braintree(String clientToken, BraintreeApi braintreeApi) {
         mBraintreeApi = braintreeApi;
-        mExecutorService = Executors.newSingleThreadExecutor();
+        mTaskScheduler = new TaskScheduler();
         mIntegrationType = "custom";
         mClientTokenKey = clientToken;
         sInstances.put(mClientTokenKey, this);
@@ -230,7 +396,7 @@ public class Braintree {
     protected Braintree(Context context, String clientToken) {
         mBraintreeApi = new BraintreeApi(context.getApplicationContext(),
                 ClientToken.fromString(clientToken));
-        mExecutorService = Executors.newSingleThreadExecutor();
+        mTaskScheduler = new TaskScheduler();
         mIntegrationType = "custom";
         mClientTokenKey = clientToken;
         sInstances.put(mClientTokenKey, this);
@@ -241,7 +407,37 @@ public class Braintree {
     }
 
     private void setup() throws ErrorWithResponse, BraintreeException {
-        mBraintreeApi.setup();
+        PerformanceMonitor.Span span = mPerformanceMonitor.start("configuration");
+        boolean succeeded = false;
+        try {
+            mBraintreeApi.setup();
+            succeeded = true;
+        } finally {
+            span.finish(succeeded);
+        }
+    }
+
+    private boolean setupFromCache() {
+        return mBraintreeApi.setupFromCache();
+    }
+
+    /**
+     * Fetches the configuration after setup from a cached configuration. Failures are not
+     * reported, the cached configuration stays in use.
+     */
+    private void revalidateConfiguration() {
+        PerformanceMonitor.Span span = mPerformanceMonitor.start("configuration");
+        try {
+            boolean changed = mBraintreeApi.revalidateConfiguration();
+            span.finish(true);
+            if (changed) {
+                postConfigurationChangedToListeners(mBraintreeApi.getCurrentConfiguration());
+            }
+        } catch (BraintreeException ignored) {
+            span.finish(false);
+        } catch (ErrorWithResponse ignored) {
+            span.finish(false);
+        }
     }
 
     protected String analyticsPrefix() {
@@ -282,8 +478,15 @@ public class Braintree {
         if (braintree != null && braintree.isSetup()) {
             return braintree;
         } else if (!TextUtils.isEmpty(clientToken) && !TextUtils.isEmpty(configuration)) {
-            return new Braintree(clientToken,
+            final Braintree restoredBraintree = new Braintree(clientToken,
                     new BraintreeApi(context.getApplicationContext(), clientToken, configuration));
+            restoredBraintree.mTaskScheduler.submit(Lane.BACKGROUND, new Runnable() {
+                @Override
+                public void run() {
+                    restoredBraintree.loadPersistedPaymentMethods();
+                }
+            });
+            return restoredBraintree;
         } else {
             return null;
         }
@@ -297,6 +500,113 @@ public class Braintree {
         mIntegrationType = INTEGRATION_DROPIN;
     }
 
+    /**
+     * Sets the {@link RetryPolicy} used for requests to the Braintree gateway. By default failed
+     * idempotent requests are retried up to {@link RetryPolicy#DEFAULT_MAX_ATTEMPTS} times and
+     * requests fail fast while the gateway is unavailable.
+     *
+     * @param retryPolicy The {@link RetryPolicy} to use, {@link RetryPolicy#NO_RETRIES} or
+     *        {@code null} to disable retries.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        mBraintreeApi.setRetryPolicy(retryPolicy);
+    }
+
+    /**
+     * Sets a deadline for an operation. The deadline starts when the operation is requested, so
+     * time spent waiting behind other operations counts towards it, and it covers every retry.
+     * If the operation has not completed when the deadline passes the request in flight is
+     * aborted and {@link Braintree.ErrorListener#onUnrecoverableError(Throwable)} is called with a
+     * {@link com.braintreepayments.api.exceptions.DeadlineExceededException}.
+     *
+     * @param operation The {@link Braintree.Operation} to set the timeout for.
+     * @param timeoutMillis The timeout in milliseconds, {@code 0} for no deadline.
+     */
+    public synchronized void setOperationTimeout(Operation operation, long timeoutMillis) {
+        if (timeoutMillis > 0) {
+            mOperationTimeouts.put(operation, timeoutMillis);
+        } else {
+            mOperationTimeouts.remove(operation);
+        }
+    }
+
+    private synchronized Deadline deadlineFor(Operation operation) {
+        Long timeout = mOperationTimeouts.get(operation);
+        return (timeout == null) ? null : Deadline.after(timeout);
+    }
+
+    /**
+     * Runs {@code runnable} with {@code deadline} installed on the executing thread.
+     */
+    private static Runnable withDeadline(final Deadline deadline, final Runnable runnable) {
+        if (deadline == null) {
+            return runnable;
+        }
+
+        return new Runnable() {
+            @Override
+            public void run() {
+                Deadline.setCurrent(deadline);
+                try {
+                    runnable.run();
+                } finally {
+                    Deadline.setCurrent(null);
+                }
+            }
+        };
+    }
+
+    private RequestHandle submit(Lane lane, Runnable task) {
+        RequestHandle requestHandle = new RequestHandle();
+        requestHandle.setFuture(mTaskScheduler.submit(lane, requestHandle.wrap(task,
+                new BoundedExecutor.RejectionListener() {
+                    @Override
+                    public void onRejected(RejectedExecutionException e) {
+                        postUnrecoverableErrorToListeners(e);
+                    }
+                })));
+
+        if (lane == Lane.BACKGROUND) {
+            synchronized (mBackgroundRequests) {
+                Iterator<RequestHandle> iterator = mBackgroundRequests.iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().isDone()) {
+                        iterator.remove();
+                    }
+                }
+                mBackgroundRequests.add(requestHandle);
+            }
+        }
+
+        return requestHandle;
+    }
+
+    /**
+     * Cancels queued and running requests the user is not waiting on, such as
+     * {@link #getPaymentMethods()}. Requests that create or tokenize payment methods are not
+     * cancelled.
+     */
+    public void cancelBackgroundRequests() {
+        List<RequestHandle> requests;
+        synchronized (mBackgroundRequests) {
+            requests = new ArrayList<RequestHandle>(mBackgroundRequests);
+            mBackgroundRequests.clear();
+        }
+
+        for (RequestHandle request : requests) {
+            request.cancel();
+        }
+    }
+
+    /**
+     * @param cancelOnPause {@code true} to call {@link #cancelBackgroundRequests()} from
+     *        {@link #onPause(android.app.Activity)}, so a paused {@link Activity} does not spend
+     *        battery and bandwidth on results it will not show. Defaults to {@code false}.
+     */
+    public void setCancelBackgroundRequestsOnPause(boolean cancelOnPause) {
+        mCancelBackgroundRequestsOnPause = cancelOnPause;
+    }
+
     /**
      * Resets saved state used to persist across {@link Activity} lifecycle.
      * In the normal course of operation this method is not necessary, but is useful for
@@ -366,7 +676,7 @@ public class Braintree {
      *
      * @param listener the listener to add.
      */
-    public synchronized <T extends Listener> void addListener(final T listener) {
+    public <T extends Listener> void addListener(final T listener) {
         if (listener instanceof PaymentMethodsUpdatedListener) {
             mUpdatedListeners.add((PaymentMethodsUpdatedListener) listener);
         }
@@ -382,6 +692,18 @@ public class Braintree {
         if (listener instanceof ErrorListener) {
             mErrorListeners.add((ErrorListener) listener);
         }
+
+        if (listener instanceof ConfigurationChangedListener) {
+            mConfigurationChangedListeners.add((ConfigurationChangedListener) listener);
+        }
+
+        if (listener instanceof TokenizeAllListener) {
+            mTokenizeAllListeners.add((TokenizeAllListener) listener);
+        }
+
+        if (listener instanceof CachedPaymentMethodsChangedListener) {
+            mCacheChangedListeners.add((CachedPaymentMethodsChangedListener) listener);
+        }
     }
 
     /**
@@ -389,7 +711,7 @@ public class Braintree {
      *
      * @param listener the listener to remove.
      */
-    public synchronized <T extends Listener> void removeListener(T listener) {
+    public <T extends Listener> void removeListener(T listener) {
         if (listener instanceof PaymentMethodsUpdatedListener) {
             mUpdatedListeners.remove(listener);
         }
@@ -405,6 +727,18 @@ public class Braintree {
         if (listener instanceof ErrorListener) {
             mErrorListeners.remove(listener);
         }
+
+        if (listener instanceof ConfigurationChangedListener) {
+            mConfigurationChangedListeners.remove(listener);
+        }
+
+        if (listener instanceof TokenizeAllListener) {
+            mTokenizeAllListeners.remove(listener);
+        }
+
+        if (listener instanceof CachedPaymentMethodsChangedListener) {
+            mCacheChangedListeners.remove(listener);
+        }
     }
 
     /**
@@ -414,7 +748,7 @@ public class Braintree {
      *
      * @param activity The {@link Activity} that is being resumed.
      */
-    public synchronized void onResume(Activity activity) {
+    public void onResume(Activity activity) {
         if (activity instanceof Listener) {
             addListener((Listener) activity);
         }
@@ -426,16 +760,21 @@ public class Braintree {
      * locking (see {@link Braintree#lockListeners()}) and removing listeners if the {@link Activity}
      * implements the listeners. Also handles disconnecting the
      * {@link com.google.android.gms.common.api.GoogleApiClient} if {@link Braintree} has an active
-     * connection to it.
+     * connection to it. Buffered analytics events are sent. If enabled with
+     * {@link #setCancelBackgroundRequestsOnPause(boolean)}, background requests are cancelled.
      *
      * @param activity The {@link Activity} that is being paused.
      */
-    public synchronized void onPause(Activity activity) {
+    public void onPause(Activity activity) {
         lockListeners();
+        flushAnalyticsEvents();
         if (activity instanceof Listener) {
             removeListener((Listener) activity);
         }
         mBraintreeApi.disconnectGoogleApiClient();
+        if (mCancelBackgroundRequestsOnPause) {
+            cancelBackgroundRequests();
+        }
     }
 
     /**
@@ -446,29 +785,40 @@ public class Braintree {
      *
      * If a network or server error occurs, {@link Braintree.ErrorListener#onUnrecoverableError(Throwable)}
      * will be called with the {@link com.braintreepayments.api.exceptions.BraintreeException} that occurred.
+     *
+     * @return A {@link RequestHandle} to cancel the request or be notified of its completion.
      */
-    public synchronized void getPaymentMethods() {
-        getPaymentMethodsHelper();
+    public synchronized RequestHandle getPaymentMethods() {
+        return getPaymentMethodsHelper();
     }
 
     /**
      * Helper method to {@link #getPaymentMethods()} to make execution synchronous in testing.
      */
-    protected synchronized Future<?> getPaymentMethodsHelper() {
-        return mExecutorService.submit(new Runnable() {
+    protected synchronized RequestHandle getPaymentMethodsHelper() {
+        Deadline deadline = deadlineFor(Operation.GET_PAYMENT_METHODS);
+        return submit(Lane.BACKGROUND, withDeadline(deadline, new Runnable() {
             @Override
             public void run() {
+                PerformanceMonitor.Span span = mPerformanceMonitor.start("get-payment-methods");
                 try {
+                    long fetchVersion = mPaymentMethodCache.beginFetch();
                     List<PaymentMethod> paymentMethods = mBraintreeApi.getPaymentMethods();
-                    mCachedPaymentMethods = paymentMethods;
+                    span.finish(true);
+                    boolean current = setCachedPaymentMethods(paymentMethods, fetchVersion);
                     postPaymentMethodsToListeners(paymentMethods);
+                    if (current) {
+                        persistPaymentMethods(paymentMethods);
+                    }
                 } catch (BraintreeException e) {
+                    span.finish(false);
                     postUnrecoverableErrorToListeners(e);
                 } catch (ErrorWithResponse e) {
+                    span.finish(false);
                     postRecoverableErrorToListeners(e);
                 }
             }
-        });
+        }));
     }
 
     /**
@@ -496,6 +846,7 @@ public class Braintree {
      */
     public void startPayWithPayPal(Activity activity, int requestCode, List<String> additionalScopes) {
         sendAnalyticsEvent("add-paypal.start");
+        mPerformanceMonitor.startAppSwitch("paypal");
         mBraintreeApi.startPayWithPayPal(activity, requestCode, additionalScopes);
     }
 
@@ -518,8 +869,12 @@ public class Braintree {
      */
     public PayPalAccountBuilder handlePayPalResponse(Activity activity, int resultCode, Intent data) {
         try {
-            return mBraintreeApi.handlePayPalResponse(activity, resultCode, data);
+            PayPalAccountBuilder payPalAccountBuilder =
+                    mBraintreeApi.handlePayPalResponse(activity, resultCode, data);
+            finishAppSwitch("paypal", resultCode, payPalAccountBuilder != null);
+            return payPalAccountBuilder;
         } catch (ConfigurationException e) {
+            mPerformanceMonitor.finishAppSwitch("paypal", PerformanceMonitor.Outcome.FAILURE);
             postUnrecoverableErrorToListeners(e);
         }
 
@@ -554,10 +909,12 @@ public class Braintree {
     public synchronized void finishPayWithPayPal(int resultCode, Intent data) {
         try {
             PayPalAccountBuilder payPalAccountBuilder = mBraintreeApi.handlePayPalResponse(null, resultCode, data);
+            finishAppSwitch("paypal", resultCode, payPalAccountBuilder != null);
             if (payPalAccountBuilder != null) {
                 create(payPalAccountBuilder);
             }
         } catch (ConfigurationException e) {
+            mPerformanceMonitor.finishAppSwitch("paypal", PerformanceMonitor.Outcome.FAILURE);
             postUnrecoverableErrorToListeners(e);
         }
     }
@@ -581,10 +938,12 @@ public class Braintree {
         try {
             PayPalAccountBuilder payPalAccountBuilder = mBraintreeApi.handlePayPalResponse(activity,
                     resultCode, data);
+            finishAppSwitch("paypal", resultCode, payPalAccountBuilder != null);
             if (payPalAccountBuilder != null) {
                 create(payPalAccountBuilder);
             }
         } catch (ConfigurationException e) {
+            mPerformanceMonitor.finishAppSwitch("paypal", PerformanceMonitor.Outcome.FAILURE);
             postUnrecoverableErrorToListeners(e);
         }
     }
@@ -600,6 +959,7 @@ public class Braintree {
     public void startPayWithVenmo(Activity activity, int requestCode) {
         try {
             mBraintreeApi.startPayWithVenmo(activity, requestCode);
+            mPerformanceMonitor.startAppSwitch("venmo");
             sendAnalyticsEvent("add-venmo.start");
         } catch (AppSwitchNotAvailableException e) {
             sendAnalyticsEvent("add-venmo.unavailable");
@@ -624,8 +984,9 @@ public class Braintree {
      */
     public synchronized void finishPayWithVenmo(int resultCode, Intent data) {
         final String nonce = mBraintreeApi.finishPayWithVenmo(resultCode, data);
+        finishAppSwitch("venmo", resultCode, !TextUtils.isEmpty(nonce));
         if (!TextUtils.isEmpty(nonce)) {
-            mExecutorService.submit(new Runnable() {
+            mTaskScheduler.submit(Lane.INTERACTIVE, new Runnable() {
                 @Override
                 public void run() {
                     try {
@@ -668,6 +1029,9 @@ public class Braintree {
         } else {
             try {
                 payWithCoinbaseInitiated = mBraintreeApi.startPayWithCoinbase(activity);
+                if (payWithCoinbaseInitiated) {
+                    mPerformanceMonitor.startAppSwitch("coinbase");
+                }
                 sendAnalyticsEvent("coinbase.webswitch.started");
             } catch (UnsupportedEncodingException e) {
                 postUnrecoverableErrorToListeners(e);
@@ -696,12 +1060,17 @@ public class Braintree {
         String error = redirectUri != null ? redirectUri.getQueryParameter("error") : null;
         if (error != null) {
             if (error.equals("access_denied")) {
+                mPerformanceMonitor.finishAppSwitch("coinbase",
+                        PerformanceMonitor.Outcome.CANCELED);
                 sendAnalyticsEvent("coinbase.webswitch.denied");
             } else {
+                mPerformanceMonitor.finishAppSwitch("coinbase",
+                        PerformanceMonitor.Outcome.FAILURE);
                 sendAnalyticsEvent("coinbase.webswitch.failed");
             }
         } else {
-            mExecutorService.submit(new Runnable() {
+            mPerformanceMonitor.finishAppSwitch("coinbase", PerformanceMonitor.Outcome.SUCCESS);
+            mTaskScheduler.submit(Lane.INTERACTIVE, new Runnable() {
                 @Override
                 public void run() {
                     sendAnalyticsEvent("coinbase.webswitch.authorized");
@@ -791,7 +1160,7 @@ public class Braintree {
     public synchronized void performAndroidPayMaskedWalletRequest(final Activity activity,
             final int requestCode, final Cart cart, final boolean isBillingAgreement, final boolean shippingAddressRequired,
             final boolean phoneNumberRequired) {
-        mExecutorService.submit(new Runnable() {
+        mTaskScheduler.submit(Lane.INTERACTIVE, new Runnable() {
             @Override
             public void run() {
                 try {
@@ -817,7 +1186,7 @@ public class Braintree {
     @Beta
     public synchronized void performAndroidPayChangeMaskedWalletRequest(final Activity activity,
             final int requestCode, final String googleTransactionId) {
-        mExecutorService.submit(new Runnable() {
+        mTaskScheduler.submit(Lane.INTERACTIVE, new Runnable() {
             @Override
             public void run() {
                 try {
@@ -842,7 +1211,7 @@ public class Braintree {
     @Beta
     public synchronized void performAndroidPayFullWalletRequest(final Activity activity,
             final int requestCode, final Cart cart, final String googleTransactionId) {
-        mExecutorService.submit(new Runnable() {
+        mTaskScheduler.submit(Lane.INTERACTIVE, new Runnable() {
             @Override
             public void run() {
                 try {
@@ -910,19 +1279,24 @@ public class Braintree {
     @Beta
     public synchronized void startThreeDSecureVerification(final Activity activity,
             final int requestCode, final CardBuilder cardBuilder, final String amount) {
-        mExecutorService.submit(new Runnable() {
+        final Deadline deadline = deadlineFor(Operation.THREE_D_SECURE_VERIFICATION);
+        mTaskScheduler.submit(Lane.INTERACTIVE, withDeadline(deadline, new Runnable() {
             @Override
             public void run() {
+                PerformanceMonitor.Span span = mPerformanceMonitor.start("tokenize");
                 try {
                     String nonce = mBraintreeApi.tokenize(cardBuilder);
-                    startThreeDSecureVerification(activity, requestCode, nonce, amount);
+                    span.finish(true);
+                    startThreeDSecureVerification(activity, requestCode, nonce, amount, deadline);
                 } catch (BraintreeException e) {
+                    span.finish(false);
                     postUnrecoverableErrorToListeners(e);
                 } catch (ErrorWithResponse errorWithResponse) {
+                    span.finish(false);
                     postRecoverableErrorToListeners(errorWithResponse);
                 }
             }
-        });
+        }));
     }
 
     /**
@@ -954,12 +1328,21 @@ public class Braintree {
     @Beta
     public synchronized void startThreeDSecureVerification(final Activity activity,
             final int requestCode, final String nonce, final String amount) {
-        mExecutorService.submit(new Runnable() {
+        startThreeDSecureVerification(activity, requestCode, nonce, amount,
+                deadlineFor(Operation.THREE_D_SECURE_VERIFICATION));
+    }
+
+    private synchronized void startThreeDSecureVerification(final Activity activity,
+            final int requestCode, final String nonce, final String amount, Deadline deadline) {
+        mTaskScheduler.submit(Lane.INTERACTIVE, withDeadline(deadline, new Runnable() {
             @Override
             public void run() {
+                PerformanceMonitor.Span span =
+                        mPerformanceMonitor.start("three-d-secure-lookup");
                 try {
                     ThreeDSecureLookup threeDSecureLookup = mBraintreeApi.threeDSecureLookup(nonce,
                             amount);
+                    span.finish(true);
                     if (threeDSecureLookup.getAcsUrl() != null) {
                         Intent intent = new Intent(activity, ThreeDSecureWebViewActivity.class)
                                 .putExtra(ThreeDSecureWebViewActivity.EXTRA_THREE_D_SECURE_LOOKUP, threeDSecureLookup);
@@ -969,14 +1352,17 @@ public class Braintree {
                         postCreatedNonceToListeners(threeDSecureLookup.getCard().getNonce());
                     }
                 } catch (BraintreeException e) {
+                    span.finish(false);
                     postUnrecoverableErrorToListeners(e);
                 } catch (JSONException e) {
+                    span.finish(false);
                     postUnrecoverableErrorToListeners(e);
                 } catch (ErrorWithResponse errorWithResponse) {
+                    span.finish(false);
                     postRecoverableErrorToListeners(errorWithResponse);
                 }
             }
-        });
+        }));
     }
 
     /**
@@ -1056,20 +1442,22 @@ public class Braintree {
      * @param paymentMethodBuilder {@link com.braintreepayments.api.models.PaymentMethod.Builder} for the
      * {@link com.braintreepayments.api.models.PaymentMethod} to be created.
      * @param <T> {@link com.braintreepayments.api.models.PaymentMethod} or a subclass.
+     * @return A {@link RequestHandle} to cancel the request or be notified of its completion.
      * @see #tokenize(com.braintreepayments.api.models.PaymentMethod.Builder)
      */
-    public synchronized <T extends PaymentMethod> void create(
+    public synchronized <T extends PaymentMethod> RequestHandle create(
             PaymentMethod.Builder<T> paymentMethodBuilder) {
-        createHelper(paymentMethodBuilder);
+        return createHelper(paymentMethodBuilder);
     }
 
     /**
      * Helper method to {@link #create(PaymentMethod.Builder)} to make execution synchronous in
      * testing.
      */
-    protected synchronized <T extends PaymentMethod> Future<?> createHelper(
+    protected synchronized <T extends PaymentMethod> RequestHandle createHelper(
             final PaymentMethod.Builder<T> paymentMethodBuilder) {
-        return mExecutorService.submit(new Runnable() {
+        Deadline deadline = deadlineFor(Operation.CREATE);
+        return submit(Lane.INTERACTIVE, withDeadline(deadline, new Runnable() {
             @Override
             public void run() {
                 try {
@@ -1084,7 +1472,7 @@ public class Braintree {
                     postRecoverableErrorToListeners(e);
                 }
             }
-        });
+        }));
     }
 
     /**
@@ -1101,32 +1489,108 @@ public class Braintree {
      *
      * @param paymentMethodBuilder {@link com.braintreepayments.api.models.PaymentMethod.Builder} for the
      * {@link com.braintreepayments.api.models.PaymentMethod} to be created.
+     * @return A {@link RequestHandle} to cancel the request or be notified of its completion.
      * @see #create(com.braintreepayments.api.models.PaymentMethod.Builder)
      */
-    public synchronized <T extends PaymentMethod> void tokenize(
+    public synchronized <T extends PaymentMethod> RequestHandle tokenize(
             PaymentMethod.Builder<T> paymentMethodBuilder) {
-        tokenizeHelper(paymentMethodBuilder);
+        return tokenizeHelper(paymentMethodBuilder);
     }
 
     /**
      * Helper method to {@link #tokenize(PaymentMethod.Builder)} to make execution synchronous in
      * testing.
      */
-    protected synchronized <T extends PaymentMethod> Future<?> tokenizeHelper(
+    protected synchronized <T extends PaymentMethod> RequestHandle tokenizeHelper(
             final PaymentMethod.Builder<T> paymentMethodBuilder) {
-        return mExecutorService.submit(new Runnable() {
+        Deadline deadline = deadlineFor(Operation.TOKENIZE);
+        return submit(Lane.INTERACTIVE, withDeadline(deadline, new Runnable() {
             @Override
             public void run() {
+                PerformanceMonitor.Span span = mPerformanceMonitor.start("tokenize");
                 try {
                     String nonce = mBraintreeApi.tokenize(paymentMethodBuilder);
+                    span.finish(true);
                     postCreatedNonceToListeners(nonce);
                 } catch (BraintreeException e) {
+                    span.finish(false);
                     postUnrecoverableErrorToListeners(e);
                 } catch (ErrorWithResponse e) {
+                    span.finish(false);
                     postRecoverableErrorToListeners(e);
                 }
             }
-        });
+        }));
+    }
+
+    /**
+     * Tokenizes a list of {@link com.braintreepayments.api.models.PaymentMethod.Builder}s, for
+     * example when importing saved cards.
+     *
+     * Up to {@link BraintreeApi#DEFAULT_TOKENIZE_ALL_PARALLELISM} requests are in flight at a
+     * time. The batch runs apart from {@link #tokenize(PaymentMethod.Builder)} and
+     * {@link #create(PaymentMethod.Builder)}, which are not delayed by it. Progress is sent to
+     * {@link Braintree.TokenizeAllListener#onTokenizationProgress(TokenizationResult, int, int)}
+     * as each item completes, and the results of all items, in the order of
+     * {@code paymentMethodBuilders}, are sent to
+     * {@link Braintree.TokenizeAllListener#onTokenizeAllFinished(java.util.List)}. Each
+     * {@link TokenizationResult} holds either a nonce or the error for its item, errors are not
+     * sent to {@link Braintree.ErrorListener}s.
+     *
+     * @param paymentMethodBuilders The builders to tokenize.
+     * @return A {@link RequestHandle} to cancel the remaining items or be notified of completion.
+     */
+    public synchronized RequestHandle tokenizeAll(
+            List<? extends PaymentMethod.Builder> paymentMethodBuilders) {
+        return tokenizeAllHelper(paymentMethodBuilders);
+    }
+
+    /**
+     * Helper method to {@link #tokenizeAll(java.util.List)} to make execution synchronous in
+     * testing.
+     */
+    protected synchronized RequestHandle tokenizeAllHelper(
+            List<? extends PaymentMethod.Builder> paymentMethodBuilders) {
+        final List<PaymentMethod.Builder> builders =
+                new ArrayList<PaymentMethod.Builder>(paymentMethodBuilders);
+        Deadline deadline = deadlineFor(Operation.TOKENIZE_ALL);
+        return submit(Lane.BATCH, withDeadline(deadline, new Runnable() {
+            @Override
+            public void run() {
+                PerformanceMonitor.Span span = mPerformanceMonitor.start("tokenize-all");
+                List<TokenizationResult> results = mBraintreeApi.tokenizeAll(builders,
+                        BraintreeApi.DEFAULT_TOKENIZE_ALL_PARALLELISM,
+                        new TokenizationResult.ProgressListener() {
+                            @Override
+                            public void onTokenizationProgress(TokenizationResult result,
+                                    int completed, int total) {
+                                postTokenizationProgressToListeners(result, completed, total);
+                            }
+                        }, mTaskScheduler.getExecutor(Lane.BATCH));
+                span.finish(tokenizeAllOutcome(results));
+                postTokenizationResultsToListeners(results);
+            }
+        }));
+    }
+
+    /**
+     * @return {@link PerformanceMonitor.Outcome#SUCCESS} if every item was tokenized,
+     *         {@link PerformanceMonitor.Outcome#CANCELED} if the batch was cancelled and
+     *         {@link PerformanceMonitor.Outcome#FAILURE} otherwise.
+     */
+    private static PerformanceMonitor.Outcome tokenizeAllOutcome(
+            List<TokenizationResult> results) {
+        CancellationToken cancellationToken = CancellationToken.current();
+        if (cancellationToken != null && cancellationToken.isCancelled()) {
+            return PerformanceMonitor.Outcome.CANCELED;
+        }
+
+        for (TokenizationResult result : results) {
+            if (!result.isSuccess()) {
+                return PerformanceMonitor.Outcome.FAILURE;
+            }
+        }
+        return PerformanceMonitor.Outcome.SUCCESS;
     }
 
     /**
@@ -1138,27 +1602,65 @@ public class Braintree {
      *                        using {@link Braintree} or {@link BraintreeApi} without Drop-In
      */
     @Deprecated
-    public synchronized void sendAnalyticsEvent(String event, String integrationType) {
+    public void sendAnalyticsEvent(String event, String integrationType) {
         sendAnalyticsEventHelper(event, integrationType);
     }
 
     /**
-     * Sends analytics event to the Braintree analytics service.
+     * Sends analytics event to the Braintree analytics service. The event is dropped if it
+     * repeats an identical event from the last few seconds, is not in the sample configured for
+     * its kind or exceeds the configured rate limit.
      *
      * @param eventFragment Event to be sent.
      */
-    public synchronized void sendAnalyticsEvent(String eventFragment) {
+    public void sendAnalyticsEvent(String eventFragment) {
         sendAnalyticsEventHelper(analyticsPrefix() + "." + eventFragment, getIntegrationType());
     }
 
     /**
      * Helper method to {@link #sendAnalyticsEvent(String, String)} to make execution synchronous in testing.
      */
-    protected synchronized Future<?> sendAnalyticsEventHelper(final String event, final String integrationType) {
-        return mExecutorService.submit(new Runnable() {
+    protected void sendAnalyticsEventHelper(String event, String integrationType) {
+        if (mAnalyticsEventFilter.accept(event, integrationType,
+                mBraintreeApi.getAnalyticsConfiguration())) {
+            mAnalyticsBatcher.add(event, integrationType);
+        }
+    }
+
+    /**
+     * Moves buffered analytics events to the on-disk analytics log and sends the log, stopping
+     * before the next batch while interactive requests are in flight. Events are buffered in
+     * batches of up to {@link AnalyticsBatcher#DEFAULT_MAX_BATCH_SIZE}, at the latest
+     * {@link AnalyticsBatcher#DEFAULT_FLUSH_INTERVAL_MILLIS} after they were sent with
+     * {@link #sendAnalyticsEvent(String)} or when {@link #onPause(android.app.Activity)} is called.
+     * Events that could not be sent stay on disk until a later flush. Timings of setup,
+     * configuration fetches, tokenization, payment method fetches, 3D Secure lookups and app
+     * switches recorded since the last flush are added as histogram events, see
+     * {@link PerformanceMonitor#drain()}.
+     *
+     * @return A {@link Future} that completes when the events have been stored and, if the
+     *         network allowed it, sent.
+     */
+    protected Future<?> flushAnalyticsEvents() {
+        final List<AnalyticsBatcher.Batch> batches = mAnalyticsBatcher.drain();
+        final List<String> timings = new ArrayList<String>();
+        for (String timing : mPerformanceMonitor.drain()) {
+            timings.add(analyticsPrefix() + "." + timing);
+        }
+        final String integrationType = getIntegrationType();
+        return mTaskScheduler.submit(Lane.TELEMETRY, new Runnable() {
             @Override
             public void run() {
-                mBraintreeApi.sendAnalyticsEvent(event, integrationType);
+                for (AnalyticsBatcher.Batch batch : batches) {
+                    mBraintreeApi.queueAnalyticsEvents(batch.getEvents(),
+                            batch.getIntegrationType());
+                }
+                if (!timings.isEmpty()) {
+                    mBraintreeApi.queueAnalyticsEvents(timings, integrationType);
+                }
+
+                // analytics yield to tokenization and other requests the user is waiting for
+                mBraintreeApi.uploadQueuedAnalyticsEvents(mTaskScheduler);
             }
         });
     }
@@ -1189,25 +1691,90 @@ public class Braintree {
         return mBraintreeApi.collectDeviceData(activity, merchantId, collectorUrl);
     }
 
+    /**
+     * @return {@code true} if the cache was replaced, {@code false} if a newer fetch already
+     *         replaced it.
+     */
+    private boolean setCachedPaymentMethods(List<PaymentMethod> paymentMethods,
+            long fetchVersion) {
+        PaymentMethodCache.Snapshot snapshot =
+                mPaymentMethodCache.replace(paymentMethods, fetchVersion);
+        if (snapshot != null) {
+            postCacheChangedToListeners(snapshot);
+            return true;
+        }
+        return false;
+    }
+
     private void addPaymentMethodToCache(PaymentMethod paymentMethod) {
-        if (mCachedPaymentMethods == null) {
-            mCachedPaymentMethods = new ArrayList<PaymentMethod>();
+        PaymentMethodCache.Snapshot snapshot = mPaymentMethodCache.add(paymentMethod);
+        postCacheChangedToListeners(snapshot);
+    }
+
+    /**
+     * Stores the customer's vaulted payment methods, as returned by {@link #getPaymentMethods()},
+     * on this device. Payment methods added locally, such as Android Pay cards, are not vaulted
+     * and are never stored. The disk I/O and encryption run on the background lane, so they
+     * never delay a result.
+     */
+    private void persistPaymentMethods(final List<PaymentMethod> paymentMethods) {
+        mTaskScheduler.submit(Lane.BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                mBraintreeApi.persistPaymentMethods(paymentMethods);
+            }
+        });
+    }
+
+    /**
+     * Finishes the timing of an app switch from its {@code onActivityResult} result.
+     */
+    private void finishAppSwitch(String appSwitch, int resultCode, boolean succeeded) {
+        PerformanceMonitor.Outcome outcome;
+        if (succeeded) {
+            outcome = PerformanceMonitor.Outcome.SUCCESS;
+        } else if (resultCode == Activity.RESULT_CANCELED) {
+            outcome = PerformanceMonitor.Outcome.CANCELED;
+        } else {
+            outcome = PerformanceMonitor.Outcome.FAILURE;
+        }
+        mPerformanceMonitor.finishAppSwitch(appSwitch, outcome);
+    }
+
+    /**
+     * Reads the payment methods stored on this device into memory, once. Called on the setup
+     * thread before {@link com.braintreepayments.api.Braintree.BraintreeSetupFinishedListener}s
+     * are notified, or on a background thread when restored from a saved instance state. Does disk
+     * I/O and must not be called on the main thread.
+     */
+    private void loadPersistedPaymentMethods() {
+        if (mPersistedPaymentMethods != null) {
+            return;
+        }
+
+        synchronized (mPersistedPaymentMethodsLock) {
+            if (mPersistedPaymentMethods == null) {
+                List<PaymentMethod> paymentMethods = mBraintreeApi.getPersistedPaymentMethods();
+                mPersistedPaymentMethods = (paymentMethods == null) ?
+                        Collections.<PaymentMethod>emptyList() : paymentMethods;
+            }
         }
-        mCachedPaymentMethods.add(0, paymentMethod);
     }
 
-    private synchronized void postPaymentMethodsToListeners(List<PaymentMethod> paymentMethods) {
+    private void postPaymentMethodsToListeners(List<PaymentMethod> paymentMethods) {
         final List<PaymentMethod> paymentMethodsSafe = Collections.unmodifiableList(paymentMethods);
-        postOrQueueCallback(new ListenerCallback() {
+        postOrQueueCallback(new CoalescingListenerCallback() {
             @Override
             public void execute() {
                 for (final PaymentMethodsUpdatedListener listener : mUpdatedListeners) {
-                    mListenerHandler.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            listener.onPaymentMethodsUpdated(paymentMethodsSafe);
-                        }
-                    });
+                    mListenerDispatcher.dispatch(
+                            new ListenerDispatcher.Key("payment_methods_updated", listener),
+                            new Runnable() {
+                                @Override
+                                public void run() {
+                                    listener.onPaymentMethodsUpdated(paymentMethodsSafe);
+                                }
+                            });
                 }
             }
 
@@ -1218,12 +1785,12 @@ public class Braintree {
         });
     }
 
-    private synchronized void postCreatedMethodToListeners(final PaymentMethod paymentMethod) {
+    private void postCreatedMethodToListeners(final PaymentMethod paymentMethod) {
         postOrQueueCallback(new ListenerCallback() {
             @Override
             public void execute() {
                 for (final PaymentMethodCreatedListener listener : mCreatedListeners) {
-                    mListenerHandler.post(new Runnable() {
+                    mListenerDispatcher.dispatch(new Runnable() {
                         @Override
                         public void run() {
                             listener.onPaymentMethodCreated(paymentMethod);
@@ -1239,12 +1806,12 @@ public class Braintree {
         });
     }
 
-    private synchronized void postCreatedNonceToListeners(final String nonce) {
+    private void postCreatedNonceToListeners(final String nonce) {
         postOrQueueCallback(new ListenerCallback() {
             @Override
             public void execute() {
                 for (final PaymentMethodNonceListener listener : mNonceListeners) {
-                    mListenerHandler.post(new Runnable() {
+                    mListenerDispatcher.dispatch(new Runnable() {
                         @Override
                         public void run() {
                             listener.onPaymentMethodNonce(nonce);
@@ -1260,12 +1827,56 @@ public class Braintree {
         });
     }
 
-    protected synchronized void postUnrecoverableErrorToListeners(final Throwable throwable) {
+    private void postTokenizationProgressToListeners(
+            final TokenizationResult result, final int completed, final int total) {
+        postOrQueueCallback(new DroppableListenerCallback() {
+            @Override
+            public void execute() {
+                for (final TokenizeAllListener listener : mTokenizeAllListeners) {
+                    mListenerDispatcher.dispatch(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onTokenizationProgress(result, completed, total);
+                        }
+                    });
+                }
+            }
+
+            @Override
+            public boolean hasListeners() {
+                return !mTokenizeAllListeners.isEmpty();
+            }
+        });
+    }
+
+    private void postTokenizationResultsToListeners(
+            final List<TokenizationResult> results) {
+        postOrQueueCallback(new ListenerCallback() {
+            @Override
+            public void execute() {
+                for (final TokenizeAllListener listener : mTokenizeAllListeners) {
+                    mListenerDispatcher.dispatch(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onTokenizeAllFinished(results);
+                        }
+                    });
+                }
+            }
+
+            @Override
+            public boolean hasListeners() {
+                return !mTokenizeAllListeners.isEmpty();
+            }
+        });
+    }
+
+    protected void postUnrecoverableErrorToListeners(final Throwable throwable) {
         postOrQueueCallback(new ListenerCallback() {
             @Override
             public void execute() {
                 for (final ErrorListener listener : mErrorListeners) {
-                    mListenerHandler.post(new Runnable() {
+                    mListenerDispatcher.dispatch(new Runnable() {
                         @Override
                         public void run() {
                             listener.onUnrecoverableError(throwable);
@@ -1281,12 +1892,12 @@ public class Braintree {
         });
     }
 
-    private synchronized void postRecoverableErrorToListeners(final ErrorWithResponse error) {
+    private void postRecoverableErrorToListeners(final ErrorWithResponse error) {
         postOrQueueCallback(new ListenerCallback() {
             @Override
             public void execute() {
                 for (final ErrorListener listener : mErrorListeners) {
-                    mListenerHandler.post(new Runnable() {
+                    mListenerDispatcher.dispatch(new Runnable() {
                         @Override
                         public void run() {
                             listener.onRecoverableError(error);
@@ -1302,32 +1913,175 @@ public class Braintree {
         });
     }
 
+    private void postCacheChangedToListeners(final PaymentMethodCache.Snapshot snapshot) {
+        postOrQueueCallback(new CoalescingListenerCallback() {
+            @Override
+            public void execute() {
+                for (final CachedPaymentMethodsChangedListener listener :
+                        mCacheChangedListeners) {
+                    mListenerDispatcher.dispatch(
+                            new ListenerDispatcher.Key("cached_payment_methods_changed", listener),
+                            new Runnable() {
+                                @Override
+                                public void run() {
+                                    listener.onCachedPaymentMethodsChanged(
+                                            snapshot.getPaymentMethods(), snapshot.getVersion());
+                                }
+                            });
+                }
+            }
+
+            @Override
+            public boolean hasListeners() {
+                return !mCacheChangedListeners.isEmpty();
+            }
+        });
+    }
+
+    private void postConfigurationChangedToListeners(
+            final Configuration configuration) {
+        postOrQueueCallback(new ListenerCallback() {
+            @Override
+            public void execute() {
+                for (final ConfigurationChangedListener listener :
+                        mConfigurationChangedListeners) {
+                    mListenerDispatcher.dispatch(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onConfigurationChanged(configuration);
+                        }
+                    });
+                }
+            }
+
+            @Override
+            public boolean hasListeners() {
+                return !mConfigurationChangedListeners.isEmpty();
+            }
+        });
+    }
+
     protected void postOrQueueCallback(ListenerCallback callback) {
-        if (mListenersLocked || !callback.hasListeners()) {
-            mCallbackQueue.add(callback);
-        } else {
+        CancellationToken cancellationToken = CancellationToken.current();
+        if (cancellationToken != null && cancellationToken.isCancelled()) {
+            return;
+        }
+
+        boolean locked = mListenersLocked;
+        if (!locked && callback.hasListeners()) {
             callback.execute();
+            return;
+        }
+
+        if (callback instanceof CoalescingListenerCallback) {
+            final Class<?> type = callback.getClass();
+            mCallbackQueue.removeMatching(new RingBuffer.Matcher<ListenerCallback>() {
+                @Override
+                public boolean matches(ListenerCallback item) {
+                    return item.getClass() == type;
+                }
+            });
+        }
+        mCallbackQueue.add(callback, DROPPABLE);
+        if (locked && !mListenersLocked) {
+            // unlockListeners ran while the callback was being queued and may have missed it
+            flushCallbackQueue();
         }
     }
 
     /**
-     * Returns whether or not this client has any cached cards. This is <strong>not</strong> the
-     * same as {@code getCachedPaymentMethods() == 0}. If this instance has never attempted to
-     * retrieve the payment methods, this will return {@code false}
+     * Returns whether or not this client has a fresh list of cached payment methods, which can be
+     * used instead of calling {@link #getPaymentMethods()}. This is <strong>not</strong> the
+     * same as {@code getCachedPaymentMethods().size() > 0}. If the list has never been retrieved,
+     * was retrieved longer than the cache TTL ago (see {@link #setPaymentMethodCacheTtl(long)}) or
+     * was invalidated, this will return {@code false}.
+     */
+    public boolean hasCachedCards() {
+        return mPaymentMethodCache.isFresh();
+    }
+
+    /**
+     * @return Unmodifiable list of previously retrieved and created
+     * {@link com.braintreepayments.api.models.PaymentMethod}s. The list is a snapshot and does
+     * not change when the cache is updated. If no attempts have been made, an empty list is
+     * returned.
+     */
+    public List<PaymentMethod> getCachedPaymentMethods() {
+        return mPaymentMethodCache.getSnapshot().getPaymentMethods();
+    }
+
+    /**
+     * @return The version of the payment method cache. It increases each time the cached list
+     *         changes and is {@code 0} if nothing has been cached.
+     */
+    public long getCachedPaymentMethodsVersion() {
+        return mPaymentMethodCache.getSnapshot().getVersion();
+    }
+
+    /**
+     * Sets how long a list retrieved with {@link #getPaymentMethods()} is considered fresh by
+     * {@link #hasCachedCards()}. Defaults to 5 minutes.
+     *
+     * @param ttlMillis The time to live in milliseconds.
+     */
+    public void setPaymentMethodCacheTtl(long ttlMillis) {
+        mPaymentMethodCache.setTtl(ttlMillis);
+    }
+
+    /**
+     * Marks the cached payment methods as stale, for example after payment methods were vaulted
+     * or deleted from your server. {@link #getCachedPaymentMethods()} keeps returning the cached
+     * list until it is refreshed.
      */
-    public synchronized boolean hasCachedCards() {
-        return mCachedPaymentMethods != null;
+    public void invalidateCachedPaymentMethods() {
+        mPaymentMethodCache.invalidate();
     }
 
     /**
-     * @return Unmodifiable list of previously retrieved {@link com.braintreepayments.api.models.PaymentMethod}.
-     * If no attempts have been made, an empty list is returned.
+     * Returns the customer's payment methods as they were the last time they were retrieved on
+     * this device, so they can be shown while {@link #getPaymentMethods()} is in flight. Only the
+     * fields needed to display them are stored, the payment methods have no nonce and must not be
+     * used to create transactions.
+     *
+     * The payment methods are read from an encrypted disk cache on a background thread before
+     * {@link #setup(android.content.Context, String, com.braintreepayments.api.Braintree.BraintreeSetupFinishedListener)}
+     * finishes, or right after {@link #restoreSavedInstanceState(android.content.Context, android.os.Bundle)}
+     * returns. This method never reads from disk and returns an empty list until that read has
+     * completed. Nothing is stored when the client token was not generated for a customer.
+     *
+     * @return Unmodifiable list of stored {@link com.braintreepayments.api.models.PaymentMethod}s,
+     *         or an empty list.
      */
-    public synchronized List<PaymentMethod> getCachedPaymentMethods() {
-        if (mCachedPaymentMethods == null) {
+    public List<PaymentMethod> getPersistedPaymentMethods() {
+        List<PaymentMethod> persistedPaymentMethods = mPersistedPaymentMethods;
+        if (persistedPaymentMethods == null) {
             return Collections.emptyList();
         }
-        return Collections.unmodifiableList(mCachedPaymentMethods);
+        return persistedPaymentMethods;
+    }
+
+    /**
+     * Removes the payment methods stored on this device for all customers, for example when a
+     * user signs out. Does disk I/O and should not be called on the main thread.
+     *
+     * @param context
+     */
+    public static void clearPersistedPaymentMethods(Context context) {
+        new VaultCache(context.getApplicationContext()).clear();
+    }
+
+    /**
+     * Retrieves the customer's payment methods with {@link #getPaymentMethods()} unless the cached
+     * list is fresh.
+     *
+     * @return A {@link RequestHandle} for the request, or {@code null} if the cached list is
+     *         fresh and no request was made.
+     */
+    public RequestHandle refreshPaymentMethodsIfStale() {
+        if (hasCachedCards()) {
+            return null;
+        }
+        return getPaymentMethods();
     }
 
     /**
@@ -1340,7 +2094,7 @@ public class Braintree {
      * (or wherever you add a listener).
      * @see #unlockListeners()
      */
-    public synchronized void lockListeners() {
+    public void lockListeners() {
         mListenersLocked = true;
     }
 
@@ -1349,20 +2103,63 @@ public class Braintree {
      * this acts as a noop.
      * @see #lockListeners()
      */
-    public synchronized void unlockListeners() {
+    public void unlockListeners() {
         mListenersLocked = false;
-        List<ListenerCallback> callbackQueue = new ArrayList<ListenerCallback>();
-        callbackQueue.addAll(mCallbackQueue);
-        for (ListenerCallback callback : callbackQueue) {
-            if (callback.hasListeners()) {
-                callback.execute();
-                mCallbackQueue.remove(callback);
-            }
+        flushCallbackQueue();
+    }
+
+    /**
+     * Executes the queued callbacks that have listeners, in the order they were queued. A
+     * callback is removed from the queue before it is executed, so concurrent flushes never
+     * execute it twice.
+     */
+    private void flushCallbackQueue() {
+        for (ListenerCallback callback : mCallbackQueue.removeMatching(HAS_LISTENERS)) {
+            callback.execute();
         }
     }
 
+    /**
+     * @return The number of progress callbacks dropped because more than
+     *         {@link #MAX_QUEUED_LISTENER_CALLBACKS} were queued while listeners were locked or
+     *         absent.
+     */
+    public long getDroppedListenerCallbackCount() {
+        return mCallbackQueue.getOverflowCount();
+    }
+
     protected static interface ListenerCallback {
         void execute();
         boolean hasListeners();
     }
+
+    /**
+     * A {@link ListenerCallback} that only reports progress, which may be dropped when too many
+     * callbacks are queued. Callbacks that deliver a result, state or an error must not implement
+     * this.
+     */
+    protected static interface DroppableListenerCallback extends ListenerCallback {}
+
+    /**
+     * A {@link ListenerCallback} that carries the latest state rather than an event. While it is
+     * queued, posting another callback of the same class replaces it. The callback that replaced
+     * it is never dropped, so the latest state is always delivered.
+     */
+    protected static interface CoalescingListenerCallback extends ListenerCallback {}
+
+    private static final RingBuffer.Matcher<ListenerCallback> HAS_LISTENERS =
+            new RingBuffer.Matcher<ListenerCallback>() {
+                @Override
+                public boolean matches(ListenerCallback item) {
+                    return item.hasListeners();
+                }
+            };
+
+    private static final RingBuffer.Matcher<ListenerCallback> DROPPABLE =
+            new RingBuffer.Matcher<ListenerCallback>() {
+                @Override
+                public boolean matches(ListenerCallback item) {
+                    return item instanceof DroppableListenerCallback;
+                }
+            };
 }
@@ -3,7 +3,12 @@ package com.braintreepayments.api;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
 import android.net.Uri;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
+import android.text.TextUtils;
 import android.util.Base64;
 
 import com.braintreepayments.api.annotations.Beta;
@@ -18,9 +23,18 @@ import com.braintreepayments.api.exceptions.ServerException;
 import com.braintreepayments.api.models.CoinbaseAccount;
 import com.braintreepayments.api.models.CoinbaseAccountBuilder;
 import com.braintreepayments.api.exceptions.UnexpectedException;
-import com.braintreepayments.api.internal.HttpRequest;
+import com.braintreepayments.api.internal.HttpConnectionPool;
 import com.braintreepayments.api.internal.HttpResponse;
+import com.braintreepayments.api.internal.HttpTransport;
+import com.braintreepayments.api.internal.HttpTransportFactory;
+import com.braintreepayments.api.internal.RequestBody;
+import com.braintreepayments.api.internal.RetryPolicy;
+import com.braintreepayments.api.internal.RetryingHttpTransport;
+import com.braintreepayments.api.internal.ResponseParser;
+import com.braintreepayments.api.internal.TaskScheduler;
+import com.braintreepayments.api.internal.TaskScheduler.Lane;
 import com.braintreepayments.api.models.AnalyticsRequest;
+import com.braintreepayments.api.models.AnalyticsConfiguration;
 import com.braintreepayments.api.models.AndroidPayCard;
 import com.braintreepayments.api.models.ClientToken;
 import com.braintreepayments.api.models.Configuration;
@@ -35,14 +49,24 @@ import com.google.android.gms.wallet.FullWallet;
 import com.google.android.gms.wallet.PaymentMethodTokenizationParameters;
 import com.google.android.gms.wallet.WalletConstants;
 import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.paypal.android.sdk.payments.PayPalConfiguration;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 /**
@@ -53,12 +77,49 @@ import java.util.regex.Pattern;
  */
 public class BraintreeApi {
 
+    /**
+     * Requests in flight used by {@link #tokenizeAll(java.util.List)}.
+     */
+    public static final int DEFAULT_TOKENIZE_ALL_PARALLELISM = 3;
+
+    /**
+     * The largest parallelism accepted by
+     * {@link #tokenizeAll(java.util.List, int, com.braintreepayments.api.TokenizationResult.ProgressListener)},
+     * the number of idle connections {@link HttpConnectionPool} keeps by default.
+     */
+    public static final int MAX_TOKENIZE_ALL_PARALLELISM =
+            HttpConnectionPool.DEFAULT_MAX_IDLE_CONNECTIONS;
+
+    /**
+     * The maximum number of stored analytics events sent in one request by
+     * {@link #uploadQueuedAnalyticsEvents(TaskScheduler)}.
+     */
+    static final int ANALYTICS_UPLOAD_BATCH_SIZE = 50;
+
+    /**
+     * How long stored analytics events wait for an unmetered network before they are sent over a
+     * metered one.
+     */
+    static final long MAX_ANALYTICS_DEFERRAL_MILLIS = TimeUnit.HOURS.toMillis(6);
+
+    private static final Object ANALYTICS_UPLOAD_LOCK = new Object();
     private static final String PAYMENT_METHOD_ENDPOINT = "payment_methods";
 
+    private static final ResponseParser<List<PaymentMethod>> PAYMENT_METHODS_PARSER =
+            new ResponseParser<List<PaymentMethod>>() {
+                @Override
+                public List<PaymentMethod> parse(JsonReader reader) throws IOException {
+                    return PaymentMethod.parsePaymentMethods(reader);
+                }
+            };
+
     private Context mContext;
     private ClientToken mClientToken;
-    private Configuration mConfiguration;
-    private HttpRequest mHttpRequest;
+    private volatile Configuration mConfiguration;
+    private HttpTransport mHttpRequest;
+    private ConfigurationCache mConfigurationCache;
+    private VaultCache mVaultCache;
+    private AnalyticsEventLog mAnalyticsEventLog;
 
     private VenmoAppSwitch mVenmoAppSwitch;
     private Coinbase mCoinbase;
@@ -85,7 +146,7 @@ public class BraintreeApi {
 
         mContext = context.getApplicationContext();
         mConfiguration = Configuration.fromJson(clientTokenString);
-        mHttpRequest = new HttpRequest(mClientToken.getAuthorizationFingerprint());
+        mHttpRequest = createTransport(mClientToken.getAuthorizationFingerprint());
         mHttpRequest.setBaseUrl(mConfiguration.getClientApiUrl());
 
         mBraintreeData = null;
@@ -96,17 +157,18 @@ public class BraintreeApi {
     protected BraintreeApi(Context context, ClientToken clientToken) {
         mContext = context.getApplicationContext();
         mClientToken = clientToken;
-        mHttpRequest = new HttpRequest(mClientToken.getAuthorizationFingerprint());
+        mHttpRequest = createTransport(mClientToken.getAuthorizationFingerprint());
     }
 
     protected BraintreeApi(Context context, String clientTokenString, String configurationString) {
         this(context, ClientToken.fromString(clientTokenString),
                 Configuration.fromJson(configurationString),
-                new HttpRequest(ClientToken.fromString(clientTokenString).getAuthorizationFingerprint()));
+                createTransport(
+                        ClientToken.fromString(clientTokenString).getAuthorizationFingerprint()));
     }
 
     protected BraintreeApi(Context context, ClientToken clientToken, Configuration configuration,
-            HttpRequest requestor) {
+            HttpTransport requestor) {
         mContext = context.getApplicationContext();
         mClientToken = clientToken;
         mConfiguration = configuration;
@@ -121,27 +183,183 @@ public class BraintreeApi {
         mCoinbase = new Coinbase(mContext, mConfiguration);
     }
 
+    private static HttpTransport createTransport(String authorizationFingerprint) {
+        return new RetryingHttpTransport(HttpTransportFactory.create(authorizationFingerprint));
+    }
+
+    /**
+     * Sets the {@link RetryPolicy} used for requests to the Braintree gateway.
+     *
+     * @param retryPolicy The {@link RetryPolicy} to use, {@code null} to disable retries.
+     */
+    protected synchronized void setRetryPolicy(RetryPolicy retryPolicy) {
+        if (mHttpRequest instanceof RetryingHttpTransport) {
+            ((RetryingHttpTransport) mHttpRequest).setRetryPolicy(retryPolicy);
+        } else if (retryPolicy != null) {
+            mHttpRequest = new RetryingHttpTransport(mHttpRequest, retryPolicy);
+        }
+    }
+
     protected boolean isSetup() {
         return mConfiguration != null;
     }
 
     protected void setup() throws ErrorWithResponse, BraintreeException {
-        mConfiguration = getConfiguration();
-        mHttpRequest.setBaseUrl(mConfiguration.getClientApiUrl());
+        applyConfiguration(getConfiguration());
+    }
+
+    /**
+     * Sets up with the last configuration fetched for this client token's configuration url and
+     * merchant account, even if it is stale, without making a request.
+     *
+     * @return {@code true} if a cached configuration was used, {@code false} if there was none.
+     */
+    protected boolean setupFromCache() {
+        ConfigurationCache.Entry cachedEntry =
+                getConfigurationCache().get(getConfigurationCacheKey());
+        if (cachedEntry == null) {
+            return false;
+        }
+
+        try {
+            applyConfiguration(cachedEntry.getConfiguration());
+            return true;
+        } catch (ServerException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Fetches the configuration again, revalidating the cached configuration if there is one, and
+     * uses the result.
+     *
+     * @return {@code true} if the configuration changed in a way that affects which payment
+     *         methods are available or where requests are sent, {@code false} otherwise.
+     */
+    protected boolean revalidateConfiguration() throws ErrorWithResponse, BraintreeException {
+        Configuration previous = mConfiguration;
+        Configuration configuration = getConfiguration();
+        applyConfiguration(configuration);
+
+        return previous == null || hasRelevantChanges(previous, configuration);
+    }
+
+    private synchronized void applyConfiguration(Configuration configuration) {
+        mConfiguration = configuration;
+        mHttpRequest.setBaseUrl(configuration.getClientApiUrl());
 
         mBraintreeData = null;
-        mVenmoAppSwitch = new VenmoAppSwitch(mContext, mConfiguration);
-        mCoinbase = new Coinbase(mContext, mConfiguration);
+        mVenmoAppSwitch = new VenmoAppSwitch(mContext, configuration);
+        mCoinbase = new Coinbase(mContext, configuration);
     }
 
-    private Configuration getConfiguration() throws ErrorWithResponse, BraintreeException {
-        String configUrl = Uri.parse(mClientToken.getConfigUrl())
+    private static boolean hasRelevantChanges(Configuration previous, Configuration current) {
+        return !TextUtils.equals(previous.getClientApiUrl(), current.getClientApiUrl()) ||
+                previous.isPayPalEnabled() != current.isPayPalEnabled() ||
+                !TextUtils.equals(previous.getVenmoState(), current.getVenmoState()) ||
+                previous.isCoinbaseEnabled() != current.isCoinbaseEnabled() ||
+                previous.isThreeDSecureEnabled() != current.isThreeDSecureEnabled();
+    }
+
+    private String getConfigUrl() {
+        return Uri.parse(mClientToken.getConfigUrl())
                 .buildUpon()
                 .appendQueryParameter("configVersion", "3")
                 .build()
                 .toString();
-        HttpResponse response = mHttpRequest.get(configUrl);
-        return Configuration.fromJson(response.getResponseBody());
+    }
+
+    private String getConfigurationCacheKey() {
+        return ConfigurationCache.key(getConfigUrl(), mClientToken.getAuthorizationFingerprint());
+    }
+
+    private Configuration getConfiguration() throws ErrorWithResponse, BraintreeException {
+        String configUrl = getConfigUrl();
+        String cacheKey = getConfigurationCacheKey();
+
+        ConfigurationCache configurationCache = getConfigurationCache();
+        ConfigurationCache.Entry cachedEntry = configurationCache.get(cacheKey);
+        if (cachedEntry != null && cachedEntry.isFresh()) {
+            return cachedEntry.getConfiguration();
+        }
+
+        Map<String, String> validators = (cachedEntry == null) ?
+                Collections.<String, String>emptyMap() : cachedEntry.getValidators();
+        HttpResponse response = mHttpRequest.get(configUrl, validators);
+
+        ConfigurationCache.Entry entry;
+        if (response.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED &&
+                cachedEntry != null) {
+            entry = cachedEntry.revalidated(response);
+        } else {
+            entry = ConfigurationCache.Entry.fromResponse(cacheKey, response);
+        }
+
+        Configuration configuration = entry.getConfiguration();
+        configurationCache.put(entry);
+        return configuration;
+    }
+
+    private synchronized ConfigurationCache getConfigurationCache() {
+        if (mConfigurationCache == null) {
+            mConfigurationCache = new ConfigurationCache(mContext);
+        }
+        return mConfigurationCache;
+    }
+
+    /**
+     * Replaces the disk cache used for configuration. Used in tests.
+     */
+    synchronized void setConfigurationCache(ConfigurationCache configurationCache) {
+        mConfigurationCache = configurationCache;
+    }
+
+    private synchronized VaultCache getVaultCache() {
+        if (mVaultCache == null) {
+            mVaultCache = new VaultCache(mContext);
+        }
+        return mVaultCache;
+    }
+
+    /**
+     * Replaces the disk cache used for payment methods. Used in tests.
+     */
+    synchronized void setVaultCache(VaultCache vaultCache) {
+        mVaultCache = vaultCache;
+    }
+
+    /**
+     * Reads the payment methods stored on this device for the customer of the client token. Does
+     * disk I/O and must not be called on the main thread.
+     *
+     * @return The display fields of the customer's payment methods as of the last time they were
+     *         stored, or an empty list. The payment methods have no nonce.
+     */
+    protected List<PaymentMethod> getPersistedPaymentMethods() {
+        String customerKey = VaultCache.customerKey(mClientToken);
+        if (customerKey == null) {
+            return Collections.emptyList();
+        }
+        return getVaultCache().get(customerKey);
+    }
+
+    /**
+     * Stores the display fields of the customer's payment methods on this device. Does nothing if
+     * the client token was not generated for a customer. Does disk I/O and must not be called on
+     * the main thread.
+     */
+    protected void persistPaymentMethods(List<PaymentMethod> paymentMethods) {
+        String customerKey = VaultCache.customerKey(mClientToken);
+        if (customerKey != null) {
+            getVaultCache().put(customerKey, paymentMethods);
+        }
+    }
+
+    /**
+     * @return The current {@link Configuration} or {@code null} if not set up.
+     */
+    protected Configuration getCurrentConfiguration() {
+        return mConfiguration;
     }
 
     protected String getConfigurationString() {
@@ -453,12 +671,20 @@ public class BraintreeApi {
      */
     public <T extends PaymentMethod> T create(PaymentMethod.Builder<T> paymentMethodBuilder)
             throws ErrorWithResponse, BraintreeException {
-        HttpResponse response = mHttpRequest.post(
-                versionedPath(PAYMENT_METHOD_ENDPOINT + "/" + paymentMethodBuilder.getApiPath()),
-                paymentMethodBuilder.toJsonString());
+        String path =
+                versionedPath(PAYMENT_METHOD_ENDPOINT + "/" + paymentMethodBuilder.getApiPath());
+        FirstOfTypeParser parser = new FirstOfTypeParser(paymentMethodBuilder.getApiResource());
+
+        String paymentMethodJson;
+        if (paymentMethodBuilder instanceof RequestBody) {
+            paymentMethodJson =
+                    mHttpRequest.post(path, (RequestBody) paymentMethodBuilder, parser);
+        } else {
+            paymentMethodJson =
+                    mHttpRequest.post(path, paymentMethodBuilder.toJsonString(), parser);
+        }
 
-        return paymentMethodBuilder.fromJson(jsonForType(response.getResponseBody(),
-                paymentMethodBuilder.getApiResource()));
+        return paymentMethodBuilder.fromJson(paymentMethodJson);
     }
 
     /**
@@ -481,6 +707,59 @@ public class BraintreeApi {
         return paymentMethod.getNonce();
     }
 
+    /**
+     * Tokenizes a list of {@link com.braintreepayments.api.models.PaymentMethod.Builder}s with
+     * up to {@link #DEFAULT_TOKENIZE_ALL_PARALLELISM} requests in flight.
+     *
+     * @param paymentMethodBuilders The builders to tokenize.
+     * @return One {@link TokenizationResult} per builder, in the order of the builders.
+     * @see #tokenizeAll(java.util.List, int, com.braintreepayments.api.TokenizationResult.ProgressListener)
+     */
+    public List<TokenizationResult> tokenizeAll(
+            List<? extends PaymentMethod.Builder> paymentMethodBuilders) {
+        return tokenizeAll(paymentMethodBuilders, DEFAULT_TOKENIZE_ALL_PARALLELISM, null);
+    }
+
+    /**
+     * Tokenizes a list of {@link com.braintreepayments.api.models.PaymentMethod.Builder}s.
+     *
+     * Items are started in list order with at most {@code maxParallelism} requests in flight.
+     * A failed item does not stop the batch, its error is returned in its
+     * {@link TokenizationResult}. The requests share connections and the TLS context, enable
+     * {@link HttpConnectionPool} to keep connections alive between them.
+     *
+     * @param paymentMethodBuilders The builders to tokenize.
+     * @param maxParallelism The maximum number of requests in flight, between 1 and
+     *        {@link #MAX_TOKENIZE_ALL_PARALLELISM}.
+     * @param progressListener Notified as each result becomes available, may be {@code null}.
+     * @return One {@link TokenizationResult} per builder, in the order of the builders.
+     */
+    public List<TokenizationResult> tokenizeAll(
+            List<? extends PaymentMethod.Builder> paymentMethodBuilders, int maxParallelism,
+            TokenizationResult.ProgressListener progressListener) {
+        return tokenizeAll(paymentMethodBuilders, maxParallelism, progressListener, null);
+    }
+
+    /**
+     * Tokenizes a list of {@link com.braintreepayments.api.models.PaymentMethod.Builder}s with
+     * the parallel requests run on {@code helperExecutor}.
+     *
+     * @param helperExecutor The {@link java.util.concurrent.Executor} parallel requests are run
+     *        on, {@code null} to use the SDK's background pool.
+     * @see #tokenizeAll(java.util.List, int, com.braintreepayments.api.TokenizationResult.ProgressListener)
+     */
+    public List<TokenizationResult> tokenizeAll(
+            List<? extends PaymentMethod.Builder> paymentMethodBuilders, int maxParallelism,
+            TokenizationResult.ProgressListener progressListener, Executor helperExecutor) {
+        if (maxParallelism < 1 || maxParallelism > MAX_TOKENIZE_ALL_PARALLELISM) {
+            throw new IllegalArgumentException("maxParallelism must be between 1 and " +
+                    MAX_TOKENIZE_ALL_PARALLELISM);
+        }
+
+        return new BatchTokenizer(this, paymentMethodBuilders, progressListener, helperExecutor)
+                .run(maxParallelism);
+    }
+
     /**
      * 3D Secure is a protocol that enables cardholders and issuers to add a layer of security
      * to e-commerce transactions via password entry at checkout.
@@ -511,15 +790,20 @@ public class BraintreeApi {
      * @throws ErrorWithResponse If there is an error with the request
      */
     @Beta
-    public ThreeDSecureLookup threeDSecureLookup(String nonce, String amount)
+    public ThreeDSecureLookup threeDSecureLookup(String nonce, final String amount)
             throws JSONException, BraintreeException, ErrorWithResponse {
-        JSONObject params = new JSONObject()
-                .put("merchantAccountId", mConfiguration.getMerchantAccountId())
-                .put("amount", amount);
+        final String merchantAccountId = mConfiguration.getMerchantAccountId();
+        RequestBody params = new RequestBody() {
+            @Override
+            public void writeFields(Gson gson, JsonWriter writer) throws IOException {
+                writer.name("merchantAccountId").value(merchantAccountId);
+                writer.name("amount").value(amount);
+            }
+        };
 
         HttpResponse response = mHttpRequest.post(
                 versionedPath(PAYMENT_METHOD_ENDPOINT + "/" + nonce + "/three_d_secure/lookup"),
-                params.toString());
+                params);
 
         return ThreeDSecureLookup.fromJson(response.getResponseBody());
     }
@@ -531,16 +815,13 @@ public class BraintreeApi {
      * @throws BraintreeException When a non-recoverable error (authentication, server error, network, etc.) occurs.
      */
     public List<PaymentMethod> getPaymentMethods() throws ErrorWithResponse, BraintreeException {
-        HttpResponse response = mHttpRequest.get(versionedPath(PAYMENT_METHOD_ENDPOINT));
-        return PaymentMethod.parsePaymentMethods(response.getResponseBody());
+        return mHttpRequest.get(versionedPath(PAYMENT_METHOD_ENDPOINT), PAYMENT_METHODS_PARSER);
     }
 
     protected PaymentMethod getPaymentMethod(String nonce)
             throws ErrorWithResponse, BraintreeException, JSONException {
-        HttpResponse response = mHttpRequest.get(versionedPath(
-                PAYMENT_METHOD_ENDPOINT + "/" + nonce));
-
-        List<PaymentMethod> paymentMethodsList = PaymentMethod.parsePaymentMethods(response.getResponseBody());
+        List<PaymentMethod> paymentMethodsList = mHttpRequest.get(versionedPath(
+                PAYMENT_METHOD_ENDPOINT + "/" + nonce), PAYMENT_METHODS_PARSER);
         if (paymentMethodsList.size() == 1) {
             return paymentMethodsList.get(0);
         } else if (paymentMethodsList.size() > 1) {
@@ -557,19 +838,162 @@ public class BraintreeApi {
      * using {@link Braintree} or {@link BraintreeApi} without Drop-In
      */
     public void sendAnalyticsEvent(String event, String integrationType) {
-        if (mConfiguration.isAnalyticsEnabled()) {
-            AnalyticsRequest analyticsRequest = new AnalyticsRequest(mContext, event, integrationType);
-
-            try {
-                mHttpRequest.post(mConfiguration.getAnalytics().getUrl(), analyticsRequest.toJson());
-            } catch (BraintreeException ignored) {
-                // Analytics failures should not interrupt normal application activity
-            } catch (ErrorWithResponse ignored) {
-                // Analytics failures should not interrupt normal application activity
+        sendAnalyticsEvents(Collections.singletonList(event), integrationType);
+    }
+
+    /**
+     * Sends several analytics events to the Braintree analytics service in one request.
+     * @param events Names of the events to be sent, in the order they occurred.
+     * @param integrationType The type of integration used. Should be "custom" for those directly
+     * using {@link Braintree} or {@link BraintreeApi} without Drop-In
+     */
+    public void sendAnalyticsEvents(List<String> events, String integrationType) {
+        if (!events.isEmpty() && mConfiguration.isAnalyticsEnabled()) {
+            if (!postAnalyticsEvents(events, integrationType)) {
+                // kept on disk and sent by a later uploadQueuedAnalyticsEvents
+                getAnalyticsEventLog().append(events, integrationType);
+            }
+        }
+    }
+
+    /**
+     * @return The type name of the active network, e.g. {@code "WIFI"}, or {@code "none"}.
+     */
+    protected String getNetworkType() {
+        return AnalyticsRequest.getNetworkType(mContext);
+    }
+
+    /**
+     * @return The analytics configuration, or {@code null} before the configuration is loaded.
+     */
+    protected AnalyticsConfiguration getAnalyticsConfiguration() {
+        return (mConfiguration == null) ? null : mConfiguration.getAnalytics();
+    }
+
+    /**
+     * Stores analytics events on disk to be sent by
+     * {@link #uploadQueuedAnalyticsEvents(TaskScheduler)}.
+     * Does disk I/O and must not be called on the main thread.
+     *
+     * @param events Names of the events, in the order they occurred.
+     * @param integrationType The type of integration used.
+     */
+    protected void queueAnalyticsEvents(List<String> events, String integrationType) {
+        if (mConfiguration != null && mConfiguration.isAnalyticsEnabled()) {
+            getAnalyticsEventLog().append(events, integrationType);
+        }
+    }
+
+    /**
+     * Sends analytics events stored with {@link #queueAnalyticsEvents(java.util.List, String)} in
+     * batches of up to {@link #ANALYTICS_UPLOAD_BATCH_SIZE}, oldest first. Events are only sent
+     * while the device is connected, on metered networks only once they have waited for
+     * {@link #MAX_ANALYTICS_DEFERRAL_MILLIS} or the log is filling up. Sending stops at the first
+     * failure, or before a batch if {@code taskScheduler} has {@link Lane#INTERACTIVE} work
+     * pending, the remaining events stay on disk. Never throws.
+     *
+     * @param taskScheduler The {@link TaskScheduler} of the requests analytics yield to.
+     * @return {@code true} if no events are left on disk.
+     */
+    protected boolean uploadQueuedAnalyticsEvents(TaskScheduler taskScheduler) {
+        if (mConfiguration == null) {
+            return false;
+        }
+
+        AnalyticsEventLog eventLog = getAnalyticsEventLog();
+        if (!mConfiguration.isAnalyticsEnabled()) {
+            eventLog.clear();
+            return true;
+        }
+
+        synchronized (ANALYTICS_UPLOAD_LOCK) {
+            while (!eventLog.isEmpty()) {
+                if (taskScheduler.getPendingCount(Lane.INTERACTIVE) > 0) {
+                    return false;
+                }
+
+                List<AnalyticsEventLog.Entry> entries = eventLog.peek(ANALYTICS_UPLOAD_BATCH_SIZE);
+                if (entries.isEmpty() || !isAnalyticsUploadAllowed(eventLog, entries.get(0))) {
+                    return false;
+                }
+
+                int sent = 0;
+                while (sent < entries.size()) {
+                    String integrationType = entries.get(sent).getIntegrationType();
+                    List<String> events = new ArrayList<String>();
+                    int end = sent;
+                    while (end < entries.size() && TextUtils.equals(integrationType,
+                            entries.get(end).getIntegrationType())) {
+                        events.add(entries.get(end).getKind());
+                        end++;
+                    }
+
+                    if (!postAnalyticsEvents(events, integrationType)) {
+                        eventLog.remove(sent);
+                        return false;
+                    }
+                    sent = end;
+                }
+                eventLog.remove(sent);
             }
+            return true;
         }
     }
 
+    /**
+     * @return {@code true} if the events were accepted or rejected by the analytics service,
+     *         {@code false} if they could not be delivered and should be sent again.
+     */
+    private boolean postAnalyticsEvents(List<String> events, String integrationType) {
+        try {
+            mHttpRequest.post(mConfiguration.getAnalytics().getUrl(),
+                    new AnalyticsRequest(mContext, events, integrationType));
+            return true;
+        } catch (BraintreeException e) {
+            // Analytics failures should not interrupt normal application activity
+            return false;
+        } catch (ErrorWithResponse e) {
+            // Rejected events would be rejected again
+            return true;
+        }
+    }
+
+    private boolean isAnalyticsUploadAllowed(AnalyticsEventLog eventLog,
+            AnalyticsEventLog.Entry oldestEntry) {
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        if (networkInfo == null || !networkInfo.isConnected()) {
+            return false;
+        }
+
+        boolean metered;
+        if (VERSION.SDK_INT >= VERSION_CODES.JELLY_BEAN) {
+            metered = connectivityManager.isActiveNetworkMetered();
+        } else {
+            metered = networkInfo.getType() != ConnectivityManager.TYPE_WIFI &&
+                    networkInfo.getType() != ConnectivityManager.TYPE_ETHERNET;
+        }
+
+        return !metered || eventLog.isFillingUp() ||
+                System.currentTimeMillis() - oldestEntry.getTimestamp() >=
+                        MAX_ANALYTICS_DEFERRAL_MILLIS;
+    }
+
+    private synchronized AnalyticsEventLog getAnalyticsEventLog() {
+        if (mAnalyticsEventLog == null) {
+            mAnalyticsEventLog = new AnalyticsEventLog(mContext);
+        }
+        return mAnalyticsEventLog;
+    }
+
+    /**
+     * Replaces the disk log used for analytics events. Used in tests.
+     */
+    synchronized void setAnalyticsEventLog(AnalyticsEventLog analyticsEventLog) {
+        mAnalyticsEventLog = analyticsEventLog;
+    }
+
     /**
      * Collect device information for fraud identification purposes.
      *
@@ -609,14 +1033,44 @@ public class BraintreeApi {
         return "/v1/" + path;
     }
 
-    private String jsonForType(String response, String type) throws ServerException {
-        JSONObject responseJson;
-        try {
-            responseJson = new JSONObject(response);
-            return responseJson.getJSONArray(type)
-                    .get(0).toString();
-        } catch (JSONException e) {
-            throw new ServerException("Parsing server response failed");
+    /**
+     * Reads the json of the first element of the array with the given name, skipping the rest of
+     * the response without building it.
+     */
+    private static class FirstOfTypeParser implements ResponseParser<String> {
+
+        private final String mType;
+
+        FirstOfTypeParser(String type) {
+            mType = type;
+        }
+
+        @Override
+        public String parse(JsonReader reader) throws IOException {
+            String json = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (json == null && mType.equals(reader.nextName())) {
+                    reader.beginArray();
+                    if (reader.hasNext()) {
+                        json = new JsonParser().parse(reader).toString();
+                    }
+                    while (reader.hasNext()) {
+                        reader.skipValue();
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (json == null) {
+                throw new ServerException("Parsing server response failed");
+            }
+
+            return json;
         }
     }
 }
@@ -0,0 +1,327 @@
+package com.braintreepayments.api;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import com.braintreepayments.api.exceptions.ServerException;
+import com.braintreepayments.api.internal.HttpResponse;
+import com.braintreepayments.api.models.Configuration;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Disk cache of gateway {@link Configuration}s keyed by configuration url and client token, see
+ * {@link #key(String, String)}. The url contains the merchant id, so each merchant and
+ * environment has its own entry, and client tokens with different merchant accounts or other
+ * settings do not share entries.
+ *
+ * An entry is used without a request while it is fresh according to the Cache-Control max-age
+ * of the response, capped at {@link #MAX_AGE_LIMIT_MILLIS}. After that it is revalidated with
+ * If-None-Match and If-Modified-Since, so an unchanged configuration costs a 304 instead of the
+ * full body. Entries older than {@link #MAX_ENTRY_AGE_MILLIS} are not used.
+ */
+class ConfigurationCache {
+
+    static final long MAX_AGE_LIMIT_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    static final long MAX_ENTRY_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private static final String DIRECTORY = "braintree-configuration";
+    private static final String UTF_8 = "UTF-8";
+    private static final String PARSING_FAILED_MESSAGE = "Parsing server response failed";
+    private static final String CUSTOMER_ID_PARAMETER = "customer_id=";
+    private static final String CREATED_AT_PARAMETER = "created_at=";
+    private static final Pattern MAX_AGE_PATTERN = Pattern.compile("max-age=\"?(\\d+)\"?");
+    private static final Gson GSON = new Gson();
+    private static final Object LOCK = new Object();
+
+    private final File mDirectory;
+
+    ConfigurationCache(Context context) {
+        this(new File(context.getCacheDir(), DIRECTORY));
+    }
+
+    ConfigurationCache(File directory) {
+        mDirectory = directory;
+    }
+
+    /**
+     * The configuration depends on the parameters of the client token's authorization
+     * fingerprint, such as the merchant account, so they are part of the key. The customer id and
+     * creation time are left out, so every client token of a merchant account for any customer
+     * shares one entry. The parameters are hashed, so they are not stored in plain text.
+     *
+     * @param configUrl The configuration url.
+     * @param authorizationFingerprint The authorization fingerprint of the client token, or
+     *        {@code null}.
+     * @return The key the configuration for the client token is stored under.
+     */
+    static String key(String configUrl, String authorizationFingerprint) {
+        if (authorizationFingerprint == null) {
+            return configUrl;
+        }
+
+        int parametersStart = authorizationFingerprint.indexOf('|');
+        if (parametersStart < 0) {
+            // no readable parameters, the entry can only be shared with the same client token
+            return configUrl + "#" + sha1(authorizationFingerprint);
+        }
+
+        List<String> parameters = new ArrayList<String>();
+        for (String parameter :
+                authorizationFingerprint.substring(parametersStart + 1).split("&")) {
+            if (parameter.length() > 0 && !parameter.startsWith(CUSTOMER_ID_PARAMETER) &&
+                    !parameter.startsWith(CREATED_AT_PARAMETER)) {
+                parameters.add(parameter);
+            }
+        }
+        Collections.sort(parameters);
+        return configUrl + "#" + sha1(TextUtils.join("&", parameters));
+    }
+
+    /**
+     * @param key The key of the entry, see {@link #key(String, String)}.
+     * @return The cached {@link Entry} for the key, or {@code null} if there is no usable entry.
+     */
+    Entry get(String key) {
+        File file = new File(mDirectory, sha1(key));
+        synchronized (LOCK) {
+            if (!file.exists()) {
+                return null;
+            }
+
+            Reader reader = null;
+            try {
+                reader = new InputStreamReader(new FileInputStream(file), UTF_8);
+                Entry entry = GSON.fromJson(reader, Entry.class);
+                if (entry != null && key.equals(entry.mKey) &&
+                        entry.getAgeMillis() < MAX_ENTRY_AGE_MILLIS) {
+                    return entry;
+                }
+            } catch (IOException ignored) {
+                // fall through and remove the entry
+            } catch (JsonParseException ignored) {
+                // fall through and remove the entry
+            } finally {
+                closeQuietly(reader);
+            }
+
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Stores an entry, replacing any existing entry for its key. Entries that the server asked
+     * not to store are removed instead.
+     */
+    void put(Entry entry) {
+        File file = new File(mDirectory, sha1(entry.mKey));
+        synchronized (LOCK) {
+            if (entry.mNoStore) {
+                file.delete();
+                return;
+            }
+
+            if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+                return;
+            }
+
+            File temporaryFile = new File(mDirectory, file.getName() + ".tmp");
+            Writer writer = null;
+            try {
+                writer = new OutputStreamWriter(new FileOutputStream(temporaryFile), UTF_8);
+                GSON.toJson(entry, writer);
+                writer.close();
+                writer = null;
+
+                if (!temporaryFile.renameTo(file)) {
+                    temporaryFile.delete();
+                }
+            } catch (IOException e) {
+                temporaryFile.delete();
+            } finally {
+                closeQuietly(writer);
+            }
+        }
+    }
+
+    /**
+     * Removes all cached configurations.
+     */
+    void clear() {
+        synchronized (LOCK) {
+            File[] files = mDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private static String sha1(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest(value.getBytes(UTF_8))) {
+                hex.append(String.format(Locale.US, "%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode());
+        } catch (UnsupportedEncodingException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * A configuration response and the validators needed to revalidate it.
+     */
+    static class Entry {
+
+        @SerializedName("key") private String mKey;
+        @SerializedName("configuration") private String mConfigurationJson;
+        @SerializedName("etag") private String mETag;
+        @SerializedName("lastModified") private String mLastModified;
+        @SerializedName("fetchedAt") private long mFetchedAt;
+        @SerializedName("maxAge") private long mMaxAgeMillis;
+        @SerializedName("noStore") private boolean mNoStore;
+
+        private transient Configuration mConfiguration;
+
+        private Entry() {}
+
+        /**
+         * Creates an entry from a 200 configuration response.
+         *
+         * @param key The key to store the entry under, see {@link #key(String, String)}.
+         */
+        static Entry fromResponse(String key, HttpResponse response) {
+            Entry entry = new Entry();
+            entry.mKey = key;
+            entry.mConfigurationJson = response.getResponseBody();
+            entry.mETag = response.getHeader("ETag");
+            entry.mLastModified = response.getHeader("Last-Modified");
+            entry.setCacheControl(response.getHeader("Cache-Control"));
+            return entry;
+        }
+
+        /**
+         * @return A copy of this entry updated with the headers of a 304 response.
+         */
+        Entry revalidated(HttpResponse response) {
+            Entry entry = new Entry();
+            entry.mKey = mKey;
+            entry.mConfigurationJson = mConfigurationJson;
+            entry.mConfiguration = mConfiguration;
+            entry.mETag = valueOrDefault(response.getHeader("ETag"), mETag);
+            entry.mLastModified = valueOrDefault(response.getHeader("Last-Modified"),
+                    mLastModified);
+            entry.setCacheControl(response.getHeader("Cache-Control"));
+            return entry;
+        }
+
+        /**
+         * @return {@code true} if the entry can be used without revalidating it.
+         */
+        boolean isFresh() {
+            long age = getAgeMillis();
+            return age >= 0 && age < Math.min(mMaxAgeMillis, MAX_AGE_LIMIT_MILLIS);
+        }
+
+        /**
+         * @return The conditional request headers to revalidate this entry with.
+         */
+        Map<String, String> getValidators() {
+            Map<String, String> headers = new HashMap<String, String>();
+            if (mETag != null) {
+                headers.put("If-None-Match", mETag);
+            }
+            if (mLastModified != null) {
+                headers.put("If-Modified-Since", mLastModified);
+            }
+            return headers;
+        }
+
+        /**
+         * @return The parsed {@link Configuration}.
+         * @throws ServerException if the configuration could not be parsed.
+         */
+        Configuration getConfiguration() throws ServerException {
+            if (mConfiguration == null) {
+                try {
+                    mConfiguration = Configuration.fromJson(mConfigurationJson);
+                } catch (JsonParseException e) {
+                    throw new ServerException(PARSING_FAILED_MESSAGE);
+                }
+
+                if (mConfiguration == null) {
+                    throw new ServerException(PARSING_FAILED_MESSAGE);
+                }
+            }
+
+            return mConfiguration;
+        }
+
+        private long getAgeMillis() {
+            return System.currentTimeMillis() - mFetchedAt;
+        }
+
+        private void setCacheControl(String cacheControl) {
+            mFetchedAt = System.currentTimeMillis();
+            mMaxAgeMillis = 0;
+            mNoStore = false;
+            if (cacheControl == null) {
+                return;
+            }
+
+            String directives = cacheControl.toLowerCase(Locale.US);
+            mNoStore = directives.contains("no-store");
+            if (directives.contains("no-cache")) {
+                return;
+            }
+
+            Matcher matcher = MAX_AGE_PATTERN.matcher(directives);
+            if (matcher.find()) {
+                try {
+                    mMaxAgeMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(matcher.group(1)));
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+
+        private static String valueOrDefault(String value, String defaultValue) {
+            return (value == null) ? defaultValue : value;
+        }
+    }
+}
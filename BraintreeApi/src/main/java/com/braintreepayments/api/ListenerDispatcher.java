@@ -0,0 +1,131 @@
+package com.braintreepayments.api;
+
+import android.os.Handler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Delivers listener events on a {@link Handler}'s thread.
+ *
+ * Events are batched: at most one message is queued on the handler at a time and every event
+ * dispatched before it runs is delivered by it, so a burst of events costs one message instead
+ * of one per event and listener. An event dispatched with a coalescing key replaces a pending
+ * event with the same key, so a listener only receives the latest state.
+ */
+class ListenerDispatcher {
+
+    private final Executor mExecutor;
+    private final List<Event> mPending = new ArrayList<Event>();
+    private boolean mScheduled = false;
+
+    private final Runnable mDeliver = new Runnable() {
+        @Override
+        public void run() {
+            deliver();
+        }
+    };
+
+    ListenerDispatcher(final Handler handler) {
+        this(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                handler.post(command);
+            }
+        });
+    }
+
+    /**
+     * @param executor Runs the delivery messages, events are delivered on its thread.
+     */
+    ListenerDispatcher(Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Delivers {@code event} with the next batch.
+     */
+    void dispatch(Runnable event) {
+        dispatch(null, event);
+    }
+
+    /**
+     * Delivers {@code event} with the next batch, replacing a pending event with the same key.
+     *
+     * @param coalescingKey The key, {@code null} to never replace pending events.
+     */
+    void dispatch(Object coalescingKey, Runnable event) {
+        synchronized (this) {
+            if (coalescingKey != null) {
+                Iterator<Event> iterator = mPending.iterator();
+                while (iterator.hasNext()) {
+                    if (coalescingKey.equals(iterator.next().mCoalescingKey)) {
+                        iterator.remove();
+                    }
+                }
+            }
+            mPending.add(new Event(coalescingKey, event));
+
+            if (mScheduled) {
+                return;
+            }
+            mScheduled = true;
+        }
+
+        mExecutor.execute(mDeliver);
+    }
+
+    private void deliver() {
+        List<Event> events;
+        synchronized (this) {
+            events = new ArrayList<Event>(mPending);
+            mPending.clear();
+            mScheduled = false;
+        }
+
+        for (Event event : events) {
+            event.mRunnable.run();
+        }
+    }
+
+    private static class Event {
+
+        private final Object mCoalescingKey;
+        private final Runnable mRunnable;
+
+        Event(Object coalescingKey, Runnable runnable) {
+            mCoalescingKey = coalescingKey;
+            mRunnable = runnable;
+        }
+    }
+
+    /**
+     * Coalescing key for events of one type sent to one listener.
+     */
+    static class Key {
+
+        private final String mType;
+        private final Object mListener;
+
+        Key(String type, Object listener) {
+            mType = type;
+            mListener = listener;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return mType.equals(other.mType) && mListener == other.mListener;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mType.hashCode() + System.identityHashCode(mListener);
+        }
+    }
+}
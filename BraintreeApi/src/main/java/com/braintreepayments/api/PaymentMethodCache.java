@@ -0,0 +1,185 @@
+package com.braintreepayments.api;
+
+import android.os.SystemClock;
+
+import com.braintreepayments.api.models.PaymentMethod;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In memory cache of a customer's {@link PaymentMethod}s.
+ *
+ * The cache holds an immutable {@link Snapshot} that is replaced as a whole on every change, so
+ * readers never lock and never see a list that is being modified. Every change increments the
+ * version of the snapshot.
+ *
+ * A snapshot is fresh for {@link #DEFAULT_TTL_MILLIS} after the list was fetched from the
+ * gateway. Payment methods added locally while a fetch is in flight are kept when the fetch
+ * completes.
+ */
+class PaymentMethodCache {
+
+    static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final Object mLock = new Object();
+    private final List<Addition> mAdditions = new ArrayList<Addition>();
+
+    private volatile Snapshot mSnapshot = Snapshot.EMPTY;
+    private volatile long mTtlMillis = DEFAULT_TTL_MILLIS;
+
+    /**
+     * @return The current {@link Snapshot}.
+     */
+    Snapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * @param ttlMillis How long a fetched list is fresh, {@code 0} to never consider it fresh.
+     */
+    void setTtl(long ttlMillis) {
+        mTtlMillis = Math.max(0, ttlMillis);
+    }
+
+    /**
+     * @return {@code true} if the current snapshot was fetched from the gateway less than the
+     *         TTL ago and has not been invalidated.
+     */
+    boolean isFresh() {
+        return mSnapshot.isFresh(mTtlMillis);
+    }
+
+    /**
+     * To be called before fetching payment methods.
+     *
+     * @return The version to pass to {@link #replace(java.util.List, long)} with the result.
+     */
+    long beginFetch() {
+        return mSnapshot.getVersion();
+    }
+
+    /**
+     * Replaces the cached list with a fetched list. Payment methods added after
+     * {@code fetchVersion} are kept in front of the fetched list. The result of a fetch that
+     * began before the fetch the current snapshot came from is ignored.
+     *
+     * @param paymentMethods The fetched payment methods.
+     * @param fetchVersion The version returned by {@link #beginFetch()} when the fetch began.
+     * @return The new {@link Snapshot}, or {@code null} if the result was ignored.
+     */
+    Snapshot replace(List<PaymentMethod> paymentMethods, long fetchVersion) {
+        synchronized (mLock) {
+            Snapshot current = mSnapshot;
+            if (fetchVersion < current.mFetchVersion) {
+                return null;
+            }
+
+            List<PaymentMethod> list = new ArrayList<PaymentMethod>();
+            Iterator<Addition> iterator = mAdditions.iterator();
+            while (iterator.hasNext()) {
+                Addition addition = iterator.next();
+                if (addition.mVersion > fetchVersion) {
+                    list.add(0, addition.mPaymentMethod);
+                } else {
+                    iterator.remove();
+                }
+            }
+            list.addAll(paymentMethods);
+
+            mSnapshot = new Snapshot(list, current.getVersion() + 1, fetchVersion,
+                    SystemClock.elapsedRealtime());
+            return mSnapshot;
+        }
+    }
+
+    /**
+     * Adds a payment method created by this client to the front of the list.
+     *
+     * @return The new {@link Snapshot}.
+     */
+    Snapshot add(PaymentMethod paymentMethod) {
+        synchronized (mLock) {
+            Snapshot current = mSnapshot;
+            List<PaymentMethod> list = new ArrayList<PaymentMethod>(current.getPaymentMethods());
+            list.add(0, paymentMethod);
+
+            long version = current.getVersion() + 1;
+            mAdditions.add(new Addition(paymentMethod, version));
+            mSnapshot = new Snapshot(list, version, current.mFetchVersion, current.mFetchedAt);
+            return mSnapshot;
+        }
+    }
+
+    /**
+     * Marks the current snapshot as stale. The cached list stays readable until it is replaced.
+     */
+    void invalidate() {
+        synchronized (mLock) {
+            Snapshot current = mSnapshot;
+            mSnapshot = new Snapshot(current.getPaymentMethods(), current.getVersion(),
+                    current.mFetchVersion, Snapshot.NEVER);
+        }
+    }
+
+    /**
+     * An immutable view of the cache at one version.
+     */
+    static class Snapshot {
+
+        static final long NEVER = -1;
+        static final Snapshot EMPTY =
+                new Snapshot(Collections.<PaymentMethod>emptyList(), 0, 0, NEVER);
+
+        private final List<PaymentMethod> mPaymentMethods;
+        private final long mVersion;
+        private final long mFetchVersion;
+        private final long mFetchedAt;
+
+        private Snapshot(List<PaymentMethod> paymentMethods, long version, long fetchVersion,
+                long fetchedAt) {
+            mPaymentMethods = Collections.unmodifiableList(
+                    new ArrayList<PaymentMethod>(paymentMethods));
+            mVersion = version;
+            mFetchVersion = fetchVersion;
+            mFetchedAt = fetchedAt;
+        }
+
+        /**
+         * @return The unmodifiable list of payment methods, most recently added first.
+         */
+        List<PaymentMethod> getPaymentMethods() {
+            return mPaymentMethods;
+        }
+
+        /**
+         * @return The version of this snapshot, {@code 0} before anything was cached.
+         */
+        long getVersion() {
+            return mVersion;
+        }
+
+        boolean isFresh(long ttlMillis) {
+            if (mFetchedAt == NEVER) {
+                return false;
+            }
+
+            long age = SystemClock.elapsedRealtime() - mFetchedAt;
+            return age >= 0 && age < ttlMillis;
+        }
+    }
+
+    private static class Addition {
+
+        private final PaymentMethod mPaymentMethod;
+        private final long mVersion;
+
+        Addition(PaymentMethod paymentMethod, long version) {
+            mPaymentMethod = paymentMethod;
+            mVersion = version;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.braintreepayments.api;
+
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Times SDK operations and counts their durations in histograms, split by operation, outcome
+ * and the type of the active network when the operation finished.
+ *
+ * An operation is timed with a {@link Span} from {@link #start(String)}. Operations that span an
+ * app switch are started with {@link #startAppSwitch(String)} and finished with
+ * {@link #finishAppSwitch(String, Outcome)} when the result arrives. The histograms are
+ * collected with {@link #drain()} and reported as analytics events, one per non-empty bucket.
+ */
+class PerformanceMonitor {
+
+    /**
+     * Upper bounds of the histogram buckets, the last bucket has no upper bound.
+     */
+    static final long[] BUCKET_BOUNDS_MILLIS = { 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+    enum Outcome {
+        SUCCESS,
+        FAILURE,
+        CANCELED
+    }
+
+    interface NetworkTypeSource {
+        /**
+         * @return The type of the active network, or {@code null} if it is not known.
+         */
+        String getNetworkType();
+    }
+
+    private final NetworkTypeSource mNetworkTypeSource;
+    private final Map<String, Integer> mCounts = new LinkedHashMap<String, Integer>();
+    private final Map<String, Span> mAppSwitches = new HashMap<String, Span>();
+
+    PerformanceMonitor(NetworkTypeSource networkTypeSource) {
+        mNetworkTypeSource = networkTypeSource;
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @param operation The name of the operation, e.g. {@code "tokenize"}.
+     * @return The {@link Span} to finish when the operation completes.
+     */
+    Span start(String operation) {
+        return new Span(operation);
+    }
+
+    /**
+     * Starts timing an app switch. An app switch of the same kind that was never finished, for
+     * example because the user left the other app with back, is discarded.
+     *
+     * @param appSwitch The name of the app switch, e.g. {@code "paypal"}.
+     */
+    synchronized void startAppSwitch(String appSwitch) {
+        mAppSwitches.put(appSwitch, new Span("app-switch." + appSwitch));
+    }
+
+    /**
+     * Finishes timing an app switch started with {@link #startAppSwitch(String)}. Does nothing
+     * if no app switch of this kind was started.
+     */
+    void finishAppSwitch(String appSwitch, Outcome outcome) {
+        Span span;
+        synchronized (this) {
+            span = mAppSwitches.remove(appSwitch);
+        }
+
+        if (span != null) {
+            span.finish(outcome);
+        }
+    }
+
+    /**
+     * Removes the recorded timings.
+     *
+     * @return One analytics event fragment per non-empty histogram bucket, in the form
+     *         {@code perf.<operation>.<outcome>.<network type>.<bucket>.x<count>}, e.g.
+     *         {@code perf.tokenize.success.wifi.250-500ms.x3}.
+     */
+    synchronized List<String> drain() {
+        List<String> events = new ArrayList<String>(mCounts.size());
+        for (Map.Entry<String, Integer> entry : mCounts.entrySet()) {
+            events.add("perf." + entry.getKey() + ".x" + entry.getValue());
+        }
+        mCounts.clear();
+        return events;
+    }
+
+    private void record(String operation, Outcome outcome, long durationMillis) {
+        String networkType = mNetworkTypeSource.getNetworkType();
+        String key = operation + "." + outcome.name().toLowerCase(Locale.US) + "." +
+                (TextUtils.isEmpty(networkType) ? "unknown" : networkType.toLowerCase(Locale.US)) +
+                "." + bucketFor(durationMillis);
+
+        synchronized (this) {
+            Integer count = mCounts.get(key);
+            mCounts.put(key, (count == null) ? 1 : count + 1);
+        }
+    }
+
+    static String bucketFor(long durationMillis) {
+        long lowerBound = 0;
+        for (long upperBound : BUCKET_BOUNDS_MILLIS) {
+            if (durationMillis < upperBound) {
+                return lowerBound + "-" + upperBound + "ms";
+            }
+            lowerBound = upperBound;
+        }
+        return lowerBound + "ms+";
+    }
+
+    /**
+     * A running operation. Only the first call to one of the finish methods is recorded.
+     */
+    class Span {
+
+        private final String mOperation;
+        private final long mStartedAt;
+        private boolean mFinished;
+
+        private Span(String operation) {
+            mOperation = operation;
+            mStartedAt = SystemClock.elapsedRealtime();
+        }
+
+        /**
+         * Records the operation as {@link Outcome#SUCCESS} or {@link Outcome#FAILURE}.
+         */
+        void finish(boolean succeeded) {
+            finish(succeeded ? Outcome.SUCCESS : Outcome.FAILURE);
+        }
+
+        void finish(Outcome outcome) {
+            synchronized (this) {
+                if (mFinished) {
+                    return;
+                }
+                mFinished = true;
+            }
+
+            record(mOperation, outcome, SystemClock.elapsedRealtime() - mStartedAt);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.braintreepayments.api;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.braintreepayments.api.internal.BoundedExecutor;
+import com.braintreepayments.api.internal.CancellationToken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Handle to an asynchronous {@link Braintree} request.
+ *
+ * The result of the request is still delivered to the {@link Braintree} listeners. The handle
+ * can be used to cancel the request, which removes it from the queue or aborts its network
+ * request, and to be notified when it has finished. Once a request is cancelled no further
+ * results or errors are posted to listeners for it.
+ */
+public class RequestHandle implements Future<Void> {
+
+    /**
+     * Notified on the main thread when a request completes, fails or is cancelled.
+     */
+    public interface CompletionListener {
+        void onComplete(RequestHandle requestHandle);
+    }
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final CancellationToken mCancellationToken = new CancellationToken();
+    private final List<CompletionListener> mCompletionListeners =
+            new ArrayList<CompletionListener>();
+    private Future<?> mFuture;
+    private boolean mCompleted;
+
+    RequestHandle() {}
+
+    /**
+     * Cancels the request. A request that is still queued will not run, a request that is
+     * running has its network request aborted.
+     *
+     * @return {@code false} if the request had already completed, {@code true} otherwise.
+     */
+    public boolean cancel() {
+        Future<?> future;
+        synchronized (this) {
+            if (mCompleted) {
+                return false;
+            }
+            future = mFuture;
+        }
+
+        mCancellationToken.cancel();
+        if (future != null) {
+            future.cancel(true);
+        }
+        complete();
+        return true;
+    }
+
+    /**
+     * Same as {@link #cancel()}, a running request is always aborted.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return cancel();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return mCancellationToken.isCancelled();
+    }
+
+    /**
+     * @return {@code true} if the request has completed, failed or was cancelled.
+     */
+    @Override
+    public synchronized boolean isDone() {
+        return mCompleted;
+    }
+
+    @Override
+    public Void get() throws InterruptedException, ExecutionException {
+        getFuture().get();
+        return null;
+    }
+
+    @Override
+    public Void get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        getFuture().get(timeout, unit);
+        return null;
+    }
+
+    /**
+     * Adds a {@link CompletionListener}. If the request has already finished the listener is
+     * notified right away.
+     */
+    public void addCompletionListener(final CompletionListener listener) {
+        synchronized (this) {
+            if (!mCompleted) {
+                mCompletionListeners.add(listener);
+                return;
+            }
+        }
+
+        notifyListener(listener);
+    }
+
+    public synchronized void removeCompletionListener(CompletionListener listener) {
+        mCompletionListeners.remove(listener);
+    }
+
+    /**
+     * @return {@code runnable} wrapped to run with this handle's {@link CancellationToken}
+     *         installed and to complete the handle when it returns.
+     */
+    Runnable wrap(Runnable runnable) {
+        return wrap(runnable, null);
+    }
+
+    /**
+     * @return {@code runnable} wrapped to run with this handle's {@link CancellationToken}
+     *         installed and to complete the handle when it returns. If the executor rejects it,
+     *         the handle is completed and {@code rejectionListener} is notified.
+     */
+    Runnable wrap(Runnable runnable, BoundedExecutor.RejectionListener rejectionListener) {
+        return new WrappedTask(runnable, rejectionListener);
+    }
+
+    synchronized void setFuture(Future<?> future) {
+        mFuture = future;
+        if (isCancelled()) {
+            future.cancel(true);
+        }
+    }
+
+    private synchronized Future<?> getFuture() {
+        return mFuture;
+    }
+
+    private void complete() {
+        List<CompletionListener> listeners;
+        synchronized (this) {
+            if (mCompleted) {
+                return;
+            }
+            mCompleted = true;
+            listeners = new ArrayList<CompletionListener>(mCompletionListeners);
+            mCompletionListeners.clear();
+        }
+
+        for (CompletionListener listener : listeners) {
+            notifyListener(listener);
+        }
+    }
+
+    private void notifyListener(final CompletionListener listener) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onComplete(RequestHandle.this);
+            }
+        });
+    }
+
+    private class WrappedTask implements Runnable, BoundedExecutor.RejectionListener {
+
+        private final Runnable mRunnable;
+        private final BoundedExecutor.RejectionListener mRejectionListener;
+
+        WrappedTask(Runnable runnable, BoundedExecutor.RejectionListener rejectionListener) {
+            mRunnable = runnable;
+            mRejectionListener = rejectionListener;
+        }
+
+        @Override
+        public void run() {
+            if (isCancelled()) {
+                return;
+            }
+
+            CancellationToken.setCurrent(mCancellationToken);
+            try {
+                mRunnable.run();
+            } finally {
+                CancellationToken.setCurrent(null);
+                complete();
+            }
+        }
+
+        @Override
+        public void onRejected(RejectedExecutionException e) {
+            if (!isCancelled() && mRejectionListener != null) {
+                mRejectionListener.onRejected(e);
+            }
+            complete();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.braintreepayments.api;
+
+import com.braintreepayments.api.exceptions.ErrorWithResponse;
+import com.braintreepayments.api.models.PaymentMethod;
+
+/**
+ * The outcome of tokenizing one {@link com.braintreepayments.api.models.PaymentMethod.Builder}
+ * of a {@link BraintreeApi#tokenizeAll(java.util.List)} batch: either a nonce or the error that
+ * prevented tokenization.
+ */
+public class TokenizationResult {
+
+    /**
+     * Notified each time a {@link TokenizationResult} of a batch is available. Called on the
+     * thread that tokenized the item, results arrive in the order they complete.
+     */
+    public interface ProgressListener {
+        /**
+         * @param result The result that just became available.
+         * @param completed The number of results available so far, including {@code result}.
+         * @param total The number of items in the batch.
+         */
+        void onTokenizationProgress(TokenizationResult result, int completed, int total);
+    }
+
+    private final int mIndex;
+    private final PaymentMethod.Builder mPaymentMethodBuilder;
+    private final String mNonce;
+    private final Exception mException;
+
+    private TokenizationResult(int index, PaymentMethod.Builder paymentMethodBuilder,
+            String nonce, Exception exception) {
+        mIndex = index;
+        mPaymentMethodBuilder = paymentMethodBuilder;
+        mNonce = nonce;
+        mException = exception;
+    }
+
+    static TokenizationResult success(int index, PaymentMethod.Builder paymentMethodBuilder,
+            String nonce) {
+        return new TokenizationResult(index, paymentMethodBuilder, nonce, null);
+    }
+
+    static TokenizationResult failure(int index, PaymentMethod.Builder paymentMethodBuilder,
+            Exception exception) {
+        return new TokenizationResult(index, paymentMethodBuilder, null, exception);
+    }
+
+    /**
+     * @return The position of the item in the list passed to tokenizeAll.
+     */
+    public int getIndex() {
+        return mIndex;
+    }
+
+    public PaymentMethod.Builder getPaymentMethodBuilder() {
+        return mPaymentMethodBuilder;
+    }
+
+    /**
+     * @return {@code true} if the item was tokenized and {@link #getNonce()} is set.
+     */
+    public boolean isSuccess() {
+        return mException == null;
+    }
+
+    /**
+     * @return The nonce, or {@code null} if tokenization failed.
+     */
+    public String getNonce() {
+        return mNonce;
+    }
+
+    /**
+     * @return The validation error returned by the gateway, or {@code null} if tokenization
+     *         succeeded or failed for another reason.
+     */
+    public ErrorWithResponse getErrorWithResponse() {
+        return (mException instanceof ErrorWithResponse) ? (ErrorWithResponse) mException : null;
+    }
+
+    /**
+     * @return The {@link ErrorWithResponse}, {@link com.braintreepayments.api.exceptions.BraintreeException}
+     *         or other exception that prevented tokenization, or {@code null} if it succeeded.
+     */
+    public Exception getException() {
+        return mException;
+    }
+}
@@ -0,0 +1,416 @@
+package com.braintreepayments.api;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import com.braintreepayments.api.exceptions.ServerException;
+import com.braintreepayments.api.models.AndroidPayCard;
+import com.braintreepayments.api.models.Card;
+import com.braintreepayments.api.models.ClientToken;
+import com.braintreepayments.api.models.CoinbaseAccount;
+import com.braintreepayments.api.models.PayPalAccount;
+import com.braintreepayments.api.models.PaymentMethod;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encrypted disk cache of the customer's vaulted payment methods, so Drop-In can show them while
+ * the current list is fetched.
+ *
+ * Only the fields needed to display a payment method are stored: its type, description, the last
+ * two digits of cards and the email of PayPal and Coinbase accounts. Nonces are never stored, so
+ * payment methods read from this cache can not be used to create transactions.
+ *
+ * Entries are kept per customer and merchant, encrypted with AES and authenticated with an HMAC
+ * using a key generated on the device. Entries older than {@link #MAX_ENTRY_AGE_MILLIS} are not
+ * used. The key is kept in the app's files directory, apart from the entries in the cache
+ * directory, so the entries alone can not be read from a copy of the cache. This is obfuscation
+ * only: the key is stored in plain text on the same device, and it does not protect the entries
+ * from anyone who can read the app's private storage.
+ */
+class VaultCache {
+
+    static final long MAX_ENTRY_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    private static final String DIRECTORY = "braintree-vault";
+    private static final String KEY_FILE = "braintree-vault.key";
+    private static final String UTF_8 = "UTF-8";
+    private static final String CIPHER = "AES/CBC/PKCS5Padding";
+    private static final String MAC = "HmacSHA256";
+    private static final int KEY_LENGTH = 16;
+    private static final int IV_LENGTH = 16;
+    private static final int MAC_LENGTH = 32;
+    private static final String CUSTOMER_ID_PARAMETER = "customer_id=";
+    private static final Gson GSON = new Gson();
+    private static final Object LOCK = new Object();
+
+    private final File mDirectory;
+    private final File mKeyFile;
+    private byte[] mKey;
+
+    VaultCache(Context context) {
+        this(new File(context.getCacheDir(), DIRECTORY),
+                new File(context.getFilesDir(), KEY_FILE));
+    }
+
+    VaultCache(File directory, File keyFile) {
+        mDirectory = directory;
+        mKeyFile = keyFile;
+    }
+
+    /**
+     * @param clientToken The client token of the session.
+     * @return The key entries of the customer the client token was generated for are stored
+     *         under, or {@code null} if the client token is not for a customer.
+     */
+    static String customerKey(ClientToken clientToken) {
+        String fingerprint = clientToken.getAuthorizationFingerprint();
+        if (fingerprint == null || clientToken.getConfigUrl() == null) {
+            return null;
+        }
+
+        int parametersStart = fingerprint.indexOf('|');
+        if (parametersStart < 0) {
+            return null;
+        }
+
+        for (String parameter : fingerprint.substring(parametersStart + 1).split("&")) {
+            if (parameter.startsWith(CUSTOMER_ID_PARAMETER) &&
+                    parameter.length() > CUSTOMER_ID_PARAMETER.length()) {
+                return clientToken.getConfigUrl() + "#" +
+                        parameter.substring(CUSTOMER_ID_PARAMETER.length());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param customerKey The key returned by {@link #customerKey(ClientToken)}.
+     * @return The cached payment methods of the customer, without nonces, or an empty list if
+     *         there is no usable entry.
+     */
+    List<PaymentMethod> get(String customerKey) {
+        synchronized (LOCK) {
+            byte[] key = getKey();
+            if (key == null) {
+                return Collections.emptyList();
+            }
+
+            File file = fileFor(key, customerKey);
+            if (!file.exists()) {
+                return Collections.emptyList();
+            }
+
+            try {
+                Entry entry = GSON.fromJson(new String(decrypt(key, readFile(file)), UTF_8),
+                        Entry.class);
+                if (entry != null && customerKey.equals(entry.mCustomerKey) &&
+                        entry.getAgeMillis() < MAX_ENTRY_AGE_MILLIS) {
+                    return entry.getPaymentMethods();
+                }
+            } catch (IOException ignored) {
+                // fall through and remove the entry
+            } catch (GeneralSecurityException ignored) {
+                // fall through and remove the entry
+            } catch (JsonParseException ignored) {
+                // fall through and remove the entry
+            }
+
+            file.delete();
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Stores the display fields of {@code paymentMethods}, replacing the customer's entry.
+     */
+    void put(String customerKey, List<PaymentMethod> paymentMethods) {
+        Entry entry = new Entry(customerKey, paymentMethods);
+        synchronized (LOCK) {
+            byte[] key = getKey();
+            if (key == null || (!mDirectory.exists() && !mDirectory.mkdirs())) {
+                return;
+            }
+
+            File file = fileFor(key, customerKey);
+            File temporaryFile = new File(mDirectory, file.getName() + ".tmp");
+            try {
+                writeFile(temporaryFile, encrypt(key, GSON.toJson(entry).getBytes(UTF_8)));
+                if (!temporaryFile.renameTo(file)) {
+                    temporaryFile.delete();
+                }
+            } catch (IOException e) {
+                temporaryFile.delete();
+            } catch (GeneralSecurityException e) {
+                temporaryFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Removes all cached payment methods and the key they were encrypted with.
+     */
+    void clear() {
+        synchronized (LOCK) {
+            File[] files = mDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            mKeyFile.delete();
+            mKey = null;
+        }
+    }
+
+    /**
+     * @return The AES key followed by the HMAC key, created if there is none yet, or
+     *         {@code null} if it could not be read or stored.
+     */
+    private byte[] getKey() {
+        if (mKey != null) {
+            return mKey;
+        }
+
+        try {
+            if (mKeyFile.exists()) {
+                byte[] key = readFile(mKeyFile);
+                if (key.length == KEY_LENGTH * 2) {
+                    mKey = key;
+                    return mKey;
+                }
+            }
+
+            byte[] key = new byte[KEY_LENGTH * 2];
+            new SecureRandom().nextBytes(key);
+            File parent = mKeyFile.getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                return null;
+            }
+            writeFile(mKeyFile, key);
+
+            // entries encrypted with a previous key can not be read anymore
+            File[] files = mDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+
+            mKey = key;
+            return mKey;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private File fileFor(byte[] key, String customerKey) {
+        try {
+            StringBuilder name = new StringBuilder();
+            for (byte b : mac(key, customerKey.getBytes(UTF_8))) {
+                name.append(String.format(Locale.US, "%02x", b));
+            }
+            return new File(mDirectory, name.toString());
+        } catch (GeneralSecurityException e) {
+            return new File(mDirectory, Integer.toHexString(customerKey.hashCode()));
+        } catch (UnsupportedEncodingException e) {
+            return new File(mDirectory, Integer.toHexString(customerKey.hashCode()));
+        }
+    }
+
+    private static byte[] encrypt(byte[] key, byte[] plaintext) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_LENGTH];
+        new SecureRandom().nextBytes(iv);
+
+        Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(key, 0, KEY_LENGTH, "AES"),
+                new IvParameterSpec(iv));
+        byte[] ciphertext = cipher.doFinal(plaintext);
+
+        byte[] data = new byte[IV_LENGTH + ciphertext.length + MAC_LENGTH];
+        System.arraycopy(iv, 0, data, 0, IV_LENGTH);
+        System.arraycopy(ciphertext, 0, data, IV_LENGTH, ciphertext.length);
+        byte[] mac = mac(key, Arrays.copyOf(data, IV_LENGTH + ciphertext.length));
+        System.arraycopy(mac, 0, data, IV_LENGTH + ciphertext.length, MAC_LENGTH);
+        return data;
+    }
+
+    private static byte[] decrypt(byte[] key, byte[] data) throws GeneralSecurityException {
+        if (data.length < IV_LENGTH + MAC_LENGTH) {
+            throw new GeneralSecurityException("Entry is too short");
+        }
+
+        int macStart = data.length - MAC_LENGTH;
+        byte[] expectedMac = mac(key, Arrays.copyOf(data, macStart));
+        if (!MessageDigest.isEqual(expectedMac, Arrays.copyOfRange(data, macStart, data.length))) {
+            throw new GeneralSecurityException("Entry failed authentication");
+        }
+
+        Cipher cipher = Cipher.getInstance(CIPHER);
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(key, 0, KEY_LENGTH, "AES"),
+                new IvParameterSpec(data, 0, IV_LENGTH));
+        return cipher.doFinal(data, IV_LENGTH, macStart - IV_LENGTH);
+    }
+
+    private static byte[] mac(byte[] key, byte[] data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(MAC);
+        mac.init(new SecretKeySpec(key, KEY_LENGTH, KEY_LENGTH, MAC));
+        return mac.doFinal(data);
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(file);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            closeQuietly(inputStream);
+        }
+    }
+
+    private static void writeFile(File file, byte[] data) throws IOException {
+        FileOutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(file);
+            outputStream.write(data);
+            outputStream.close();
+            outputStream = null;
+        } finally {
+            closeQuietly(outputStream);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * The display fields of a customer's payment methods.
+     */
+    private static class Entry {
+
+        @SerializedName("customerKey") private String mCustomerKey;
+        @SerializedName("savedAt") private long mSavedAt;
+        @SerializedName("paymentMethods") private List<Record> mRecords;
+
+        Entry(String customerKey, List<PaymentMethod> paymentMethods) {
+            mCustomerKey = customerKey;
+            mSavedAt = System.currentTimeMillis();
+            mRecords = new ArrayList<Record>();
+            for (PaymentMethod paymentMethod : paymentMethods) {
+                Record record = Record.from(paymentMethod);
+                if (record != null) {
+                    mRecords.add(record);
+                }
+            }
+        }
+
+        long getAgeMillis() {
+            return System.currentTimeMillis() - mSavedAt;
+        }
+
+        /**
+         * @return The payment methods rebuilt from their display fields. They have no nonce.
+         */
+        List<PaymentMethod> getPaymentMethods() throws ServerException {
+            JsonArray paymentMethods = new JsonArray();
+            if (mRecords != null) {
+                for (Record record : mRecords) {
+                    paymentMethods.add(record.toJson());
+                }
+            }
+
+            JsonObject response = new JsonObject();
+            response.add("paymentMethods", paymentMethods);
+            return Collections.unmodifiableList(
+                    PaymentMethod.parsePaymentMethods(response.toString()));
+        }
+    }
+
+    private static class Record {
+
+        @SerializedName("type") private String mType;
+        @SerializedName("description") private String mDescription;
+        @SerializedName("cardType") private String mCardType;
+        @SerializedName("lastTwo") private String mLastTwo;
+        @SerializedName("email") private String mEmail;
+
+        static Record from(PaymentMethod paymentMethod) {
+            Record record = new Record();
+            record.mDescription = paymentMethod.getDescription();
+            if (paymentMethod instanceof Card) {
+                record.mType = "CreditCard";
+                record.mCardType = paymentMethod.getTypeLabel();
+                record.mLastTwo = ((Card) paymentMethod).getLastTwo();
+            } else if (paymentMethod instanceof AndroidPayCard) {
+                record.mType = "AndroidPayCard";
+                record.mLastTwo = ((AndroidPayCard) paymentMethod).getLastTwo();
+            } else if (paymentMethod instanceof PayPalAccount) {
+                record.mType = "PayPalAccount";
+                record.mEmail = ((PayPalAccount) paymentMethod).getEmail();
+            } else if (paymentMethod instanceof CoinbaseAccount) {
+                record.mType = "CoinbaseAccount";
+                record.mEmail = ((CoinbaseAccount) paymentMethod).getEmail();
+            } else {
+                return null;
+            }
+            return record;
+        }
+
+        JsonObject toJson() {
+            JsonObject details = new JsonObject();
+            addIfNotEmpty(details, "cardType", mCardType);
+            addIfNotEmpty(details, "lastTwo", mLastTwo);
+            addIfNotEmpty(details, "email", mEmail);
+
+            JsonObject paymentMethod = new JsonObject();
+            paymentMethod.addProperty("type", mType);
+            addIfNotEmpty(paymentMethod, "description", mDescription);
+            paymentMethod.add("details", details);
+            return paymentMethod;
+        }
+
+        private static void addIfNotEmpty(JsonObject object, String name, String value) {
+            if (!TextUtils.isEmpty(value)) {
+                object.addProperty(name, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.braintreepayments.api.exceptions;
+
+/**
+ * Thrown when an operation did not complete before its deadline.
+ *
+ * @see com.braintreepayments.api.Braintree#setOperationTimeout(com.braintreepayments.api.Braintree.Operation, long)
+ */
+public class DeadlineExceededException extends UnexpectedException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException() {
+        super();
+    }
+}
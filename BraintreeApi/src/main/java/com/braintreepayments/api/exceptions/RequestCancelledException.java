@@ -0,0 +1,16 @@
+package com.braintreepayments.api.exceptions;
+
+/**
+ * Thrown when a request is abandoned because it was cancelled.
+ *
+ * @see com.braintreepayments.api.RequestHandle#cancel()
+ */
+public class RequestCancelledException extends BraintreeException {
+    public RequestCancelledException(String message) {
+        super(message);
+    }
+
+    public RequestCancelledException() {
+        super();
+    }
+}
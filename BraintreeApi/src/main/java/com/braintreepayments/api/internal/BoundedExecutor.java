@@ -0,0 +1,236 @@
+package com.braintreepayments.api.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link java.util.concurrent.ExecutorService} that runs at most a fixed number of its tasks at
+ * the same time on the threads of {@link #getTargetExecutor()}, by default
+ * {@link BraintreeExecutors#getExecutor()}. Tasks are started in submission order. It holds no
+ * thread of its own while it has nothing to run.
+ *
+ * If the target executor rejects a task, that task and every queued task are failed: their
+ * futures throw an {@link java.util.concurrent.ExecutionException} caused by the
+ * {@link RejectedExecutionException}, and tasks that implement {@link RejectionListener} are
+ * notified.
+ */
+public class BoundedExecutor extends AbstractExecutorService {
+
+    /**
+     * Implemented by tasks that need to know when they will not run because the target executor
+     * rejected them.
+     */
+    public interface RejectionListener {
+        void onRejected(RejectedExecutionException e);
+    }
+
+    private final int mMaxConcurrency;
+    private final ArrayDeque<QueuedTask> mTasks = new ArrayDeque<QueuedTask>();
+    private int mRunning;
+    private boolean mShutdown;
+
+    /**
+     * @param maxConcurrency The maximum number of tasks to run at the same time.
+     */
+    public BoundedExecutor(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        mMaxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * @return The maximum number of tasks run at the same time.
+     */
+    public int getMaxConcurrency() {
+        return mMaxConcurrency;
+    }
+
+    /**
+     * @return The number of tasks that are queued or running.
+     */
+    public synchronized int getPendingCount() {
+        return mRunning + mTasks.size();
+    }
+
+    /**
+     * @return The {@link Executor} tasks are run on.
+     */
+    protected Executor getTargetExecutor() {
+        return BraintreeExecutors.getExecutor();
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        QueuedTask queuedTask = new QueuedTask(task);
+        synchronized (this) {
+            if (mShutdown) {
+                throw new RejectedExecutionException("Executor has been shut down");
+            }
+            mTasks.offer(queuedTask);
+        }
+
+        RejectedExecutionException rejection = scheduleNext();
+        if (rejection != null && queuedTask.mRejected && !(task instanceof Task)) {
+            // tasks from submit() have already been failed, plain tasks can only be refused here
+            throw rejection;
+        }
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new Task<T>(runnable, value);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new Task<T>(callable);
+    }
+
+    private void finished() {
+        synchronized (this) {
+            mRunning--;
+        }
+        // rejected tasks have been failed, there is nobody to throw to on this thread
+        scheduleNext();
+    }
+
+    /**
+     * Starts queued tasks while there is capacity. If the target executor rejects a task, it and
+     * all queued tasks are failed.
+     *
+     * @return The rejection, or {@code null} if no task was rejected.
+     */
+    private RejectedExecutionException scheduleNext() {
+        List<QueuedTask> rejected = null;
+        RejectedExecutionException rejection = null;
+        synchronized (this) {
+            while (mRunning < mMaxConcurrency && !mTasks.isEmpty()) {
+                QueuedTask next = mTasks.poll();
+                try {
+                    getTargetExecutor().execute(next);
+                    mRunning++;
+                } catch (RejectedExecutionException e) {
+                    rejected = new ArrayList<QueuedTask>(mTasks.size() + 1);
+                    rejected.add(next);
+                    rejected.addAll(mTasks);
+                    mTasks.clear();
+                    rejection = e;
+                    break;
+                }
+            }
+
+            if (mRunning == 0) {
+                notifyAll();
+            }
+        }
+
+        if (rejected != null) {
+            for (QueuedTask task : rejected) {
+                task.reject(rejection);
+            }
+        }
+        return rejection;
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        mShutdown = true;
+    }
+
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+        mShutdown = true;
+        List<Runnable> pending = new ArrayList<Runnable>(mTasks.size());
+        for (QueuedTask task : mTasks) {
+            pending.add(task.mTask);
+        }
+        mTasks.clear();
+        notifyAll();
+        return pending;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+        return mShutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+        return mShutdown && mRunning == 0 && mTasks.isEmpty();
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long remaining = unit.toMillis(timeout);
+        long end = System.currentTimeMillis() + remaining;
+        while (!isTerminated() && remaining > 0) {
+            wait(remaining);
+            remaining = end - System.currentTimeMillis();
+        }
+
+        return isTerminated();
+    }
+
+    private class QueuedTask implements Runnable {
+
+        private final Runnable mTask;
+        private volatile boolean mRejected;
+
+        QueuedTask(Runnable task) {
+            mTask = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                mTask.run();
+            } finally {
+                finished();
+            }
+        }
+
+        void reject(RejectedExecutionException e) {
+            mRejected = true;
+            if (mTask instanceof Task) {
+                ((Task<?>) mTask).reject(e);
+            } else if (mTask instanceof RejectionListener) {
+                ((RejectionListener) mTask).onRejected(e);
+            }
+        }
+    }
+
+    /**
+     * A {@link FutureTask} that can be failed without running it.
+     */
+    private static class Task<T> extends FutureTask<T> {
+
+        private final Object mSource;
+
+        Task(Runnable runnable, T value) {
+            super(runnable, value);
+            mSource = runnable;
+        }
+
+        Task(Callable<T> callable) {
+            super(callable);
+            mSource = callable;
+        }
+
+        void reject(RejectedExecutionException e) {
+            setException(e);
+            if (mSource instanceof RejectionListener) {
+                ((RejectionListener) mSource).onRejected(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.braintreepayments.api.internal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads shared by the whole SDK.
+ *
+ * Background work runs on a single bounded pool of named threads instead of an executor per call
+ * or per {@link com.braintreepayments.api.Braintree} instance. Work a user is waiting on runs on a
+ * separate pool of {@link #INTERACTIVE_THREADS} threads, so it never queues behind analytics or
+ * other background work. Idle threads are stopped after {@link #KEEP_ALIVE_SECONDS}, so an idle
+ * SDK holds no threads. Host apps that manage their own threads can supply executors with
+ * {@link #setExecutor(ExecutorService)}, {@link #setInteractiveExecutor(ExecutorService)} and
+ * {@link #setScheduler(ScheduledExecutorService)}.
+ */
+public final class BraintreeExecutors {
+
+    public static final int MAX_THREADS = 6;
+    public static final int INTERACTIVE_THREADS = 2;
+    public static final int HEDGE_THREADS = 4;
+    public static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static ExecutorService sDefaultExecutor;
+    private static ExecutorService sDefaultInteractiveExecutor;
+    private static ExecutorService sDefaultHedgeExecutor;
+    private static ScheduledExecutorService sDefaultScheduler;
+    private static ExecutorService sExecutor;
+    private static ExecutorService sInteractiveExecutor;
+    private static ExecutorService sHedgeExecutor;
+    private static ScheduledExecutorService sScheduler;
+
+    private BraintreeExecutors() {}
+
+    /**
+     * @return The {@link ExecutorService} background work is run on.
+     */
+    public static synchronized ExecutorService getExecutor() {
+        if (sExecutor != null) {
+            return sExecutor;
+        }
+
+        if (sDefaultExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new NamedThreadFactory("braintree-worker-"));
+            executor.allowCoreThreadTimeOut(true);
+            sDefaultExecutor = executor;
+        }
+
+        return sDefaultExecutor;
+    }
+
+    /**
+     * @return The {@link ExecutorService} work a user is waiting on is run on, such as
+     *         tokenization. It does not share threads with {@link #getExecutor()}.
+     */
+    public static synchronized ExecutorService getInteractiveExecutor() {
+        if (sInteractiveExecutor != null) {
+            return sInteractiveExecutor;
+        }
+
+        if (sDefaultInteractiveExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(INTERACTIVE_THREADS,
+                    INTERACTIVE_THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    new NamedThreadFactory("braintree-interactive-"));
+            executor.allowCoreThreadTimeOut(true);
+            sDefaultInteractiveExecutor = executor;
+        }
+
+        return sDefaultInteractiveExecutor;
+    }
+
+    /**
+     * @return The {@link ExecutorService} hedged HTTP requests are run on. It has at most
+     *         {@link #HEDGE_THREADS} threads and does not queue, a request it has no thread for is
+     *         rejected with a {@link java.util.concurrent.RejectedExecutionException}. It does not
+     *         share threads with {@link #getExecutor()}, whose threads wait on these requests.
+     */
+    public static synchronized ExecutorService getHedgeExecutor() {
+        if (sHedgeExecutor != null) {
+            return sHedgeExecutor;
+        }
+
+        if (sDefaultHedgeExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(HEDGE_THREADS, HEDGE_THREADS,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                    new NamedThreadFactory("braintree-hedge-"));
+            executor.allowCoreThreadTimeOut(true);
+            sDefaultHedgeExecutor = executor;
+        }
+
+        return sDefaultHedgeExecutor;
+    }
+
+    /**
+     * @return The {@link ScheduledExecutorService} delayed work and timers are run on. Scheduled
+     *         tasks must be short, longer work should be handed to {@link #getExecutor()}.
+     */
+    public static synchronized ScheduledExecutorService getScheduler() {
+        if (sScheduler != null) {
+            return sScheduler;
+        }
+
+        if (sDefaultScheduler == null) {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                    new NamedThreadFactory("braintree-scheduler-"));
+            scheduler.setKeepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+            scheduler.allowCoreThreadTimeOut(true);
+            sDefaultScheduler = scheduler;
+        }
+
+        return sDefaultScheduler;
+    }
+
+    /**
+     * Runs SDK background work on {@code executor} instead of the SDK's own pool. The executor is
+     * not shut down by the SDK.
+     *
+     * @param executor The {@link ExecutorService} to use, {@code null} to use the SDK's pool.
+     */
+    public static synchronized void setExecutor(ExecutorService executor) {
+        sExecutor = executor;
+    }
+
+    /**
+     * Runs work a user is waiting on on {@code executor} instead of the SDK's own interactive
+     * pool. The executor should not be shared with long running work, or tokenization will queue
+     * behind it. The executor is not shut down by the SDK.
+     *
+     * @param executor The {@link ExecutorService} to use, {@code null} to use the SDK's pool.
+     */
+    public static synchronized void setInteractiveExecutor(ExecutorService executor) {
+        sInteractiveExecutor = executor;
+    }
+
+    /**
+     * Runs hedged HTTP requests on {@code executor} instead of the SDK's own hedge pool. The
+     * executor must not be {@link #getExecutor()} or {@link #getInteractiveExecutor()}, since
+     * their threads wait on these requests. The executor is not shut down by the SDK.
+     *
+     * @param executor The {@link ExecutorService} to use, {@code null} to use the SDK's pool.
+     */
+    public static synchronized void setHedgeExecutor(ExecutorService executor) {
+        sHedgeExecutor = executor;
+    }
+
+    /**
+     * Runs SDK timers and delayed work on {@code scheduler} instead of the SDK's own scheduler.
+     * The scheduler is not shut down by the SDK.
+     *
+     * @param scheduler The {@link ScheduledExecutorService} to use, {@code null} to use the SDK's
+     *        scheduler.
+     */
+    public static synchronized void setScheduler(ScheduledExecutorService scheduler) {
+        sScheduler = scheduler;
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String mPrefix;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            mPrefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, mPrefix + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
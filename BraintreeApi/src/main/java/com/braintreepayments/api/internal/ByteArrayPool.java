@@ -0,0 +1,64 @@
+package com.braintreepayments.api.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads response bodies into thread local scratch buffers so that reading a body allocates a
+ * single array of the body's size instead of a new buffer and a growing copy for every response.
+ * Buffers larger than {@link #MAX_RETAINED_BUFFER_SIZE} are not kept after the read.
+ */
+/* package */ final class ByteArrayPool {
+
+    static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+    static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<byte[]> sBuffers = new ThreadLocal<byte[]>();
+
+    private ByteArrayPool() {}
+
+    /**
+     * Reads {@code in} to the end. The stream is not closed.
+     *
+     * @param in The stream to read.
+     * @param expectedLength The expected number of bytes, from the Content-Length header, or
+     *        {@code -1} if it is not known.
+     * @return The bytes read, in an array of exactly their length.
+     */
+    static byte[] readFully(InputStream in, int expectedLength) throws IOException {
+        // one spare byte lets the end of the stream be seen without growing the buffer
+        byte[] buffer = acquire(expectedLength < 0 ? DEFAULT_BUFFER_SIZE : expectedLength + 1);
+        int length = 0;
+        try {
+            for (int count; ; length += count) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                count = in.read(buffer, length, buffer.length - length);
+                if (count == -1) {
+                    break;
+                }
+            }
+
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private static byte[] acquire(int minimumSize) {
+        byte[] buffer = sBuffers.get();
+        if (buffer == null || buffer.length < minimumSize) {
+            return new byte[Math.max(minimumSize, DEFAULT_BUFFER_SIZE)];
+        }
+
+        return buffer;
+    }
+
+    private static void release(byte[] buffer) {
+        if (buffer.length <= MAX_RETAINED_BUFFER_SIZE) {
+            sBuffers.set(buffer);
+        }
+    }
+}
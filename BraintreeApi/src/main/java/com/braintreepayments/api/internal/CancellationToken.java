@@ -0,0 +1,85 @@
+package com.braintreepayments.api.internal;
+
+import com.braintreepayments.api.exceptions.RequestCancelledException;
+
+import java.net.HttpURLConnection;
+
+/**
+ * Cancels the request being made on the thread the token is installed on.
+ *
+ * {@link HttpRequest} attaches its connection to the current thread's token, cancelling the token
+ * disconnects that connection, which aborts a blocked connect or read.
+ */
+public class CancellationToken {
+
+    public static final String CANCELLED_MESSAGE = "Request was cancelled";
+
+    private static final ThreadLocal<CancellationToken> sCurrent =
+            new ThreadLocal<CancellationToken>();
+
+    private boolean mCancelled = false;
+    private HttpURLConnection mConnection;
+
+    /**
+     * @return The {@link CancellationToken} installed on the calling thread, or {@code null}.
+     */
+    public static CancellationToken current() {
+        return sCurrent.get();
+    }
+
+    /**
+     * Installs a {@link CancellationToken} on the calling thread.
+     *
+     * @param token The token to install, {@code null} to remove the current token.
+     */
+    public static void setCurrent(CancellationToken token) {
+        if (token == null) {
+            sCurrent.remove();
+        } else {
+            sCurrent.set(token);
+        }
+    }
+
+    /**
+     * Cancels the token and disconnects the connection of the request in flight, if any.
+     */
+    public void cancel() {
+        HttpURLConnection connection;
+        synchronized (this) {
+            mCancelled = true;
+            connection = mConnection;
+            mConnection = null;
+        }
+
+        if (connection != null) {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * @return {@code true} if {@link #cancel()} has been called.
+     */
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * @throws RequestCancelledException if the token has been cancelled.
+     */
+    public synchronized void check() throws RequestCancelledException {
+        if (mCancelled) {
+            throw new RequestCancelledException(CANCELLED_MESSAGE);
+        }
+    }
+
+    synchronized void attach(HttpURLConnection connection) throws RequestCancelledException {
+        check();
+        mConnection = connection;
+    }
+
+    synchronized void detach(HttpURLConnection connection) {
+        if (mConnection == connection) {
+            mConnection = null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.braintreepayments.api.internal;
+
+import android.os.SystemClock;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Fails requests fast while a host, such as the Braintree gateway, is unavailable.
+ *
+ * The breaker opens after {@link #DEFAULT_FAILURE_THRESHOLD} consecutive 503 responses and rejects
+ * requests until the open duration has passed. A single trial request is then let through. If it
+ * succeeds the breaker closes, if the gateway is still unavailable it opens again.
+ */
+public class CircuitBreaker {
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    public static final long DEFAULT_OPEN_DURATION_MILLIS = 30 * 1000;
+
+    private static final Map<String, CircuitBreaker> sCircuitBreakers =
+            new HashMap<String, CircuitBreaker>();
+
+    private final int mFailureThreshold;
+    private final long mOpenDurationMillis;
+
+    private int mConsecutiveFailures = 0;
+    private long mOpenedAt = 0;
+    private boolean mOpen = false;
+    private boolean mTrialInFlight = false;
+
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION_MILLIS);
+    }
+
+    /**
+     * @param failureThreshold The number of consecutive 503 responses that opens the breaker.
+     * @param openDurationMillis How long the breaker rejects requests once it opens.
+     */
+    public CircuitBreaker(int failureThreshold, long openDurationMillis) {
+        mFailureThreshold = Math.max(1, failureThreshold);
+        mOpenDurationMillis = openDurationMillis;
+    }
+
+    /**
+     * @param host The host requests are sent to.
+     * @return The {@link CircuitBreaker} shared by every transport that talks to {@code host}, so
+     *         an unavailable analytics host does not fail requests to the gateway.
+     */
+    public static CircuitBreaker forHost(String host) {
+        String key = (host == null) ? "" : host.toLowerCase(Locale.US);
+        synchronized (sCircuitBreakers) {
+            CircuitBreaker circuitBreaker = sCircuitBreakers.get(key);
+            if (circuitBreaker == null) {
+                circuitBreaker = new CircuitBreaker();
+                sCircuitBreakers.put(key, circuitBreaker);
+            }
+            return circuitBreaker;
+        }
+    }
+
+    /**
+     * @return {@code true} if a request may be made, {@code false} if it should fail fast.
+     */
+    public synchronized boolean allowRequest() {
+        if (!mOpen) {
+            return true;
+        }
+
+        if (!mTrialInFlight && SystemClock.elapsedRealtime() - mOpenedAt >= mOpenDurationMillis) {
+            mTrialInFlight = true;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return {@code true} if requests are currently being rejected.
+     */
+    public synchronized boolean isOpen() {
+        return mOpen;
+    }
+
+    /**
+     * Records a response other than 503 from the gateway.
+     */
+    public synchronized void recordSuccess() {
+        mConsecutiveFailures = 0;
+        mOpen = false;
+        mTrialInFlight = false;
+    }
+
+    /**
+     * Records a 503 response from the gateway.
+     */
+    public synchronized void recordUnavailable() {
+        mConsecutiveFailures++;
+        if (mTrialInFlight || mConsecutiveFailures >= mFailureThreshold) {
+            mOpen = true;
+            mOpenedAt = SystemClock.elapsedRealtime();
+        }
+        mTrialInFlight = false;
+    }
+
+    /**
+     * Records a request that failed without a response from the gateway, such as a network error.
+     * Says nothing about the gateway's health, but allows another trial request.
+     */
+    public synchronized void recordNoResponse() {
+        mTrialInFlight = false;
+    }
+
+    /**
+     * Closes the breaker and clears the failure count.
+     */
+    public synchronized void reset() {
+        recordSuccess();
+    }
+}
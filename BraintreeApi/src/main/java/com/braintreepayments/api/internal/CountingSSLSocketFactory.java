@@ -0,0 +1,84 @@
+package com.braintreepayments.api.internal;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * {@link SSLSocketFactory} that delegates to another factory and counts the sockets it creates.
+ * {@link java.net.HttpURLConnection} only asks for a socket when it cannot reuse a pooled
+ * connection, so the count is the number of new TLS connections.
+ */
+/* package */ class CountingSSLSocketFactory extends SSLSocketFactory {
+
+    private final SSLSocketFactory mDelegate;
+    private final AtomicLong mCreatedSockets = new AtomicLong();
+
+    CountingSSLSocketFactory(SSLSocketFactory delegate) {
+        mDelegate = delegate;
+    }
+
+    SSLSocketFactory getDelegate() {
+        return mDelegate;
+    }
+
+    long getCreatedSocketCount() {
+        return mCreatedSockets.get();
+    }
+
+    void resetCount() {
+        mCreatedSockets.set(0);
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return mDelegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return mDelegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose)
+            throws IOException {
+        mCreatedSockets.incrementAndGet();
+        return mDelegate.createSocket(socket, host, port, autoClose);
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        mCreatedSockets.incrementAndGet();
+        return mDelegate.createSocket();
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        mCreatedSockets.incrementAndGet();
+        return mDelegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+            throws IOException {
+        mCreatedSockets.incrementAndGet();
+        return mDelegate.createSocket(host, port, localHost, localPort);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        mCreatedSockets.incrementAndGet();
+        return mDelegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress,
+            int localPort) throws IOException {
+        mCreatedSockets.incrementAndGet();
+        return mDelegate.createSocket(address, port, localAddress, localPort);
+    }
+}
@@ -0,0 +1,97 @@
+package com.braintreepayments.api.internal;
+
+import android.os.SystemClock;
+
+import com.braintreepayments.api.exceptions.DeadlineExceededException;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which an operation must complete.
+ *
+ * The deadline of the operation running on a thread is installed with {@link #setCurrent(Deadline)}
+ * and is honored by every request the operation makes, including retries and hedges.
+ * {@link HttpRequest} shortens its timeouts to the time remaining and disconnects a request that is
+ * still in flight when the deadline passes.
+ */
+public final class Deadline {
+
+    static final String DEADLINE_EXCEEDED_MESSAGE =
+            "The operation did not complete before its deadline";
+
+    private static final ThreadLocal<Deadline> sCurrent = new ThreadLocal<Deadline>();
+
+    private final long mExpiresAt;
+
+    private Deadline(long expiresAt) {
+        mExpiresAt = expiresAt;
+    }
+
+    /**
+     * @param timeoutMillis The time from now until the deadline.
+     * @return A {@link Deadline} that expires {@code timeoutMillis} from now.
+     */
+    public static Deadline after(long timeoutMillis) {
+        return new Deadline(SystemClock.elapsedRealtime() + timeoutMillis);
+    }
+
+    /**
+     * @return The {@link Deadline} installed on the calling thread, or {@code null}.
+     */
+    public static Deadline current() {
+        return sCurrent.get();
+    }
+
+    /**
+     * @param deadline The {@link Deadline} to install on the calling thread, {@code null} to remove
+     *        the current deadline.
+     */
+    public static void setCurrent(Deadline deadline) {
+        if (deadline == null) {
+            sCurrent.remove();
+        } else {
+            sCurrent.set(deadline);
+        }
+    }
+
+    /**
+     * @return The time remaining until the deadline, {@code 0} if it has passed.
+     */
+    public long getRemainingMillis() {
+        return Math.max(0, mExpiresAt - SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * @return {@code true} if the deadline has passed.
+     */
+    public boolean isExpired() {
+        return getRemainingMillis() == 0;
+    }
+
+    /**
+     * @throws DeadlineExceededException if the deadline has passed.
+     */
+    public void check() throws DeadlineExceededException {
+        if (isExpired()) {
+            throw new DeadlineExceededException(DEADLINE_EXCEEDED_MESSAGE);
+        }
+    }
+
+    /**
+     * @param timeoutMillis A timeout in milliseconds, {@code 0} for no timeout.
+     * @return The timeout shortened to the time remaining until the deadline.
+     */
+    int clampTimeout(int timeoutMillis) {
+        int remaining = (int) Math.max(1, Math.min(Integer.MAX_VALUE, getRemainingMillis()));
+        return (timeoutMillis == 0) ? remaining : Math.min(timeoutMillis, remaining);
+    }
+
+    /**
+     * Runs {@code runnable} when the deadline passes.
+     */
+    ScheduledFuture<?> schedule(Runnable runnable) {
+        return BraintreeExecutors.getScheduler()
+                .schedule(runnable, getRemainingMillis(), TimeUnit.MILLISECONDS);
+    }
+}
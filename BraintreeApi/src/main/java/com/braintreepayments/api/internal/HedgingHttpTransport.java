@@ -0,0 +1,340 @@
+package com.braintreepayments.api.internal;
+
+import android.os.SystemClock;
+
+import com.braintreepayments.api.exceptions.BraintreeException;
+import com.braintreepayments.api.exceptions.ErrorWithResponse;
+import com.braintreepayments.api.exceptions.RequestCancelledException;
+import com.braintreepayments.api.exceptions.UnexpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link HttpTransport} that hedges GET requests made by another transport.
+ *
+ * If a GET has not completed within the {@link #DEFAULT_HEDGE_PERCENTILE} latency of recent
+ * GETs, a second identical request is made. The first successful response is returned and the
+ * other request is cancelled. Hedges are capped at {@link #DEFAULT_MAX_HEDGE_RATIO} of requests so
+ * a slow network does not double the load on the gateway. POST requests are never hedged.
+ *
+ * Both requests run on {@link BraintreeExecutors#getHedgeExecutor()}. If it has no thread for
+ * the hedge the GET is not hedged, and if it has no thread for the first request the GET is made
+ * on the calling thread.
+ */
+public class HedgingHttpTransport implements HttpTransport {
+
+    public static final double DEFAULT_HEDGE_PERCENTILE = 0.95;
+    public static final double DEFAULT_MAX_HEDGE_RATIO = 0.1;
+    public static final long DEFAULT_HEDGE_DELAY_MILLIS = 1000;
+
+    private static final int LATENCY_SAMPLES = 64;
+    private static final int MIN_LATENCY_SAMPLES = 10;
+
+    private static final LatencyTracker sLatencyTracker =
+            new LatencyTracker(LATENCY_SAMPLES, MIN_LATENCY_SAMPLES);
+    private static final AtomicLong sRequestCount = new AtomicLong();
+    private static final AtomicLong sHedgeCount = new AtomicLong();
+    private static final AtomicLong sHedgeWinCount = new AtomicLong();
+
+    private final HttpTransport mTransport;
+    private final double mHedgePercentile;
+    private final double mMaxHedgeRatio;
+
+    public HedgingHttpTransport(HttpTransport transport) {
+        this(transport, DEFAULT_HEDGE_PERCENTILE, DEFAULT_MAX_HEDGE_RATIO);
+    }
+
+    /**
+     * @param transport The {@link HttpTransport} that makes the requests.
+     * @param hedgePercentile The latency percentile, between {@code 0} and {@code 1}, after which a
+     *        GET is hedged.
+     * @param maxHedgeRatio The maximum number of hedges as a fraction of GET requests.
+     */
+    public HedgingHttpTransport(HttpTransport transport, double hedgePercentile,
+            double maxHedgeRatio) {
+        mTransport = transport;
+        mHedgePercentile = hedgePercentile;
+        mMaxHedgeRatio = maxHedgeRatio;
+    }
+
+    /**
+     * @return The number of GET requests made by hedging transports since the counters were last
+     *         reset.
+     */
+    public static long getRequestCount() {
+        return sRequestCount.get();
+    }
+
+    /**
+     * @return The number of hedge requests made.
+     */
+    public static long getHedgeCount() {
+        return sHedgeCount.get();
+    }
+
+    /**
+     * @return The number of hedge requests that completed before the original request.
+     */
+    public static long getHedgeWinCount() {
+        return sHedgeWinCount.get();
+    }
+
+    /**
+     * Resets the request and hedge counters.
+     */
+    public static void resetCounters() {
+        sRequestCount.set(0);
+        sHedgeCount.set(0);
+        sHedgeWinCount.set(0);
+    }
+
+    /**
+     * Latencies are shared by all hedging transports since they all talk to the same gateway over
+     * the same network.
+     *
+     * @return The time a GET may take before it is hedged.
+     */
+    public long getHedgeDelayMillis() {
+        return sLatencyTracker.getPercentile(mHedgePercentile, DEFAULT_HEDGE_DELAY_MILLIS);
+    }
+
+    @Override
+    public void setBaseUrl(String baseUrl) {
+        mTransport.setBaseUrl(baseUrl);
+    }
+
+    @Override
+    public void setConnectTimeout(int timeout) {
+        mTransport.setConnectTimeout(timeout);
+    }
+
+    @Override
+    public void setReadTimeout(int timeout) {
+        mTransport.setReadTimeout(timeout);
+    }
+
+    @Override
+    public void setGzipEnabled(boolean enabled) {
+        mTransport.setGzipEnabled(enabled);
+    }
+
+    @Override
+    public void setRequestCompressionThreshold(int bytes) {
+        mTransport.setRequestCompressionThreshold(bytes);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        mTransport.setHeader(name, value);
+    }
+
+    @Override
+    public HttpResponse get(final String path) throws ErrorWithResponse, BraintreeException {
+        return hedge(new Callable<HttpResponse>() {
+            @Override
+            public HttpResponse call() throws Exception {
+                return mTransport.get(path);
+            }
+        });
+    }
+
+    @Override
+    public HttpResponse get(final String path, final Map<String, String> headers)
+            throws ErrorWithResponse, BraintreeException {
+        return hedge(new Callable<HttpResponse>() {
+            @Override
+            public HttpResponse call() throws Exception {
+                return mTransport.get(path, headers);
+            }
+        });
+    }
+
+    @Override
+    public <T> T get(final String path, final ResponseParser<T> parser)
+            throws ErrorWithResponse, BraintreeException {
+        return hedge(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return mTransport.get(path, parser);
+            }
+        });
+    }
+
+    @Override
+    public HttpResponse post(String path, String data)
+            throws ErrorWithResponse, BraintreeException {
+        return mTransport.post(path, data);
+    }
+
+    @Override
+    public <T> T post(String path, String data, ResponseParser<T> parser)
+            throws ErrorWithResponse, BraintreeException {
+        return mTransport.post(path, data, parser);
+    }
+
+    @Override
+    public HttpResponse post(String path, RequestBody body)
+            throws ErrorWithResponse, BraintreeException {
+        return mTransport.post(path, body);
+    }
+
+    @Override
+    public <T> T post(String path, RequestBody body, ResponseParser<T> parser)
+            throws ErrorWithResponse, BraintreeException {
+        return mTransport.post(path, body, parser);
+    }
+
+    private boolean tryAcquireHedge() {
+        while (true) {
+            long hedges = sHedgeCount.get();
+            if (hedges + 1 > Math.max(1, sRequestCount.get() * mMaxHedgeRatio)) {
+                return false;
+            }
+            if (sHedgeCount.compareAndSet(hedges, hedges + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private <T> T hedge(Callable<T> request) throws ErrorWithResponse, BraintreeException {
+        sRequestCount.incrementAndGet();
+
+        CompletionService<T> completionService =
+                new ExecutorCompletionService<T>(BraintreeExecutors.getHedgeExecutor());
+        List<Attempt<T>> attempts = new ArrayList<Attempt<T>>(2);
+        Attempt<T> primary = new Attempt<T>(request);
+        try {
+            primary.submit(completionService);
+        } catch (RejectedExecutionException e) {
+            return callDirectly(request);
+        }
+        attempts.add(primary);
+
+        ExecutionException firstFailure = null;
+        try {
+            Future<T> completed =
+                    completionService.poll(getHedgeDelayMillis(), TimeUnit.MILLISECONDS);
+            if (completed == null && tryAcquireHedge()) {
+                Attempt<T> hedge = new Attempt<T>(request);
+                try {
+                    hedge.submit(completionService);
+                    attempts.add(hedge);
+                } catch (RejectedExecutionException e) {
+                    sHedgeCount.decrementAndGet();
+                }
+            }
+
+            for (int pending = attempts.size(); pending > 0; pending--) {
+                if (completed == null) {
+                    completed = completionService.take();
+                }
+
+                try {
+                    T response = completed.get();
+                    if (completed != primary.mFuture) {
+                        sHedgeWinCount.incrementAndGet();
+                    }
+                    return response;
+                } catch (ExecutionException e) {
+                    if (firstFailure == null) {
+                        firstFailure = e;
+                    }
+                }
+                completed = null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            CancellationToken cancellationToken = CancellationToken.current();
+            if (cancellationToken != null && cancellationToken.isCancelled()) {
+                throw new RequestCancelledException(CancellationToken.CANCELLED_MESSAGE);
+            }
+            throw new UnexpectedException("Request was interrupted");
+        } finally {
+            for (Attempt<T> attempt : attempts) {
+                attempt.cancel();
+            }
+        }
+
+        throw rethrow(firstFailure);
+    }
+
+    private static <T> T callDirectly(Callable<T> request)
+            throws ErrorWithResponse, BraintreeException {
+        long start = SystemClock.elapsedRealtime();
+        try {
+            T response = request.call();
+            sLatencyTracker.record(SystemClock.elapsedRealtime() - start);
+            return response;
+        } catch (Exception e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static BraintreeException rethrow(ExecutionException e) throws ErrorWithResponse {
+        return rethrow(e.getCause());
+    }
+
+    private static BraintreeException rethrow(Throwable cause) throws ErrorWithResponse {
+        if (cause instanceof ErrorWithResponse) {
+            throw (ErrorWithResponse) cause;
+        } else if (cause instanceof BraintreeException) {
+            return (BraintreeException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else {
+            return new UnexpectedException(String.valueOf(cause));
+        }
+    }
+
+    /**
+     * A single request, made with its own {@link CancellationToken} so it can be aborted once the
+     * other request has won. The caller's {@link Deadline} applies to both requests.
+     */
+    private class Attempt<T> implements Callable<T> {
+
+        private final Callable<T> mRequest;
+        private final CancellationToken mCancellationToken = new CancellationToken();
+        private final Deadline mDeadline = Deadline.current();
+        private Future<T> mFuture;
+
+        Attempt(Callable<T> request) {
+            mRequest = request;
+        }
+
+        void submit(CompletionService<T> completionService) {
+            mFuture = completionService.submit(this);
+        }
+
+        void cancel() {
+            if (!mFuture.isDone()) {
+                mCancellationToken.cancel();
+                mFuture.cancel(true);
+            }
+        }
+
+        @Override
+        public T call() throws Exception {
+            CancellationToken.setCurrent(mCancellationToken);
+            Deadline.setCurrent(mDeadline);
+            long start = SystemClock.elapsedRealtime();
+            try {
+                T response = mRequest.call();
+                sLatencyTracker.record(SystemClock.elapsedRealtime() - start);
+                return response;
+            } finally {
+                CancellationToken.setCurrent(null);
+                Deadline.setCurrent(null);
+            }
+        }
+    }
+}
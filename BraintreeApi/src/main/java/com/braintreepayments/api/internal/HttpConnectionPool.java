@@ -0,0 +1,180 @@
+package com.braintreepayments.api.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Controls whether {@link HttpRequest} keeps connections alive between requests.
+ *
+ * When pooling is enabled connections are not disconnected after a response has been read and are
+ * returned to the platform's per host connection pool instead, so the configuration,
+ * payment_methods, tokenize and analytics requests of a checkout can share a TCP+TLS connection.
+ * Pooling must be enabled before the first request is made for the idle limits to take effect.
+ */
+public final class HttpConnectionPool {
+
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+    public static final long DEFAULT_KEEP_ALIVE_DURATION_MILLIS = 5 * 60 * 1000;
+
+    private static final String[] POOL_PROPERTIES =
+            { "http.keepAlive", "http.maxConnections", "http.keepAliveDuration" };
+
+    private static volatile boolean sEnabled = false;
+    private static final Map<String, String> sPreviousProperties = new HashMap<String, String>();
+    private static volatile CountingSSLSocketFactory sSocketFactory;
+    private static final AtomicLong sRequestCount = new AtomicLong();
+
+    private HttpConnectionPool() {}
+
+    /**
+     * Enables connection pooling with {@link #DEFAULT_MAX_IDLE_CONNECTIONS} idle connections per
+     * host kept for {@link #DEFAULT_KEEP_ALIVE_DURATION_MILLIS}.
+     *
+     * @see #enable(int, long)
+     */
+    public static void enable() {
+        enable(DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE_DURATION_MILLIS);
+    }
+
+    /**
+     * Enables connection pooling.
+     *
+     * The platform pool is configured through the {@code http.keepAlive},
+     * {@code http.maxConnections} and {@code http.keepAliveDuration} system properties, so this
+     * affects every {@link HttpURLConnection} in the process, not only Braintree requests. The
+     * previous values are restored by {@link #disable()}.
+     *
+     * @param maxIdleConnections the maximum number of idle connections kept per host.
+     * @param keepAliveDurationMillis how long an idle connection is kept before it is closed.
+     */
+    public static synchronized void enable(int maxIdleConnections, long keepAliveDurationMillis) {
+        if (!sEnabled) {
+            for (String property : POOL_PROPERTIES) {
+                sPreviousProperties.put(property, System.getProperty(property));
+            }
+        }
+
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", Integer.toString(maxIdleConnections));
+        System.setProperty("http.keepAliveDuration", Long.toString(keepAliveDurationMillis));
+        sEnabled = true;
+    }
+
+    /**
+     * Disables connection pooling and restores the system properties changed by
+     * {@link #enable(int, long)}. Connections will be disconnected after every request.
+     */
+    public static synchronized void disable() {
+        if (!sEnabled) {
+            return;
+        }
+
+        for (Map.Entry<String, String> property : sPreviousProperties.entrySet()) {
+            if (property.getValue() == null) {
+                System.clearProperty(property.getKey());
+            } else {
+                System.setProperty(property.getKey(), property.getValue());
+            }
+        }
+        sPreviousProperties.clear();
+        sEnabled = false;
+    }
+
+    /**
+     * @return {@code true} if connections are kept alive between requests, {@code false}
+     *         otherwise.
+     */
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * @return the number of HTTPS requests made since the counters were last reset.
+     */
+    public static long getRequestCount() {
+        return sRequestCount.get();
+    }
+
+    /**
+     * @return the number of HTTPS requests that required a new connection.
+     */
+    public static long getNewConnectionCount() {
+        CountingSSLSocketFactory socketFactory = sSocketFactory;
+        return (socketFactory == null) ? 0 : socketFactory.getCreatedSocketCount();
+    }
+
+    /**
+     * @return the number of HTTPS requests that reused a pooled connection.
+     */
+    public static long getReusedConnectionCount() {
+        return Math.max(0, getRequestCount() - getNewConnectionCount());
+    }
+
+    /**
+     * Resets the request and connection counters.
+     */
+    public static void resetCounters() {
+        sRequestCount.set(0);
+        CountingSSLSocketFactory socketFactory = sSocketFactory;
+        if (socketFactory != null) {
+            socketFactory.resetCount();
+        }
+    }
+
+    /**
+     * The platform only reuses a pooled connection if the request uses the same
+     * {@link SSLSocketFactory} instance, so every request must use the one returned here.
+     *
+     * @return the shared {@link SSLSocketFactory} for HTTPS requests.
+     */
+    static SSLSocketFactory getSocketFactory() {
+        SSLSocketFactory pinnedFactory = PinnedSslContext.getSocketFactory();
+        CountingSSLSocketFactory socketFactory = sSocketFactory;
+        if (socketFactory == null || socketFactory.getDelegate() != pinnedFactory) {
+            synchronized (HttpConnectionPool.class) {
+                socketFactory = sSocketFactory;
+                if (socketFactory == null || socketFactory.getDelegate() != pinnedFactory) {
+                    socketFactory = new CountingSSLSocketFactory(pinnedFactory);
+                    sSocketFactory = socketFactory;
+                }
+            }
+        }
+
+        return socketFactory;
+    }
+
+    static void onRequest() {
+        sRequestCount.incrementAndGet();
+    }
+
+    /**
+     * Releases a connection once its response has been handled. If pooling is disabled the
+     * connection is disconnected, otherwise any unread error body is drained so the connection
+     * can be reused.
+     */
+    static void release(HttpURLConnection connection) {
+        if (!sEnabled) {
+            connection.disconnect();
+            return;
+        }
+
+        try {
+            InputStream errorStream = connection.getErrorStream();
+            if (errorStream != null) {
+                byte[] buffer = new byte[256];
+                while (errorStream.read(buffer) != -1) {
+                    // discard
+                }
+                errorStream.close();
+            }
+        } catch (IOException e) {
+            connection.disconnect();
+        }
+    }
+}
@@ -1,50 +1,46 @@
 package com.braintreepayments.api.internal;
 
 import android.net.Uri;
+import android.text.TextUtils;
 import android.util.Log;
 
 import com.braintreepayments.api.BuildConfig;
-import com.braintreepayments.api.exceptions.AuthenticationException;
-import com.braintreepayments.api.exceptions.AuthorizationException;
 import com.braintreepayments.api.exceptions.BraintreeException;
-import com.braintreepayments.api.exceptions.BraintreeSslException;
-import com.braintreepayments.api.exceptions.DownForMaintenanceException;
+import com.braintreepayments.api.exceptions.DeadlineExceededException;
 import com.braintreepayments.api.exceptions.ErrorWithResponse;
+import com.braintreepayments.api.exceptions.RequestCancelledException;
 import com.braintreepayments.api.exceptions.ServerException;
 import com.braintreepayments.api.exceptions.UnexpectedException;
-import com.braintreepayments.api.exceptions.UpgradeRequiredException;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLEncoder;
-import java.security.KeyStore;
-import java.security.cert.Certificate;
-import java.security.cert.CertificateFactory;
-import java.security.cert.X509Certificate;
-import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManagerFactory;
 
-import static java.net.HttpURLConnection.HTTP_ACCEPTED;
-import static java.net.HttpURLConnection.HTTP_CREATED;
-import static java.net.HttpURLConnection.HTTP_FORBIDDEN;
-import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
-import static java.net.HttpURLConnection.HTTP_OK;
-import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
-import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
-
-public class HttpRequest {
+public class HttpRequest implements HttpTransport {
 
     public static final String TAG = "HttpRequest";
 
@@ -52,12 +48,28 @@ public class HttpRequest {
     private static final String METHOD_POST = "POST";
     private static final String UTF_8 = "UTF-8";
     private static final String AUTHORIZATION_FINGERPRINT_KEY = "authorizationFingerprint";
+    private static final String PARSING_FAILED_MESSAGE = "Parsing server response failed";
+    private static final String GZIP = "gzip";
+
+    /**
+     * Value for {@link #setRequestCompressionThreshold(int)} that disables request compression.
+     */
+    public static final int NO_REQUEST_COMPRESSION = -1;
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 30 * 1000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 30 * 1000;
+
+    private static final Gson GSON = new Gson();
 
     public static boolean DEBUG = false;
 
     private String mBaseUrl;
     private String mAuthorizationFingerprint;
-    private int mConnectTimeout = 0;
+    private int mConnectTimeout = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+    private int mReadTimeout = DEFAULT_READ_TIMEOUT_MILLIS;
+    private boolean mGzipEnabled = false;
+    private int mRequestCompressionThreshold = NO_REQUEST_COMPRESSION;
+    private final Map<String, String> mHeaders = new HashMap<String, String>();
 
     public HttpRequest(String authorizationFingerprint) {
         mAuthorizationFingerprint = (authorizationFingerprint == null) ? "" : authorizationFingerprint;
@@ -67,14 +79,40 @@ public class HttpRequest {
         return  "braintree/android/" + BuildConfig.VERSION_NAME;
     }
 
+    @Override
     public void setBaseUrl(String baseUrl) {
         mBaseUrl = (baseUrl == null) ? "" : baseUrl;
     }
 
-    protected void setConnectTimeout(int timeout) {
+    @Override
+    public void setConnectTimeout(int timeout) {
         mConnectTimeout = timeout;
     }
 
+    @Override
+    public void setReadTimeout(int timeout) {
+        mReadTimeout = timeout;
+    }
+
+    @Override
+    public void setGzipEnabled(boolean enabled) {
+        mGzipEnabled = enabled;
+    }
+
+    @Override
+    public void setRequestCompressionThreshold(int bytes) {
+        mRequestCompressionThreshold = bytes;
+    }
+
+    @Override
+    public synchronized void setHeader(String name, String value) {
+        if (value == null) {
+            mHeaders.remove(name);
+        } else {
+            mHeaders.put(name, value);
+        }
+    }
+
     /**
      * Make a HTTP GET request to Braintree using the url and authorization fingerprint supplied in
      * the constructor. If the path is a ful url, it will be used instead of the url provided in the
@@ -88,32 +126,30 @@ public class HttpRequest {
      * @throws com.braintreepayments.api.exceptions.BraintreeException when there was an error fulfilling
      *         the request.
      */
+    @Override
     public HttpResponse get(String path) throws ErrorWithResponse, BraintreeException {
-        HttpURLConnection connection = null;
-        try {
-            Uri uri;
-            if (path.startsWith("http")) {
-                uri = Uri.parse(path);
-            } else {
-                uri = Uri.parse(mBaseUrl + path);
-            }
-            uri = uri.buildUpon()
-                    .appendQueryParameter(AUTHORIZATION_FINGERPRINT_KEY, mAuthorizationFingerprint)
-                    .build();
+        return execute(METHOD_GET, getUrl(path), null, null, new StringBodyReader());
+    }
 
-            connection = init(uri.toString());
-            connection.setRequestMethod(METHOD_GET);
+    /**
+     * Make a conditional HTTP GET request. A 304 Not Modified response is returned rather than
+     * treated as an error, and the returned {@link HttpResponse} includes the response headers.
+     *
+     * @param path The path or url to request from the server via HTTP GET
+     * @param headers Headers to send with this request only, such as If-None-Match.
+     * @return {@link com.braintreepayments.api.internal.HttpResponse} containing the response
+     *         code, headers and body.
+     */
+    @Override
+    public HttpResponse get(String path, Map<String, String> headers)
+            throws ErrorWithResponse, BraintreeException {
+        return execute(METHOD_GET, getUrl(path), headers, null, new StringBodyReader(true));
+    }
 
-            return parseResponse(connection);
-        } catch (BraintreeException e) {
-            throw e;
-        } catch (IOException e) {
-            throw new UnexpectedException(e.getMessage());
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
-        }
+    @Override
+    public <T> T get(String path, ResponseParser<T> parser)
+            throws ErrorWithResponse, BraintreeException {
+        return execute(METHOD_GET, getUrl(path), null, null, new ParsingBodyReader<T>(parser));
     }
 
     /**
@@ -129,37 +165,118 @@ public class HttpRequest {
      * @throws com.braintreepayments.api.exceptions.BraintreeException when there was an error fulfilling
      *         the request.
      */
+    @Override
     public HttpResponse post(String path, String data) throws ErrorWithResponse, BraintreeException {
+        return execute(METHOD_POST, postUrl(path), null, new StringBodyWriter(data),
+                new StringBodyReader());
+    }
+
+    @Override
+    public <T> T post(String path, String data, ResponseParser<T> parser)
+            throws ErrorWithResponse, BraintreeException {
+        return execute(METHOD_POST, postUrl(path), null, new StringBodyWriter(data),
+                new ParsingBodyReader<T>(parser));
+    }
+
+    @Override
+    public HttpResponse post(String path, RequestBody body)
+            throws ErrorWithResponse, BraintreeException {
+        return execute(METHOD_POST, postUrl(path), null, new StreamingBodyWriter(body),
+                new StringBodyReader());
+    }
+
+    @Override
+    public <T> T post(String path, RequestBody body, ResponseParser<T> parser)
+            throws ErrorWithResponse, BraintreeException {
+        return execute(METHOD_POST, postUrl(path), null, new StreamingBodyWriter(body),
+                new ParsingBodyReader<T>(parser));
+    }
+
+    private String getUrl(String path) {
+        Uri uri;
+        if (path.startsWith("http")) {
+            uri = Uri.parse(path);
+        } else {
+            uri = Uri.parse(mBaseUrl + path);
+        }
+
+        return uri.buildUpon()
+                .appendQueryParameter(AUTHORIZATION_FINGERPRINT_KEY, mAuthorizationFingerprint)
+                .build()
+                .toString();
+    }
+
+    private String postUrl(String path) {
+        if (path.startsWith("http")) {
+            return path;
+        } else {
+            return mBaseUrl + path;
+        }
+    }
+
+    private <T> T execute(String method, String url, Map<String, String> headers,
+            BodyWriter bodyWriter, BodyReader<T> bodyReader)
+            throws ErrorWithResponse, BraintreeException {
+        CancellationToken cancellationToken = CancellationToken.current();
+        Deadline deadline = Deadline.current();
+        ScheduledFuture<?> deadlineTimer = null;
         HttpURLConnection connection = null;
         try {
-            String payload = new JSONObject(data)
-                    .put(AUTHORIZATION_FINGERPRINT_KEY, mAuthorizationFingerprint)
-                    .toString();
+            if (deadline != null) {
+                deadline.check();
+            }
 
-            if (path.startsWith("http")) {
-                connection = init(path);
-            } else {
-                connection = init(mBaseUrl + path);
+            connection = init(url);
+            if (cancellationToken != null) {
+                cancellationToken.attach(connection);
+            }
+            if (deadline != null) {
+                connection.setConnectTimeout(deadline.clampTimeout(connection.getConnectTimeout()));
+                connection.setReadTimeout(deadline.clampTimeout(connection.getReadTimeout()));
+                deadlineTimer = deadline.schedule(new Disconnect(connection));
+            }
+            connection.setRequestMethod(method);
+            if (headers != null) {
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    connection.setRequestProperty(header.getKey(), header.getValue());
+                }
             }
 
-            connection.setRequestMethod(METHOD_POST);
-            connection.setDoOutput(true);
+            if (bodyWriter != null) {
+                connection.setDoOutput(true);
 
-            DataOutputStream out = new DataOutputStream(connection.getOutputStream());
-            out.writeBytes(payload);
-            out.flush();
-            out.close();
+                if (mRequestCompressionThreshold >= 0) {
+                    ByteArrayOutputStream body = new ByteArrayOutputStream();
+                    bodyWriter.write(body);
+                    writeBody(connection, body.toByteArray());
+                } else {
+                    bodyWriter.write(connection.getOutputStream());
+                }
+            }
 
-            return parseResponse(connection);
+            // only the conditional GET sends its own headers
+            return parseResponse(connection, headers != null, bodyReader);
         } catch (BraintreeException e) {
             throw e;
         } catch (IOException e) {
+            if (cancellationToken != null && cancellationToken.isCancelled()) {
+                throw new RequestCancelledException(CancellationToken.CANCELLED_MESSAGE);
+            }
+            if (deadline != null && deadline.isExpired()) {
+                throw new DeadlineExceededException(Deadline.DEADLINE_EXCEEDED_MESSAGE);
+            }
             throw new UnexpectedException(e.getMessage());
         } catch (JSONException e) {
             throw new UnexpectedException(e.getMessage());
         } finally {
+            if (deadlineTimer != null) {
+                deadlineTimer.cancel(false);
+            }
             if (connection != null) {
-                connection.disconnect();
+                if (cancellationToken != null) {
+                    cancellationToken.detach(connection);
+                }
+                HttpConnectionPool.release(connection);
             }
         }
     }
@@ -167,99 +284,256 @@ public class HttpRequest {
     protected HttpURLConnection init(String url) throws IOException {
         log("Opening url: " + url);
 
-        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        HttpURLConnection connection = openConnection(new URL(url));
 
         if (connection instanceof HttpsURLConnection) {
-            ((HttpsURLConnection) connection).setSSLSocketFactory(HttpRequest.getSslSocketFactory());
+            ((HttpsURLConnection) connection).setSSLSocketFactory(
+                    HttpConnectionPool.getSocketFactory());
+            HttpConnectionPool.onRequest();
         }
 
         connection.setRequestProperty("Content-Type", "application/json");
         connection.setRequestProperty("User-Agent", HttpRequest.getUserAgent());
         connection.setRequestProperty("Accept-Language", Locale.getDefault().getLanguage());
+        if (mGzipEnabled) {
+            connection.setRequestProperty("Accept-Encoding", GZIP);
+        }
         connection.setConnectTimeout(mConnectTimeout);
+        connection.setReadTimeout(mReadTimeout);
+
+        synchronized (this) {
+            for (Map.Entry<String, String> header : mHeaders.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
 
         return connection;
     }
 
-    private HttpResponse parseResponse(HttpURLConnection connection)
-            throws ErrorWithResponse, IOException {
-        int responseCode = connection.getResponseCode();
-        String responseBody;
+    /**
+     * Opens the connection for a request. Subclasses can override this to use a different
+     * {@link HttpURLConnection} implementation.
+     */
+    protected HttpURLConnection openConnection(URL url) throws IOException {
+        return (HttpURLConnection) url.openConnection();
+    }
+
+    /**
+     * Writes a buffered request body, compressing it if it is at least
+     * {@link #mRequestCompressionThreshold} bytes.
+     */
+    private void writeBody(HttpURLConnection connection, byte[] body) throws IOException {
+        OutputStream out;
+        if (body.length >= mRequestCompressionThreshold) {
+            log("Compressing request body of " + body.length + " bytes");
+            connection.setRequestProperty("Content-Encoding", GZIP);
+            out = new GZIPOutputStream(connection.getOutputStream());
+        } else {
+            out = connection.getOutputStream();
+        }
+
+        try {
+            out.write(body);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Setting Accept-Encoding disables the platform's transparent decompression, so gzip
+     * encoded responses are decoded here.
+     */
+    private InputStream decode(HttpURLConnection connection, InputStream in) throws IOException {
+        if (in != null && GZIP.equalsIgnoreCase(connection.getContentEncoding())) {
+            return new GZIPInputStream(in);
+        }
+
+        return in;
+    }
 
+    private <T> T parseResponse(HttpURLConnection connection, boolean conditional,
+            BodyReader<T> bodyReader) throws ErrorWithResponse, IOException {
+        int responseCode = connection.getResponseCode();
         log("Received response code: " + responseCode);
 
-        switch(responseCode) {
-            case HTTP_OK: case HTTP_CREATED: case HTTP_ACCEPTED:
-                responseBody = readStream(connection.getInputStream());
-                log("Received response body: " + responseBody);
-
-                return new HttpResponse(responseCode, responseBody);
-            case HTTP_UNAUTHORIZED:
-                throw new AuthenticationException();
-            case HTTP_FORBIDDEN:
-                throw new AuthorizationException();
-            case 422: // HTTP_UNPROCESSABLE_ENTITY
-                responseBody = readStream(connection.getErrorStream());
-                log("Received error response body: " + responseBody);
-
-                throw new ErrorWithResponse(responseCode, responseBody);
-            case 426: // HTTP_UPGRADE_REQUIRED
-                throw new UpgradeRequiredException();
-            case HTTP_INTERNAL_ERROR:
-                throw new ServerException();
-            case HTTP_UNAVAILABLE:
-                throw new DownForMaintenanceException();
-            default:
-                throw new UnexpectedException();
+        String errorBody = null;
+        if (HttpStatus.hasErrorBody(responseCode)) {
+            errorBody = new String(readStream(connection,
+                    decode(connection, connection.getErrorStream())), UTF_8);
+            log("Received error response body: " + errorBody);
         }
+        HttpStatus.checkStatus(responseCode, errorBody, conditional);
+
+        return bodyReader.read(connection, responseCode,
+                decode(connection, connection.getInputStream()));
     }
 
-    private String readStream(InputStream in) throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        byte[] buffer = new byte[1024];
-        for (int count; (count = in.read(buffer)) != -1; ) {
-            out.write(buffer, 0, count);
+    private byte[] readStream(HttpURLConnection connection, InputStream in) throws IOException {
+        try {
+            return ByteArrayPool.readFully(in, expectedLength(connection));
+        } finally {
+            // closing the stream returns a pooled connection to the pool
+            in.close();
         }
-        return new String(out.toByteArray(), UTF_8);
     }
 
-    private void log(String message) {
-        if (DEBUG && BuildConfig.DEBUG) {
-            Log.d(TAG, message);
+    private Map<String, String> readHeaders(HttpURLConnection connection) {
+        Map<String, String> headers = new HashMap<String, String>();
+        Map<String, List<String>> headerFields = connection.getHeaderFields();
+        if (headerFields != null) {
+            for (Map.Entry<String, List<String>> field : headerFields.entrySet()) {
+                if (field.getKey() != null && !field.getValue().isEmpty()) {
+                    headers.put(field.getKey(), TextUtils.join(", ", field.getValue()));
+                }
+            }
         }
+
+        return headers;
     }
 
     /**
-     * @return {@link javax.net.ssl.SSLSocketFactory}
-     * @see <a href="http://developer.android.com/training/articles/security-ssl.html#UnknownCa">Android Documentation</a>
-     * @see <a href="https://github.com/braintree/braintree_java/blob/95b96c356324d1532714f849402f830251ce8b81/src/main/java/com/braintreegateway/util/Http.java#L100">Braintree Java Client Library</a>
+     * @return The decoded length of the response body, or {@code -1} if it is not known. The
+     *         Content-Length of a gzip encoded response is its compressed length.
      */
-    private static SSLSocketFactory getSslSocketFactory() throws BraintreeSslException {
-        try {
-            KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
-            keyStore.load(null, null);
+    private int expectedLength(HttpURLConnection connection) {
+        if (GZIP.equalsIgnoreCase(connection.getContentEncoding())) {
+            return -1;
+        }
 
-            CertificateFactory cf = CertificateFactory.getInstance("X.509");
-            InputStream certStream = BraintreeGatewayCertificate.getCertInputStream();
+        return connection.getContentLength();
+    }
 
-            Collection<? extends Certificate> certificates = cf.generateCertificates(certStream);
-            for (Certificate cert : certificates) {
-                if (cert instanceof X509Certificate) {
-                    String subject = ((X509Certificate) cert).getSubjectDN().getName();
-                    keyStore.setCertificateEntry(subject, cert);
-                }
+    private static class Disconnect implements Runnable {
+
+        private final HttpURLConnection mConnection;
+
+        Disconnect(HttpURLConnection connection) {
+            mConnection = connection;
+        }
+
+        @Override
+        public void run() {
+            mConnection.disconnect();
+        }
+    }
+
+    private interface BodyWriter {
+        void write(OutputStream out) throws IOException, JSONException;
+    }
+
+    /**
+     * Writes a json string body. The string has to be parsed to add the authorization fingerprint.
+     */
+    private class StringBodyWriter implements BodyWriter {
+
+        private final String mData;
+
+        StringBodyWriter(String data) {
+            mData = data;
+        }
+
+        @Override
+        public void write(OutputStream out) throws IOException, JSONException {
+            String payload = new JSONObject(mData)
+                    .put(AUTHORIZATION_FINGERPRINT_KEY, mAuthorizationFingerprint)
+                    .toString();
+
+            try {
+                out.write(payload.getBytes(UTF_8));
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private class StreamingBodyWriter implements BodyWriter {
+
+        private final RequestBody mBody;
+
+        StreamingBodyWriter(RequestBody body) {
+            mBody = body;
+        }
+
+        @Override
+        public void write(OutputStream out) throws IOException {
+            JsonWriter writer =
+                    new JsonWriter(new BufferedWriter(new OutputStreamWriter(out, UTF_8)));
+            try {
+                writer.beginObject();
+                mBody.writeFields(GSON, writer);
+                writer.name(AUTHORIZATION_FINGERPRINT_KEY).value(mAuthorizationFingerprint);
+                writer.endObject();
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+    private interface BodyReader<T> {
+        T read(HttpURLConnection connection, int responseCode, InputStream in) throws IOException;
+    }
+
+    private class StringBodyReader implements BodyReader<HttpResponse> {
+
+        private final boolean mReadHeaders;
+
+        StringBodyReader() {
+            this(false);
+        }
+
+        StringBodyReader(boolean readHeaders) {
+            mReadHeaders = readHeaders;
+        }
+
+        @Override
+        public HttpResponse read(HttpURLConnection connection, int responseCode, InputStream in)
+                throws IOException {
+            byte[] responseBody = readStream(connection, in);
+            HttpResponse response;
+            if (mReadHeaders) {
+                response = new HttpResponse(responseCode, responseBody, readHeaders(connection));
+            } else {
+                response = new HttpResponse(responseCode, responseBody);
+            }
+            if (DEBUG) {
+                log("Received response body: " + response.getResponseBody());
             }
 
-            TrustManagerFactory tmf = TrustManagerFactory.getInstance(
-                    TrustManagerFactory.getDefaultAlgorithm());
-            tmf.init(keyStore);
+            return response;
+        }
+    }
+
+    private class ParsingBodyReader<T> implements BodyReader<T> {
 
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(null, tmf.getTrustManagers(), null);
+        private final ResponseParser<T> mParser;
 
-            return sslContext.getSocketFactory();
-        } catch (Exception e) {
-            throw new BraintreeSslException(e);
+        ParsingBodyReader(ResponseParser<T> parser) {
+            mParser = parser;
+        }
+
+        @Override
+        public T read(HttpURLConnection connection, int responseCode, InputStream in)
+                throws IOException {
+            log("Parsing response body");
+            JsonReader reader = new JsonReader(new InputStreamReader(in, UTF_8));
+            try {
+                return mParser.parse(reader);
+            } catch (MalformedJsonException e) {
+                throw new ServerException(PARSING_FAILED_MESSAGE);
+            } catch (JsonParseException e) {
+                throw new ServerException(PARSING_FAILED_MESSAGE);
+            } catch (IllegalStateException e) {
+                throw new ServerException(PARSING_FAILED_MESSAGE);
+            } finally {
+                // closing the stream returns a pooled connection to the pool
+                reader.close();
+            }
+        }
+    }
+
+    private void log(String message) {
+        if (DEBUG && BuildConfig.DEBUG) {
+            Log.d(TAG, message);
         }
     }
 }
@@ -1,20 +1,96 @@
 package com.braintreepayments.api.internal;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 public class HttpResponse {
 
+    private static final String UTF_8 = "UTF-8";
+
     private int mResponseCode;
+    private byte[] mResponseBodyBytes;
     private String mResponseBody;
+    private Map<String, String> mHeaders = Collections.emptyMap();
 
     public HttpResponse(int responseCode, String responseBody) {
         mResponseCode = responseCode;
         mResponseBody = responseBody;
     }
 
+    /**
+     * @param responseCode The HTTP status code.
+     * @param responseBody The UTF-8 encoded response body. It is only decoded to a {@link String}
+     *        when {@link #getResponseBody()} is called.
+     */
+    public HttpResponse(int responseCode, byte[] responseBody) {
+        mResponseCode = responseCode;
+        mResponseBodyBytes = responseBody;
+    }
+
+    /**
+     * @param responseCode The HTTP status code.
+     * @param responseBody The UTF-8 encoded response body.
+     * @param headers The response headers. Multiple values of a header are joined with ", ".
+     */
+    public HttpResponse(int responseCode, byte[] responseBody, Map<String, String> headers) {
+        this(responseCode, responseBody);
+        mHeaders = new HashMap<String, String>();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            mHeaders.put(header.getKey().toLowerCase(Locale.US), header.getValue());
+        }
+    }
+
     public int getResponseCode() {
         return mResponseCode;
     }
 
     public String getResponseBody() {
+        if (mResponseBody == null && mResponseBodyBytes != null) {
+            try {
+                mResponseBody = new String(mResponseBodyBytes, UTF_8);
+            } catch (UnsupportedEncodingException ignored) {
+                // UTF-8 is always supported
+            }
+        }
+
         return mResponseBody;
     }
+
+    /**
+     * @param name The case insensitive name of the header.
+     * @return The value of the response header or {@code null} if it was not sent or headers
+     *         were not read for this response.
+     */
+    public String getHeader(String name) {
+        return mHeaders.get(name.toLowerCase(Locale.US));
+    }
+
+    /**
+     * @return The UTF-8 encoded response body. The array is shared and must not be modified.
+     */
+    public byte[] getResponseBodyBytes() {
+        if (mResponseBodyBytes == null && mResponseBody != null) {
+            try {
+                mResponseBodyBytes = mResponseBody.getBytes(UTF_8);
+            } catch (UnsupportedEncodingException ignored) {
+                // UTF-8 is always supported
+            }
+        }
+
+        return mResponseBodyBytes;
+    }
+
+    /**
+     * @return An {@link InputStream} over the UTF-8 encoded response body, or {@code null} if
+     *         there is no body.
+     */
+    public InputStream getResponseBodyStream() {
+        byte[] responseBody = getResponseBodyBytes();
+        return (responseBody == null) ? null : new ByteArrayInputStream(responseBody);
+    }
 }
@@ -0,0 +1,88 @@
+package com.braintreepayments.api.internal;
+
+import com.braintreepayments.api.exceptions.AuthenticationException;
+import com.braintreepayments.api.exceptions.AuthorizationException;
+import com.braintreepayments.api.exceptions.BraintreeException;
+import com.braintreepayments.api.exceptions.DownForMaintenanceException;
+import com.braintreepayments.api.exceptions.ErrorWithResponse;
+import com.braintreepayments.api.exceptions.ServerException;
+import com.braintreepayments.api.exceptions.UnexpectedException;
+import com.braintreepayments.api.exceptions.UpgradeRequiredException;
+
+import static java.net.HttpURLConnection.HTTP_ACCEPTED;
+import static java.net.HttpURLConnection.HTTP_CREATED;
+import static java.net.HttpURLConnection.HTTP_FORBIDDEN;
+import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.net.HttpURLConnection.HTTP_UNAUTHORIZED;
+import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
+
+/**
+ * Maps Braintree gateway response codes to exceptions. Shared by all {@link HttpTransport}s.
+ */
+public final class HttpStatus {
+
+    public static final int HTTP_UNPROCESSABLE_ENTITY = 422;
+    public static final int HTTP_UPGRADE_REQUIRED = 426;
+
+    private HttpStatus() {}
+
+    /**
+     * @param responseCode The HTTP response code.
+     * @return {@code true} if the error body of the response should be read and passed to
+     *         {@link #checkStatus(int, String)}, {@code false} otherwise.
+     */
+    public static boolean hasErrorBody(int responseCode) {
+        return responseCode == HTTP_UNPROCESSABLE_ENTITY;
+    }
+
+    /**
+     * Does nothing for successful response codes, otherwise throws the exception that represents
+     * the response code.
+     *
+     * @param responseCode The HTTP response code.
+     * @param errorBody The error body of the response if {@link #hasErrorBody(int)} or
+     *        {@code null}.
+     * @throws ErrorWithResponse where there was a validation error. (Response code 422)
+     * @throws BraintreeException for any other unsuccessful response code.
+     */
+    public static void checkStatus(int responseCode, String errorBody)
+            throws ErrorWithResponse, BraintreeException {
+        checkStatus(responseCode, errorBody, false);
+    }
+
+    /**
+     * Like {@link #checkStatus(int, String)}, but also accepts 304 Not Modified if the request was
+     * conditional.
+     *
+     * @param conditional {@code true} if the request was a conditional GET, such as one sent with
+     *        If-None-Match.
+     */
+    public static void checkStatus(int responseCode, String errorBody, boolean conditional)
+            throws ErrorWithResponse, BraintreeException {
+        switch(responseCode) {
+            case HTTP_OK: case HTTP_CREATED: case HTTP_ACCEPTED:
+                return;
+            case HTTP_NOT_MODIFIED:
+                if (conditional) {
+                    return;
+                }
+                throw new UnexpectedException();
+            case HTTP_UNAUTHORIZED:
+                throw new AuthenticationException();
+            case HTTP_FORBIDDEN:
+                throw new AuthorizationException();
+            case HTTP_UNPROCESSABLE_ENTITY:
+                throw new ErrorWithResponse(responseCode, errorBody);
+            case HTTP_UPGRADE_REQUIRED:
+                throw new UpgradeRequiredException();
+            case HTTP_INTERNAL_ERROR:
+                throw new ServerException();
+            case HTTP_UNAVAILABLE:
+                throw new DownForMaintenanceException();
+            default:
+                throw new UnexpectedException();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.braintreepayments.api.internal;
+
+import com.braintreepayments.api.exceptions.BraintreeException;
+import com.braintreepayments.api.exceptions.ErrorWithResponse;
+
+import java.util.Map;
+
+/**
+ * Transport used by {@link com.braintreepayments.api.BraintreeApi} to communicate with the
+ * Braintree gateway. Implementations are responsible for adding the authorization fingerprint to
+ * every request and must map response status codes to exceptions the same way
+ * {@link HttpRequest} does.
+ *
+ * @see HttpRequest
+ * @see HttpTransportFactory
+ */
+public interface HttpTransport {
+
+    /**
+     * @param baseUrl The url relative paths are resolved against.
+     */
+    void setBaseUrl(String baseUrl);
+
+    /**
+     * @param timeout The connect timeout in milliseconds, {@code 0} for no timeout.
+     */
+    void setConnectTimeout(int timeout);
+
+    /**
+     * @param timeout The read timeout in milliseconds, {@code 0} for no timeout.
+     */
+    void setReadTimeout(int timeout);
+
+    /**
+     * @param enabled {@code true} to request gzip encoded responses and decode them,
+     *        {@code false} otherwise.
+     */
+    void setGzipEnabled(boolean enabled);
+
+    /**
+     * @param bytes The size in bytes at or above which POST bodies are gzip compressed, or
+     *        {@link HttpRequest#NO_REQUEST_COMPRESSION} to never compress request bodies.
+     */
+    void setRequestCompressionThreshold(int bytes);
+
+    /**
+     * Sets a header that will be sent with every request, replacing any existing value.
+     *
+     * @param name The name of the header.
+     * @param value The value of the header or {@code null} to remove it.
+     */
+    void setHeader(String name, String value);
+
+    /**
+     * Make a HTTP GET request.
+     *
+     * @param path The path or url to request from the server via HTTP GET
+     * @return {@link HttpResponse} containing the response code and body.
+     * @throws ErrorWithResponse when there was a validation error.
+     * @throws BraintreeException when there was an error fulfilling the request.
+     */
+    HttpResponse get(String path) throws ErrorWithResponse, BraintreeException;
+
+    /**
+     * Make a conditional HTTP GET request. A 304 Not Modified response is returned rather than
+     * treated as an error.
+     *
+     * @param path The path or url to request from the server via HTTP GET
+     * @param headers Headers to send with this request only, such as If-None-Match.
+     * @return {@link HttpResponse} containing the response code, headers and body.
+     * @throws ErrorWithResponse when there was a validation error.
+     * @throws BraintreeException when there was an error fulfilling the request.
+     */
+    HttpResponse get(String path, Map<String, String> headers)
+            throws ErrorWithResponse, BraintreeException;
+
+    /**
+     * Make a HTTP GET request and parse the response body as it is read.
+     *
+     * @param path The path or url to request from the server via HTTP GET
+     * @param parser The {@link ResponseParser} used to parse a successful response body.
+     * @return The parsed response body.
+     * @throws ErrorWithResponse when there was a validation error.
+     * @throws BraintreeException when there was an error fulfilling the request.
+     */
+    <T> T get(String path, ResponseParser<T> parser) throws ErrorWithResponse, BraintreeException;
+
+    /**
+     * Make a HTTP POST request.
+     *
+     * @param path The path or url to request from the server via HTTP POST
+     * @param data The body of the POST request
+     * @return {@link HttpResponse} containing the response code and body.
+     * @throws ErrorWithResponse when there was a validation error.
+     * @throws BraintreeException when there was an error fulfilling the request.
+     */
+    HttpResponse post(String path, String data) throws ErrorWithResponse, BraintreeException;
+
+    /**
+     * Make a HTTP POST request and parse the response body as it is read.
+     *
+     * @param path The path or url to request from the server via HTTP POST
+     * @param data The body of the POST request
+     * @param parser The {@link ResponseParser} used to parse a successful response body.
+     * @return The parsed response body.
+     * @throws ErrorWithResponse when there was a validation error.
+     * @throws BraintreeException when there was an error fulfilling the request.
+     */
+    <T> T post(String path, String data, ResponseParser<T> parser)
+            throws ErrorWithResponse, BraintreeException;
+
+    /**
+     * Make a HTTP POST request, writing the body directly to the request stream.
+     *
+     * @param path The path or url to request from the server via HTTP POST
+     * @param body The {@link RequestBody} of the POST request
+     * @return {@link HttpResponse} containing the response code and body.
+     * @throws ErrorWithResponse when there was a validation error.
+     * @throws BraintreeException when there was an error fulfilling the request.
+     */
+    HttpResponse post(String path, RequestBody body) throws ErrorWithResponse, BraintreeException;
+
+    /**
+     * Make a HTTP POST request, writing the body directly to the request stream and parsing the
+     * response body as it is read.
+     *
+     * @param path The path or url to request from the server via HTTP POST
+     * @param body The {@link RequestBody} of the POST request
+     * @param parser The {@link ResponseParser} used to parse a successful response body.
+     * @return The parsed response body.
+     * @throws ErrorWithResponse when there was a validation error.
+     * @throws BraintreeException when there was an error fulfilling the request.
+     */
+    <T> T post(String path, RequestBody body, ResponseParser<T> parser)
+            throws ErrorWithResponse, BraintreeException;
+}
@@ -0,0 +1,101 @@
+package com.braintreepayments.api.internal;
+
+/**
+ * Creates the {@link HttpTransport} used by {@link com.braintreepayments.api.BraintreeApi}.
+ *
+ * {@link HttpRequest} is used by default. When HTTP/2 is enabled and the optional OkHttp
+ * dependency is present, {@link OkHttpRequest} is used instead. When hedging is enabled the
+ * transport is wrapped in a {@link HedgingHttpTransport}.
+ */
+public final class HttpTransportFactory {
+
+    private static volatile boolean sHttp2Enabled = false;
+    private static volatile boolean sGzipEnabled = false;
+    private static volatile boolean sHedgingEnabled = false;
+    private static volatile int sRequestCompressionThreshold = HttpRequest.NO_REQUEST_COMPRESSION;
+
+    private HttpTransportFactory() {}
+
+    /**
+     * @param enabled {@code true} to use {@link OkHttpRequest} for new transports when OkHttp is
+     *        available, {@code false} to always use {@link HttpRequest}.
+     */
+    public static void setHttp2Enabled(boolean enabled) {
+        sHttp2Enabled = enabled;
+    }
+
+    /**
+     * @return {@code true} if HTTP/2 has been enabled, {@code false} otherwise.
+     */
+    public static boolean isHttp2Enabled() {
+        return sHttp2Enabled;
+    }
+
+    /**
+     * Compression is opt-in. Configuration and payment_methods responses compress well and
+     * enabling it reduces transfer size on metered networks.
+     *
+     * @param enabled {@code true} to request gzip encoded responses on new transports.
+     * @see HttpTransport#setGzipEnabled(boolean)
+     */
+    public static void setGzipEnabled(boolean enabled) {
+        sGzipEnabled = enabled;
+    }
+
+    /**
+     * @param bytes The size in bytes at or above which POST bodies sent by new transports are
+     *        gzip compressed, or {@link HttpRequest#NO_REQUEST_COMPRESSION} to disable.
+     * @see HttpTransport#setRequestCompressionThreshold(int)
+     */
+    public static void setRequestCompressionThreshold(int bytes) {
+        sRequestCompressionThreshold = bytes;
+    }
+
+    /**
+     * @param enabled {@code true} to hedge slow GET requests made by new transports.
+     * @see HedgingHttpTransport
+     */
+    public static void setHedgingEnabled(boolean enabled) {
+        sHedgingEnabled = enabled;
+    }
+
+    /**
+     * @return {@code true} if the optional OkHttp dependency is on the classpath.
+     */
+    public static boolean isHttp2Available() {
+        try {
+            Class.forName("com.squareup.okhttp.OkUrlFactory");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param authorizationFingerprint The authorization fingerprint to send with every request.
+     * @return a new {@link HttpTransport}.
+     */
+    public static HttpTransport create(String authorizationFingerprint) {
+        HttpTransport transport = null;
+        if (sHttp2Enabled) {
+            try {
+                transport = new OkHttpRequest(authorizationFingerprint);
+            } catch (NoClassDefFoundError ignored) {
+                // OkHttp is an optional dependency, fall back to HttpURLConnection
+            }
+        }
+
+        if (transport == null) {
+            transport = new HttpRequest(authorizationFingerprint);
+        }
+
+        transport.setGzipEnabled(sGzipEnabled);
+        transport.setRequestCompressionThreshold(sRequestCompressionThreshold);
+
+        if (sHedgingEnabled) {
+            transport = new HedgingHttpTransport(transport);
+        }
+
+        return transport;
+    }
+}
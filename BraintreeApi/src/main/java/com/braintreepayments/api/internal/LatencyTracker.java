@@ -0,0 +1,42 @@
+package com.braintreepayments.api.internal;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent request latencies and reports a percentile of them.
+ */
+/* package */ class LatencyTracker {
+
+    private final long[] mSamples;
+    private final int mMinSamples;
+    private int mCount = 0;
+    private int mNext = 0;
+
+    LatencyTracker(int capacity, int minSamples) {
+        mSamples = new long[capacity];
+        mMinSamples = minSamples;
+    }
+
+    synchronized void record(long latencyMillis) {
+        mSamples[mNext] = latencyMillis;
+        mNext = (mNext + 1) % mSamples.length;
+        mCount = Math.min(mCount + 1, mSamples.length);
+    }
+
+    /**
+     * @param percentile The percentile, between {@code 0} and {@code 1}.
+     * @param defaultMillis The value to return until enough samples have been recorded.
+     * @return The latency at the given percentile of the recorded samples.
+     */
+    synchronized long getPercentile(double percentile, long defaultMillis) {
+        if (mCount < mMinSamples) {
+            return defaultMillis;
+        }
+
+        long[] sorted = Arrays.copyOf(mSamples, mCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * mCount) - 1;
+
+        return sorted[Math.max(0, Math.min(index, mCount - 1))];
+    }
+}
@@ -0,0 +1,43 @@
+package com.braintreepayments.api.internal;
+
+import com.squareup.okhttp.OkHttpClient;
+import com.squareup.okhttp.OkUrlFactory;
+import com.squareup.okhttp.Protocol;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+
+/**
+ * {@link HttpTransport} backed by OkHttp that negotiates HTTP/2 when the server supports it. All
+ * instances share a single client so concurrent configuration, tokenization and analytics
+ * requests are multiplexed over one connection per host instead of each using its own socket.
+ *
+ * Requires the optional {@code com.squareup.okhttp:okhttp-urlconnection} dependency.
+ *
+ * @see HttpTransportFactory
+ */
+public class OkHttpRequest extends HttpRequest {
+
+    private static OkUrlFactory sUrlFactory;
+
+    public OkHttpRequest(String authorizationFingerprint) {
+        super(authorizationFingerprint);
+    }
+
+    @Override
+    protected HttpURLConnection openConnection(URL url) throws IOException {
+        return getUrlFactory().open(url);
+    }
+
+    private static synchronized OkUrlFactory getUrlFactory() {
+        if (sUrlFactory == null) {
+            OkHttpClient client = new OkHttpClient();
+            client.setProtocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+            sUrlFactory = new OkUrlFactory(client);
+        }
+
+        return sUrlFactory;
+    }
+}
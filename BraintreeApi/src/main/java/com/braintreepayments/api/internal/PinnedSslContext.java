@@ -0,0 +1,161 @@
+package com.braintreepayments.api.internal;
+
+import com.braintreepayments.api.exceptions.BraintreeSslException;
+
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Collection;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+
+/**
+ * Process wide {@link SSLContext} that only trusts the certificates in
+ * {@link BraintreeGatewayCertificate}. The context is built lazily on first use and shared by
+ * every request so the certificate bundle is only parsed once and TLS sessions can be resumed
+ * across requests.
+ */
+public final class PinnedSslContext {
+
+    public static final int DEFAULT_SESSION_CACHE_SIZE = 10;
+    public static final int DEFAULT_SESSION_TIMEOUT_SECONDS = 60 * 60;
+
+    private static final Object LOCK = new Object();
+
+    private static volatile SSLContext sSslContext;
+    private static volatile SSLSocketFactory sSocketFactory;
+    private static int sSessionCacheSize = DEFAULT_SESSION_CACHE_SIZE;
+    private static int sSessionTimeoutSeconds = DEFAULT_SESSION_TIMEOUT_SECONDS;
+
+    private PinnedSslContext() {}
+
+    /**
+     * @return the shared {@link SSLSocketFactory}, building the pinned {@link SSLContext} if it
+     *         has not been built yet.
+     * @throws BraintreeSslException if the {@link SSLContext} could not be built.
+     */
+    public static SSLSocketFactory getSocketFactory() throws BraintreeSslException {
+        SSLSocketFactory socketFactory = sSocketFactory;
+        if (socketFactory == null) {
+            synchronized (LOCK) {
+                socketFactory = sSocketFactory;
+                if (socketFactory == null) {
+                    sSslContext = buildSslContext();
+                    socketFactory = sSslContext.getSocketFactory();
+                    sSocketFactory = socketFactory;
+                }
+            }
+        }
+
+        return socketFactory;
+    }
+
+    /**
+     * Sets the number of TLS sessions kept for resumption. Takes effect immediately if the
+     * context has already been built.
+     *
+     * @param size the maximum number of cached sessions, {@code 0} for no limit.
+     */
+    public static void setSessionCacheSize(int size) {
+        synchronized (LOCK) {
+            sSessionCacheSize = size;
+            applySessionSettings(sSslContext);
+        }
+    }
+
+    /**
+     * Sets how long a TLS session may be resumed after it was established. Takes effect
+     * immediately if the context has already been built.
+     *
+     * @param seconds the session timeout in seconds, {@code 0} for no limit.
+     */
+    public static void setSessionTimeout(int seconds) {
+        synchronized (LOCK) {
+            sSessionTimeoutSeconds = seconds;
+            applySessionSettings(sSslContext);
+        }
+    }
+
+    /**
+     * Builds the {@link SSLContext} on a background thread so the first request does not pay for
+     * parsing the certificate bundle. Does nothing if the context has already been built.
+     */
+    public static void warmUp() {
+        if (sSocketFactory != null) {
+            return;
+        }
+
+        BraintreeExecutors.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    getSocketFactory();
+                } catch (BraintreeSslException ignored) {
+                    // The error will be surfaced again by the first request
+                }
+            }
+        });
+    }
+
+    /**
+     * Discards the cached {@link SSLContext} and any sessions it holds. The next request will
+     * rebuild it.
+     */
+    public static void reset() {
+        synchronized (LOCK) {
+            sSslContext = null;
+            sSocketFactory = null;
+        }
+    }
+
+    /**
+     * @see <a href="http://developer.android.com/training/articles/security-ssl.html#UnknownCa">Android Documentation</a>
+     * @see <a href="https://github.com/braintree/braintree_java/blob/95b96c356324d1532714f849402f830251ce8b81/src/main/java/com/braintreegateway/util/Http.java#L100">Braintree Java Client Library</a>
+     */
+    private static SSLContext buildSslContext() throws BraintreeSslException {
+        try {
+            KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+            keyStore.load(null, null);
+
+            CertificateFactory cf = CertificateFactory.getInstance("X.509");
+            InputStream certStream = BraintreeGatewayCertificate.getCertInputStream();
+
+            Collection<? extends Certificate> certificates = cf.generateCertificates(certStream);
+            for (Certificate cert : certificates) {
+                if (cert instanceof X509Certificate) {
+                    String subject = ((X509Certificate) cert).getSubjectDN().getName();
+                    keyStore.setCertificateEntry(subject, cert);
+                }
+            }
+
+            TrustManagerFactory tmf = TrustManagerFactory.getInstance(
+                    TrustManagerFactory.getDefaultAlgorithm());
+            tmf.init(keyStore);
+
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, tmf.getTrustManagers(), null);
+            applySessionSettings(sslContext);
+
+            return sslContext;
+        } catch (Exception e) {
+            throw new BraintreeSslException(e);
+        }
+    }
+
+    private static void applySessionSettings(SSLContext sslContext) {
+        if (sslContext == null) {
+            return;
+        }
+
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        if (sessionContext != null) {
+            sessionContext.setSessionCacheSize(sSessionCacheSize);
+            sessionContext.setSessionTimeout(sSessionTimeoutSeconds);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.braintreepayments.api.internal;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * A json request body that is written directly to the request stream by an {@link HttpTransport}.
+ *
+ * The transport opens and closes the enclosing json object and adds the authorization fingerprint,
+ * so the body is serialized exactly once.
+ */
+public interface RequestBody {
+
+    /**
+     * Writes the fields of the request body.
+     *
+     * @param gson {@link Gson} instance to use when serializing objects into the body.
+     * @param writer {@link JsonWriter} positioned inside the enclosing json object of the body.
+     * @throws IOException when writing to the request stream fails.
+     */
+    void writeFields(Gson gson, JsonWriter writer) throws IOException;
+}
@@ -0,0 +1,25 @@
+package com.braintreepayments.api.internal;
+
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+
+/**
+ * Parses a successful response body directly from the response stream, avoiding the
+ * intermediate {@link String} created by {@link HttpResponse#getResponseBody()}.
+ *
+ * Malformed json and unexpected tokens are reported as a
+ * {@link com.braintreepayments.api.exceptions.ServerException} by the {@link HttpTransport}.
+ *
+ * @param <T> The type the response body is parsed into.
+ */
+public interface ResponseParser<T> {
+
+    /**
+     * @param reader The {@link JsonReader} positioned at the start of the response body.
+     * @return The parsed response.
+     * @throws IOException when reading from the response stream fails or the response body cannot
+     *         be parsed.
+     */
+    T parse(JsonReader reader) throws IOException;
+}
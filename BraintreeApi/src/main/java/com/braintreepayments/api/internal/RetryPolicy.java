@@ -0,0 +1,117 @@
+package com.braintreepayments.api.internal;
+
+import com.braintreepayments.api.exceptions.BraintreeException;
+import com.braintreepayments.api.exceptions.DeadlineExceededException;
+import com.braintreepayments.api.exceptions.DownForMaintenanceException;
+import com.braintreepayments.api.exceptions.ServerException;
+import com.braintreepayments.api.exceptions.UnexpectedException;
+
+import java.util.Random;
+
+/**
+ * Determines which failed requests made by {@link RetryingHttpTransport} are retried and how long
+ * to wait before each retry.
+ *
+ * Only idempotent requests (GET) are retried unless non-idempotent retries are explicitly enabled.
+ * Retrying a POST can create the same payment method more than once if the first attempt reached
+ * the gateway. Backoff grows exponentially from the initial backoff up to the maximum backoff and
+ * uses full jitter so that many clients do not retry in lockstep.
+ */
+public class RetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 250;
+    public static final long DEFAULT_MAX_BACKOFF_MILLIS = 2000;
+
+    /**
+     * A {@link RetryPolicy} that never retries.
+     */
+    public static final RetryPolicy NO_RETRIES = new RetryPolicy(1, 0, 0, false);
+
+    private final int mMaxAttempts;
+    private final long mInitialBackoffMillis;
+    private final long mMaxBackoffMillis;
+    private final boolean mRetryNonIdempotentRequests;
+    private final Random mRandom = new Random();
+
+    /**
+     * Creates a {@link RetryPolicy} that makes up to {@link #DEFAULT_MAX_ATTEMPTS} attempts for
+     * idempotent requests.
+     */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF_MILLIS, DEFAULT_MAX_BACKOFF_MILLIS,
+                false);
+    }
+
+    /**
+     * @param maxAttempts The maximum number of attempts, including the first one.
+     * @param initialBackoffMillis The maximum wait before the first retry.
+     * @param maxBackoffMillis The upper bound of the wait before any retry.
+     * @param retryNonIdempotentRequests {@code true} to also retry POST requests.
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis,
+            boolean retryNonIdempotentRequests) {
+        mMaxAttempts = Math.max(1, maxAttempts);
+        mInitialBackoffMillis = Math.max(0, initialBackoffMillis);
+        mMaxBackoffMillis = Math.max(mInitialBackoffMillis, maxBackoffMillis);
+        mRetryNonIdempotentRequests = retryNonIdempotentRequests;
+    }
+
+    /**
+     * @return The maximum number of attempts, including the first one.
+     */
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /**
+     * @return {@code true} if POST requests are retried, {@code false} otherwise.
+     */
+    public boolean retriesNonIdempotentRequests() {
+        return mRetryNonIdempotentRequests;
+    }
+
+    /**
+     * Server errors, maintenance responses and network failures are retryable. Validation,
+     * authentication and authorization errors are not, they will fail the same way again. An
+     * operation whose deadline has passed is never retried.
+     *
+     * @param exception The exception the last attempt failed with.
+     * @return {@code true} if the request can be retried.
+     */
+    public boolean isRetryable(BraintreeException exception) {
+        if (exception instanceof DeadlineExceededException) {
+            return false;
+        }
+
+        return exception instanceof ServerException ||
+                exception instanceof DownForMaintenanceException ||
+                exception instanceof UnexpectedException;
+    }
+
+    /**
+     * @param idempotent {@code true} if the request is idempotent.
+     * @param attempt The number of attempts already made.
+     * @param exception The exception the last attempt failed with.
+     * @return {@code true} if another attempt should be made.
+     */
+    public boolean shouldRetry(boolean idempotent, int attempt, BraintreeException exception) {
+        return (idempotent || mRetryNonIdempotentRequests) && attempt < mMaxAttempts &&
+                isRetryable(exception);
+    }
+
+    /**
+     * @param attempt The number of attempts already made.
+     * @return The time to wait before the next attempt, a random value between {@code 0} and the
+     *         exponential backoff for the attempt.
+     */
+    public long getBackoffMillis(int attempt) {
+        long backoff = mInitialBackoffMillis;
+        for (int i = 1; i < attempt && backoff < mMaxBackoffMillis; i++) {
+            backoff *= 2;
+        }
+        backoff = Math.min(backoff, mMaxBackoffMillis);
+
+        return (long) (mRandom.nextDouble() * backoff);
+    }
+}
@@ -0,0 +1,260 @@
+package com.braintreepayments.api.internal;
+
+import android.net.Uri;
+
+import com.braintreepayments.api.exceptions.BraintreeException;
+import com.braintreepayments.api.exceptions.DeadlineExceededException;
+import com.braintreepayments.api.exceptions.DownForMaintenanceException;
+import com.braintreepayments.api.exceptions.ErrorWithResponse;
+import com.braintreepayments.api.exceptions.RequestCancelledException;
+import com.braintreepayments.api.exceptions.UnexpectedException;
+
+import java.util.Map;
+
+/**
+ * {@link HttpTransport} that retries failed requests made by another transport according to a
+ * {@link RetryPolicy} and fails fast while the {@link CircuitBreaker} of the request's host is
+ * open. Retries stop once the current {@link Deadline} has passed.
+ */
+public class RetryingHttpTransport implements HttpTransport {
+
+    static final String CIRCUIT_OPEN_MESSAGE =
+            "The Braintree gateway is unavailable, request was not attempted";
+
+    private final HttpTransport mTransport;
+    private final CircuitBreaker mCircuitBreaker;
+    private volatile RetryPolicy mRetryPolicy;
+    private volatile String mBaseUrl;
+
+    /**
+     * Creates a transport that retries idempotent requests with the default {@link RetryPolicy}
+     * and shares the {@link CircuitBreaker} of each host with other transports.
+     *
+     * @param transport The {@link HttpTransport} that makes the requests.
+     */
+    public RetryingHttpTransport(HttpTransport transport) {
+        this(transport, new RetryPolicy());
+    }
+
+    /**
+     * @see #RetryingHttpTransport(HttpTransport)
+     */
+    public RetryingHttpTransport(HttpTransport transport, RetryPolicy retryPolicy) {
+        this(transport, retryPolicy, null);
+    }
+
+    /**
+     * @param circuitBreaker The {@link CircuitBreaker} to use for every request, {@code null} to
+     *        use {@link CircuitBreaker#forHost(String)} of the request's host.
+     */
+    public RetryingHttpTransport(HttpTransport transport, RetryPolicy retryPolicy,
+            CircuitBreaker circuitBreaker) {
+        mTransport = transport;
+        mRetryPolicy = retryPolicy;
+        mCircuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * @param retryPolicy The {@link RetryPolicy} to use for subsequent requests.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        mRetryPolicy = (retryPolicy == null) ? RetryPolicy.NO_RETRIES : retryPolicy;
+    }
+
+    /**
+     * @return The {@link RetryPolicy} used for requests.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
+    @Override
+    public void setBaseUrl(String baseUrl) {
+        mBaseUrl = baseUrl;
+        mTransport.setBaseUrl(baseUrl);
+    }
+
+    @Override
+    public void setConnectTimeout(int timeout) {
+        mTransport.setConnectTimeout(timeout);
+    }
+
+    @Override
+    public void setReadTimeout(int timeout) {
+        mTransport.setReadTimeout(timeout);
+    }
+
+    @Override
+    public void setGzipEnabled(boolean enabled) {
+        mTransport.setGzipEnabled(enabled);
+    }
+
+    @Override
+    public void setRequestCompressionThreshold(int bytes) {
+        mTransport.setRequestCompressionThreshold(bytes);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        mTransport.setHeader(name, value);
+    }
+
+    @Override
+    public HttpResponse get(final String path) throws ErrorWithResponse, BraintreeException {
+        return execute(path, true, new Request<HttpResponse>() {
+            @Override
+            public HttpResponse execute() throws ErrorWithResponse, BraintreeException {
+                return mTransport.get(path);
+            }
+        });
+    }
+
+    @Override
+    public HttpResponse get(final String path, final Map<String, String> headers)
+            throws ErrorWithResponse, BraintreeException {
+        return execute(path, true, new Request<HttpResponse>() {
+            @Override
+            public HttpResponse execute() throws ErrorWithResponse, BraintreeException {
+                return mTransport.get(path, headers);
+            }
+        });
+    }
+
+    @Override
+    public <T> T get(final String path, final ResponseParser<T> parser)
+            throws ErrorWithResponse, BraintreeException {
+        return execute(path, true, new Request<T>() {
+            @Override
+            public T execute() throws ErrorWithResponse, BraintreeException {
+                return mTransport.get(path, parser);
+            }
+        });
+    }
+
+    @Override
+    public HttpResponse post(final String path, final String data)
+            throws ErrorWithResponse, BraintreeException {
+        return execute(path, false, new Request<HttpResponse>() {
+            @Override
+            public HttpResponse execute() throws ErrorWithResponse, BraintreeException {
+                return mTransport.post(path, data);
+            }
+        });
+    }
+
+    @Override
+    public <T> T post(final String path, final String data, final ResponseParser<T> parser)
+            throws ErrorWithResponse, BraintreeException {
+        return execute(path, false, new Request<T>() {
+            @Override
+            public T execute() throws ErrorWithResponse, BraintreeException {
+                return mTransport.post(path, data, parser);
+            }
+        });
+    }
+
+    @Override
+    public HttpResponse post(final String path, final RequestBody body)
+            throws ErrorWithResponse, BraintreeException {
+        return execute(path, false, new Request<HttpResponse>() {
+            @Override
+            public HttpResponse execute() throws ErrorWithResponse, BraintreeException {
+                return mTransport.post(path, body);
+            }
+        });
+    }
+
+    @Override
+    public <T> T post(final String path, final RequestBody body, final ResponseParser<T> parser)
+            throws ErrorWithResponse, BraintreeException {
+        return execute(path, false, new Request<T>() {
+            @Override
+            public T execute() throws ErrorWithResponse, BraintreeException {
+                return mTransport.post(path, body, parser);
+            }
+        });
+    }
+
+    private CircuitBreaker circuitBreakerFor(String path) {
+        if (mCircuitBreaker != null) {
+            return mCircuitBreaker;
+        }
+
+        String host = (path == null) ? null : Uri.parse(path).getHost();
+        if (host == null && mBaseUrl != null) {
+            host = Uri.parse(mBaseUrl).getHost();
+        }
+        return CircuitBreaker.forHost(host);
+    }
+
+    private <T> T execute(String path, boolean idempotent, Request<T> request)
+            throws ErrorWithResponse, BraintreeException {
+        CircuitBreaker circuitBreaker = circuitBreakerFor(path);
+        RetryPolicy retryPolicy = mRetryPolicy;
+        Deadline deadline = Deadline.current();
+        CancellationToken cancellationToken = CancellationToken.current();
+        int attempt = 0;
+        while (true) {
+            if (deadline != null) {
+                deadline.check();
+            }
+            if (cancellationToken != null) {
+                cancellationToken.check();
+            }
+            if (!circuitBreaker.allowRequest()) {
+                throw new DownForMaintenanceException(CIRCUIT_OPEN_MESSAGE);
+            }
+
+            attempt++;
+            boolean outcomeRecorded = false;
+            try {
+                T response = request.execute();
+                circuitBreaker.recordSuccess();
+                outcomeRecorded = true;
+                return response;
+            } catch (ErrorWithResponse e) {
+                circuitBreaker.recordSuccess();
+                outcomeRecorded = true;
+                throw e;
+            } catch (RequestCancelledException e) {
+                circuitBreaker.recordNoResponse();
+                outcomeRecorded = true;
+                throw e;
+            } catch (BraintreeException e) {
+                if (e instanceof DownForMaintenanceException) {
+                    circuitBreaker.recordUnavailable();
+                } else if (e instanceof UnexpectedException) {
+                    circuitBreaker.recordNoResponse();
+                } else {
+                    circuitBreaker.recordSuccess();
+                }
+                outcomeRecorded = true;
+
+                if (!retryPolicy.shouldRetry(idempotent, attempt, e)) {
+                    throw e;
+                }
+
+                long backoff = retryPolicy.getBackoffMillis(attempt);
+                if (deadline != null && backoff >= deadline.getRemainingMillis()) {
+                    throw new DeadlineExceededException(Deadline.DEADLINE_EXCEEDED_MESSAGE);
+                }
+
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            } finally {
+                if (!outcomeRecorded) {
+                    // a RuntimeException or Error, must not keep the trial slot of an open breaker
+                    circuitBreaker.recordNoResponse();
+                }
+            }
+        }
+    }
+
+    private interface Request<T> {
+        T execute() throws ErrorWithResponse, BraintreeException;
+    }
+}
@@ -0,0 +1,139 @@
+package com.braintreepayments.api.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded FIFO queue. When it is full, adding an item drops the oldest item that may be dropped
+ * and counts the overflow, so memory use stays bounded however long the queue is not drained.
+ * If none of the queued items may be dropped the queue grows past its capacity instead.
+ *
+ * @param <T> The type of the items.
+ */
+public class RingBuffer<T> {
+
+    /**
+     * Selects items for {@link #removeMatching(Matcher)} and {@link #add(Object, Matcher)}.
+     */
+    public interface Matcher<T> {
+        boolean matches(T item);
+    }
+
+    private final int mCapacity;
+    private Object[] mItems;
+    private int mHead;
+    private int mSize;
+    private long mOverflowCount;
+
+    /**
+     * @param capacity The number of items kept before items are dropped.
+     */
+    public RingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        mCapacity = capacity;
+        mItems = new Object[capacity];
+    }
+
+    /**
+     * Adds {@code item} at the tail, dropping the oldest item if the buffer is full.
+     *
+     * @return The oldest item if it was dropped to make room, {@code null} otherwise.
+     */
+    public T add(T item) {
+        return add(item, null);
+    }
+
+    /**
+     * Adds {@code item} at the tail. If the buffer is full, the oldest item {@code droppable}
+     * matches is dropped to make room. If it matches none of the queued items, nothing is dropped
+     * and the buffer grows past its capacity.
+     *
+     * @param droppable Selects the items that may be dropped, {@code null} to allow any item.
+     * @return The item that was dropped to make room, {@code null} otherwise.
+     */
+    public synchronized T add(T item, Matcher<T> droppable) {
+        T dropped = null;
+        if (mSize >= mCapacity) {
+            for (int i = 0; i < mSize; i++) {
+                T candidate = get(i);
+                if (droppable == null || droppable.matches(candidate)) {
+                    dropped = candidate;
+                    removeAt(i);
+                    mOverflowCount++;
+                    break;
+                }
+            }
+        }
+
+        if (mSize == mItems.length) {
+            grow();
+        }
+        mItems[(mHead + mSize) % mItems.length] = item;
+        mSize++;
+        return dropped;
+    }
+
+    /**
+     * Removes every item {@code matcher} matches.
+     *
+     * @return The removed items, oldest first.
+     */
+    public synchronized List<T> removeMatching(Matcher<T> matcher) {
+        List<T> removed = new ArrayList<T>();
+        int kept = 0;
+        for (int i = 0; i < mSize; i++) {
+            T item = get(i);
+            if (matcher.matches(item)) {
+                removed.add(item);
+            } else {
+                mItems[(mHead + kept) % mItems.length] = item;
+                kept++;
+            }
+        }
+
+        for (int i = kept; i < mSize; i++) {
+            mItems[(mHead + i) % mItems.length] = null;
+        }
+        mSize = kept;
+        return removed;
+    }
+
+    public synchronized int size() {
+        return mSize;
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * @return The number of items dropped because the buffer was full.
+     */
+    public synchronized long getOverflowCount() {
+        return mOverflowCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T get(int index) {
+        return (T) mItems[(mHead + index) % mItems.length];
+    }
+
+    private void removeAt(int index) {
+        for (int i = index; i < mSize - 1; i++) {
+            mItems[(mHead + i) % mItems.length] = get(i + 1);
+        }
+        mItems[(mHead + mSize - 1) % mItems.length] = null;
+        mSize--;
+    }
+
+    private void grow() {
+        Object[] items = new Object[mItems.length * 2];
+        for (int i = 0; i < mSize; i++) {
+            items[i] = get(i);
+        }
+        mItems = items;
+        mHead = 0;
+    }
+}
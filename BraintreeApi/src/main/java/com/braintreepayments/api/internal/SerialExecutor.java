@@ -0,0 +1,13 @@
+package com.braintreepayments.api.internal;
+
+/**
+ * {@link java.util.concurrent.ExecutorService} that runs its tasks one at a time, in submission
+ * order, on the threads of {@link BraintreeExecutors#getExecutor()}. It holds no thread of its
+ * own while it has nothing to run.
+ */
+public class SerialExecutor extends BoundedExecutor {
+
+    public SerialExecutor() {
+        super(1);
+    }
+}
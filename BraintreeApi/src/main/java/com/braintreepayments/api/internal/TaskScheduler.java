@@ -0,0 +1,108 @@
+package com.braintreepayments.api.internal;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs work in separate {@link Lane}s so that slow work in one lane does not delay another. Each
+ * lane starts its tasks in submission order and runs at most {@link Lane#getMaxConcurrency()} of
+ * them at the same time. {@link Lane#INTERACTIVE} runs on
+ * {@link BraintreeExecutors#getInteractiveExecutor()}, the other lanes share the threads of
+ * {@link BraintreeExecutors#getExecutor()} with other SDK background work.
+ */
+public class TaskScheduler {
+
+    /**
+     * The lanes work can be submitted to.
+     */
+    public static enum Lane {
+        /**
+         * Work a user is waiting on, such as tokenizing a payment method. Tasks run one at a time
+         * so results are delivered in the order they were requested.
+         */
+        INTERACTIVE(1),
+
+        /**
+         * Work that refreshes state the user is not waiting on, such as fetching payment methods.
+         */
+        BACKGROUND(1),
+
+        /**
+         * Analytics and other reporting.
+         */
+        TELEMETRY(2),
+
+        /**
+         * Long batches the user started, such as tokenizing many payment methods, together with
+         * the helper tasks that work on them in parallel. Kept apart from
+         * {@link #INTERACTIVE} so a batch does not block single requests.
+         */
+        BATCH(3);
+
+        private final int mMaxConcurrency;
+
+        Lane(int maxConcurrency) {
+            mMaxConcurrency = maxConcurrency;
+        }
+
+        /**
+         * @return The maximum number of tasks of this lane run at the same time.
+         */
+        public int getMaxConcurrency() {
+            return mMaxConcurrency;
+        }
+    }
+
+    private final Map<Lane, BoundedExecutor> mLanes =
+            new EnumMap<Lane, BoundedExecutor>(Lane.class);
+
+    public TaskScheduler() {
+        for (Lane lane : Lane.values()) {
+            if (lane == Lane.INTERACTIVE) {
+                mLanes.put(lane, new BoundedExecutor(lane.getMaxConcurrency()) {
+                    @Override
+                    protected Executor getTargetExecutor() {
+                        return BraintreeExecutors.getInteractiveExecutor();
+                    }
+                });
+            } else {
+                mLanes.put(lane, new BoundedExecutor(lane.getMaxConcurrency()));
+            }
+        }
+    }
+
+    /**
+     * Queues {@code task} on {@code lane}.
+     *
+     * @return A {@link Future} that completes when the task has run.
+     */
+    public Future<?> submit(Lane lane, Runnable task) {
+        return mLanes.get(lane).submit(task);
+    }
+
+    /**
+     * @return An {@link ExecutorService} that runs tasks on {@code lane}.
+     */
+    public ExecutorService getExecutor(Lane lane) {
+        return mLanes.get(lane);
+    }
+
+    /**
+     * @return The number of tasks of {@code lane} that are queued or running.
+     */
+    public int getPendingCount(Lane lane) {
+        return mLanes.get(lane).getPendingCount();
+    }
+
+    /**
+     * Stops accepting new work. Work that was already submitted still runs.
+     */
+    public void shutdown() {
+        for (BoundedExecutor executor : mLanes.values()) {
+            executor.shutdown();
+        }
+    }
+}
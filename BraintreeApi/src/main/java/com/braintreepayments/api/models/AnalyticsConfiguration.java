@@ -2,12 +2,35 @@ package com.braintreepayments.api.models;
 
 import com.google.gson.annotations.SerializedName;
 
+import java.util.Map;
+
 /**
  * Contains configuration for Braintree analytics calls
  */
 public class AnalyticsConfiguration {
 
+    /**
+     * Events per minute allowed when the configuration does not set a limit.
+     */
+    public static final int DEFAULT_MAX_EVENTS_PER_MINUTE = 60;
+
+    /**
+     * Events that may be sent at once when the configuration does not set a burst size.
+     */
+    public static final int DEFAULT_MAX_EVENT_BURST = 30;
+
+    /**
+     * Window in which repeated identical events are dropped when the configuration does not set
+     * one.
+     */
+    public static final long DEFAULT_DEDUPLICATION_WINDOW_MILLIS = 2000;
+
     @SerializedName("url") private String mUrl;
+    @SerializedName("sampleRate") private Double mSampleRate;
+    @SerializedName("sampleRates") private Map<String, Double> mSampleRates;
+    @SerializedName("maxEventsPerMinute") private Integer mMaxEventsPerMinute;
+    @SerializedName("maxEventBurst") private Integer mMaxEventBurst;
+    @SerializedName("deduplicationWindowMillis") private Long mDeduplicationWindowMillis;
 
     /**
      * @return the {@link java.lang.String} url of the Braintree analytics service.
@@ -15,4 +38,59 @@ public class AnalyticsConfiguration {
     public String getUrl() {
         return mUrl;
     }
+
+    /**
+     * Returns the fraction of events of a kind that are sent. A rate configured for the kind, or
+     * for the last segments of the kind (e.g. {@code "card.form.appeared"} for
+     * {@code "custom.android.card.form.appeared"}), takes precedence over the default rate. The
+     * longest matching key wins.
+     *
+     * @param kind The kind of the event.
+     * @return A rate between {@code 0} (send none) and {@code 1} (send all).
+     */
+    public double getSampleRate(String kind) {
+        Double rate = null;
+        if (mSampleRates != null && kind != null) {
+            int matchedLength = -1;
+            for (Map.Entry<String, Double> entry : mSampleRates.entrySet()) {
+                String key = entry.getKey();
+                if (key != null && entry.getValue() != null && key.length() > matchedLength &&
+                        (kind.equals(key) || kind.endsWith("." + key))) {
+                    rate = entry.getValue();
+                    matchedLength = key.length();
+                }
+            }
+        }
+
+        if (rate == null) {
+            rate = mSampleRate;
+        }
+        return (rate == null) ? 1 : Math.max(0, Math.min(1, rate));
+    }
+
+    /**
+     * @return The number of events that may be sent per minute, on average, {@code 0} to not
+     *         limit events.
+     */
+    public int getMaxEventsPerMinute() {
+        return (mMaxEventsPerMinute == null || mMaxEventsPerMinute < 0) ?
+                DEFAULT_MAX_EVENTS_PER_MINUTE : mMaxEventsPerMinute;
+    }
+
+    /**
+     * @return The number of events that may be sent at once after a quiet period.
+     */
+    public int getMaxEventBurst() {
+        return (mMaxEventBurst == null || mMaxEventBurst < 1) ?
+                DEFAULT_MAX_EVENT_BURST : mMaxEventBurst;
+    }
+
+    /**
+     * @return The time in milliseconds in which an event that repeats an earlier identical event
+     *         is dropped, {@code 0} to send repeated events.
+     */
+    public long getDeduplicationWindowMillis() {
+        return (mDeduplicationWindowMillis == null || mDeduplicationWindowMillis < 0) ?
+                DEFAULT_DEDUPLICATION_WINDOW_MILLIS : mDeduplicationWindowMillis;
+    }
 }
@@ -7,26 +7,46 @@ import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.res.Configuration;
 import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
 import android.os.Build;
 import android.os.Build.VERSION;
 import android.provider.Settings.Secure;
 
 import com.braintreepayments.api.BuildConfig;
+import com.braintreepayments.api.internal.RequestBody;
 import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonWriter;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
-public class AnalyticsRequest {
+public class AnalyticsRequest implements RequestBody {
 
     @SerializedName("analytics") public Analytics[] mAnalytics;
     @SerializedName("_meta") public Meta mMeta;
 
     public AnalyticsRequest(Context context, String event, String integrationType) {
-        mAnalytics = new Analytics[]{ new Analytics(event) };
+        this(context, Collections.singletonList(event), integrationType);
+    }
+
+    /**
+     * Creates a request that sends several events with one {@code _meta} block.
+     *
+     * @param context
+     * @param events The names of the events, in the order they occurred.
+     * @param integrationType The type of integration the events occurred in.
+     */
+    public AnalyticsRequest(Context context, List<String> events, String integrationType) {
+        mAnalytics = new Analytics[events.size()];
+        for (int i = 0; i < mAnalytics.length; i++) {
+            mAnalytics[i] = new Analytics(events.get(i));
+        }
         mMeta = new Meta(context, integrationType);
     }
 
@@ -34,6 +54,14 @@ public class AnalyticsRequest {
         return new Gson().toJson(this);
     }
 
+    @Override
+    public void writeFields(Gson gson, JsonWriter writer) throws IOException {
+        writer.name("analytics");
+        gson.toJson(mAnalytics, Analytics[].class, writer);
+        writer.name("_meta");
+        gson.toJson(mMeta, Meta.class, writer);
+    }
+
     private class Analytics {
 
         @SerializedName("kind") private String mKind;
@@ -43,26 +71,49 @@ public class AnalyticsRequest {
         }
     }
 
-    private class Meta {
+    /**
+     * @return The type name of the active network, or {@code "none"} when there is no active
+     *         network.
+     */
+    public static String getNetworkType(Context context) {
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+        return (networkInfo == null) ? "none" : networkInfo.getTypeName();
+    }
 
-        @SerializedName("platform") private String mPlatform;
-        @SerializedName("platformVersion") private String mPlatformVersion;
-        @SerializedName("sdkVersion") private String mSdkVersion;
-        @SerializedName("merchantAppId") private String mMerchantAppId;
-        @SerializedName("merchantAppName") private String mMerchantAppName;
-        @SerializedName("merchantAppVersion") private String mMerchantAppVersion;
-        @SerializedName("deviceRooted") private String mDeviceRooted;
-        @SerializedName("deviceManufacturer") private String mDeviceManufacturer;
-        @SerializedName("deviceModel") private String mDeviceModel;
-        @SerializedName("deviceNetworkType") private String mDeviceNetworkType;
-        @SerializedName("androidId") private String mAndroidId;
-        @SerializedName("deviceAppGeneratedPersistentUuid") private String mDeviceAppGeneratedPersistentUuid;
-        @SerializedName("isSimulator") private String mIsSimulator;
-        @SerializedName("deviceScreenOrientation") private String mDeviceScreenOrientation;
-        @SerializedName("integrationType") private String mIntegrationType;
-        @SerializedName("userInterfaceOrientation") private String mUserInterfaceOrientation;
+    /**
+     * Device and application details that do not change while the process runs. Computing them
+     * reads package info and preferences and spawns a process for root detection, so they are
+     * computed once per process by {@link #get(android.content.Context)}.
+     */
+    private static class DeviceMetadata {
 
-        protected Meta(Context context, String integrationType) {
+        private static volatile DeviceMetadata sInstance;
+
+        private final String mMerchantAppId;
+        private final String mMerchantAppName;
+        private final String mMerchantAppVersion;
+        private final String mDeviceRooted;
+        private final String mAndroidId;
+        private final String mDeviceAppGeneratedPersistentUuid;
+        private final String mIsSimulator;
+
+        static DeviceMetadata get(Context context) {
+            DeviceMetadata deviceMetadata = sInstance;
+            if (deviceMetadata == null) {
+                synchronized (DeviceMetadata.class) {
+                    deviceMetadata = sInstance;
+                    if (deviceMetadata == null) {
+                        deviceMetadata = new DeviceMetadata(context.getApplicationContext());
+                        sInstance = deviceMetadata;
+                    }
+                }
+            }
+            return deviceMetadata;
+        }
+
+        private DeviceMetadata(Context context) {
             ApplicationInfo applicationInfo;
             String packageName = context.getPackageName();
             PackageManager packageManager = context.getPackageManager();
@@ -72,21 +123,13 @@ public class AnalyticsRequest {
                 applicationInfo = null;
             }
 
-            mPlatform = "Android";
-            mPlatformVersion = Integer.toString(VERSION.SDK_INT);
-            mSdkVersion = BuildConfig.VERSION_NAME;
             mMerchantAppId = packageName;
             mMerchantAppName = getAppName(applicationInfo, packageManager);
             mMerchantAppVersion = getAppVersion(packageManager, packageName);
             mDeviceRooted = isDeviceRooted();
-            mDeviceManufacturer = Build.MANUFACTURER;
-            mDeviceModel = Build.MODEL;
-            mDeviceNetworkType = getNetworkType(context);
             mAndroidId = Secure.getString(context.getContentResolver(), Secure.ANDROID_ID);
             mDeviceAppGeneratedPersistentUuid = getUUID(context);
             mIsSimulator = detectEmulator();
-            mIntegrationType = integrationType;
-            mUserInterfaceOrientation = getUserOrientation(context);
         }
 
         private String getAppName(ApplicationInfo applicationInfo, PackageManager packageManager) {
@@ -118,8 +161,9 @@ public class AnalyticsRequest {
             }
 
             boolean check3;
+            Process process = null;
             try {
-                Process process = Runtime.getRuntime().exec(new String[] { "/system/xbin/which", "su" });
+                process = Runtime.getRuntime().exec(new String[] { "/system/xbin/which", "su" });
                 BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()));
                 if (in.readLine() != null) {
                     check3 = true;
@@ -128,17 +172,15 @@ public class AnalyticsRequest {
                 }
             } catch (Exception e) {
                 check3 = false;
+            } finally {
+                if (process != null) {
+                    process.destroy();
+                }
             }
 
             return Boolean.toString(check1 || check2 || check3);
         }
 
-        private String getNetworkType(Context context) {
-            ConnectivityManager connectivityManager =
-                    (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
-            return connectivityManager.getActiveNetworkInfo().getTypeName();
-        }
-
         private String getUUID(Context context) {
             SharedPreferences prefs =
                     context.getSharedPreferences("BraintreeApi", Context.MODE_PRIVATE);
@@ -161,6 +203,46 @@ public class AnalyticsRequest {
                 return "false";
             }
         }
+    }
+
+    private class Meta {
+
+        @SerializedName("platform") private String mPlatform;
+        @SerializedName("platformVersion") private String mPlatformVersion;
+        @SerializedName("sdkVersion") private String mSdkVersion;
+        @SerializedName("merchantAppId") private String mMerchantAppId;
+        @SerializedName("merchantAppName") private String mMerchantAppName;
+        @SerializedName("merchantAppVersion") private String mMerchantAppVersion;
+        @SerializedName("deviceRooted") private String mDeviceRooted;
+        @SerializedName("deviceManufacturer") private String mDeviceManufacturer;
+        @SerializedName("deviceModel") private String mDeviceModel;
+        @SerializedName("deviceNetworkType") private String mDeviceNetworkType;
+        @SerializedName("androidId") private String mAndroidId;
+        @SerializedName("deviceAppGeneratedPersistentUuid") private String mDeviceAppGeneratedPersistentUuid;
+        @SerializedName("isSimulator") private String mIsSimulator;
+        @SerializedName("deviceScreenOrientation") private String mDeviceScreenOrientation;
+        @SerializedName("integrationType") private String mIntegrationType;
+        @SerializedName("userInterfaceOrientation") private String mUserInterfaceOrientation;
+
+        protected Meta(Context context, String integrationType) {
+            DeviceMetadata deviceMetadata = DeviceMetadata.get(context);
+
+            mPlatform = "Android";
+            mPlatformVersion = Integer.toString(VERSION.SDK_INT);
+            mSdkVersion = BuildConfig.VERSION_NAME;
+            mMerchantAppId = deviceMetadata.mMerchantAppId;
+            mMerchantAppName = deviceMetadata.mMerchantAppName;
+            mMerchantAppVersion = deviceMetadata.mMerchantAppVersion;
+            mDeviceRooted = deviceMetadata.mDeviceRooted;
+            mDeviceManufacturer = Build.MANUFACTURER;
+            mDeviceModel = Build.MODEL;
+            mDeviceNetworkType = getNetworkType(context);
+            mAndroidId = deviceMetadata.mAndroidId;
+            mDeviceAppGeneratedPersistentUuid = deviceMetadata.mDeviceAppGeneratedPersistentUuid;
+            mIsSimulator = deviceMetadata.mIsSimulator;
+            mIntegrationType = integrationType;
+            mUserInterfaceOrientation = getUserOrientation(context);
+        }
 
         private String getUserOrientation(Context context) {
             int orientation = context.getResources().getConfiguration().orientation;
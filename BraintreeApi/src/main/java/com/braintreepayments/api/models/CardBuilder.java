@@ -1,9 +1,12 @@
 package com.braintreepayments.api.models;
 
+import com.braintreepayments.api.internal.RequestBody;
 import com.braintreepayments.api.models.Card.BillingAddress;
 import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -12,7 +15,8 @@ import java.util.Map;
  * @see com.braintreepayments.api.models.Card
  * @see com.braintreepayments.api.models.PaymentMethod.Builder
  */
-public class CardBuilder implements PaymentMethod.Builder<Card> {
+public class CardBuilder implements PaymentMethod.Builder<Card>,
+        RequestBody {
 
     @SerializedName("creditCard") private Card mCard;
     private BillingAddress mBillingAddress = null;
@@ -180,6 +184,14 @@ public class CardBuilder implements PaymentMethod.Builder<Card> {
         return new Gson().toJson(toJson());
     }
 
+    @Override
+    public void writeFields(Gson gson, JsonWriter writer) throws IOException {
+        writer.name("creditCard");
+        gson.toJson(build(), Card.class, writer);
+        writer.name(PaymentMethod.Builder.METADATA_KEY);
+        gson.toJson(new Metadata(mIntegration, mSource), Metadata.class, writer);
+    }
+
     @Override
     public Card fromJson(String json) {
         return Card.fromJson(json);
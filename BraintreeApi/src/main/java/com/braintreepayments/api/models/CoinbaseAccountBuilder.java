@@ -1,13 +1,17 @@
 package com.braintreepayments.api.models;
 
 import com.braintreepayments.api.annotations.Beta;
+import com.braintreepayments.api.internal.RequestBody;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
 @Beta
-public class CoinbaseAccountBuilder implements PaymentMethod.Builder<CoinbaseAccount> {
+public class CoinbaseAccountBuilder implements PaymentMethod.Builder<CoinbaseAccount>,
+        RequestBody {
 
     private String mCode;
     private CoinbasePaymentMethodOptions mOptions;
@@ -68,6 +72,14 @@ public class CoinbaseAccountBuilder implements PaymentMethod.Builder<CoinbaseAcc
         return new Gson().toJson(toJson());
     }
 
+    @Override
+    public void writeFields(Gson gson, JsonWriter writer) throws IOException {
+        writer.name("coinbaseAccount");
+        gson.toJson(build(), CoinbaseAccount.class, writer);
+        writer.name(PaymentMethod.Builder.METADATA_KEY);
+        gson.toJson(new Metadata(mIntegration, mSource), Metadata.class, writer);
+    }
+
     @Override
     public CoinbaseAccountBuilder validate(boolean validate) {
         if(mOptions == null){
@@ -5,6 +5,7 @@ import android.text.TextUtils;
 import com.braintreepayments.api.annotations.Beta;
 import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
 
 /**
  * Contains the remote configuration for the Braintree Android SDK.
@@ -34,6 +35,17 @@ public class Configuration {
         return new Gson().fromJson(configuration, Configuration.class);
     }
 
+    /**
+     * Creates a new {@link com.braintreepayments.api.models.Configuration} instance directly from
+     * the configuration response stream.
+     *
+     * @param reader {@link JsonReader} positioned at the start of the json configuration from Braintree.
+     * @return {@link com.braintreepayments.api.models.Configuration} instance.
+     */
+    public static Configuration fromJson(JsonReader reader) {
+        return new Gson().fromJson(reader, Configuration.class);
+    }
+
     /**
      * @return The url of the Braintree client API for the current environment.
      */
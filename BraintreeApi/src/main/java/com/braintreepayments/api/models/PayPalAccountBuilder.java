@@ -2,10 +2,13 @@ package com.braintreepayments.api.models;
 
 import android.content.Context;
 
+import com.braintreepayments.api.internal.RequestBody;
 import com.braintreepayments.api.models.PaymentMethod.Builder;
 import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -14,7 +17,8 @@ import java.util.Map;
  * @see com.braintreepayments.api.models.PayPalAccount
  * @see com.braintreepayments.api.models.PaymentMethod.Builder
  */
-public class PayPalAccountBuilder implements PaymentMethod.Builder<PayPalAccount> {
+public class PayPalAccountBuilder implements PaymentMethod.Builder<PayPalAccount>,
+        RequestBody {
 
     @SerializedName("email") private String mEmail;
     @SerializedName("authorizationCode") private String mAuthorizationCode;
@@ -98,6 +102,14 @@ public class PayPalAccountBuilder implements PaymentMethod.Builder<PayPalAccount
         return new Gson().toJson(toJson());
     }
 
+    @Override
+    public void writeFields(Gson gson, JsonWriter writer) throws IOException {
+        writer.name("paypalAccount");
+        gson.toJson(build(), PayPalAccount.class, writer);
+        writer.name(Builder.METADATA_KEY);
+        gson.toJson(new Metadata(mIntegration, mSource), Metadata.class, writer);
+    }
+
     @Override
     public PayPalAccount fromJson(String json) {
         PayPalAccount payPalAccount = PayPalAccount.fromJson(json);
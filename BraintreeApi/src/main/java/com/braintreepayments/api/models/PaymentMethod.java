@@ -4,15 +4,17 @@ import android.os.Parcelable;
 
 import com.braintreepayments.api.exceptions.ServerException;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -27,6 +29,8 @@ public abstract class PaymentMethod implements Parcelable, Serializable {
 
     private static final String PAYMENT_METHOD_COLLECTION_KEY = "paymentMethods";
     private static final String PAYMENT_METHOD_TYPE_KEY = "type";
+    private static final Gson GSON = new Gson();
+    private static final JsonParser JSON_PARSER = new JsonParser();
 
     @SerializedName("nonce") protected String mNonce;
     @SerializedName("description") protected String mDescription;
@@ -83,36 +87,79 @@ public abstract class PaymentMethod implements Parcelable, Serializable {
      */
     public static List<PaymentMethod> parsePaymentMethods(String paymentMethodsString) throws ServerException {
         try {
-            JSONArray paymentMethods = new JSONObject(paymentMethodsString).getJSONArray(PAYMENT_METHOD_COLLECTION_KEY);
-
-            if (paymentMethods == null) {
-                return Collections.emptyList();
-            }
+            return parsePaymentMethods(new JsonReader(new StringReader(paymentMethodsString)));
+        } catch (ServerException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new ServerException("Parsing server response failed");
+        } catch (JsonParseException e) {
+            throw new ServerException("Parsing server response failed");
+        } catch (IllegalStateException e) {
+            throw new ServerException("Parsing server response failed");
+        }
+    }
 
-            List<PaymentMethod> paymentMethodsList = new ArrayList<PaymentMethod>();
-            JSONObject paymentMethod;
-            for(int i = 0; i < paymentMethods.length(); i++) {
-                paymentMethod = paymentMethods.getJSONObject(i);
-                String type = paymentMethod.getString(PAYMENT_METHOD_TYPE_KEY);
-                if (type.equals(Card.PAYMENT_METHOD_TYPE)) {
-                    paymentMethodsList.add(
-                            new Gson().fromJson(paymentMethod.toString(), Card.class));
-                } else if (type.equals(PayPalAccount.PAYMENT_METHOD_TYPE)) {
-                    paymentMethodsList.add(
-                            new Gson().fromJson(paymentMethod.toString(), PayPalAccount.class));
-                } else if (type.equals(CoinbaseAccount.PAYMENT_METHOD_TYPE)) {
-                    paymentMethodsList.add(
-                            new Gson().fromJson(paymentMethod.toString(), CoinbaseAccount.class));
-                } else if (type.equals(AndroidPayCard.PAYMENT_METHOD_TYPE)) {
-                    paymentMethodsList.add(
-                            new Gson().fromJson(paymentMethod.toString(), AndroidPayCard.class));
+    /**
+     * Parses a response from the Braintree gateway for a list of payment methods as it is read,
+     * deserializing each payment method without building an intermediate representation of the
+     * entire response.
+     *
+     * @param reader {@link JsonReader} positioned at the start of a response containing a list of
+     *        {@link com.braintreepayments.api.models.PaymentMethod}s
+     * @return List of {@link com.braintreepayments.api.models.PaymentMethod}s contained in the response
+     * @throws IOException if reading or parsing the response fails
+     */
+    public static List<PaymentMethod> parsePaymentMethods(JsonReader reader) throws IOException {
+        List<PaymentMethod> paymentMethodsList = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (PAYMENT_METHOD_COLLECTION_KEY.equals(reader.nextName())
+                    && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                paymentMethodsList = new ArrayList<PaymentMethod>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    PaymentMethod paymentMethod = fromJsonElement(JSON_PARSER.parse(reader));
+                    if (paymentMethod != null) {
+                        paymentMethodsList.add(paymentMethod);
+                    }
                 }
+                reader.endArray();
+            } else {
+                reader.skipValue();
             }
+        }
+        reader.endObject();
 
-            return paymentMethodsList;
-        } catch (JSONException e) {
+        if (paymentMethodsList == null) {
             throw new ServerException("Parsing server response failed");
         }
+
+        return paymentMethodsList;
+    }
+
+    private static PaymentMethod fromJsonElement(JsonElement paymentMethod) throws ServerException {
+        if (!paymentMethod.isJsonObject()) {
+            throw new ServerException("Parsing server response failed");
+        }
+
+        JsonElement typeElement = paymentMethod.getAsJsonObject().get(PAYMENT_METHOD_TYPE_KEY);
+        if (typeElement == null || !typeElement.isJsonPrimitive()) {
+            throw new ServerException("Parsing server response failed");
+        }
+
+        String type = typeElement.getAsString();
+        if (type.equals(Card.PAYMENT_METHOD_TYPE)) {
+            return GSON.fromJson(paymentMethod, Card.class);
+        } else if (type.equals(PayPalAccount.PAYMENT_METHOD_TYPE)) {
+            return GSON.fromJson(paymentMethod, PayPalAccount.class);
+        } else if (type.equals(CoinbaseAccount.PAYMENT_METHOD_TYPE)) {
+            return GSON.fromJson(paymentMethod, CoinbaseAccount.class);
+        } else if (type.equals(AndroidPayCard.PAYMENT_METHOD_TYPE)) {
+            return GSON.fromJson(paymentMethod, AndroidPayCard.class);
+        }
+
+        return null;
     }
 
     /**
@@ -9,10 +9,15 @@ import com.braintreepayments.api.exceptions.BraintreeException;
 import com.braintreepayments.api.exceptions.ErrorWithResponse;
 import com.braintreepayments.api.exceptions.UnexpectedException;
 import com.braintreepayments.api.internal.HttpRequest;
+import com.braintreepayments.api.internal.RequestBody;
+import com.braintreepayments.api.internal.ResponseParser;
 import com.braintreepayments.api.models.ClientToken;
 import com.braintreepayments.testutils.TestClientTokenBuilder;
 
+import java.util.Map;
+
 import static com.braintreepayments.api.TestDependencyInjector.injectBraintree;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -86,6 +91,16 @@ public class BraintreeTestUtils {
         when(mockRequest.get(anyString())).thenThrow(new UnexpectedException("Mocked HTTP request"));
         when(mockRequest.post(anyString(), anyString())).thenThrow(
                 new UnexpectedException("Mocked HTTP request"));
+        when(mockRequest.get(anyString(), any(Map.class))).thenThrow(
+                new UnexpectedException("Mocked HTTP request"));
+        when(mockRequest.get(anyString(), any(ResponseParser.class))).thenThrow(
+                new UnexpectedException("Mocked HTTP request"));
+        when(mockRequest.post(anyString(), anyString(), any(ResponseParser.class))).thenThrow(
+                new UnexpectedException("Mocked HTTP request"));
+        when(mockRequest.post(anyString(), any(RequestBody.class))).thenThrow(
+                new UnexpectedException("Mocked HTTP request"));
+        when(mockRequest.post(anyString(), any(RequestBody.class), any(ResponseParser.class)))
+                .thenThrow(new UnexpectedException("Mocked HTTP request"));
 
         ClientToken mockClientToken = mock(ClientToken.class);
         when(mockClientToken.getConfigUrl()).thenReturn("http://example.com/");
@@ -7,9 +7,13 @@ import com.braintreepayments.api.exceptions.BraintreeException;
 import com.braintreepayments.api.exceptions.ErrorWithResponse;
 import com.braintreepayments.api.internal.HttpRequest;
 import com.braintreepayments.api.internal.HttpResponse;
+import com.braintreepayments.api.internal.RequestBody;
+import com.braintreepayments.api.internal.ResponseParser;
 import com.braintreepayments.api.models.ClientToken;
 import com.braintreepayments.api.models.Configuration;
 
+import java.util.Map;
+
 /**
  * Test utility class used to inject pre-configured instances of {@link Braintree} for use in
  * specific test cases.
@@ -41,6 +45,41 @@ public class TestDependencyInjector {
                 SystemClock.sleep(delay);
                 return super.post(url, params);
             }
+
+            @Override
+            public HttpResponse get(String url, Map<String, String> headers)
+                    throws BraintreeException, ErrorWithResponse {
+                SystemClock.sleep(delay);
+                return super.get(url, headers);
+            }
+
+            @Override
+            public <T> T get(String url, ResponseParser<T> parser)
+                    throws BraintreeException, ErrorWithResponse {
+                SystemClock.sleep(delay);
+                return super.get(url, parser);
+            }
+
+            @Override
+            public <T> T post(String url, String params, ResponseParser<T> parser)
+                    throws BraintreeException, ErrorWithResponse {
+                SystemClock.sleep(delay);
+                return super.post(url, params, parser);
+            }
+
+            @Override
+            public HttpResponse post(String url, RequestBody body)
+                    throws BraintreeException, ErrorWithResponse {
+                SystemClock.sleep(delay);
+                return super.post(url, body);
+            }
+
+            @Override
+            public <T> T post(String url, RequestBody body, ResponseParser<T> parser)
+                    throws BraintreeException, ErrorWithResponse {
+                SystemClock.sleep(delay);
+                return super.post(url, body, parser);
+            }
         };
         httpRequest.setBaseUrl(configuration.getClientApiUrl());
 
@@ -74,6 +113,41 @@ public class TestDependencyInjector {
                 SystemClock.sleep(delay);
                 return super.post(url, params);
             }
+
+            @Override
+            public HttpResponse get(String url, Map<String, String> headers)
+                    throws BraintreeException, ErrorWithResponse {
+                SystemClock.sleep(delay);
+                return super.get(url, headers);
+            }
+
+            @Override
+            public <T> T get(String url, ResponseParser<T> parser)
+                    throws BraintreeException, ErrorWithResponse {
+                SystemClock.sleep(delay);
+                return super.get(url, parser);
+            }
+
+            @Override
+            public <T> T post(String url, String params, ResponseParser<T> parser)
+                    throws BraintreeException, ErrorWithResponse {
+                SystemClock.sleep(delay);
+                return super.post(url, params, parser);
+            }
+
+            @Override
+            public HttpResponse post(String url, RequestBody body)
+                    throws BraintreeException, ErrorWithResponse {
+                SystemClock.sleep(delay);
+                return super.post(url, body);
+            }
+
+            @Override
+            public <T> T post(String url, RequestBody body, ResponseParser<T> parser)
+                    throws BraintreeException, ErrorWithResponse {
+                SystemClock.sleep(delay);
+                return super.post(url, body, parser);
+            }
         };
 
         injectBraintree(context, clientTokenString, clientToken, null, httpRequest);
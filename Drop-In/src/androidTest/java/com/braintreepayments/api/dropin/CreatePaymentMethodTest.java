@@ -14,8 +14,10 @@ import com.braintreepayments.api.dropin.view.LoadingHeader;
 import com.braintreepayments.api.dropin.view.LoadingHeader.HeaderState;
 import com.braintreepayments.api.exceptions.BraintreeException;
 import com.braintreepayments.api.exceptions.ErrorWithResponse;
+import com.braintreepayments.api.exceptions.UnexpectedException;
 import com.braintreepayments.api.internal.HttpRequest;
-import com.braintreepayments.api.internal.HttpResponse;
+import com.braintreepayments.api.internal.RequestBody;
+import com.braintreepayments.api.internal.ResponseParser;
 import com.braintreepayments.api.models.Card;
 import com.braintreepayments.api.models.CardBuilder;
 import com.braintreepayments.api.models.ClientToken;
@@ -23,7 +25,10 @@ import com.braintreepayments.api.models.Configuration;
 import com.braintreepayments.api.models.PaymentMethod;
 import com.braintreepayments.cardform.view.ErrorEditText;
 import com.braintreepayments.testutils.TestClientTokenBuilder;
+import com.google.gson.stream.JsonReader;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.Map;
 
 import static android.support.test.espresso.Espresso.onView;
@@ -411,12 +416,19 @@ public class CreatePaymentMethodTest extends BraintreePaymentActivityTestCase {
         Configuration configuration = Configuration.fromJson(clientTokenString);
         HttpRequest request = new HttpRequest(clientToken.getAuthorizationFingerprint()) {
             @Override
-            public HttpResponse post(String url, String params)
+            public <T> T post(String url, RequestBody body, ResponseParser<T> parser)
                     throws ErrorWithResponse, BraintreeException {
                 if(url.contains("credit_cards")) {
-                    return new HttpResponse(422, stringFromFixture(mContext, "error_response.json"));
+                    try {
+                        return parser.parse(new JsonReader(new StringReader(
+                                stringFromFixture(mContext, "error_response.json"))));
+                    } catch (BraintreeException e) {
+                        throw e;
+                    } catch (IOException e) {
+                        throw new UnexpectedException(e.getMessage());
+                    }
                 } else {
-                    return super.post(url, params);
+                    return super.post(url, body, parser);
                 }
             }
         };
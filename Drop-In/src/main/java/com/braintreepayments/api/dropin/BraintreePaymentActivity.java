@@ -31,6 +31,7 @@ import com.braintreepayments.api.exceptions.ErrorWithResponse;
 import com.braintreepayments.api.exceptions.ServerException;
 import com.braintreepayments.api.exceptions.UnexpectedException;
 import com.braintreepayments.api.exceptions.UpgradeRequiredException;
+import com.braintreepayments.api.internal.BraintreeExecutors;
 import com.braintreepayments.api.models.AndroidPayCard;
 import com.braintreepayments.api.models.Card;
 import com.braintreepayments.api.models.PayPalAccount;
@@ -39,7 +40,6 @@ import com.google.android.gms.wallet.Cart;
 
 import java.io.Serializable;
 import java.util.List;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -110,6 +110,7 @@ public class BraintreePaymentActivity extends Activity implements
     private AddPaymentMethodViewController mAddPaymentMethodViewController;
     private SelectPaymentMethodViewController mSelectPaymentMethodViewController;
     private AtomicBoolean mHavePaymentMethodsBeenReceived = new AtomicBoolean(false);
+    private boolean mShowingPersistedPaymentMethods = false;
     private Bundle mSavedInstanceState;
     private Customization mCustomization;
 
@@ -158,7 +159,15 @@ public class BraintreePaymentActivity extends Activity implements
             }
         } else {
             mBraintree.getPaymentMethods();
-            waitForData();
+            if (!mSavedInstanceState.getBoolean(ON_PAYMENT_METHOD_ADD_FORM_KEY) &&
+                    !mBraintree.getPersistedPaymentMethods().isEmpty()) {
+                // show the payment methods stored on this device until the current list arrives
+                mShowingPersistedPaymentMethods = true;
+                scheduleDataTimeout();
+                initSelectPaymentMethodView();
+            } else {
+                waitForData();
+            }
         }
     }
 
@@ -200,6 +209,7 @@ public class BraintreePaymentActivity extends Activity implements
     @Override
     public void onPaymentMethodsUpdated(List<PaymentMethod> paymentMethods) {
         mHavePaymentMethodsBeenReceived.set(true);
+        mShowingPersistedPaymentMethods = false;
 
         if (paymentMethods.size() == 0) {
             showAddPaymentMethodView();
@@ -218,7 +228,7 @@ public class BraintreePaymentActivity extends Activity implements
                 mBraintree.sendAnalyticsEvent("add-card.success");
 
                 mAddPaymentMethodViewController.showSuccess();
-                Executors.newScheduledThreadPool(1).schedule(new Runnable() {
+                BraintreeExecutors.getScheduler().schedule(new Runnable() {
                     @Override
                     public void run() {
                         runOnUiThread(new Runnable() {
@@ -248,8 +258,10 @@ public class BraintreePaymentActivity extends Activity implements
     @Override
     public void onUnrecoverableError(Throwable throwable) {
         // Falling back to add payment method if getPaymentMethods fails
-        if (StubbedView.LOADING_VIEW.mCurrentView && !mHavePaymentMethodsBeenReceived.get()) {
+        if ((StubbedView.LOADING_VIEW.mCurrentView || mShowingPersistedPaymentMethods) &&
+                !mHavePaymentMethodsBeenReceived.get()) {
             mHavePaymentMethodsBeenReceived.set(true);
+            mShowingPersistedPaymentMethods = false;
             showAddPaymentMethodView();
         } else {
             if(throwable instanceof AuthenticationException ||
@@ -290,21 +302,27 @@ public class BraintreePaymentActivity extends Activity implements
     }
 
     private void waitForData() {
-        Executors.newScheduledThreadPool(1).schedule(new Runnable() {
+        scheduleDataTimeout();
+        showLoadingView();
+    }
+
+    private void scheduleDataTimeout() {
+        BraintreeExecutors.getScheduler().schedule(new Runnable() {
             @Override
             public void run() {
                 if (!mHavePaymentMethodsBeenReceived.get()) {
                     runOnUiThread(new Runnable() {
                         @Override
                         public void run() {
-                            mHavePaymentMethodsBeenReceived.set(true);
-                            showAddPaymentMethodView();
+                            if (!mHavePaymentMethodsBeenReceived.getAndSet(true)) {
+                                mShowingPersistedPaymentMethods = false;
+                                showAddPaymentMethodView();
+                            }
                         }
                     });
                 }
             }
         }, 10, TimeUnit.SECONDS);
-        showLoadingView();
     }
 
     private void initSelectPaymentMethodView() {
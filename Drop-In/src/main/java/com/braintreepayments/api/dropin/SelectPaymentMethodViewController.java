@@ -4,6 +4,7 @@ import android.app.AlertDialog;
 import android.content.DialogInterface;
 import android.os.Build;
 import android.os.Bundle;
+import android.text.TextUtils;
 import android.view.ContextThemeWrapper;
 import android.view.View;
 import android.widget.Button;
@@ -13,6 +14,8 @@ import com.braintreepayments.api.Braintree;
 import com.braintreepayments.api.dropin.view.PaymentMethodView;
 import com.braintreepayments.api.models.PaymentMethod;
 
+import java.util.List;
+
 /**
  * {@link com.braintreepayments.api.dropin.BraintreeViewController} for handling manipulation of existing payment methods.
  */
@@ -33,6 +36,17 @@ public class SelectPaymentMethodViewController extends BraintreeViewController
 
     private int mActivePaymentMethod;
 
+    /**
+     * The payment method selected while the stored payment methods were shown, matched against
+     * the current list once it arrives.
+     */
+    private PaymentMethod mPersistedSelection;
+
+    /**
+     * The payment methods stored on this device, read once when the view is created.
+     */
+    private final List<PaymentMethod> mPersistedPaymentMethods;
+
     public SelectPaymentMethodViewController(BraintreePaymentActivity activity,
             Bundle savedInstanceState, View root, Braintree braintree, Customization customization) {
         super(activity, root, braintree, customization);
@@ -46,11 +60,14 @@ public class SelectPaymentMethodViewController extends BraintreeViewController
         mSubmitButton.setOnClickListener(this);
         mSubmitButton.setText(getSubmitButtonText());
 
+        mPersistedPaymentMethods = mBraintree.getPersistedPaymentMethods();
+
         if (savedInstanceState.containsKey(EXTRA_SELECTED_PAYMENT_METHOD)) {
             mActivePaymentMethod = savedInstanceState.getInt(EXTRA_SELECTED_PAYMENT_METHOD);
         } else {
             mActivePaymentMethod = 0;
         }
+        rememberPersistedSelection();
         setupPaymentMethod();
     }
 
@@ -62,11 +79,11 @@ public class SelectPaymentMethodViewController extends BraintreeViewController
     @Override
     public void onClick(View v) {
         if (v.getId() == mPaymentMethodView.getId()) {
-            if (mBraintree.getCachedPaymentMethods().size() > 1) {
+            if (getPaymentMethods().size() > 1) {
                 showPaymentMethodListDialog();
             }
         } else if (v.getId() == mChangeMethodView.getId()) {
-            if (mBraintree.getCachedPaymentMethods().size() == 1) {
+            if (getPaymentMethods().size() == 1) {
                 launchFormView();
             } else {
                 showPaymentMethodListDialog();
@@ -79,9 +96,11 @@ public class SelectPaymentMethodViewController extends BraintreeViewController
 
     protected void setupPaymentMethod() {
         mPaymentMethodView.setPaymentMethodDetails(getActivePaymentMethod());
+        // stored payment methods have no nonce, they can be selected once the current list arrived
+        mSubmitButton.setEnabled(!isShowingPersistedPaymentMethods());
 
         TextView link = findView(R.id.bt_change_payment_method_link);
-        if(mBraintree.getCachedPaymentMethods().size() == 1) {
+        if(getPaymentMethods().size() == 1) {
             link.setText(R.string.bt_add_payment_method);
         } else {
             link.setText(R.string.bt_change_payment_method);
@@ -91,7 +110,7 @@ public class SelectPaymentMethodViewController extends BraintreeViewController
     @SuppressWarnings("NewApi")
     private void showPaymentMethodListDialog() {
         PaymentMethodListAdapter paymentMethodListAdapter =
-                new PaymentMethodListAdapter(mActivity, this, mBraintree.getCachedPaymentMethods());
+                new PaymentMethodListAdapter(mActivity, this, getPaymentMethods());
 
         ContextThemeWrapper contextThemeWrapper;
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
@@ -119,10 +138,61 @@ public class SelectPaymentMethodViewController extends BraintreeViewController
 
     protected void onPaymentMethodSelected(int paymentMethodIndex) {
         mActivePaymentMethod = paymentMethodIndex;
+        rememberPersistedSelection();
         setupPaymentMethod();
     }
 
+    private void rememberPersistedSelection() {
+        mPersistedSelection = null;
+        if (isShowingPersistedPaymentMethods()) {
+            if (mActivePaymentMethod < mPersistedPaymentMethods.size()) {
+                mPersistedSelection = mPersistedPaymentMethods.get(mActivePaymentMethod);
+            }
+        }
+    }
+
+    /**
+     * @return The cached payment methods, or the payment methods stored on this device while the
+     *         current list is being fetched.
+     */
+    private List<PaymentMethod> getPaymentMethods() {
+        if (isShowingPersistedPaymentMethods()) {
+            return mPersistedPaymentMethods;
+        }
+        return mBraintree.getCachedPaymentMethods();
+    }
+
+    private boolean isShowingPersistedPaymentMethods() {
+        return mBraintree.getCachedPaymentMethods().isEmpty() &&
+                !mPersistedPaymentMethods.isEmpty();
+    }
+
     private PaymentMethod getActivePaymentMethod() {
-        return mBraintree.getCachedPaymentMethods().get(mActivePaymentMethod);
+        List<PaymentMethod> paymentMethods = getPaymentMethods();
+        if (mPersistedSelection != null && !isShowingPersistedPaymentMethods()) {
+            // the selection was made on the stored list, its index means nothing in this one
+            mActivePaymentMethod = indexOf(paymentMethods, mPersistedSelection);
+            mPersistedSelection = null;
+        }
+        if (mActivePaymentMethod >= paymentMethods.size()) {
+            // the cache was refreshed with fewer payment methods since the selection was made
+            mActivePaymentMethod = 0;
+        }
+        return paymentMethods.get(mActivePaymentMethod);
+    }
+
+    /**
+     * @return The index of the payment method in {@code paymentMethods} with the same type and
+     *         description as {@code paymentMethod}, or {@code 0} if there is none.
+     */
+    private static int indexOf(List<PaymentMethod> paymentMethods, PaymentMethod paymentMethod) {
+        for (int i = 0; i < paymentMethods.size(); i++) {
+            PaymentMethod candidate = paymentMethods.get(i);
+            if (TextUtils.equals(candidate.getTypeLabel(), paymentMethod.getTypeLabel()) &&
+                    TextUtils.equals(candidate.getDescription(), paymentMethod.getDescription())) {
+                return i;
+            }
+        }
+        return 0;
     }
 }